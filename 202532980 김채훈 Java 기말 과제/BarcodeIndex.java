@@ -0,0 +1,135 @@
+import java.util.Arrays;
+
+// 🏷️ 바코드(GTIN) -> 상품 행 번호 색인 (long 키를 그대로 쓰는 열린 주소 해시 테이블)
+// - Long/Integer 객체 없이 키 배열과 값 배열 두 개만 쓴다. 0 은 "빈 칸" 이라 바코드로 쓰지 않는다.
+// - 선형 탐사. 삭제할 때는 뒤따르는 칸을 당겨 채우므로(backward shift) 삭제 표시가 쌓이지 않는다.
+// - 이 색인은 ProductStore 가 들고 있으며, 구조 변경은 ProductStore 와 같은 규칙(EDT 한 곳에서만)을 따른다.
+class BarcodeIndex {
+    static final long NONE = 0L;
+
+    private long[] keys;
+    private int[] ids;
+    private int size = 0;
+
+    public BarcodeIndex() {
+        this(16);
+    }
+
+    public BarcodeIndex(int expectedSize) {
+        int capacity = 8;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        keys = new long[capacity];
+        ids = new int[capacity];
+    }
+
+    // 바코드 -> 행 번호 (없으면 -1)
+    public int get(long barcode) {
+        if (barcode == NONE) return -1;
+        int mask = keys.length - 1;
+        for (int slot = slotOf(barcode, mask); keys[slot] != NONE; slot = (slot + 1) & mask) {
+            if (keys[slot] == barcode) return ids[slot];
+        }
+        return -1;
+    }
+
+    // 바코드 등록/교체. 이전에 이 바코드가 가리키던 행 번호를 돌려준다 (없으면 -1)
+    public int put(long barcode, int id) {
+        if (barcode == NONE) throw new IllegalArgumentException("바코드 0 은 쓸 수 없습니다");
+        if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int slot = slotOf(barcode, mask);
+        while (keys[slot] != NONE) {
+            if (keys[slot] == barcode) {
+                int old = ids[slot];
+                ids[slot] = id;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = barcode;
+        ids[slot] = id;
+        size++;
+        return -1;
+    }
+
+    public boolean remove(long barcode) {
+        if (barcode == NONE) return false;
+        int mask = keys.length - 1;
+        int slot = slotOf(barcode, mask);
+        while (keys[slot] != barcode) {
+            if (keys[slot] == NONE) return false;
+            slot = (slot + 1) & mask;
+        }
+        // 빈 칸이 생기면 그 뒤에 밀려 있던 키들이 탐사 도중 끊기지 않도록 앞으로 당긴다
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != NONE; next = (next + 1) & mask) {
+            int home = slotOf(keys[next], mask);
+            // next 의 원래 자리가 (hole, next] 구간 밖이면 hole 로 옮겨도 찾을 수 있다
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                ids[hole] = ids[next];
+                hole = next;
+            }
+        }
+        keys[hole] = NONE;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, NONE);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new long[capacity];
+        ids = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == NONE) continue;
+            int slot = slotOf(oldKeys[i], mask);
+            while (keys[slot] != NONE) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            ids[slot] = oldIds[i];
+        }
+    }
+
+    // 같은 회사 코드로 시작하는(앞자리가 같은) 바코드가 한곳에 몰리지 않도록 섞는다
+    private static int slotOf(long barcode, int mask) {
+        long h = barcode * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    // 🔢 GTIN-8/12/13/14 문자열을 검사 숫자까지 확인해서 long 으로 (잘못된 코드는 NONE)
+    public static long parseGtin(String text) {
+        if (text == null) return NONE;
+        String s = text.trim();
+        int n = s.length();
+        if (n != 8 && n != 12 && n != 13 && n != 14) return NONE;
+        long value = 0;
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return NONE;
+            int digit = c - '0';
+            value = value * 10 + digit;
+            if (i < n - 1) sum += digit * (((n - 1 - i) % 2 == 1) ? 3 : 1); // 검사 숫자 바로 앞자리부터 3, 1, 3, 1 ...
+        }
+        int check = (10 - sum % 10) % 10;
+        if (check != s.charAt(n - 1) - '0' || value == NONE) return NONE;
+        return value;
+    }
+
+    // 화면/파일에 보여줄 문자열 (GTIN-13 보다 짧으면 앞을 0 으로 채운다)
+    public static String format(long barcode) {
+        if (barcode == NONE) return "";
+        String digits = Long.toString(barcode);
+        return digits.length() >= 13 ? digits : "0".repeat(13 - digits.length()) + digits;
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// 🛒 장바구니 + 합계를 함께 들고 있는 집계 객체
+// 줄(상품)마다 정가 합계와 이벤트 적용 가격을 저장해 두고, 전체 합계는 누적값으로 유지한다.
+// 한 줄의 수량이 바뀌면 그 줄만 다시 계산해서 합계에 차이만 반영한다 (O(1)).
+class CartAggregate {
+    // 장바구니 한 줄
+    static class Line {
+        final String name;
+        int quantity;
+        int unitPrice;
+        long grossPrice;   // 정가 x 수량
+        long eventPrice;   // 이벤트 적용 가격
+        int freeCount;     // N+1 으로 공짜가 된 수량
+
+        Line(String name) {
+            this.name = name;
+        }
+    }
+
+    // 결제 화면/영수증/판매 처리에서 같이 쓰는 합계 스냅샷
+    static class Snapshot {
+        final long grossTotal;
+        final long totalWithEvents;
+        final long manualDiscount;
+        final long finalTotal;
+        final long totalDiscount;
+
+        Snapshot(long grossTotal, long totalWithEvents, long manualDiscount) {
+            this.grossTotal = grossTotal;
+            this.totalWithEvents = totalWithEvents;
+            this.manualDiscount = manualDiscount;
+            this.finalTotal = Math.max(0, totalWithEvents - manualDiscount);
+            this.totalDiscount = (grossTotal - totalWithEvents) + manualDiscount;
+        }
+    }
+
+    private final ProductStore products;
+    private final PromotionEngine promotions;
+    private final Map<String, Line> lines = new LinkedHashMap<>();
+    private long grossTotal = 0;
+    private long totalWithEvents = 0;
+    private long manualDiscount = 0;
+    private final SaleResult scratch = new SaleResult(0, 0); // 줄 계산마다 새 객체를 만들지 않도록 재사용
+
+    public CartAggregate(ProductStore products, PromotionEngine promotions) {
+        this.products = products;
+        this.promotions = promotions;
+    }
+
+    public int getQuantity(String name) {
+        Line line = lines.get(name);
+        return line == null ? 0 : line.quantity;
+    }
+
+    // 수량 변경 (0 이하면 줄 삭제)
+    public void setQuantity(String name, int quantity) {
+        if (quantity <= 0) {
+            remove(name);
+            return;
+        }
+        Line line = lines.get(name);
+        if (line == null) {
+            line = new Line(name);
+            lines.put(name, line);
+        }
+        line.quantity = quantity;
+        reprice(line);
+    }
+
+    public void remove(String name) {
+        Line line = lines.remove(name);
+        if (line == null) return;
+        grossTotal -= line.grossPrice;
+        totalWithEvents -= line.eventPrice;
+    }
+
+    public void clear() {
+        lines.clear();
+        grossTotal = 0;
+        totalWithEvents = 0;
+        manualDiscount = 0;
+    }
+
+    public void setManualDiscount(long manualDiscount) {
+        this.manualDiscount = manualDiscount;
+    }
+
+    // 상품 가격이 바뀌었을 때 그 줄만 다시 계산
+    public void reprice(String name) {
+        Line line = lines.get(name);
+        if (line != null) reprice(line);
+    }
+
+    // 이벤트가 바뀌었거나 결제 직전에 모든 줄을 다시 계산 (이벤트 기간 경계 반영)
+    public void repriceAll() {
+        for (Line line : lines.values()) {
+            reprice(line);
+        }
+    }
+
+    private void reprice(Line line) {
+        grossTotal -= line.grossPrice;
+        totalWithEvents -= line.eventPrice;
+
+        int id = products.idOf(line.name);
+        if (id < 0) {
+            line.unitPrice = 0;
+            line.grossPrice = 0;
+            line.eventPrice = 0;
+            line.freeCount = 0;
+        } else {
+            int price = products.price(id);
+            promotions.price(line.name, price, line.quantity, System.currentTimeMillis(), scratch);
+            line.unitPrice = price;
+            line.grossPrice = Money.lineAmount(price, line.quantity);
+            line.eventPrice = scratch.totalPrice;
+            line.freeCount = scratch.freeCount;
+        }
+
+        grossTotal += line.grossPrice;
+        totalWithEvents += line.eventPrice;
+    }
+
+    public Line getLine(String name) {
+        return lines.get(name);
+    }
+
+    public Collection<Line> getLines() {
+        return Collections.unmodifiableCollection(lines.values());
+    }
+
+    public Set<String> names() {
+        return Collections.unmodifiableSet(lines.keySet());
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(grossTotal, totalWithEvents, manualDiscount);
+    }
+}
@@ -0,0 +1,321 @@
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// 🔄 오프라인 우선 동기화: 계산대는 로컬 캐시(이력 스냅샷)로 먼저 열고, 본사 DB 와는 이 작업자가 뒤에서 맞춘다.
+// - DB 가 꺼져 있어도 결제는 판매 저널에 쌓이며 계속된다. 이 작업자는 DB 가 돌아올 때까지 간격을 늘려 가며 다시 시도한다.
+// - 재고 충돌: 상품마다 "DB 에 있다고 알고 있는 재고"(base)를 들고 있다.
+//     본사 쪽 변경 = DB 재고 - base  -> 로컬 재고에 더한다
+//     로컬 변경   = 로컬 재고 - base -> 저장할 때 DB 재고에 더한다 (quantity = quantity + 차이)
+//   그래서 양쪽이 같은 상품의 재고를 동시에 바꿔도 어느 한쪽이 덮어쓰지 않고 합쳐진다 (양쪽이 함께 바꾼 경우를 충돌로 센다).
+//   합친 값이 0 아래면 0 으로 둔다.
+// - base 는 판매 저널이 이번 실행의 판매를 DB 에 반영할 때(salesApplied), 저장에 성공했을 때(saved), 본사 변경을 받아들일 때 바뀐다.
+// - 가격/발주수량/이익률/바코드는 마지막으로 본 본사 값(seen)과 비교해, 본사에서 바뀐 칸만 받아들인다 (같은 칸을 양쪽이 바꿨으면 본사 값).
+//   판매량은 이 점포만 쓰는 값이라 로컬 값을 그대로 둔다.
+// - 이벤트 규칙은 로컬에서 저장하지 않은 변경이 있으면 로컬이, 없으면 본사 값이 이긴다.
+//   DB 에 없는 규칙은 상품처럼 이전에 DB 에 있다고 알던 것(knownRules)만 본사 삭제로 보고 지운다.
+class CatalogSync {
+    static final long SYNC_INTERVAL_MILLIS = 15_000;
+    static final long OFFLINE_RETRY_MIN_MILLIS = 2_000;
+    static final long OFFLINE_RETRY_MAX_MILLIS = 60_000;
+
+    // 본사 DB 의 상품 한 줄 (저장한 줄을 seen 에 남길 때도 쓴다)
+    static final class RemoteProduct {
+        final String name;
+        final int price;
+        final int quantity;
+        final int orderedQuantity;
+        final int soldQuantity;
+        final int profitRate;
+        final long barcode;
+
+        RemoteProduct(String name, int price, int quantity, int orderedQuantity, int soldQuantity, int profitRate, long barcode) {
+            this.name = name;
+            this.price = price;
+            this.quantity = quantity;
+            this.orderedQuantity = orderedQuantity;
+            this.soldQuantity = soldQuantity;
+            this.profitRate = profitRate;
+            this.barcode = barcode;
+        }
+
+        static RemoteProduct of(Product p) {
+            return new RemoteProduct(p.name, p.getPrice(), p.getQuantity(), p.getOrderedQuantity(), p.getSoldQuantity(), p.getProfitRate(), p.getBarcode());
+        }
+    }
+
+    // 한 번 읽어 온 본사 상태. EDT 에서 SevenElevenManagement.applyCentralChanges 가 로컬에 반영한다.
+    static final class Pull {
+        final List<RemoteProduct> products = new ArrayList<>();
+        final Map<String, EventRule> rules = new LinkedHashMap<>();
+        final Map<String, Integer> baseAtRead = new HashMap<>();  // 읽는 순간의 base (null = 처음 보는 상품)
+        final Map<String, RemoteProduct> seenAtRead = new HashMap<>();
+        final Set<String> knownBefore = new HashSet<>();          // 이전에도 DB 에 있던 상품 (DB 에서 사라졌으면 본사 삭제)
+        final Set<String> rulesKnownBefore = new HashSet<>();     // 이전에도 DB 에 있던 이벤트 규칙
+
+        // 이 상품에 대해 로컬 재고에 더할 본사 쪽 변경 (처음 보는 상품이면 null)
+        Integer centralStockDelta(RemoteProduct remote) {
+            Integer base = baseAtRead.get(remote.name);
+            return base == null ? null : remote.quantity - base;
+        }
+
+        // 지난번 동기화(또는 저장) 때의 본사 값. 이번 값과 다른 칸이 본사에서 바뀐 칸이다 (처음 보는 상품이면 null)
+        RemoteProduct seenBefore(RemoteProduct remote) {
+            return seenAtRead.get(remote.name);
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final String schema;
+    private final SalesJournal journal;
+    private final SalesRollup rollup;
+    private final Consumer<Pull> onPulled;        // EDT 에서 호출
+    private final Consumer<String> onOffline;     // EDT 에서 호출 (오류 메시지)
+
+    private final Map<String, Integer> base = new HashMap<>();
+    private final Map<String, RemoteProduct> seen = new HashMap<>();
+    private final Set<String> knownRules = new HashSet<>(); // DB 에 있다고 알고 있는 이벤트 규칙
+    private Thread worker;
+    private final Object wake = new Object();
+    private boolean wakeRequested = false;
+    private volatile boolean running = false;
+    private volatile long lastSyncMillis = 0;
+    private volatile long nextAttemptMillis = 0;
+    private boolean connectedOnce = false;
+    private boolean loadRollup = false;
+    private long conflicts = 0;
+
+    public CatalogSync(ConnectionPool pool, String schema, SalesJournal journal, SalesRollup rollup, Consumer<Pull> onPulled, Consumer<String> onOffline) {
+        this.pool = pool;
+        this.schema = schema;
+        this.journal = journal;
+        this.rollup = rollup;
+        this.onPulled = onPulled;
+        this.onOffline = onOffline;
+        journal.setAppliedListener(this::salesApplied);
+    }
+
+    // 로컬 캐시로 시작할 때: 캐시의 재고를 DB 재고로 보고 시작한다 (지난 실행의 판매는 캐시에 이미 들어 있고 첫 동기화 전에 DB 에도 반영된다)
+    // 시작할 때 DB 를 읽지 않았으므로 매출 집계도 처음 연결될 때 읽는다.
+    public synchronized void initBase(Collection<Product> cached, Collection<String> cachedRules) {
+        for (Product p : cached) {
+            base.put(p.name, p.getQuantity());
+            seen.put(p.name, RemoteProduct.of(p));
+        }
+        knownRules.addAll(cachedRules);
+        loadRollup = true;
+    }
+
+    // 이번 실행의 판매가 DB 에 반영됨 (판매 저널 플러셔 스레드)
+    private synchronized void salesApplied(Map<String, Long> sold) {
+        for (Map.Entry<String, Long> e : sold.entrySet()) {
+            base.computeIfPresent(e.getKey(), (name, q) -> (int) (q - e.getValue()));
+        }
+    }
+
+    // 저장할 때 DB 재고에 더할 값 (base 를 모르면 null -> 로컬 값을 그대로 쓴다)
+    public synchronized Integer stockDelta(String name, int localQuantity) {
+        Integer known = base.get(name);
+        return known == null ? null : localQuantity - known;
+    }
+
+    // 저장(커밋) 성공: DB 가 이 값들을 반영했다. 재고를 차이로 썼어도 base 는 로컬 값이 된다
+    // (그 사이 본사 쪽 변경이 있었다면 DB 에만 남아 있으므로 다음 동기화 때 DB - base 로 로컬에 들어온다).
+    public synchronized void saved(Collection<RemoteProduct> written, Collection<String> deleted) {
+        for (RemoteProduct row : written) {
+            base.put(row.name, row.quantity);
+            seen.put(row.name, row);
+        }
+        for (String name : deleted) forget(name);
+    }
+
+    // 이벤트 규칙 저장(커밋) 성공
+    public synchronized void rulesSaved(Collection<String> written, Collection<String> deleted) {
+        knownRules.addAll(written);
+        knownRules.removeAll(deleted);
+    }
+
+    // 로컬 값을 DB 에 직접 넣었을 때 (CSV 가져오기 등)
+    public synchronized void reset(RemoteProduct row) {
+        saved(Collections.singletonList(row), Collections.emptyList());
+    }
+
+    // 본사 변경을 로컬에 받아들였을 때 (EDT). 덧셈으로 바꾸므로 그 사이의 판매 반영/저장과 순서가 어긋나도 맞는다.
+    public synchronized void acceptCentral(String name, int delta) {
+        base.computeIfPresent(name, (n, q) -> q + delta);
+    }
+
+    public synchronized void forget(String name) {
+        base.remove(name);
+        seen.remove(name);
+    }
+
+    public synchronized void countConflict() {
+        conflicts++;
+        PosMetrics.SYNC_CONFLICTS.increment();
+    }
+
+    public synchronized long getConflicts() {
+        return conflicts;
+    }
+
+    public long getLastSyncMillis() {
+        return lastSyncMillis;
+    }
+
+    public long getNextAttemptMillis() {
+        return nextAttemptMillis;
+    }
+
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "catalog-sync");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // 지금 바로 한 번 맞춘다 (저장 버튼 등). 읽는 중이면 끝난 뒤 한 번 더 읽는다.
+    // interrupt 는 쓰지 않는다 (저널 파일 채널이 닫힐 수 있다).
+    public void requestSync() {
+        synchronized (wake) {
+            wakeRequested = true;
+            wake.notifyAll();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        requestSync();
+    }
+
+    private void run() {
+        long retry = OFFLINE_RETRY_MIN_MILLIS;
+        while (running) {
+            long wait;
+            try {
+                Pull pull = pull();
+                lastSyncMillis = System.currentTimeMillis();
+                retry = OFFLINE_RETRY_MIN_MILLIS;
+                wait = SYNC_INTERVAL_MILLIS;
+                nextAttemptMillis = System.currentTimeMillis() + wait;
+                SwingUtilities.invokeLater(() -> onPulled.accept(pull));
+            } catch (SQLException | IOException | RuntimeException e) {
+                PosMetrics.SYNC_FAILURES.increment();
+                wait = retry;
+                retry = Math.min(retry * 2, OFFLINE_RETRY_MAX_MILLIS);
+                nextAttemptMillis = System.currentTimeMillis() + wait;
+                String message = e.getMessage();
+                SwingUtilities.invokeLater(() -> onOffline.accept(message));
+            }
+            await(wait);
+        }
+    }
+
+    private void await(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        synchronized (wake) {
+            try {
+                for (long left = millis; !wakeRequested && running && left > 0; left = deadline - System.currentTimeMillis()) {
+                    wake.wait(left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            wakeRequested = false;
+        }
+    }
+
+    // 본사 상태 읽기 (작업자 스레드). 결제는 막지 않는다.
+    Pull pull() throws SQLException, IOException {
+        long start = PosMetrics.SYNC_PULL.start();
+        Pull pull = new Pull();
+        journal.applyLock().lock(); // 읽는 동안 판매 증감분이 DB 에 반영되지 않도록 (base 와 DB 값이 같은 시점이 되게)
+        try {
+            // 저널에 쌓인 판매를 먼저 DB 에 반영해, 지난 실행의 판매가 본사 쪽 변경처럼 보이지 않게 한다.
+            // 저널 잠금은 세그먼트를 봉인하는 동안만 잡히고, 반영과 아래 읽기는 applyLock 만 잡은 채로 한다 (결제 기록은 계속된다).
+            if (!connectedOnce) prepareSchema();
+            journal.flush();
+            readRemote(pull);
+        } finally {
+            journal.applyLock().unlock();
+            PosMetrics.SYNC_PULL.stop(start);
+        }
+        return pull;
+    }
+
+    // 처음 DB 에 닿았을 때 한 번: 스키마와 테이블 확인 (캐시로 시작했으면 아직 확인하지 않았다). 저널 반영보다 먼저 해야 한다.
+    private void prepareSchema() throws SQLException {
+        StoreShards.createSchema(pool, schema);
+        try (Connection conn = pool.borrow(schema)) {
+            SevenElevenManagement.ensureStoreTables(conn);
+            SevenElevenManagement.ensureProductColumns(conn);
+            SevenElevenManagement.ensureEventRuleColumns(conn);
+        }
+        connectedOnce = true;
+    }
+
+    private void readRemote(Pull pull) throws SQLException {
+        try (Connection conn = pool.borrow(schema)) {
+            if (loadRollup) {
+                rollup.load(conn, System.currentTimeMillis()); // 더해 넣으므로 한 번만
+                loadRollup = false;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT name, price, quantity, ordered_quantity, sold_quantity, profit_rate, barcode FROM products")) {
+                stmt.setFetchSize(1000);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        pull.products.add(new RemoteProduct(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getInt(4),
+                                                            rs.getInt(5), rs.getInt(6), rs.getLong(7)));
+                    }
+                } finally {
+                    stmt.setFetchSize(0); // 캐시된 statement 를 다른 곳에서 재사용할 때를 위해 원래대로
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT rule_name, rule_type, target_product, rule_value, priority, start_at, end_at FROM event_rules");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp startAt = rs.getTimestamp(6);
+                    Timestamp endAt = rs.getTimestamp(7);
+                    EventRule rule = new EventRule(rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5),
+                                                   startAt == null ? 0 : startAt.getTime(), endAt == null ? 0 : endAt.getTime());
+                    pull.rules.put(rule.ruleName, rule);
+                }
+            }
+            synchronized (this) {
+                pull.knownBefore.addAll(base.keySet());
+                pull.rulesKnownBefore.addAll(knownRules);
+                knownRules.clear();
+                knownRules.addAll(pull.rules.keySet());
+                for (RemoteProduct remote : pull.products) {
+                    RemoteProduct last = seen.put(remote.name, remote);
+                    if (last != null) pull.seenAtRead.put(remote.name, last);
+                    Integer known = base.get(remote.name);
+                    if (known != null) {
+                        pull.baseAtRead.put(remote.name, known);
+                    } else {
+                        // 처음 보는 상품: 지금 DB 값에서 시작한다. 로컬에 이미 있으면 로컬 재고는 그대로 두는데,
+                        // 아직 DB 에 반영되지 않은 이번 실행의 판매만큼 base 보다 적을 뿐이고 그 판매가 반영되면 맞춰진다.
+                        base.put(remote.name, remote.quantity);
+                    }
+                }
+            }
+        }
+    }
+}
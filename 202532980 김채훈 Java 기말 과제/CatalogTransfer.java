@@ -0,0 +1,484 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// 📦 상품/이벤트 목록을 CSV(쉼표) 또는 TSV(탭) 파일로 한꺼번에 가져오고 내보내는 도구
+// - 가져오기: 파일을 버퍼 단위로 읽으면서 줄마다 필드 위치만 표시하고, 숫자는 바이트에서 바로 읽는다.
+//   (문자열은 상품명/이벤트명처럼 꼭 필요한 필드만 만든다) 파일 전체를 메모리에 올리지 않는다.
+// - DB 반영: INSERT_ROWS 행을 한 번에 넣는 다중 행 INSERT 를 쓰고, COMMIT_ROWS 행마다 커밋한다.
+//   커밋된 묶음만 committed 콜백으로 넘기므로, 중간에 실패해도 화면과 DB 가 어긋나지 않는다.
+// - 내보내기: DB 에서 커서로 조금씩 읽어 바로 파일에 쓴다.
+//
+// 상품 파일 열: 상품명, 가격, 재고[, 발주수량, 판매량, 이익률, 바코드]   (이익률 생략 시 10, 바코드가 비어 있으면 기존 값 유지)
+// 이벤트 파일 열: 이벤트명, 유형, 대상상품, 값[, 우선순위, 시작(yyyy-MM-dd HH:mm), 종료]
+// 첫 줄이 머리글이면(숫자 열이 숫자가 아니면) 건너뛴다. 따옴표로 감싼 필드("a,b", "" 이스케이프)를 지원한다.
+class CatalogTransfer {
+    static final int INSERT_ROWS = 1000;    // INSERT 문 하나에 넣는 행 수
+    static final int COMMIT_ROWS = 20_000;  // 이 행 수마다 커밋
+    private static final int MAX_ERRORS = 20;
+    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm";
+
+    // 가져오기/내보내기 결과
+    static class Result {
+        long rows;
+        long skipped;
+        long nanos;
+        final List<String> errors = new ArrayList<>();
+
+        double rowsPerSecond() {
+            return nanos == 0 ? 0 : rows / (nanos / 1e9);
+        }
+
+        void reject(long line, String message) {
+            skipped++;
+            if (errors.size() < MAX_ERRORS) errors.add(line + "행: " + message);
+        }
+    }
+
+    // 확장자로 구분자 결정 (.tsv / .txt 는 탭, 나머지는 쉼표)
+    static char delimiterFor(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".tsv") || name.endsWith(".txt") ? '\t' : ',';
+    }
+
+    // 📥 상품 가져오기. 커밋된 묶음마다 committed 에 상품 묶음을 넘긴다.
+    static Result importProducts(File file, Connection conn, Consumer<ProductStore> committed) throws IOException, SQLException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        String columns = "(name, price, quantity, ordered_quantity, sold_quantity, profit_rate, barcode)";
+        // 바코드 열이 비어 있으면 DB 의 기존 바코드를 그대로 둔다
+        String update = " ON DUPLICATE KEY UPDATE price = VALUES(price), quantity = VALUES(quantity), ordered_quantity = VALUES(ordered_quantity), " +
+                        "sold_quantity = VALUES(sold_quantity), profit_rate = VALUES(profit_rate), barcode = COALESCE(VALUES(barcode), barcode)";
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (RowReader reader = new RowReader(new FileInputStream(file), delimiterFor(file));
+             MultiRowInsert insert = new MultiRowInsert(conn, "INSERT INTO products " + columns + " VALUES ", 7, update)) {
+            ProductStore pending = new ProductStore(COMMIT_ROWS);
+            while (reader.next()) {
+                if (reader.fieldCount() < 3) {
+                    if (!reader.isBlank()) result.reject(reader.lineNumber(), "열이 부족합니다 (상품명, 가격, 재고 필요)");
+                    continue;
+                }
+                String name = reader.string(0).trim();
+                int price, quantity, ordered, sold, rate;
+                try {
+                    price = reader.intField(1);
+                    quantity = reader.intField(2);
+                    ordered = reader.fieldCount() > 3 ? reader.intField(3) : 0;
+                    sold = reader.fieldCount() > 4 ? reader.intField(4) : 0;
+                    rate = reader.fieldCount() > 5 ? reader.intField(5) : 10;
+                } catch (NumberFormatException e) {
+                    if (reader.lineNumber() == 1) continue; // 머리글
+                    result.reject(reader.lineNumber(), "숫자가 아닌 값이 있습니다");
+                    continue;
+                }
+                if (name.isEmpty() || name.length() > 100) { result.reject(reader.lineNumber(), "상품명은 1~100자여야 합니다"); continue; }
+                if (price <= 0) { result.reject(reader.lineNumber(), "가격은 0보다 커야 합니다"); continue; }
+                if (quantity < 0 || ordered < 0 || sold < 0) { result.reject(reader.lineNumber(), "수량은 0 이상이어야 합니다"); continue; }
+                if (rate < 0 || rate > 100) { result.reject(reader.lineNumber(), "이익률은 0~100 사이여야 합니다"); continue; }
+                long barcode = BarcodeIndex.NONE;
+                if (reader.fieldCount() > 6 && !reader.isEmpty(6)) {
+                    barcode = BarcodeIndex.parseGtin(reader.string(6));
+                    if (barcode == BarcodeIndex.NONE) { result.reject(reader.lineNumber(), "바코드는 검사 숫자가 맞는 GTIN-8/12/13/14 여야 합니다"); continue; }
+                    int owner = pending.idOfBarcode(barcode);
+                    if (owner >= 0 && !pending.nameAt(owner).equals(name)) { result.reject(reader.lineNumber(), "바코드가 " + pending.nameAt(owner) + " 와 겹칩니다"); continue; }
+                }
+
+                insert.addRow(name, price, quantity, ordered, sold, rate, barcode == BarcodeIndex.NONE ? null : barcode);
+                Product existing = pending.get(name);
+                if (existing == null) {
+                    existing = pending.add(name, price, quantity, ordered, sold, rate);
+                } else { // 같은 파일 안에서 중복되면 뒤의 행이 이긴다 (DB 도 같음)
+                    existing.setPrice(price);
+                    existing.setQuantity(quantity);
+                    existing.setOrderedQuantity(ordered);
+                    pending.setSoldQuantity(existing.id, sold);
+                    existing.setProfitRate(rate);
+                }
+                if (barcode != BarcodeIndex.NONE) existing.setBarcode(barcode);
+                result.rows++;
+                if (result.rows % COMMIT_ROWS == 0) {
+                    insert.flush();
+                    conn.commit();
+                    committed.accept(pending);
+                    pending = new ProductStore(COMMIT_ROWS);
+                }
+            }
+            insert.flush();
+            conn.commit();
+            if (!pending.isEmpty()) committed.accept(pending);
+        } catch (IOException | SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // 📥 이벤트 가져오기. 같은 이름의 기존 이벤트는 교체한다. 커밋된 묶음마다 committed 에 넘긴다.
+    static Result importEvents(File file, Connection conn, Consumer<List<EventRule>> committed) throws IOException, SQLException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        SimpleDateFormat format = new SimpleDateFormat(DATE_PATTERN);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (RowReader reader = new RowReader(new FileInputStream(file), delimiterFor(file))) {
+            Map<String, EventRule> pending = new LinkedHashMap<>();
+            while (reader.next()) {
+                if (reader.fieldCount() < 4) {
+                    if (!reader.isBlank()) result.reject(reader.lineNumber(), "열이 부족합니다 (이벤트명, 유형, 대상상품, 값 필요)");
+                    continue;
+                }
+                String name = reader.string(0).trim();
+                String type = reader.string(1).trim();
+                String target = reader.string(2).trim();
+                int value, priority;
+                long startTime, endTime;
+                try {
+                    value = reader.intField(3);
+                    priority = reader.fieldCount() > 4 && !reader.isEmpty(4) ? reader.intField(4) : 0;
+                    startTime = reader.fieldCount() > 5 && !reader.isEmpty(5) ? format.parse(reader.string(5).trim()).getTime() : 0;
+                    endTime = reader.fieldCount() > 6 && !reader.isEmpty(6) ? format.parse(reader.string(6).trim()).getTime() : 0;
+                } catch (NumberFormatException | ParseException e) {
+                    if (reader.lineNumber() == 1) continue; // 머리글
+                    result.reject(reader.lineNumber(), "값/우선순위는 숫자, 기간은 " + DATE_PATTERN + " 형식이어야 합니다");
+                    continue;
+                }
+                PromotionKind kind = PromotionKind.fromLabel(type);
+                if (name.isEmpty() || target.isEmpty()) { result.reject(reader.lineNumber(), "이벤트명과 대상 상품이 필요합니다"); continue; }
+                if (kind == null) { result.reject(reader.lineNumber(), "알 수 없는 이벤트 유형: " + type); continue; }
+                if (kind.quantityRule && value <= 0) { result.reject(reader.lineNumber(), "1+1, 2+1 및 묶음 상품의 값은 0보다 커야 합니다"); continue; }
+                if (startTime != 0 && endTime != 0 && endTime <= startTime) { result.reject(reader.lineNumber(), "종료 시각은 시작 시각 이후여야 합니다"); continue; }
+
+                pending.put(name, new EventRule(name, type, target, value, priority, startTime, endTime));
+                result.rows++;
+                if (pending.size() >= INSERT_ROWS) { // 이벤트는 상품보다 훨씬 적으므로 INSERT 묶음마다 커밋
+                    writeEvents(conn, pending.values());
+                    conn.commit();
+                    committed.accept(new ArrayList<>(pending.values()));
+                    pending.clear();
+                }
+            }
+            writeEvents(conn, pending.values());
+            conn.commit();
+            if (!pending.isEmpty()) committed.accept(new ArrayList<>(pending.values()));
+        } catch (IOException | SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void writeEvents(Connection conn, java.util.Collection<EventRule> rules) throws SQLException {
+        if (rules.isEmpty()) return;
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM event_rules WHERE rule_name = ?")) {
+            for (EventRule rule : rules) {
+                delete.setString(1, rule.ruleName);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        }
+        try (MultiRowInsert insert = new MultiRowInsert(conn,
+                "INSERT INTO event_rules (rule_name, rule_type, target_product, rule_value, priority, start_at, end_at) VALUES ", 7, "")) {
+            for (EventRule rule : rules) {
+                insert.addRow(rule.ruleName, rule.type, rule.targetProduct, rule.value, rule.priority,
+                              rule.startTime == 0 ? null : new Timestamp(rule.startTime),
+                              rule.endTime == 0 ? null : new Timestamp(rule.endTime));
+            }
+        }
+    }
+
+    // 📤 상품 내보내기 (DB 의 products 를 커서로 읽으며 바로 쓴다)
+    static Result exportProducts(Connection conn, File file) throws IOException, SQLException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        char d = delimiterFor(file);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+             PreparedStatement stmt = conn.prepareStatement("SELECT name, price, quantity, ordered_quantity, sold_quantity, profit_rate, barcode FROM products ORDER BY name")) {
+            stmt.setFetchSize(INSERT_ROWS);
+            out.write(String.join(String.valueOf(d), "상품명", "가격", "재고", "발주수량", "판매량", "이익률", "바코드") + "\n");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    out.write(quote(rs.getString(1), d));
+                    for (int i = 2; i <= 6; i++) {
+                        out.write(d);
+                        out.write(Integer.toString(rs.getInt(i)));
+                    }
+                    out.write(d);
+                    out.write(BarcodeIndex.format(rs.getLong(7))); // 앞자리 0 을 살려 13자리로
+                    out.write('\n');
+                    result.rows++;
+                }
+            } finally {
+                stmt.setFetchSize(0); // 캐시된 statement 를 다른 곳에서 재사용할 때를 위해 원래대로
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // 📤 이벤트 내보내기
+    static Result exportEvents(Connection conn, File file) throws IOException, SQLException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        char d = delimiterFor(file);
+        SimpleDateFormat format = new SimpleDateFormat(DATE_PATTERN);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+             PreparedStatement stmt = conn.prepareStatement("SELECT rule_name, rule_type, target_product, rule_value, priority, start_at, end_at FROM event_rules ORDER BY rule_name");
+             ResultSet rs = stmt.executeQuery()) {
+            out.write(String.join(String.valueOf(d), "이벤트명", "유형", "대상상품", "값", "우선순위", "시작", "종료") + "\n");
+            while (rs.next()) {
+                Timestamp startAt = rs.getTimestamp(6);
+                Timestamp endAt = rs.getTimestamp(7);
+                out.write(quote(rs.getString(1), d) + d + quote(rs.getString(2), d) + d + quote(rs.getString(3), d) + d
+                          + rs.getInt(4) + d + rs.getInt(5) + d
+                          + (startAt == null ? "" : format.format(startAt)) + d
+                          + (endAt == null ? "" : format.format(endAt)) + "\n");
+                result.rows++;
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // 구분자/따옴표/줄바꿈이 들어있으면 따옴표로 감싼다
+    private static String quote(String s, char d) {
+        if (s.indexOf(d) < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    // 여러 행을 INSERT 문 하나로 모아 실행 (rowsPerStatement 행이 차면 자동 실행)
+    private static class MultiRowInsert implements AutoCloseable {
+        private final Connection conn;
+        private final String prefix;
+        private final String suffix;
+        private final int columns;
+        private final Object[] values;
+        private PreparedStatement full;  // INSERT_ROWS 행짜리 문장 (재사용)
+        private int rows = 0;
+
+        MultiRowInsert(Connection conn, String prefix, int columns, String suffix) {
+            this.conn = conn;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.columns = columns;
+            this.values = new Object[INSERT_ROWS * columns];
+        }
+
+        void addRow(Object... row) throws SQLException {
+            System.arraycopy(row, 0, values, rows * columns, columns);
+            rows++;
+            if (rows == INSERT_ROWS) flush();
+        }
+
+        void flush() throws SQLException {
+            if (rows == 0) return;
+            PreparedStatement stmt;
+            if (rows == INSERT_ROWS) {
+                if (full == null) full = conn.prepareStatement(sql(INSERT_ROWS));
+                stmt = full;
+            } else {
+                stmt = conn.prepareStatement(sql(rows));
+            }
+            try {
+                for (int i = 0; i < rows * columns; i++) {
+                    stmt.setObject(i + 1, values[i]);
+                }
+                stmt.executeUpdate();
+            } finally {
+                if (stmt != full) stmt.close();
+            }
+            rows = 0;
+        }
+
+        private String sql(int rowCount) {
+            StringBuilder sb = new StringBuilder(prefix);
+            StringBuilder one = new StringBuilder("(");
+            for (int c = 0; c < columns; c++) {
+                one.append(c == 0 ? "?" : ", ?");
+            }
+            one.append(')');
+            for (int r = 0; r < rowCount; r++) {
+                if (r > 0) sb.append(", ");
+                sb.append(one);
+            }
+            return sb.append(suffix).toString();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            flush();
+            if (full != null) full.close();
+        }
+    }
+
+    // 📄 구분자로 나뉜 줄을 버퍼 안에서 바로 읽는 리더
+    // 필드마다 버퍼 안의 시작/끝 위치만 기록하고, 문자열은 string() 을 부를 때만 만든다.
+    // (따옴표 안의 줄바꿈은 지원하지 않는다)
+    static class RowReader implements Closeable {
+        private final InputStream in;
+        private final char delimiter;
+        private byte[] buf = new byte[1 << 16];
+        private int pos = 0;       // 다음 줄의 시작
+        private int limit = 0;     // 버퍼에 읽어 둔 끝
+        private boolean eof = false;
+        private long line = 0;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] quoted = new boolean[16];
+        private int fields = 0;
+
+        RowReader(InputStream in, char delimiter) {
+            this.in = in;
+            this.delimiter = delimiter;
+        }
+
+        // 다음 줄로 이동 (더 없으면 false)
+        boolean next() throws IOException {
+            int end;
+            while ((end = indexOfNewline(pos)) < 0) {
+                if (eof) {
+                    if (pos >= limit) return false;
+                    end = limit; // 마지막 줄에 줄바꿈이 없는 경우
+                    break;
+                }
+                fill();
+            }
+            line++;
+            int lineEnd = end > pos && buf[end - 1] == '\r' ? end - 1 : end;
+            int start = pos;
+            if (line == 1 && lineEnd - start >= 3 && (buf[start] & 0xff) == 0xEF && (buf[start + 1] & 0xff) == 0xBB && (buf[start + 2] & 0xff) == 0xBF) {
+                start += 3; // UTF-8 BOM
+            }
+            split(start, lineEnd);
+            pos = end + 1;
+            return true;
+        }
+
+        long lineNumber() {
+            return line;
+        }
+
+        int fieldCount() {
+            return fields;
+        }
+
+        boolean isBlank() {
+            return fields == 1 && ends[0] == starts[0];
+        }
+
+        boolean isEmpty(int i) {
+            for (int p = starts[i]; p < ends[i]; p++) {
+                if (buf[p] != ' ') return false;
+            }
+            return true;
+        }
+
+        String string(int i) {
+            String s = new String(buf, starts[i], ends[i] - starts[i], StandardCharsets.UTF_8);
+            return quoted[i] ? s.replace("\"\"", "\"") : s;
+        }
+
+        // 문자열을 만들지 않고 바이트에서 바로 정수로 읽는다 (앞뒤 공백 허용)
+        int intField(int i) {
+            int p = starts[i], end = ends[i];
+            while (p < end && buf[p] == ' ') p++;
+            while (end > p && buf[end - 1] == ' ') end--;
+            if (p == end) throw new NumberFormatException("빈 값");
+            boolean negative = buf[p] == '-';
+            if (negative || buf[p] == '+') p++;
+            if (p == end || end - p > 10) throw new NumberFormatException("숫자가 아님");
+            long value = 0;
+            for (; p < end; p++) {
+                int digit = buf[p] - '0';
+                if (digit < 0 || digit > 9) throw new NumberFormatException("숫자가 아님");
+                value = value * 10 + digit;
+            }
+            if (negative) value = -value;
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) throw new NumberFormatException("범위 초과");
+            return (int) value;
+        }
+
+        private void split(int start, int end) {
+            fields = 0;
+            int p = start;
+            while (true) {
+                ensureFieldCapacity();
+                if (p < end && buf[p] == '"') {
+                    int q = p + 1;
+                    while (q < end) {
+                        if (buf[q] == '"') {
+                            if (q + 1 < end && buf[q + 1] == '"') { q += 2; continue; }
+                            break;
+                        }
+                        q++;
+                    }
+                    starts[fields] = p + 1;
+                    ends[fields] = q;
+                    quoted[fields] = true;
+                    p = q + 1;
+                    while (p < end && buf[p] != delimiter) p++; // 닫는 따옴표 뒤의 나머지는 무시
+                } else {
+                    int q = p;
+                    while (q < end && buf[q] != delimiter) q++;
+                    starts[fields] = p;
+                    ends[fields] = q;
+                    quoted[fields] = false;
+                    p = q;
+                }
+                fields++;
+                if (p >= end) break;
+                p++; // 구분자 건너뛰기
+            }
+        }
+
+        private void ensureFieldCapacity() {
+            if (fields < starts.length) return;
+            int n = starts.length * 2;
+            starts = java.util.Arrays.copyOf(starts, n);
+            ends = java.util.Arrays.copyOf(ends, n);
+            quoted = java.util.Arrays.copyOf(quoted, n);
+        }
+
+        private int indexOfNewline(int from) {
+            for (int i = from; i < limit; i++) {
+                if (buf[i] == '\n') return i;
+            }
+            return -1;
+        }
+
+        // 남은 부분을 버퍼 앞으로 옮기고 더 읽는다 (한 줄이 버퍼보다 길면 버퍼를 늘린다)
+        private void fill() throws IOException {
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            } else if (limit == buf.length) {
+                buf = java.util.Arrays.copyOf(buf, buf.length * 2);
+            }
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// 📝 마지막 DB 저장 이후 추가/수정/삭제된 키만 기록하는 변경 추적기
+// productDB, eventDB 의 키(상품명, 이벤트명)를 그대로 사용한다.
+// 결제는 화면 밖(POS 서비스 API 스레드)에서도 일어나므로 모든 메서드를 동기화한다.
+// 표시할 때마다 번호를 매겨 두어, 저장하는 동안 다시 바뀐 키는 clear(.., version) 후에도 남는다.
+class ChangeTracker<K> {
+    private final Map<K, Long> dirty = new LinkedHashMap<>();   // 키 -> 마지막으로 표시한 번호
+    private final Map<K, Long> deleted = new LinkedHashMap<>();
+    private long version = 0;
+
+    // 추가, 수정, 판매 등으로 값이 바뀐 키
+    public synchronized void markDirty(K key) {
+        deleted.remove(key);
+        dirty.put(key, ++version);
+    }
+
+    public synchronized void markAllDirty(Collection<K> keys) {
+        for (K key : keys) {
+            markDirty(key);
+        }
+    }
+
+    // 삭제된 키 (DB 에서 DELETE 대상)
+    public synchronized void markDeleted(K key) {
+        dirty.remove(key);
+        deleted.put(key, ++version);
+    }
+
+    // 지금까지 표시한 마지막 번호. 저장할 목록을 읽기 전에 받아 두고 clear 에 넘긴다.
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized Set<K> getDirty() {
+        return new LinkedHashSet<>(dirty.keySet());
+    }
+
+    public synchronized Set<K> getDeleted() {
+        return new LinkedHashSet<>(deleted.keySet());
+    }
+
+    public synchronized boolean isDirty(K key) {
+        return dirty.containsKey(key);
+    }
+
+    public synchronized boolean isDeleted(K key) {
+        return deleted.containsKey(key);
+    }
+
+    public synchronized boolean hasChanges() {
+        return !dirty.isEmpty() || !deleted.isEmpty();
+    }
+
+    // 저장(커밋)에 성공한 키만 지운다. version 은 저장할 목록을 읽기 전에 받은 번호로, 그 뒤에 다시 바뀐 키는 남는다.
+    public synchronized void clear(Collection<K> flushedDirty, Collection<K> flushedDeleted, long version) {
+        removeUpTo(dirty, flushedDirty, version);
+        removeUpTo(deleted, flushedDeleted, version);
+    }
+
+    private static <K> void removeUpTo(Map<K, Long> marks, Collection<K> keys, long version) {
+        for (K key : keys) {
+            Long stamp = marks.get(key);
+            if (stamp != null && stamp <= version) marks.remove(key);
+        }
+    }
+}
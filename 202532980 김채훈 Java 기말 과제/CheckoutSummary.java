@@ -0,0 +1,20 @@
+// 🧾 결제 한 번의 합계 (원 단위)
+class CheckoutSummary {
+    final long grossTotal;       // 정가 합계
+    final long totalWithEvents;  // 이벤트 적용 후 합계
+    final long manualDiscount;
+    final long finalTotal;       // 실제 결제 금액
+    final long totalDiscount;    // 이벤트 할인 + 수동 할인
+    final long netProfit;        // 줄별 이익 합계 - 수동 할인 (0 미만은 0)
+    final int lineCount;
+
+    CheckoutSummary(long grossTotal, long totalWithEvents, long totalProfit, long manualDiscount, int lineCount) {
+        this.grossTotal = grossTotal;
+        this.totalWithEvents = totalWithEvents;
+        this.manualDiscount = manualDiscount;
+        this.finalTotal = Math.max(0, totalWithEvents - manualDiscount);
+        this.totalDiscount = (grossTotal - totalWithEvents) + manualDiscount;
+        this.netProfit = Math.max(0, totalProfit - manualDiscount);
+        this.lineCount = lineCount;
+    }
+}
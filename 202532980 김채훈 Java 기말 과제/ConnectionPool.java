@@ -0,0 +1,335 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 🐘 간단한 JDBC 커넥션 풀
+// borrow() 로 받은 Connection 의 close() 는 실제로 연결을 끊지 않고 풀에 반납한다.
+// 같은 SQL 로 만든 PreparedStatement 는 연결마다 캐시해서 재사용한다 (close() 는 파라미터만 초기화).
+// 한 DB 서버의 여러 스키마(점포)가 풀 하나를 같이 쓸 때는 borrow(스키마) 로 빌릴 때마다 스키마를 고른다.
+class ConnectionPool {
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000; // 이 시간 이상 놀던 연결은 빌려주기 전에 검사
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final long borrowTimeoutMillis;
+
+    private final Semaphore permits;
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed = false;
+
+    // 📊 통계
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowNanosTotal = new AtomicLong();
+    private final AtomicLong borrowNanosMax = new AtomicLong();
+    private final AtomicLong waitNanosTotal = new AtomicLong();
+    private final AtomicLong waitNanosMax = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public ConnectionPool(String url, String user, String password) {
+        this(url, user, password, 4, 10_000);
+    }
+
+    // 풀에서 연결 하나를 빌린다. 다 쓰면 close() 로 반납한다.
+    public Connection borrow() throws SQLException {
+        return borrow(null);
+    }
+
+    // schema 를 현재 스키마로 고른 연결을 빌린다 (null 이면 URL 의 기본값 또는 직전에 쓰던 스키마 그대로).
+    // 없는 스키마면 만들지 않고 SQLException 을 던진다.
+    public Connection borrow(String schema) throws SQLException {
+        if (closed) throw new SQLException("커넥션 풀이 종료되었습니다.");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("커넥션 풀 대기 시간 초과 (" + borrowTimeoutMillis + "ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("커넥션 대기 중 인터럽트", e);
+        }
+        long waited = System.nanoTime() - start;
+        waitNanosTotal.addAndGet(waited);
+        updateMax(waitNanosMax, waited);
+
+        try {
+            PooledConnection pc = takeHealthyIdle();
+            if (pc == null) pc = create();
+            if (schema != null) {
+                try {
+                    pc.useSchema(schema);
+                } catch (SQLException e) {
+                    synchronized (idle) {
+                        idle.addFirst(pc); // 연결 자체는 멀쩡하다
+                    }
+                    throw e;
+                }
+            }
+            pc.inUse = true;
+            active.incrementAndGet();
+
+            long elapsed = System.nanoTime() - start;
+            borrowCount.incrementAndGet();
+            borrowNanosTotal.addAndGet(elapsed);
+            updateMax(borrowNanosMax, elapsed);
+            return pc.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // 🩺 헬스 체크: 오래 놀던 연결은 isValid() 로 확인하고, 죽은 연결은 버린다.
+    private PooledConnection takeHealthyIdle() {
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.pollFirst();
+            }
+            if (pc == null) return null;
+            try {
+                boolean stale = System.currentTimeMillis() - pc.lastReturned > VALIDATE_AFTER_IDLE_MILLIS;
+                if (!pc.physical.isClosed() && (!stale || pc.physical.isValid(VALIDATE_TIMEOUT_SECONDS))) {
+                    return pc;
+                }
+            } catch (SQLException e) { /* 검사 실패한 연결은 버린다 */ }
+            discard(pc);
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pc) {
+        synchronized (pc) { // 두 스레드가 같은 연결을 동시에 close() 해도 한 번만 반납
+            if (!pc.inUse) return; // 이미 반납된 연결
+            pc.inUse = false;
+        }
+        active.decrementAndGet();
+        try {
+            // 트랜잭션 도중 반납된 연결은 되돌리고 기본 상태로 돌려놓는다.
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            if (closed || pc.physical.isClosed()) {
+                discard(pc);
+            } else {
+                pc.lastReturned = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.addFirst(pc);
+                }
+            }
+        } catch (SQLException e) {
+            discard(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        discardedCount.incrementAndGet();
+        pc.closeStatements();
+        try {
+            pc.physical.close();
+        } catch (SQLException e) { /* 무시 */ }
+    }
+
+    // 남아있는 모든 연결을 닫는다. 사용 중인 연결은 반납될 때 닫힌다.
+    public void shutdown() {
+        closed = true;
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.pollFirst();
+            }
+            if (pc == null) break;
+            discard(pc);
+        }
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public double getAverageBorrowMillis() {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : borrowNanosTotal.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxBorrowMillis() {
+        return borrowNanosMax.get() / 1_000_000.0;
+    }
+
+    public double getAverageWaitMillis() {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : waitNanosTotal.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return waitNanosMax.get() / 1_000_000.0;
+    }
+
+    public String getStats() {
+        return String.format("active=%d, idle=%d, borrows=%d, created=%d, discarded=%d, " +
+                             "borrow avg=%.3fms max=%.3fms, wait avg=%.3fms max=%.3fms, stmt cache hit=%d miss=%d",
+                             getActiveCount(), getIdleCount(), borrowCount.get(), createdCount.get(), discardedCount.get(),
+                             getAverageBorrowMillis(), getMaxBorrowMillis(), getAverageWaitMillis(), getMaxWaitMillis(),
+                             statementCacheHits.get(), statementCacheMisses.get());
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) break;
+        }
+    }
+
+    // 풀에 들어있는 실제 연결 + 프록시 + PreparedStatement 캐시
+    private class PooledConnection implements InvocationHandler {
+        final Connection physical;
+        final Connection proxy;
+        volatile boolean inUse;
+        long lastReturned = System.currentTimeMillis();
+        private String schema; // 마지막으로 고른 스키마 (같으면 다시 고르지 않는다)
+
+        // LRU 순서로 유지되는 SQL -> PreparedStatement 캐시
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                                                             new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                release(this);
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return !inUse || physical.isClosed();
+            }
+            if (!inUse) {
+                throw new SQLException("이미 풀에 반납된 연결입니다.");
+            }
+            if (name.equals("prepareStatement") && args != null && args.length == 1) {
+                return prepareCached((String) args[0]);
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private synchronized PreparedStatement prepareCached(String sql) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && !cached.physical.isClosed()) {
+                statementCacheHits.incrementAndGet();
+                return cached.proxy;
+            }
+            statementCacheMisses.incrementAndGet();
+            cached = new CachedStatement(physical.prepareStatement(sql));
+            statements.put(sql, cached);
+            if (statements.size() > STATEMENT_CACHE_SIZE) {
+                Iterator<Map.Entry<String, CachedStatement>> it = statements.entrySet().iterator();
+                CachedStatement eldest = it.next().getValue();
+                it.remove();
+                eldest.closePhysical();
+            }
+            return cached.proxy;
+        }
+
+        // MySQL 은 데이터베이스를 카탈로그로, H2 같은 DB 는 스키마로 다루므로 둘 다 부른다 (지원하지 않는 쪽은 무시된다)
+        void useSchema(String name) throws SQLException {
+            if (name.equals(schema)) return;
+            closeStatements(); // 준비할 때 스키마가 정해지는 DB 도 있어서 캐시된 문장은 버린다
+            schema = null;
+            physical.setCatalog(name);
+            physical.setSchema(name);
+            schema = name;
+        }
+
+        synchronized void closeStatements() {
+            for (CachedStatement cached : statements.values()) {
+                cached.closePhysical();
+            }
+            statements.clear();
+        }
+    }
+
+    // close() 해도 실제로 닫지 않고 다음 사용을 위해 파라미터와 배치만 비우는 PreparedStatement
+    private static class CachedStatement implements InvocationHandler {
+        final PreparedStatement physical;
+        final PreparedStatement proxy;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                                                                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("close")) {
+                physical.clearParameters();
+                physical.clearBatch();
+                return null;
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) { /* 무시 */ }
+        }
+    }
+}
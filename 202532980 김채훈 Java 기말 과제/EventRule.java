@@ -0,0 +1,28 @@
+import java.io.Serializable;
+
+// 🎁 이벤트 규칙 한 건 (event_rules 테이블의 한 행)
+class EventRule implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    String ruleName;
+    String type;
+    String targetProduct;
+    int value; 
+    int priority;   // 같은 상품에 여러 이벤트가 있을 때 높은 값이 먼저 적용
+    long startTime; // 이벤트 시작 시각 (epoch ms, 0 이면 제한 없음)
+    long endTime;   // 이벤트 종료 시각 (epoch ms, 0 이면 제한 없음)
+
+    public EventRule(String ruleName, String type, String targetProduct, int value) {
+        this(ruleName, type, targetProduct, value, 0, 0, 0);
+    }
+
+    public EventRule(String ruleName, String type, String targetProduct, int value, int priority, long startTime, long endTime) {
+        this.ruleName = ruleName;
+        this.type = type;
+        this.targetProduct = targetProduct;
+        this.value = value;
+        this.priority = priority;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+}
@@ -0,0 +1,11 @@
+// 🎁 이벤트 유형 (event_rules.rule_type 에 그대로 저장되는 문자열)
+class EventType {
+    public static final String ONE_PLUS_ONE = "1+1";
+    public static final String TWO_PLUS_ONE = "2+1";
+    public static final String DISCOUNT = "할인";
+    public static final String BUNDLE = "묶음상품";
+
+    public static String[] getValues() {
+        return new String[]{ONE_PLUS_ONE, TWO_PLUS_ONE, DISCOUNT, BUNDLE};
+    }
+}
@@ -0,0 +1,161 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// 🏢 본사 집계: 점포마다 자기 샤드에 동시에 질의해서 체인 전체 매출/재고를 합친다
+// - 점포 하나가 느리거나 꺼져 있어도 나머지 점포 결과는 돌려주고, 실패한 점포는 failures 에 남긴다.
+// - 동시에 여는 질의 수는 FAN_OUT_THREADS 로 묶는다 (점포가 수백 개여도 서버마다 연결이 몰리지 않도록).
+// 실행: java -Dpos.shards=shards.properties HeadOffice [점포ID...]   (점포를 주지 않으면 설정 파일의 stores)
+public class HeadOffice {
+    static final int FAN_OUT_THREADS = 16;
+    static final long STORE_TIMEOUT_MILLIS = 15_000;
+
+    // 점포 하나의 집계
+    static final class StoreTotals {
+        final String storeId;
+        final String shard;
+        final long revenue;
+        final int productCount;
+        final long stockUnits;
+        final long stockValue;       // 재고 x 판매가
+        final Map<String, Long> stockByProduct;
+        final long nanos;
+
+        StoreTotals(String storeId, String shard, long revenue, int productCount, long stockUnits, long stockValue,
+                    Map<String, Long> stockByProduct, long nanos) {
+            this.storeId = storeId;
+            this.shard = shard;
+            this.revenue = revenue;
+            this.productCount = productCount;
+            this.stockUnits = stockUnits;
+            this.stockValue = stockValue;
+            this.stockByProduct = stockByProduct;
+            this.nanos = nanos;
+        }
+    }
+
+    // 체인 전체 집계
+    static final class ChainReport {
+        final List<StoreTotals> stores = new ArrayList<>();
+        final Map<String, String> failures = new LinkedHashMap<>();   // 점포ID -> 오류
+        final Map<String, Long> stockByProduct = new HashMap<>();     // 상품명 -> 전 점포 재고 합
+        long revenue;
+        long stockUnits;
+        long stockValue;
+        long nanos;
+
+        // 체인 전체 재고가 적은 상품부터 limit 개
+        List<Map.Entry<String, Long>> lowestStock(int limit) {
+            List<Map.Entry<String, Long>> list = new ArrayList<>(stockByProduct.entrySet());
+            list.sort(Map.Entry.comparingByValue());
+            return list.subList(0, Math.min(limit, list.size()));
+        }
+    }
+
+    private final StoreShards shards;
+
+    public HeadOffice(StoreShards shards) {
+        this.shards = shards;
+    }
+
+    public ChainReport aggregate(List<String> storeIds) throws InterruptedException {
+        long start = System.nanoTime();
+        ChainReport report = new ChainReport();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(FAN_OUT_THREADS, storeIds.size())), r -> {
+            Thread t = new Thread(r, "head-office");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Map<String, Future<StoreTotals>> futures = new LinkedHashMap<>();
+            for (String storeId : storeIds) futures.put(storeId, pool.submit(() -> loadStore(storeId)));
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STORE_TIMEOUT_MILLIS);
+            for (Map.Entry<String, Future<StoreTotals>> e : futures.entrySet()) {
+                try {
+                    StoreTotals totals = e.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    report.stores.add(totals);
+                    report.revenue += totals.revenue;
+                    report.stockUnits += totals.stockUnits;
+                    report.stockValue += totals.stockValue;
+                    for (Map.Entry<String, Long> s : totals.stockByProduct.entrySet()) report.stockByProduct.merge(s.getKey(), s.getValue(), Long::sum);
+                } catch (ExecutionException ex) {
+                    report.failures.put(e.getKey(), String.valueOf(ex.getCause().getMessage()));
+                } catch (TimeoutException ex) {
+                    e.getValue().cancel(true);
+                    report.failures.put(e.getKey(), STORE_TIMEOUT_MILLIS + "ms 안에 응답하지 않음");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    // 점포 스키마 하나를 읽는다 (점포가 있는 샤드의 커넥션 풀에서 그 스키마를 골라 쓴다, 없는 스키마는 만들지 않고 실패)
+    private StoreTotals loadStore(String storeId) throws SQLException {
+        long start = System.nanoTime();
+        long revenue = 0;
+        int productCount = 0;
+        long units = 0;
+        long value = 0;
+        Map<String, Long> stock = new HashMap<>();
+        try (Connection conn = shards.connect(storeId)) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT total_revenue FROM revenue_data WHERE id = 1");
+                 ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) revenue = rs.getLong(1);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT name, price, quantity FROM products")) {
+                stmt.setFetchSize(1000);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int qty = rs.getInt(3);
+                        productCount++;
+                        units += qty;
+                        value += (long) qty * rs.getInt(2);
+                        stock.put(rs.getString(1), (long) qty);
+                    }
+                } finally {
+                    stmt.setFetchSize(0); // 캐시된 statement 를 다른 곳에서 재사용할 때를 위해 원래대로
+                }
+            }
+        }
+        return new StoreTotals(storeId, shards.shardOf(storeId).name, revenue, productCount, units, value, stock, System.nanoTime() - start);
+    }
+
+    public static void main(String[] args) throws Exception {
+        StoreShards shards = StoreShards.load("seven", "0000");
+        List<String> storeIds = new ArrayList<>();
+        for (String arg : args) storeIds.add(StoreShards.checkStoreId(arg));
+        if (storeIds.isEmpty()) storeIds.addAll(shards.getStores());
+        if (storeIds.isEmpty()) storeIds = Collections.singletonList(StoreShards.DEFAULT_STORE);
+
+        try {
+            ChainReport report = new HeadOffice(shards).aggregate(storeIds);
+            System.out.printf("점포 %d곳 집계 (%d곳 실패), %.1fms%n", report.stores.size(), report.failures.size(), report.nanos / 1e6);
+            for (StoreTotals s : report.stores) {
+                System.out.printf("  %-16s %-8s 매출 ₩%,15d  상품 %,7d종  재고 %,10d개 (₩%,d)  %.1fms%n",
+                                  s.storeId, s.shard, s.revenue, s.productCount, s.stockUnits, s.stockValue, s.nanos / 1e6);
+            }
+            for (Map.Entry<String, String> f : report.failures.entrySet()) System.out.println("  " + f.getKey() + " 실패: " + f.getValue());
+            System.out.printf("체인 전체: 매출 ₩%,d, 재고 %,d개 (₩%,d), 상품 %,d종%n", report.revenue, report.stockUnits, report.stockValue, report.stockByProduct.size());
+            for (Map.Entry<String, Long> low : report.lowestStock(10)) System.out.println("  재고 적은 상품: " + low.getKey() + " " + low.getValue() + "개");
+        } finally {
+            shards.shutdown();
+        }
+    }
+}
@@ -0,0 +1,562 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+// 📜 상품/재고/이벤트의 모든 변경을 바꿀 수 없는 이벤트로 쌓아 두는 이력 저장소 (event sourcing)
+// - 상품 등록/수정/발주/입고/삭제, 결제, 이벤트 규칙 등록/삭제를 한 줄씩 이어 쓰기만 한다 (고치거나 지우지 않음).
+// - 저장소 안에 이벤트를 차례로 적용한 상태(상품 칼럼 + 이벤트 규칙 + 누적 매출)를 따로 들고 있다.
+// - SNAPSHOT_EVERY 개의 이벤트마다 그 상태를 압축된 스냅샷 파일로 남긴다.
+//   시작 시에는 가장 최근 스냅샷을 읽고, 그 이후의 이벤트만 다시 적용하므로 이력이 길어져도 시작 시간이 일정하다.
+// - 세그먼트 파일은 첫 이벤트 번호로 이름을 붙이고 SEGMENT_BYTES 마다 새로 연다. 감사(이력 조회)를 위해 지우지 않는다.
+//
+// 이벤트 한 줄 (탭 구분): 번호  시각  종류  ...
+//   ADD/EDIT/ORDER/RECEIVE/IMPORT  상품명  가격  재고  발주수량  판매량  이익률  [바코드]   <- 변경 후 상품 상태
+//                                  (바코드 칸은 바코드 칼럼이 생긴 뒤의 줄에만 있다. 없으면 바코드 없음)
+//   DELETE    상품명
+//   CHECKOUT  거래ID  최종결제액  순수익  (상품명  수량)...                     <- 재고 차감 + 판매량/매출 증가
+//   RULE      이벤트명  유형  대상상품  값  우선순위  시작  종료
+//   UNRULE    이벤트명
+class HistoryStore {
+    static final int SNAPSHOT_EVERY = 100_000;
+    private static final long SEGMENT_BYTES = 8L << 20;
+    private static final long SYNC_INTERVAL_MILLIS = 50;
+    private static final int SNAPSHOTS_KEPT = 2;
+    private static final int SNAPSHOT_MAGIC_V1 = 0x48495354; // "HIST" (바코드 없는 이전 형식, 읽기만 한다)
+    private static final int SNAPSHOT_MAGIC = 0x48495332;    // "HIS2" (상품마다 바코드 포함)
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    // 이벤트 종류 (상품 상태를 통째로 기록하는 종류는 productState = true)
+    enum Kind {
+        ADD("상품 등록", true), EDIT("정보 수정", true), ORDER("발주 수량", true), RECEIVE("입고", true),
+        IMPORT("가져오기", true), DELETE("삭제", false), CHECKOUT("판매", false), RULE("이벤트 등록", false),
+        UNRULE("이벤트 삭제", false);
+
+        final String label;
+        final boolean productState;
+
+        Kind(String label, boolean productState) {
+            this.label = label;
+            this.productState = productState;
+        }
+    }
+
+    // 이력 조회 결과 한 줄
+    static class Entry {
+        final long seq;
+        final long time;
+        final Kind kind;
+        final String description;
+
+        Entry(long seq, long time, Kind kind, String description) {
+            this.seq = seq;
+            this.time = time;
+            this.kind = kind;
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d  %s  [%s] %s", seq, new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(time)), kind.label, description);
+        }
+    }
+
+    private final File dir;
+
+    // 이벤트를 모두 적용한 현재 상태
+    private ProductStore products = new ProductStore();
+    private final Map<String, EventRule> rules = new LinkedHashMap<>();
+    private long revenue = 0;
+
+    private long lastSeq = 0;          // 마지막으로 기록(또는 적용)한 이벤트 번호
+    private long snapshotSeq = 0;      // 가장 최근 스냅샷이 포함하는 마지막 이벤트 번호
+    private boolean hasSnapshot = false;
+    private FileChannel current;
+    private long currentSize = 0;
+    private final StringBuilder line = new StringBuilder(128);
+    private volatile boolean needsSync = false;
+    private volatile boolean running = false;
+    private Thread syncThread;
+    private final Object snapshotLock = new Object(); // 스냅샷 파일 쓰기는 한 번에 하나만 (주기 스냅샷과 종료 스냅샷이 겹치지 않도록)
+
+    public HistoryStore(File dir) {
+        this.dir = dir;
+    }
+
+    // 🔁 시작 시 호출: 최근 스냅샷 + 그 이후 이벤트로 상태를 다시 만들고, 기록할 세그먼트를 연다.
+    // 돌려주는 값은 다시 적용한 이벤트 수
+    public synchronized long open() throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("이력 디렉터리를 만들 수 없습니다: " + dir);
+        loadLatestSnapshot();
+
+        long replayed = 0;
+        long[] segments = listSegments();
+        for (int i = 0; i < segments.length; i++) {
+            // 스냅샷 이후의 이벤트가 들어 있을 수 있는 세그먼트부터 읽는다
+            if (i + 1 < segments.length && segments[i + 1] <= snapshotSeq + 1) continue;
+            replayed += replay(segmentFile(segments[i]), i == segments.length - 1);
+        }
+
+        if (segments.length > 0 && segmentFile(segments[segments.length - 1]).length() < SEGMENT_BYTES) {
+            openSegment(segments[segments.length - 1]);
+        } else {
+            openSegment(lastSeq + 1);
+        }
+        return replayed;
+    }
+
+    public void start() {
+        running = true;
+        syncThread = new Thread(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(SYNC_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                sync();
+                if (lastSeq - snapshotSeq >= SNAPSHOT_EVERY) {
+                    try {
+                        snapshot();
+                    } catch (IOException e) {
+                        System.err.println("이력 스냅샷 저장 실패 (다음 주기에 재시도): " + e.getMessage());
+                    }
+                }
+            }
+        }, "history-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    // 이력이 전혀 없을 때(처음 실행) true. 이때는 baseline() 으로 지금 상태를 기준점으로 남긴다.
+    public synchronized boolean isEmpty() {
+        return lastSeq == 0 && !hasSnapshot;
+    }
+
+    // 📌 이력 기능을 처음 켰을 때, 이미 DB 에 있던 상태를 기준 스냅샷으로 남긴다
+    public void baseline(Iterable<Product> currentProducts, Collection<EventRule> currentRules, long currentRevenue) throws IOException {
+        synchronized (this) {
+            products = new ProductStore();
+            for (Product p : currentProducts) products.add(p);
+            rules.clear();
+            for (EventRule rule : currentRules) rules.put(rule.ruleName, rule);
+            revenue = currentRevenue;
+        }
+        snapshot();
+    }
+
+    // ✏️ 상품 상태 변경 기록 (p 는 변경 후 상태)
+    public void productChanged(Kind kind, Product p) {
+        productChanged(kind, p.name, p.getPrice(), p.getQuantity(), p.getOrderedQuantity(), p.getSoldQuantity(), p.getProfitRate(), p.getBarcode());
+    }
+
+    public synchronized void productChanged(Kind kind, String name, int price, int quantity, int ordered, int sold, int rate, long barcode) {
+        begin(kind).append(clean(name)).append('\t').append(price).append('\t').append(quantity).append('\t')
+                   .append(ordered).append('\t').append(sold).append('\t').append(rate).append('\t').append(barcode);
+        applyProductState(name, price, quantity, ordered, sold, rate, barcode);
+        commit();
+    }
+
+    public synchronized void productDeleted(String name) {
+        begin(Kind.DELETE).append(clean(name));
+        products.remove(name);
+        commit();
+    }
+
+    // 💳 결제 한 건 기록 (재고 차감/판매량 증가는 줄별 수량으로 다시 계산할 수 있다)
+    public synchronized void checkout(long txId, long finalTotal, long netProfit, Collection<TransactionDetail> details) {
+        begin(Kind.CHECKOUT).append(txId).append('\t').append(finalTotal).append('\t').append(netProfit);
+        for (TransactionDetail d : details) {
+            line.append('\t').append(clean(d.name)).append('\t').append(d.quantity);
+            applySale(d.name, d.quantity);
+        }
+        revenue += finalTotal;
+        commit();
+    }
+
+    public synchronized void rulePut(EventRule rule) {
+        begin(Kind.RULE).append(clean(rule.ruleName)).append('\t').append(clean(rule.type)).append('\t')
+                        .append(clean(rule.targetProduct)).append('\t').append(rule.value).append('\t')
+                        .append(rule.priority).append('\t').append(rule.startTime).append('\t').append(rule.endTime);
+        rules.put(rule.ruleName, rule);
+        commit();
+    }
+
+    public synchronized void ruleRemoved(String ruleName) {
+        begin(Kind.UNRULE).append(clean(ruleName));
+        rules.remove(ruleName);
+        commit();
+    }
+
+    // 다시 만든 상태 (DB 를 쓸 수 없을 때 복원용). 돌려준 값은 복사본이다.
+    public synchronized ProductStore copyProducts() {
+        ProductStore copy = new ProductStore(Math.max(16, products.size()));
+        for (Product p : products.values()) copy.add(p);
+        return copy;
+    }
+
+    public synchronized List<EventRule> copyRules() {
+        return new ArrayList<>(rules.values());
+    }
+
+    public synchronized long getRevenue() {
+        return revenue;
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    // 🔎 상품 하나의 변경 이력 (오래된 것부터, 최근 limit 개). 모든 세그먼트를 처음부터 훑는다.
+    public List<Entry> productHistory(String name, int limit) throws IOException {
+        long[] segments;
+        synchronized (this) {
+            sync();
+            segments = listSegments();
+        }
+        ArrayDeque<Entry> recent = new ArrayDeque<>(limit);
+        for (long s : segments) {
+            try (BufferedReader reader = Files.newBufferedReader(segmentFile(s).toPath(), StandardCharsets.UTF_8)) {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    if (!text.contains(name)) continue; // 대부분의 줄은 문자열 검색만으로 건너뛴다
+                    Entry entry = describe(text.split("\t"), name);
+                    if (entry == null) continue;
+                    if (recent.size() == limit) recent.removeFirst();
+                    recent.addLast(entry);
+                }
+            }
+        }
+        return new ArrayList<>(recent);
+    }
+
+    // 종료 시: 남은 기록을 디스크에 내리고, 마지막 스냅샷 이후 이벤트가 있으면 스냅샷을 남긴다.
+    public void close() {
+        running = false;
+        if (syncThread != null) syncThread.interrupt();
+        try {
+            if (lastSeq > snapshotSeq) snapshot();
+        } catch (IOException e) {
+            System.err.println("이력 스냅샷 저장 중 오류: " + e.getMessage());
+        }
+        synchronized (this) {
+            try {
+                if (current != null) {
+                    current.force(false);
+                    current.close();
+                    current = null;
+                }
+            } catch (IOException e) {
+                System.err.println("이력 저장소 종료 중 오류: " + e.getMessage());
+            }
+        }
+    }
+
+    // 📸 지금 상태를 스냅샷 파일로 저장 (상태 복사는 잠금 안에서, 파일 쓰기는 잠금 밖에서)
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            writeSnapshot();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long seq;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + products.size() * 40);
+        synchronized (this) {
+            seq = lastSeq;
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(seq);
+            out.writeLong(revenue);
+            out.writeInt(products.size());
+            for (Product p : products.values()) {
+                out.writeUTF(p.name);
+                out.writeInt(p.getPrice());
+                out.writeInt(p.getQuantity());
+                out.writeInt(p.getOrderedQuantity());
+                out.writeInt(p.getSoldQuantity());
+                out.writeInt(p.getProfitRate());
+                out.writeLong(p.getBarcode());
+            }
+            out.writeInt(rules.size());
+            for (EventRule rule : rules.values()) {
+                out.writeUTF(rule.ruleName);
+                out.writeUTF(rule.type);
+                out.writeUTF(rule.targetProduct);
+                out.writeInt(rule.value);
+                out.writeInt(rule.priority);
+                out.writeLong(rule.startTime);
+                out.writeLong(rule.endTime);
+            }
+            out.writeInt(SNAPSHOT_MAGIC); // 끝 표시: 쓰다 끊긴 파일을 알아보기 위해
+            out.flush();
+            sync();
+        }
+
+        File tmp = new File(dir, SNAPSHOT_PREFIX + "tmp" + SNAPSHOT_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            bytes.writeTo(out);
+            out.getFD().sync();
+        }
+        Files.move(tmp.toPath(), snapshotFile(seq).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            if (seq >= snapshotSeq) {
+                snapshotSeq = seq;
+                hasSnapshot = true;
+            }
+        }
+        long[] snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.length - SNAPSHOTS_KEPT; i++) {
+            snapshotFile(snapshots[i]).delete();
+        }
+    }
+
+    private StringBuilder begin(Kind kind) {
+        line.setLength(0);
+        return line.append(lastSeq + 1).append('\t').append(System.currentTimeMillis()).append('\t').append(kind.name()).append('\t');
+    }
+
+    // 한 줄을 세그먼트에 쓰고 번호를 확정한다. 디스크 쓰기가 실패해도 화면 작업은 계속되도록 오류만 알린다.
+    private void commit() {
+        lastSeq++;
+        line.append('\n');
+        try {
+            if (current == null) return;
+            if (currentSize >= SEGMENT_BYTES) {
+                current.force(false);
+                current.close();
+                openSegment(lastSeq);
+            }
+            ByteBuffer buf = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+            currentSize += buf.remaining();
+            while (buf.hasRemaining()) {
+                current.write(buf);
+            }
+            needsSync = true;
+        } catch (IOException e) {
+            System.err.println("이력 기록 실패: " + e.getMessage());
+        }
+    }
+
+    private synchronized void sync() {
+        if (!needsSync || current == null) return;
+        try {
+            needsSync = false;
+            current.force(false);
+        } catch (IOException e) {
+            needsSync = true;
+            System.err.println("이력 fsync 실패: " + e.getMessage());
+        }
+    }
+
+    private void applyProductState(String name, int price, int quantity, int ordered, int sold, int rate, long barcode) {
+        int id = products.idOf(name);
+        if (id < 0) {
+            id = products.add(name, price, quantity, ordered, sold, rate).id;
+        } else {
+            products.setPrice(id, price);
+            products.setQuantity(id, quantity);
+            products.setOrderedQuantity(id, ordered);
+            products.setSoldQuantity(id, sold);
+            products.setProfitRate(id, rate);
+        }
+        // 바코드는 상품끼리 겹치지 않는다. 다른 상품이 아직 들고 있으면(IMPORT 로 맞추는 순서 때문 등) 나중 기록을 따른다
+        int owner = products.idOfBarcode(barcode);
+        if (owner >= 0 && owner != id) products.setBarcode(owner, BarcodeIndex.NONE);
+        products.setBarcode(id, barcode);
+    }
+
+    private void applySale(String name, int qty) {
+        int id = products.idOf(name);
+        if (id >= 0) products.applySale(id, qty);
+    }
+
+    // 세그먼트 하나를 다시 적용. 마지막 세그먼트의 끝에 쓰다 끊긴 줄이 있으면 잘라낸다.
+    // 줄 앞의 번호를 바이트에서 바로 읽어, 스냅샷에 이미 포함된 줄은 문자열로 만들지 않고 건너뛴다.
+    private long replay(File file, boolean last) throws IOException {
+        long applied = 0;
+        long validBytes = 0;  // 마지막 줄바꿈까지의 길이
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buf = new byte[1 << 16];
+            int start = 0, limit = 0, n;
+            long base = 0;    // buf[0] 의 파일 내 위치
+            while ((n = in.read(buf, limit, buf.length - limit)) > 0) {
+                limit += n;
+                for (int i = start; i < limit; i++) {
+                    if (buf[i] != '\n') continue;
+                    validBytes = base + i + 1;
+                    if (leadingNumber(buf, start, i) > lastSeq) {
+                        String text = new String(buf, start, i - start, StandardCharsets.UTF_8);
+                        try {
+                            if (apply(text.split("\t"))) applied++;
+                        } catch (RuntimeException e) {
+                            System.err.println("이력 이벤트를 적용하지 못했습니다 (" + file.getName() + "): " + text);
+                        }
+                    }
+                    start = i + 1;
+                }
+                // 남은 (끝나지 않은) 줄을 버퍼 앞으로 옮긴다. 한 줄이 버퍼보다 길면 버퍼를 늘린다.
+                if (start == 0 && limit == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                } else {
+                    System.arraycopy(buf, start, buf, 0, limit - start);
+                    base += start;
+                    limit -= start;
+                    start = 0;
+                }
+            }
+        }
+        if (last && validBytes < file.length()) {
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                ch.truncate(validBytes);
+            }
+        }
+        return applied;
+    }
+
+    private static long leadingNumber(byte[] buf, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to && buf[i] >= '0' && buf[i] <= '9'; i++) {
+            value = value * 10 + (buf[i] - '0');
+        }
+        return value;
+    }
+
+    // 이벤트 한 줄을 상태에 적용 (스냅샷에 이미 포함된 이벤트는 건너뛴다)
+    private boolean apply(String[] f) {
+        long seq = Long.parseLong(f[0]);
+        if (seq <= lastSeq) return false;
+        Kind kind = Kind.valueOf(f[2]);
+        if (kind.productState) {
+            applyProductState(f[3], Integer.parseInt(f[4]), Integer.parseInt(f[5]), Integer.parseInt(f[6]),
+                              Integer.parseInt(f[7]), Integer.parseInt(f[8]), f.length > 9 ? Long.parseLong(f[9]) : BarcodeIndex.NONE);
+        } else if (kind == Kind.DELETE) {
+            products.remove(f[3]);
+        } else if (kind == Kind.CHECKOUT) {
+            for (int i = 6; i + 1 < f.length; i += 2) {
+                applySale(f[i], Integer.parseInt(f[i + 1]));
+            }
+            revenue += Long.parseLong(f[4]);
+        } else if (kind == Kind.RULE) {
+            rules.put(f[3], new EventRule(f[3], f[4], f[5], Integer.parseInt(f[6]), Integer.parseInt(f[7]),
+                                          Long.parseLong(f[8]), Long.parseLong(f[9])));
+        } else if (kind == Kind.UNRULE) {
+            rules.remove(f[3]);
+        }
+        lastSeq = seq;
+        return true;
+    }
+
+    // 이력 조회용 설명 (name 과 관계없는 줄이면 null)
+    private static Entry describe(String[] f, String name) {
+        if (f.length < 4) return null;
+        Kind kind;
+        try {
+            kind = Kind.valueOf(f[2]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        long seq = Long.parseLong(f[0]);
+        long time = Long.parseLong(f[1]);
+        if (kind.productState && f[3].equals(name)) {
+            String barcode = f.length > 9 && !f[9].equals("0") ? ", 바코드 " + BarcodeIndex.format(Long.parseLong(f[9])) : "";
+            return new Entry(seq, time, kind, String.format("재고 %s개, 발주 %s개, 판매량 %s개, 가격 ₩%s, 이익률 %s%%%s", f[5], f[6], f[7], f[4], f[8], barcode));
+        }
+        if (kind == Kind.DELETE && f[3].equals(name)) {
+            return new Entry(seq, time, kind, name);
+        }
+        if (kind == Kind.CHECKOUT) {
+            for (int i = 6; i + 1 < f.length; i += 2) {
+                if (f[i].equals(name)) return new Entry(seq, time, kind, "거래 #" + f[3] + " 재고 -" + f[i + 1] + "개");
+            }
+        }
+        return null;
+    }
+
+    // 가장 최근의 온전한 스냅샷을 읽는다 (끝 표시가 없는 파일은 건너뛰고 이전 것을 쓴다)
+    private void loadLatestSnapshot() {
+        long[] snapshots = listSnapshots();
+        for (int i = snapshots.length - 1; i >= 0; i--) {
+            File file = snapshotFile(snapshots[i]);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+                int magic = in.readInt();
+                if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V1) throw new IOException("형식이 다릅니다");
+                boolean withBarcode = magic == SNAPSHOT_MAGIC;
+                long seq = in.readLong();
+                long savedRevenue = in.readLong();
+                int productCount = in.readInt();
+                ProductStore loaded = new ProductStore(Math.max(16, productCount));
+                for (int p = 0; p < productCount; p++) {
+                    Product added = loaded.add(in.readUTF(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                    long code = withBarcode ? in.readLong() : BarcodeIndex.NONE;
+                    if (added != null && code != BarcodeIndex.NONE) added.setBarcode(code);
+                }
+                int ruleCount = in.readInt();
+                Map<String, EventRule> loadedRules = new LinkedHashMap<>();
+                for (int r = 0; r < ruleCount; r++) {
+                    EventRule rule = new EventRule(in.readUTF(), in.readUTF(), in.readUTF(), in.readInt(), in.readInt(), in.readLong(), in.readLong());
+                    loadedRules.put(rule.ruleName, rule);
+                }
+                if (in.readInt() != magic) throw new IOException("끝 표시가 없습니다");
+
+                products = loaded;
+                rules.clear();
+                rules.putAll(loadedRules);
+                revenue = savedRevenue;
+                lastSeq = seq;
+                snapshotSeq = seq;
+                hasSnapshot = true;
+                return;
+            } catch (IOException e) {
+                System.err.println("이력 스냅샷을 읽지 못했습니다 (" + file.getName() + "): " + e.getMessage());
+            }
+        }
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        current = FileChannel.open(segmentFile(firstSeq).toPath(),
+                                   StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentSize = current.size();
+    }
+
+    private long[] listSegments() {
+        return listNumbered(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+
+    private long[] listSnapshots() {
+        return listNumbered(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    }
+
+    private long[] listNumbered(String prefix, String suffix) {
+        String[] names = dir.list((d, name) -> name.startsWith(prefix) && name.endsWith(suffix)
+                                              && name.substring(prefix.length(), name.length() - suffix.length()).chars().allMatch(Character::isDigit));
+        if (names == null) return new long[0];
+        long[] seqs = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            seqs[i] = Long.parseLong(names[i].substring(prefix.length(), names[i].length() - suffix.length()));
+        }
+        Arrays.sort(seqs);
+        return seqs;
+    }
+
+    private File segmentFile(long firstSeq) {
+        return new File(dir, String.format("%s%012d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+    }
+
+    private File snapshotFile(long seq) {
+        return new File(dir, String.format("%s%012d%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_SUFFIX));
+    }
+
+    private static String clean(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
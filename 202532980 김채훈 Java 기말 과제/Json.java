@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 🔤 POS 서비스 API 용 작은 JSON 읽기/쓰기 도구 (외부 라이브러리 없이)
+// 읽기 결과: 객체 -> Map<String, Object>, 배열 -> List<Object>, 정수 -> Long, 실수 -> Double, 문자열/true/false/null
+final class Json {
+    private final String text;
+    private int pos = 0;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        Json json = new Json(text);
+        json.skipSpace();
+        Object value = json.value();
+        json.skipSpace();
+        if (json.pos != text.length()) throw json.error("JSON 뒤에 남은 글자가 있습니다");
+        return value;
+    }
+
+    private Object value() {
+        if (pos >= text.length()) throw error("JSON 이 끝났습니다");
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default: return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') { pos++; return map; }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') throw error("객체의 키는 문자열이어야 합니다");
+            String key = string();
+            skipSpace();
+            expect(':');
+            skipSpace();
+            map.put(key, value());
+            skipSpace();
+            if (peek() == ',') { pos++; continue; }
+            expect('}');
+            return map;
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') { pos++; return list; }
+        while (true) {
+            skipSpace();
+            list.add(value());
+            skipSpace();
+            if (peek() == ',') { pos++; continue; }
+            expect(']');
+            return list;
+        }
+    }
+
+    private String string() {
+        pos++; // 여는 따옴표
+        StringBuilder sb = new StringBuilder();
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') { sb.append(c); continue; }
+            if (pos >= text.length()) break;
+            char e = text.charAt(pos++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > text.length()) throw error("잘못된 \\u 이스케이프");
+                    sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default: sb.append(e); // \" \\ \/
+            }
+        }
+        throw error("문자열이 닫히지 않았습니다");
+    }
+
+    private Object number() {
+        int start = pos;
+        boolean decimal = false;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E') decimal = true;
+            else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) break;
+            pos++;
+        }
+        if (start == pos) throw error("알 수 없는 값");
+        String n = text.substring(start, pos);
+        try {
+            return decimal ? (Object) Double.parseDouble(n) : (Object) Long.parseLong(n);
+        } catch (NumberFormatException e) {
+            throw error("잘못된 숫자: " + n);
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, pos)) throw error("알 수 없는 값");
+        pos += word.length();
+        return value;
+    }
+
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("'" + c + "' 가 필요합니다");
+        pos++;
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " (위치 " + pos + ")");
+    }
+
+    // 문자열을 JSON 문자열 리터럴로 (따옴표 포함)
+    static StringBuilder quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+}
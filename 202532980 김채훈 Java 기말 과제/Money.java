@@ -0,0 +1,26 @@
+// 💰 금액/비율 고정 소수점 계산
+// - 금액은 원 단위 long 으로만 다룬다 (원화는 소수 단위가 없다).
+// - 비율은 베이시스 포인트(bp, 1bp = 0.01%) int 로 다룬다. 이익률 10% = 1000bp.
+// double 을 거치지 않으므로 같은 입력이면 항상 같은 결과가 나오고, 합계가 어긋나지 않는다.
+final class Money {
+    static final int BPS_PER_PERCENT = 100;
+    static final int BPS_SCALE = 10_000;  // 100%
+
+    private Money() {
+    }
+
+    // 화면/DB 의 % 값을 bp 로
+    static int percentToBps(int percent) {
+        return percent * BPS_PER_PERCENT;
+    }
+
+    // amount x bps / 10000 (원 미만 버림). 큰 금액도 중간 곱셈에서 넘치지 않도록 몫과 나머지를 따로 곱한다.
+    static long applyBps(long amount, int bps) {
+        return Math.floorDiv(amount, BPS_SCALE) * bps + Math.floorMod(amount, BPS_SCALE) * bps / BPS_SCALE;
+    }
+
+    // 단가 x 수량 (넘치면 예외)
+    static long lineAmount(long unitPrice, int quantity) {
+        return Math.multiplyExact(unitPrice, quantity);
+    }
+}
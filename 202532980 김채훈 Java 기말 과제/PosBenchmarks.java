@@ -0,0 +1,443 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 🏁 POS 핵심 경로 벤치마크 모음 (빌드 도구/JMH 없이 돌아가는 작은 하네스)
+// 벤치마크마다 파라미터 값별로 예열 반복 -> 측정 반복을 돌리고, 반복마다 op 한 번의 평균 시간과 할당량을 잰다.
+//   itemPrice     상품 한 줄 가격 계산 (PromotionEngine.price)            파라미터: 이벤트 규칙 수 (상품 1,000개에 고르게)
+//   cartTotal     장바구니 합계 다시 계산 (repriceAll + snapshot)         파라미터: 장바구니 줄 수
+//   tableFilter   재고 표 검색 필터 (검색 인덱스 + 표 모델 행 교체)       파라미터: 상품 수
+//   saveProducts  변경 상품 저장 (SevenElevenManagement.saveProductsToDB) 파라미터: 한 번에 저장하는 상품 수
+// 실행: java -cp ".:lib/*" PosBenchmarks [벤치마크 이름...]   (이름을 주지 않으면 전부)
+// 옵션: -Dbench.warmup=3 -Dbench.iterations=5 -Dbench.iterationMillis=1000 -Dbench.out=bench-results
+//       -Dbench.regression=10 (직전 기록보다 몇 % 느려지면 회귀로 볼지)
+//       -Dbench.itemPrice=0,1000,10000,100000 처럼 벤치마크 이름으로 파라미터 값을 바꿀 수 있다.
+//       -Dbench.jdbc.url / .user / .password : saveProducts 가 쓸 DB
+//         (기본은 클래스패스에 H2 가 있으면 내장 H2 의 MySQL 호환 모드, 없으면 로컬 MySQL 의 seven_eleven_bench 를 만들어 쓴다)
+//       내장 H2 로 돌리기: java -cp ".:lib/*:h2-2.2.224.jar" PosBenchmarks saveProducts
+// 결과: bench-results/pos-bench-날짜.json (이번 실행 전체) 와 bench-results/history.jsonl (결과 한 건당 한 줄, 계속 누적)
+// 같은 벤치마크/파라미터의 직전 기록과 비교해 회귀가 있으면 표시하고 종료 코드 2 로 끝난다.
+public class PosBenchmarks {
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 3);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long ITERATION_NANOS = Long.getLong("bench.iterationMillis", 1000) * 1_000_000L;
+    private static final double REGRESSION_PERCENT = Double.parseDouble(System.getProperty("bench.regression", "10"));
+    private static final long NOW = System.currentTimeMillis();
+
+    private static volatile long sink;
+
+    // 파라미터 값 하나에 대한 준비 상태. op() 한 번이 측정 단위이고, items 는 op 한 번이 처리하는 항목 수.
+    private abstract static class Fixture {
+        final int items;
+
+        Fixture(int items) {
+            this.items = items;
+        }
+
+        abstract long op(int i) throws Exception;
+
+        void close() throws Exception { }
+    }
+
+    private interface FixtureFactory {
+        Fixture create(int param) throws Exception;
+    }
+
+    private static final class Benchmark {
+        final String name;
+        final String paramName;
+        final int[] defaultParams;
+        final FixtureFactory factory;
+
+        Benchmark(String name, String paramName, int[] defaultParams, FixtureFactory factory) {
+            this.name = name;
+            this.paramName = paramName;
+            this.defaultParams = defaultParams;
+            this.factory = factory;
+        }
+
+        int[] params() {
+            String value = System.getProperty("bench." + name);
+            if (value == null) return defaultParams;
+            return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        }
+    }
+
+    private static final class Result {
+        final String benchmark;
+        final String paramName;
+        final int param;
+        String skipped;           // null 이 아니면 실행하지 못한 이유
+        double nanosPerOp;        // 측정 반복들의 평균
+        double error;             // 측정 반복들의 표준편차
+        double min = Double.MAX_VALUE;
+        double max;
+        double bytesPerOp;
+        double itemsPerSecond;
+        double[] samples;
+        Double previousNanosPerOp; // history.jsonl 의 직전 기록
+
+        Result(String benchmark, String paramName, int param) {
+            this.benchmark = benchmark;
+            this.paramName = paramName;
+            this.param = param;
+        }
+
+        String key() {
+            return benchmark + "|" + param;
+        }
+
+        double changePercent() {
+            return previousNanosPerOp == null ? 0 : (nanosPerOp / previousNanosPerOp - 1) * 100;
+        }
+
+        boolean regressed() {
+            return skipped == null && previousNanosPerOp != null && changePercent() > REGRESSION_PERCENT;
+        }
+    }
+
+    private static List<Benchmark> benchmarks() {
+        return Arrays.asList(
+            new Benchmark("itemPrice", "rules", new int[]{0, 1_000, 10_000, 100_000}, PosBenchmarks::itemPrice),
+            new Benchmark("cartTotal", "lines", new int[]{1, 10, 50, 200}, PosBenchmarks::cartTotal),
+            new Benchmark("tableFilter", "products", new int[]{1_000, 10_000, 100_000}, PosBenchmarks::tableFilter),
+            new Benchmark("saveProducts", "batch", new int[]{100, 1_000, 10_000}, PosBenchmarks::saveProducts));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Set<String> selected = new LinkedHashSet<>(Arrays.asList(args));
+        File outDir = new File(System.getProperty("bench.out", "bench-results"));
+        Map<String, Double> previous = readHistory(new File(outDir, "history.jsonl"));
+
+        List<Result> results = new ArrayList<>();
+        for (Benchmark b : benchmarks()) {
+            if (!selected.isEmpty() && !selected.contains(b.name)) continue;
+            for (int param : b.params()) {
+                Result r = run(b, param);
+                r.previousNanosPerOp = previous.get(r.key());
+                print(r);
+                results.add(r);
+            }
+        }
+
+        if (!outDir.isDirectory() && !outDir.mkdirs()) throw new IOException("결과 폴더를 만들 수 없습니다: " + outDir);
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(NOW));
+        File runFile = new File(outDir, "pos-bench-" + stamp + ".json");
+        writeRun(runFile, results);
+        appendHistory(new File(outDir, "history.jsonl"), results);
+        System.out.println("결과 저장: " + runFile.getPath());
+
+        long regressions = results.stream().filter(Result::regressed).count();
+        if (regressions > 0) {
+            System.out.println("⚠ 직전 기록보다 " + REGRESSION_PERCENT + "% 넘게 느려진 항목: " + regressions + "개");
+            System.exit(2);
+        }
+    }
+
+    // ⏱ 예열 -> 측정. 먼저 op 묶음 크기를 한 묶음이 1ms 정도 걸리도록 늘려, 시간 확인 비용이 결과에 섞이지 않게 한다.
+    private static Result run(Benchmark b, int param) {
+        Result result = new Result(b.name, b.paramName, param);
+        Fixture fixture;
+        try {
+            fixture = b.factory.create(param);
+        } catch (Exception e) {
+            result.skipped = e.getClass().getSimpleName() + ": " + e.getMessage();
+            return result;
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        try {
+            int batch = 1;
+            int counter = 0;
+            while (true) {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < batch; i++) sink += fixture.op(counter++ & Integer.MAX_VALUE);
+                if (System.nanoTime() - t0 >= 1_000_000 || batch >= 1 << 24) break;
+                batch <<= 1;
+            }
+
+            result.samples = new double[ITERATIONS];
+            long allocated = 0;
+            long measuredOps = 0;
+            for (int iter = 0; iter < WARMUP + ITERATIONS; iter++) {
+                boolean measuring = iter >= WARMUP;
+                long bytesBefore = threads.getThreadAllocatedBytes(tid);
+                long ops = 0;
+                long start = System.nanoTime();
+                long elapsed;
+                do {
+                    for (int i = 0; i < batch; i++) sink += fixture.op(counter++ & Integer.MAX_VALUE);
+                    ops += batch;
+                    elapsed = System.nanoTime() - start;
+                } while (elapsed < ITERATION_NANOS);
+                if (measuring) {
+                    allocated += threads.getThreadAllocatedBytes(tid) - bytesBefore;
+                    measuredOps += ops;
+                    result.samples[iter - WARMUP] = (double) elapsed / ops;
+                }
+            }
+
+            double sum = 0;
+            for (double s : result.samples) {
+                sum += s;
+                result.min = Math.min(result.min, s);
+                result.max = Math.max(result.max, s);
+            }
+            result.nanosPerOp = sum / ITERATIONS;
+            double var = 0;
+            for (double s : result.samples) var += (s - result.nanosPerOp) * (s - result.nanosPerOp);
+            result.error = ITERATIONS > 1 ? Math.sqrt(var / (ITERATIONS - 1)) : 0;
+            result.bytesPerOp = (double) allocated / measuredOps;
+            result.itemsPerSecond = fixture.items * 1e9 / result.nanosPerOp;
+        } catch (Exception e) {
+            result.skipped = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } finally {
+            try {
+                fixture.close();
+            } catch (Exception e) {
+                System.err.println(b.name + " 정리 중 오류: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    // 🏷 상품 1,000개에 규칙을 고르게 나눠 건다 (규칙 수 / 1000 개씩). 우선순위와 기간을 섞어 실제 판매 때처럼 고르고 거른다.
+    private static Fixture itemPrice(int rules) {
+        int products = 1_000;
+        PromotionEngine promotions = new PromotionEngine();
+        String[] names = new String[products];
+        for (int i = 0; i < products; i++) names[i] = "상품" + i;
+        String[] types = EventType.getValues();
+        for (int r = 0; r < rules; r++) {
+            String type = types[r % types.length];
+            int value = type.equals(EventType.DISCOUNT) ? 100 + r % 500 : 0;
+            long end = r % 3 == 0 ? NOW - 1 : 0; // 셋 중 하나는 이미 끝난 이벤트
+            promotions.put(new EventRule("규칙" + r, type, names[r % products], value, r % 5, 0, end));
+        }
+        SaleResult out = new SaleResult(0, 0);
+        return new Fixture(1) {
+            @Override
+            long op(int i) {
+                promotions.price(names[i % products], 1500, 1 + (i & 3), NOW, out);
+                return out.totalPrice;
+            }
+        };
+    }
+
+    // 🛒 장바구니 줄 수별 합계 재계산 (결제 직전에 하는 일과 같다)
+    private static Fixture cartTotal(int lines) {
+        ProductStore store = new ProductStore(lines);
+        PromotionEngine promotions = new PromotionEngine();
+        CartAggregate cart = new CartAggregate(store, promotions);
+        for (int i = 0; i < lines; i++) {
+            String name = "상품" + i;
+            store.add(name, 500 + (i % 97) * 37, 1_000_000, 0, 0, 5 + i % 30);
+            if (i % 4 == 0) promotions.put(new EventRule("1+1 " + i, EventType.ONE_PLUS_ONE, name, 0));
+            if (i % 7 == 0) promotions.put(new EventRule("할인 " + i, EventType.DISCOUNT, name, 100));
+            cart.setQuantity(name, 1 + i % 4);
+        }
+        cart.setManualDiscount(500);
+        return new Fixture(lines) {
+            @Override
+            long op(int i) {
+                cart.repriceAll();
+                return cart.snapshot().finalTotal;
+            }
+        };
+    }
+
+    // 🔍 재고 표 필터: 검색어를 바꿔 가며 검색하고 표 모델의 행을 교체 (refreshTable 과 같은 일)
+    private static Fixture tableFilter(int products) {
+        ProductStore store = new ProductStore(products);
+        ProductSearchIndex index = new ProductSearchIndex();
+        String[] brands = {"새우깡", "콜라", "삼각김밥", "바나나우유", "컵라면", "생수"};
+        for (int i = 0; i < products; i++) {
+            String name = brands[i % brands.length] + " " + i;
+            store.add(name, 1000, 10, 0, 0, 10);
+            index.add(name);
+        }
+        String[] queries = {"", "새우", "ㅅㅇㄲ", "라면 1", "99", "우유 12", "없는상품"};
+        ProductTableModel model = new ProductTableModel(store, new String[]{"상품명"}) {
+            @Override
+            protected Object getColumnValue(Product p, int column) {
+                return p.name;
+            }
+        };
+        return new Fixture(1) {
+            @Override
+            long op(int i) {
+                List<String> rows = index.search(queries[i % queries.length]);
+                model.setRows(rows);
+                return model.getRowCount();
+            }
+        };
+    }
+
+    // 💾 변경 상품 저장: op 한 번 = batch 개 상품의 재고를 바꾸고 한 트랜잭션으로 저장
+    // 기본 DB 는 클래스패스에 H2 가 있으면 내장 H2 (MySQL 호환 모드, 메모리), 없으면 로컬 MySQL
+    private static Fixture saveProducts(int batch) throws SQLException {
+        boolean embedded = hasH2();
+        String url = System.getProperty("bench.jdbc.url", embedded
+            ? "jdbc:h2:mem:seven_eleven_bench;MODE=MySQL;DB_CLOSE_DELAY=-1"
+            : "jdbc:mysql://localhost:3306/seven_eleven_bench?serverTimezone=UTC&createDatabaseIfNotExist=true&rewriteBatchedStatements=true");
+        Connection conn = DriverManager.getConnection(url, System.getProperty("bench.jdbc.user", embedded ? "sa" : "seven"),
+                                                      System.getProperty("bench.jdbc.password", embedded ? "" : "0000"));
+        SevenElevenManagement.ensureStoreTables(conn);
+        SevenElevenManagement.ensureProductColumns(conn);
+        conn.setAutoCommit(false);
+
+        ProductStore store = new ProductStore(batch);
+        Set<String> dirty = new LinkedHashSet<>();
+        for (int i = 0; i < batch; i++) {
+            String name = "벤치마크 상품 " + i;
+            store.add(name, 1000 + i, 100, 0, 0, 10);
+            dirty.add(name);
+        }
+        Set<String> none = Collections.emptySet();
+        return new Fixture(batch) {
+            @Override
+            long op(int i) throws SQLException {
+                for (int id = 0; id < batch; id++) store.setQuantity(id, 100 + (i & 1)); // 값이 실제로 바뀌어야 UPDATE 가 일을 한다
+                SevenElevenManagement.saveProductsToDB(conn, store, dirty, none);
+                conn.commit();
+                return batch;
+            }
+
+            @Override
+            void close() throws SQLException {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM products WHERE name LIKE ?")) {
+                    stmt.setString(1, "벤치마크 상품 %");
+                    stmt.executeUpdate();
+                    conn.commit();
+                } finally {
+                    conn.close();
+                }
+            }
+        };
+    }
+
+    private static boolean hasH2() {
+        try {
+            Class.forName("org.h2.Driver");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static void print(Result r) {
+        String label = String.format("%-13s %s=%-7d", r.benchmark, r.paramName, r.param);
+        if (r.skipped != null) {
+            System.out.println(label + "  건너뜀 (" + r.skipped + ")");
+            return;
+        }
+        String change = r.previousNanosPerOp == null ? "" :
+            String.format("  직전 대비 %+.1f%%%s", r.changePercent(), r.regressed() ? " ⚠ 회귀" : "");
+        System.out.printf("%s  %,14.1f ns/op ± %,.1f  %,.0f 항목/초  %,.1f bytes/op%s%n",
+            label, r.nanosPerOp, r.error, r.itemsPerSecond, r.bytesPerOp, change);
+    }
+
+    // 📄 이번 실행 결과 (실행 환경 + 결과 목록)
+    private static void writeRun(File file, List<Result> results) throws IOException {
+        StringBuilder sb = new StringBuilder("{\n  \"time\": ").append(NOW).append(",\n  \"java\": ");
+        Json.quote(sb, System.getProperty("java.version")).append(",\n  \"os\": ");
+        Json.quote(sb, System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        sb.append(",\n  \"processors\": ").append(Runtime.getRuntime().availableProcessors());
+        sb.append(",\n  \"warmupIterations\": ").append(WARMUP).append(",\n  \"iterations\": ").append(ITERATIONS);
+        sb.append(",\n  \"iterationMillis\": ").append(ITERATION_NANOS / 1_000_000).append(",\n  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            sb.append(i == 0 ? "\n    " : ",\n    ");
+            appendResult(sb, results.get(i), false);
+        }
+        sb.append("\n  ]\n}\n");
+        writeText(file, sb.toString(), false);
+    }
+
+    private static void appendHistory(File file, List<Result> results) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Result r : results) {
+            if (r.skipped != null) continue;
+            appendResult(sb, r, true).append('\n');
+        }
+        writeText(file, sb.toString(), true);
+    }
+
+    // history.jsonl 의 줄은 따로 읽어도 언제 잰 것인지 알 수 있게 시각을 함께 적는다
+    private static StringBuilder appendResult(StringBuilder sb, Result r, boolean withTime) {
+        sb.append('{');
+        if (withTime) sb.append("\"time\":").append(NOW).append(',');
+        sb.append("\"benchmark\":");
+        Json.quote(sb, r.benchmark).append(",\"param\":");
+        Json.quote(sb, r.paramName).append(",\"value\":").append(r.param);
+        if (r.skipped != null) {
+            sb.append(",\"skipped\":");
+            return Json.quote(sb, r.skipped).append('}');
+        }
+        sb.append(",\"unit\":\"ns/op\",\"score\":").append(round(r.nanosPerOp)).append(",\"error\":").append(round(r.error))
+          .append(",\"min\":").append(round(r.min)).append(",\"max\":").append(round(r.max))
+          .append(",\"bytesPerOp\":").append(round(r.bytesPerOp)).append(",\"itemsPerSecond\":").append(round(r.itemsPerSecond))
+          .append(",\"samples\":[");
+        for (int i = 0; i < r.samples.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(round(r.samples[i]));
+        }
+        sb.append(']');
+        if (r.previousNanosPerOp != null) sb.append(",\"changePercent\":").append(round(r.changePercent()));
+        return sb.append('}');
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+
+    // 벤치마크/파라미터별 가장 최근 기록 (파일은 시간순으로 쌓이므로 뒤의 줄이 이긴다)
+    private static Map<String, Double> readHistory(File file) throws IOException {
+        Map<String, Double> last = new HashMap<>();
+        if (!file.isFile()) return last;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> entry = (Map<String, Object>) Json.parse(line);
+                    Object score = entry.get("score");
+                    if (!(score instanceof Number)) continue;
+                    last.put(entry.get("benchmark") + "|" + entry.get("value"), ((Number) score).doubleValue());
+                } catch (IllegalArgumentException | ClassCastException e) {
+                    System.err.println("history.jsonl 의 잘못된 줄을 건너뜁니다: " + e.getMessage());
+                }
+            }
+        }
+        return last;
+    }
+
+    private static void writeText(File file, String text, boolean append) throws IOException {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8)) {
+            out.write(text);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// 🏪 화면 없이 여러 계산대(스레드)가 동시에 결제할 수 있는 POS 핵심 로직
+// - 재고 차감은 상품 행 번호(ProductStore id)로 나눈 잠금(lock striping)으로 보호한다.
+// - 장바구니에 든 상품들의 잠금을 항상 같은 순서(번호순)로 잡기 때문에 교착 상태가 생기지 않는다.
+// - 한 상품이라도 재고가 모자라면 아무것도 차감하지 않고 결제를 거절한다 (초과 판매 없음).
+// - 가격 계산은 계산대마다 하나씩 둔 PricedLines 버퍼에 기록하므로, 장바구니 줄마다 객체를 만들지 않는다.
+// - 상품 추가/삭제와 이벤트 규칙 변경은 catalogLock 쓰기 잠금 안에서만 한다. 결제는 읽기 잠금을 잡고 진행한다.
+class PosCore {
+    private static final int STRIPES = 64;
+
+    // 결제 결과
+    static class CheckoutResult {
+        final boolean success;
+        final String shortProduct;   // 실패 시 재고가 모자란 상품
+        final int available;         // 실패 시 그 상품의 남은 재고
+        final CheckoutSummary summary;  // 성공 시 합계 (줄별 내역은 lastLines())
+
+        private CheckoutResult(boolean success, String shortProduct, int available, CheckoutSummary summary) {
+            this.success = success;
+            this.shortProduct = shortProduct;
+            this.available = available;
+            this.summary = summary;
+        }
+
+        static CheckoutResult refused(String shortProduct, int available) {
+            return new CheckoutResult(false, shortProduct, available, null);
+        }
+    }
+
+    private final ProductStore products;
+    private final PromotionEngine promotions;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final ReadWriteLock catalogLock = new ReentrantReadWriteLock(); // 상품 목록(해시 테이블) + 이벤트 규칙
+    private final LongAdder revenue = new LongAdder();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder refusals = new LongAdder();
+    private final ThreadLocal<PricedLines> lineBuffers = ThreadLocal.withInitial(PricedLines::new);
+
+    public PosCore(ProductStore products, PromotionEngine promotions) {
+        this.products = products;
+        this.promotions = promotions;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // 이벤트 규칙 변경은 결제 가격 계산과 겹치지 않도록 쓰기 잠금 안에서
+    public void updatePromotions(Consumer<PromotionEngine> change) {
+        catalogLock.writeLock().lock();
+        try {
+            change.accept(promotions);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    // 상품 추가/삭제처럼 저장소 구조를 바꾸는 작업도 결제와 겹치지 않도록 쓰기 잠금 안에서
+    public <T> T updateCatalog(Supplier<T> change) {
+        catalogLock.writeLock().lock();
+        try {
+            return change.get();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    // 📦 입고/가져오기처럼 한 상품의 재고·판매량을 고치는 작업은 결제가 잡는 같은 줄 잠금 안에서
+    // (잠금 밖에서 읽고 더하면 그 사이 결제된 차감분이 사라진다). 상품이 없으면 false.
+    public boolean updateProduct(String name, Consumer<Product> change) {
+        catalogLock.readLock().lock();
+        try {
+            Product p = products.get(name);
+            if (p == null) return false;
+            int[] stripes = stripesOf(new int[] { p.id });
+            lock(stripes);
+            try {
+                change.accept(p);
+            } finally {
+                unlock(stripes);
+            }
+            return true;
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // 상품 목록을 읽는 작업 (다른 스레드의 상품 추가/삭제와 겹치지 않게)
+    public <T> T readCatalog(Supplier<T> read) {
+        catalogLock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // 상품별로 지금 적용되는 이벤트명 (매출 집계용)
+    public Map<String, List<String>> appliedRules(Collection<String> names, long now) {
+        Map<String, List<String>> applied = new HashMap<>();
+        catalogLock.readLock().lock();
+        try {
+            for (String name : names) {
+                Product p = products.get(name);
+                if (p != null) applied.put(name, promotions.appliedRules(p, now));
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        return applied;
+    }
+
+    // 📦 장바구니 전체의 재고를 한 번에 확보 (모두 가능할 때만 차감)
+    // 성공하면 null, 실패하면 재고가 모자란 상품명을 돌려준다.
+    public String tryReserve(Map<String, Integer> items) {
+        catalogLock.readLock().lock();
+        try {
+            return reserve(items);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    private String reserve(Map<String, Integer> items) {
+        int n = items.size();
+        int[] ids = new int[n];
+        int[] qty = new int[n];
+        String[] names = new String[n];
+        int i = 0;
+        for (Map.Entry<String, Integer> item : items.entrySet()) {
+            names[i] = item.getKey();
+            ids[i] = products.idOf(item.getKey());
+            qty[i] = item.getValue();
+            if (ids[i] < 0) {
+                refusals.increment();
+                return names[i];
+            }
+            i++;
+        }
+
+        int[] stripes = stripesOf(ids);
+        lock(stripes);
+        try {
+            for (i = 0; i < n; i++) {
+                if (products.quantity(ids[i]) < qty[i]) {
+                    refusals.increment();
+                    return names[i];
+                }
+            }
+            for (i = 0; i < n; i++) {
+                products.applySale(ids[i], qty[i]);
+            }
+            return null;
+        } finally {
+            unlock(stripes);
+        }
+    }
+
+    // 💳 가격 계산 + 재고 확보 + 매출 반영까지 한 번에 처리
+    public CheckoutResult checkout(Map<String, Integer> items, long manualDiscount) {
+        long now = System.currentTimeMillis();
+        PricedLines lines = lineBuffers.get();
+        lines.reset();
+
+        catalogLock.readLock().lock();
+        try {
+            // 줄마다 시간을 재면 20ns 남짓한 줄 계산보다 계측이 더 비싸므로, 장바구니 단위로 잰다
+            long pricingStart = PosMetrics.PRICING.start();
+            for (Map.Entry<String, Integer> item : items.entrySet()) {
+                int id = products.idOf(item.getKey());
+                if (id < 0 || item.getValue() <= 0) {
+                    refusals.increment();
+                    return CheckoutResult.refused(item.getKey(), id < 0 ? 0 : products.quantity(id));
+                }
+                lines.price(products, id, item.getValue(), promotions, now);
+            }
+            PosMetrics.PRICING.stop(pricingStart);
+            PosMetrics.PRICED_LINES.add(lines.size());
+
+            String shortProduct = reserve(items);
+            if (shortProduct != null) {
+                int id = products.idOf(shortProduct);
+                return CheckoutResult.refused(shortProduct, id < 0 ? 0 : products.quantity(id));
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+
+        CheckoutSummary summary = lines.summarize(manualDiscount);
+        revenue.add(summary.finalTotal);
+        checkouts.increment();
+        return new CheckoutResult(true, null, 0, summary);
+    }
+
+    // ↩️ checkout() 으로 확보한 재고와 매출을 되돌린다 (판매 저널에 남기지 못한 결제를 취소할 때)
+    public void cancel(Map<String, Integer> items, long finalTotal) {
+        catalogLock.readLock().lock();
+        try {
+            int[] ids = new int[items.size()];
+            int[] qty = new int[items.size()];
+            int n = 0;
+            for (Map.Entry<String, Integer> item : items.entrySet()) {
+                int id = products.idOf(item.getKey());
+                if (id < 0) continue; // 그 사이 삭제된 상품은 되돌릴 재고가 없다
+                ids[n] = id;
+                qty[n++] = item.getValue();
+            }
+            ids = Arrays.copyOf(ids, n);
+            int[] stripes = stripesOf(ids);
+            lock(stripes);
+            try {
+                for (int i = 0; i < n; i++) {
+                    products.cancelSale(ids[i], qty[i]);
+                }
+            } finally {
+                unlock(stripes);
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        revenue.add(-finalTotal);
+        checkouts.decrement();
+    }
+
+    // 현재 스레드에서 마지막으로 계산한 결제의 줄별 내역 (같은 스레드의 다음 checkout() 전까지 유효)
+    public PricedLines lastLines() {
+        return lineBuffers.get();
+    }
+
+    public long getRevenue() {
+        return revenue.sum();
+    }
+
+    public long getCheckoutCount() {
+        return checkouts.sum();
+    }
+
+    public long getRefusalCount() {
+        return refusals.sum();
+    }
+
+    private int[] stripesOf(int[] ids) {
+        int[] stripes = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            stripes[i] = ids[i] % STRIPES;
+        }
+        Arrays.sort(stripes);
+        return stripes;
+    }
+
+    private void lock(int[] stripes) {
+        for (int i = 0; i < stripes.length; i++) {
+            if (i > 0 && stripes[i] == stripes[i - 1]) continue; // 같은 잠금은 한 번만
+            locks[stripes[i]].lock();
+        }
+    }
+
+    private void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            if (i > 0 && stripes[i] == stripes[i - 1]) continue;
+            locks[stripes[i]].unlock();
+        }
+    }
+}
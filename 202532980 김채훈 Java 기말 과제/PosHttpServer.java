@@ -0,0 +1,247 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// 🌐 POS 서비스 API (로컬 HTTP + JSON). 스캐너, 키오스크, 부하 발생기가 화면 없이 결제할 수 있다.
+//   GET  /api/products/{상품명}     -> {"name", "price", "quantity", "profitRate"}
+//   POST /api/checkout              <- {"items": {"콜라": 2, "새우깡": 1}, "manualDiscount": 0}
+//   POST /api/checkout/batch        <- {"carts": [{"items": {...}, "manualDiscount": 0}, ...]}  (최대 MAX_BATCH 개)
+//   GET  /api/stats                 -> 결제/거절 건수, 누적 매출
+//   GET  /metrics                   -> 지연 시간/처리량 계측값 (Prometheus 텍스트 형식, PosMetrics)
+// 요청마다 스레드 하나를 쓴다. 가상 스레드를 쓸 수 있는 JDK(21 이상)에서는 요청마다 가상 스레드를,
+// 아니면 POOL_THREADS 개짜리 스레드 풀을 쓴다. 보안을 위해 기본적으로 이 컴퓨터(127.0.0.1)에서만 접속을 받는다.
+class PosHttpServer {
+    static final int DEFAULT_PORT = 8765;
+    static final int MAX_BATCH = 1000;
+    private static final int POOL_THREADS = 64;   // 계산대 수십 대
+    private static final int MAX_BODY_BYTES = 4 << 20;
+
+    private final PosService service;
+    private final int port;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PosHttpServer(PosService service, int port) {
+        this.service = service;
+        this.port = port;
+    }
+
+    public synchronized void start() throws IOException {
+        // 응답 헤더와 본문이 따로 나가므로 Nagle + 지연 ACK 로 요청마다 40ms 씩 기다리게 된다 (서버가 처음 만들어지기 전에 설정해야 함)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        server =HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/products/", exchange -> handle(exchange, "GET", this::product));
+        server.createContext("/api/checkout", exchange -> {
+            boolean batch = exchange.getRequestURI().getPath().equals("/api/checkout/batch");
+            handle(exchange, "POST", batch ? this::checkoutBatch : this::checkout);
+        });
+        server.createContext("/api/stats", exchange -> handle(exchange, "GET", this::stats));
+        server.createContext("/metrics", this::metrics);
+        server.start();
+    }
+
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    public int getPort() {
+        return server == null ? port : server.getAddress().getPort();
+    }
+
+    // JDK 21 이상이면 요청마다 가상 스레드, 아니면 고정 크기 스레드 풀
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(POOL_THREADS, r -> {
+                Thread t = new Thread(r, "pos-api");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private interface Handler {
+        String handle(HttpExchange exchange) throws IOException;
+    }
+
+    // 요청을 처리하고 JSON 으로 응답 (잘못된 요청은 400, 없는 상품은 404)
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        long start = PosMetrics.API_REQUEST.start();
+        int status = 200;
+        String body;
+        try {
+            if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                status = 405;
+                body = error(method + " 요청만 받습니다");
+            } else {
+                body = handler.handle(exchange);
+                if (body == null) {
+                    status = 404;
+                    body = error("찾을 수 없습니다");
+                }
+            }
+        } catch (IllegalArgumentException | ClassCastException e) {
+            status = 400;
+            body = error("잘못된 요청: " + e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error("처리 중 오류: " + e.getMessage());
+            e.printStackTrace();
+        }
+        send(exchange, status, "application/json; charset=utf-8", body);
+        PosMetrics.API_REQUEST.stop(start);
+    }
+
+    // 수집기가 주기적으로 긁어 가는 주소라 API 요청 시간에는 넣지 않는다
+    private void metrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            send(exchange, 405, "application/json; charset=utf-8", error("GET 요청만 받습니다"));
+            return;
+        }
+        send(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", PosMetrics.scrape());
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String product(HttpExchange exchange) {
+        String raw = exchange.getRequestURI().getRawPath().substring("/api/products/".length());
+        Product p = service.find(URLDecoder.decode(raw, StandardCharsets.UTF_8));
+        if (p == null) return null;
+        StringBuilder sb = new StringBuilder("{\"name\":");
+        Json.quote(sb, p.name).append(",\"price\":").append(p.getPrice()).append(",\"quantity\":").append(p.getQuantity())
+            .append(",\"profitRate\":").append(p.getProfitRate()).append('}');
+        return sb.toString();
+    }
+
+    private String checkout(HttpExchange exchange) throws IOException {
+        Map<String, Object> request = asObject(Json.parse(readBody(exchange)), "요청");
+        PosService.Sale sale = service.checkout(items(request), discount(request));
+        return appendSale(new StringBuilder(), sale).toString();
+    }
+
+    private String checkoutBatch(HttpExchange exchange) throws IOException {
+        Map<String, Object> request = asObject(Json.parse(readBody(exchange)), "요청");
+        Object cartsValue = request.get("carts");
+        if (!(cartsValue instanceof List)) throw new IllegalArgumentException("carts 배열이 필요합니다");
+        List<?> carts = (List<?>) cartsValue;
+        if (carts.size() > MAX_BATCH) throw new IllegalArgumentException("한 번에 최대 " + MAX_BATCH + "개의 장바구니만 받습니다");
+
+        // 장바구니를 모두 검증한 뒤에 결제 (요청 중간에 형식 오류로 일부만 결제되는 일이 없도록)
+        List<Map<String, Integer>> parsed = new ArrayList<>(carts.size());
+        List<Long> discounts = new ArrayList<>(carts.size());
+        for (Object cart : carts) {
+            Map<String, Object> c = asObject(cart, "장바구니");
+            parsed.add(items(c));
+            discounts.add(discount(c));
+        }
+        List<PosService.Sale> sales = service.checkoutBatch(parsed, discounts);
+
+        int succeeded = 0;
+        StringBuilder sb = new StringBuilder("{\"results\":[");
+        for (int i = 0; i < sales.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendSale(sb, sales.get(i));
+            if (sales.get(i).success) succeeded++;
+        }
+        return sb.append("],\"succeeded\":").append(succeeded).append(",\"refused\":").append(sales.size() - succeeded).append('}').toString();
+    }
+
+    private String stats(HttpExchange exchange) {
+        return "{\"checkouts\":" + service.getCheckoutCount() + ",\"refusals\":" + service.getRefusalCount()
+               + ",\"revenue\":" + service.getRevenue() + "}";
+    }
+
+    private static StringBuilder appendSale(StringBuilder sb, PosService.Sale sale) {
+        if (!sale.success) {
+            sb.append("{\"success\":false,\"shortProduct\":");
+            if (sale.shortProduct == null) sb.append("null"); else Json.quote(sb, sale.shortProduct);
+            sb.append(",\"available\":").append(sale.available);
+            if (sale.error != null) Json.quote(sb.append(",\"error\":"), sale.error);
+            return sb.append('}');
+        }
+        CheckoutSummary s = sale.summary;
+        sb.append("{\"success\":true,\"txId\":").append(sale.txId).append(",\"finalTotal\":").append(s.finalTotal)
+          .append(",\"totalDiscount\":").append(s.totalDiscount).append(",\"netProfit\":").append(s.netProfit).append(",\"lines\":[");
+        for (int i = 0; i < sale.lines.size(); i++) {
+            TransactionDetail d = sale.lines.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"name\":");
+            Json.quote(sb, d.name).append(",\"quantity\":").append(d.quantity).append(",\"unitPrice\":").append(d.unitPrice)
+              .append(",\"price\":").append(d.itemFinalPrice).append(",\"free\":").append(d.freeCount).append('}');
+        }
+        return sb.append("]}");
+    }
+
+    private static Map<String, Integer> items(Map<String, Object> cart) {
+        Map<String, Object> items = asObject(cart.get("items"), "items");
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> item : items.entrySet()) {
+            if (!(item.getValue() instanceof Long)) throw new IllegalArgumentException(item.getKey() + " 의 수량은 정수여야 합니다");
+            long qty = (Long) item.getValue();
+            if (qty <= 0 || qty > 10_000) throw new IllegalArgumentException(item.getKey() + " 의 수량은 1~10000 이어야 합니다");
+            result.put(item.getKey(), (int) qty);
+        }
+        return result;
+    }
+
+    private static long discount(Map<String, Object> cart) {
+        Object value = cart.get("manualDiscount");
+        if (value == null) return 0;
+        if (!(value instanceof Long) || (Long) value < 0) throw new IllegalArgumentException("manualDiscount 는 0 이상의 정수여야 합니다");
+        return (Long) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asObject(Object value, String what) {
+        if (!(value instanceof Map)) throw new IllegalArgumentException(what + "은(는) JSON 객체여야 합니다");
+        return (Map<String, Object>) value;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) throw new IllegalArgumentException("요청 본문이 너무 큽니다");
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String error(String message) {
+        return Json.quote(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+}
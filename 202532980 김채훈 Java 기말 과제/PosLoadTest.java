@@ -0,0 +1,163 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+// 🏁 계산대 여러 대가 동시에 결제하는 부하 테스트 (DB/화면 없이 실행)
+// 기본(service)은 화면과 POS 서비스 API 가 쓰는 PosService.checkout 경로 그대로다:
+// 재고 확보 + 판매 저널(fsync 포함) + 변경 이력 + 집계 + 영수증 로그. 파일은 임시 디렉터리에 쓰고 끝나면 지운다.
+// batch 는 PosService.checkoutBatch 로 BATCH_SIZE 건씩, core 는 비교용으로 PosCore.checkout (가격 계산 + 재고 확보) 만 잰다.
+// 실행: java PosLoadTest [계산대 수] [계산대당 결제 수] [상품 수] [service|batch|core]
+// 결과: 초당 결제 수, 결제 지연 p50/p99 (batch 는 묶음 하나의 지연), 초과 판매 여부
+public class PosLoadTest {
+    private static final int BATCH_SIZE = 10;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int registers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int checkoutsPerRegister = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int productCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        String mode = args.length > 3 ? args[3] : "service";
+        if (!mode.equals("service") && !mode.equals("batch") && !mode.equals("core")) throw new IllegalArgumentException("모드는 service, batch, core 중 하나: " + mode);
+        if (mode.equals("batch")) checkoutsPerRegister -= checkoutsPerRegister % BATCH_SIZE;
+        // 결제 1건에 평균 6개 정도 팔리므로, 상품당 재고를 수요보다 적게 잡아 뒤쪽 결제는 거절되도록
+        int initialStock = (int) ((long) registers * checkoutsPerRegister * 4 / productCount);
+
+        ProductStore products = new ProductStore(productCount);
+        PromotionEngine promotions = new PromotionEngine();
+        String[] names = new String[productCount];
+        for (int i = 0; i < productCount; i++) {
+            names[i] = String.format("상품%04d", i);
+            products.add(names[i], 1000 + i * 10, initialStock, 0, 0, 10);
+            if (i % 5 == 0) promotions.put(new EventRule("행사" + i, EventType.ONE_PLUS_ONE, names[i], 0));
+        }
+        PosCore core = new PosCore(products, promotions);
+
+        Path dir = Files.createTempDirectory("pos-load");
+        SalesJournal journal = new SalesJournal(new File(dir.toFile(), "sales-journal"), null, null);
+        HistoryStore history = new HistoryStore(new File(dir.toFile(), "history"));
+        ReceiptLog receipts = new ReceiptLog(new File(dir.toFile(), "receipts"));
+        journal.recover(false);
+        journal.start();
+        history.open();
+        history.baseline(products.values(), Collections.emptyList(), 0);
+        history.start();
+        receipts.open();
+        PosService service = new PosService(products, core, journal, history, new SalesRollup(), new ReorderEngine(), receipts, new ChangeTracker<>());
+
+        final int perRegister = checkoutsPerRegister;
+        long[][] latencies = new long[registers][mode.equals("batch") ? perRegister / BATCH_SIZE : perRegister];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(registers);
+        for (int r = 0; r < registers; r++) {
+            final long[] myLatencies = latencies[r];
+            Thread register = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    if (mode.equals("batch")) {
+                        List<Long> discounts = Collections.nCopies(BATCH_SIZE, 0L);
+                        for (int i = 0; i < myLatencies.length; i++) {
+                            List<Map<String, Integer>> carts = new ArrayList<>(BATCH_SIZE);
+                            for (int b = 0; b < BATCH_SIZE; b++) carts.add(randomCart(random, names));
+                            long t0 = System.nanoTime();
+                            service.checkoutBatch(carts, discounts);
+                            myLatencies[i] = System.nanoTime() - t0;
+                        }
+                    } else {
+                        for (int i = 0; i < myLatencies.length; i++) {
+                            Map<String, Integer> cart = randomCart(random, names);
+                            long t0 = System.nanoTime();
+                            if (mode.equals("core")) {
+                                core.checkout(cart, 0);
+                            } else {
+                                service.checkout(cart, 0);
+                            }
+                            myLatencies[i] = System.nanoTime() - t0;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "register-" + r);
+            register.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        int samples = latencies[0].length;
+        long[] all = new long[registers * samples];
+        for (int r = 0; r < registers; r++) {
+            System.arraycopy(latencies[r], 0, all, r * samples, samples);
+        }
+        Arrays.sort(all);
+        long attempts = (long) registers * perRegister;
+
+        // 초과 판매 확인: 모든 상품에서 남은 재고 + 판매 수량 == 처음 재고, 남은 재고 >= 0
+        boolean consistent = true;
+        for (Product p : products.values()) {
+            if (p.getQuantity() < 0 || p.getQuantity() + p.getSoldQuantity() != initialStock) consistent = false;
+        }
+
+        // 서비스 경로: 서비스가 센 매출이 PosCore 와 같고, 이력을 다시 적용한 재고가 메모리와 같아야 한다
+        if (!mode.equals("core")) {
+            if (service.getRevenue() != core.getRevenue()) consistent = false;
+            journal.shutdown();
+            receipts.close();
+            history.close();
+            HistoryStore replayed = new HistoryStore(new File(dir.toFile(), "history"));
+            replayed.open();
+            ProductStore fromHistory = replayed.copyProducts();
+            for (Product p : products.values()) {
+                Product h = fromHistory.get(p.name);
+                if (h == null || h.getQuantity() != p.getQuantity() || h.getSoldQuantity() != p.getSoldQuantity()) consistent = false;
+            }
+            if (replayed.getRevenue() != core.getRevenue()) consistent = false;
+            replayed.close();
+        }
+        deleteRecursively(dir);
+
+        double seconds = elapsed / 1_000_000_000.0;
+        System.out.printf("%s: 계산대 %d대, 결제 시도 %,d건, 상품 %d종 (상품당 재고 %,d개)%n", mode, registers, attempts, productCount, initialStock);
+        System.out.printf("성공 %,d건 / 재고 부족 거절 %,d건, 매출 ₩%,d%n", core.getCheckoutCount(), core.getRefusalCount(), core.getRevenue());
+        System.out.printf("처리량: %,.0f checkouts/sec (%.2f초)%n", attempts / seconds, seconds);
+        System.out.printf("지연%s: p50 %.1fµs, p99 %.1fµs, max %.1fµs%n", mode.equals("batch") ? " (" + BATCH_SIZE + "건 묶음)" : "",
+                percentile(all, 0.50) / 1000.0, percentile(all, 0.99) / 1000.0, all[all.length - 1] / 1000.0);
+        System.out.println("초과 판매 없음" + (mode.equals("core") ? "" : ", 매출/이력 일치") + ": " + consistent);
+    }
+
+    // 1~5 종류, 종류마다 1~3개 담은 장바구니
+    private static Map<String, Integer> randomCart(ThreadLocalRandom random, String[] names) {
+        Map<String, Integer> cart = new HashMap<>();
+        int lines = 1 + random.nextInt(5);
+        for (int l = 0; l < lines; l++) {
+            cart.merge(names[random.nextInt(names.length)], 1 + random.nextInt(3), Integer::sum);
+        }
+        return cart;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
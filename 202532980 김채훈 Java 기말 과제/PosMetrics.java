@@ -0,0 +1,246 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// 📈 실행 중 지연 시간/처리량 계측 (잠금 없는 히스토그램과 카운터)
+// 기록은 원자적 덧셈 몇 번뿐이라 결제 스레드나 EDT 를 잡아두지 않는다.
+// 진단 탭(SevenElevenManagement)과 POS 서비스 API 의 GET /metrics (Prometheus 텍스트 형식)에서 읽는다.
+final class PosMetrics {
+    private static final List<Metric> REGISTRY = new CopyOnWriteArrayList<>();
+
+    static final Histogram CHECKOUT = histogram("pos_checkout", "결제 한 건 처리 시간 (재고 확보 ~ 영수증 기록)");
+    static final Counter CHECKOUT_REFUSED = counter("pos_checkout_refused_total", "재고 부족/없는 상품으로 거절된 결제 수");
+    static final Counter CHECKOUT_FAILED = counter("pos_checkout_failed_total", "판매 저널에 남기지 못해 취소한 결제 수");
+    static final Histogram PRICING = histogram("pos_pricing", "장바구니 한 건의 줄별 가격 계산 시간");
+    static final Counter PRICED_LINES = counter("pos_priced_lines_total", "가격을 계산한 장바구니 줄 수");
+    static final Histogram TABLE_REFRESH = histogram("pos_table_refresh", "재고 표 검색/새로고침 시간");
+    static final Histogram REORDER_SUGGEST = histogram("pos_reorder_suggest", "전체 상품 발주 제안 계산/반영 시간");
+    static final Histogram DB_SAVE_PRODUCTS = histogram("pos_db_save_products", "변경 상품 DB 저장 시간");
+    static final Counter DB_SAVED_PRODUCTS = counter("pos_db_saved_products_total", "DB 에 저장(UPSERT/DELETE)한 상품 수");
+    static final Histogram DB_LOAD_PRODUCTS = histogram("pos_db_load_products", "상품 전체 DB 로드 시간");
+    static final Histogram EDT_DISPATCH = histogram("pos_edt_dispatch", "화면 이벤트 하나를 처리한 시간 (EDT)");
+    static final Counter EDT_SLOW_EVENTS = counter("pos_edt_slow_events_total", "100ms 넘게 걸린 화면 이벤트 수");
+    static final Histogram API_REQUEST = histogram("pos_api_request", "POS 서비스 API 요청 처리 시간");
+    static final Counter SCANS = counter("pos_scans_total", "읽은 바코드 수");
+    static final Histogram SCAN_BURST = histogram("pos_scan_burst", "바코드 스캔 묶음 하나를 장바구니에 반영한 시간 (EDT)");
+    static final Histogram SYNC_PULL = histogram("pos_sync_pull", "본사 DB 상품/규칙 읽기 시간 (동기화 작업자)");
+    static final Counter SYNC_CONFLICTS = counter("pos_sync_conflicts_total", "로컬과 본사가 같은 상품을 함께 바꾼 재고 충돌 수");
+    static final Counter SYNC_FAILURES = counter("pos_sync_failures_total", "본사 DB 에 닿지 못한 동기화 시도 수");
+
+    private static final long SLOW_EVENT_NANOS = 100_000_000L;
+    private static final AtomicBoolean edtInstrumented = new AtomicBoolean();
+
+    private PosMetrics() { }
+
+    abstract static class Metric {
+        final String name;
+        final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        abstract void writePrometheus(StringBuilder sb);
+    }
+
+    // 🔢 단순 누적 카운터
+    static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String help) {
+            super(name, help);
+        }
+
+        void increment() {
+            value.increment();
+        }
+
+        void add(long n) {
+            value.add(n);
+        }
+
+        long get() {
+            return value.sum();
+        }
+
+        @Override
+        void writePrometheus(StringBuilder sb) {
+            sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append(' ').append(get()).append('\n');
+        }
+    }
+
+    // ⏱ 나노초 단위 지연 히스토그램 (로그-선형 버킷: 2의 거듭제곱 구간마다 8칸, 상대 오차 12.5% 이내)
+    // 버킷 배열 하나로 0ns ~ 2^63ns 를 덮으므로 크기 조정이나 잠금이 필요 없다.
+    static final class Histogram extends Metric {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram(String name, String help) {
+            super(name, help);
+        }
+
+        // 사용: long t = PosMetrics.X.start(); ... PosMetrics.X.stop(t);
+        long start() {
+            return System.nanoTime();
+        }
+
+        void stop(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(bucketOf(nanos)); // 건수는 버킷 합으로 구한다
+            sum.add(nanos);
+            long m = max.get();
+            while (nanos > m && !max.compareAndSet(m, nanos)) m = max.get();
+        }
+
+        Snapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+                total += copy[i];
+            }
+            // 버킷과 합계를 따로 읽으므로 동시에 기록 중이면 한두 건 어긋날 수 있다 (표시용으로는 충분)
+            return new Snapshot(copy, total, sum.sum(), max.get());
+        }
+
+        static int bucketOf(long v) {
+            if (v < SUB_BUCKETS) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // 버킷에 들어가는 가장 큰 값
+        static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            int sub = bucket % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exp - SUB_BITS)) - 1;
+        }
+
+        @Override
+        void writePrometheus(StringBuilder sb) {
+            Snapshot s = snapshot();
+            String base = name + "_seconds";
+            sb.append("# HELP ").append(base).append(' ').append(help).append('\n');
+            sb.append("# TYPE ").append(base).append(" summary\n");
+            for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                sb.append(base).append("{quantile=\"").append(q).append("\"} ").append(seconds(s.percentile(q))).append('\n');
+            }
+            sb.append(base).append("_sum ").append(seconds(s.sumNanos)).append('\n');
+            sb.append(base).append("_count ").append(s.count).append('\n');
+            sb.append("# TYPE ").append(base).append("_max gauge\n");
+            sb.append(base).append("_max ").append(seconds(s.maxNanos)).append('\n');
+        }
+
+        private static String seconds(long nanos) {
+            return Double.toString(nanos / 1e9);
+        }
+    }
+
+    // 히스토그램의 어느 한 시점 값. minus() 로 두 시점 사이(최근 구간)만 볼 수 있다.
+    static final class Snapshot {
+        private final long[] buckets;
+        final long count;
+        final long sumNanos;
+        final long maxNanos;
+
+        private Snapshot(long[] buckets, long count, long sumNanos, long maxNanos) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        // 이전 스냅샷 이후에 기록된 값만 (최대값은 구간 안의 가장 큰 버킷 상한으로 어림)
+        Snapshot minus(Snapshot earlier) {
+            long[] diff = new long[buckets.length];
+            long total = 0;
+            long top = 0;
+            for (int i = 0; i < diff.length; i++) {
+                diff[i] = buckets[i] - earlier.buckets[i];
+                total += diff[i];
+                if (diff[i] > 0) top = Math.min(Histogram.upperBoundOf(i), maxNanos);
+            }
+            return new Snapshot(diff, total, sumNanos - earlier.sumNanos, top);
+        }
+
+        double meanNanos() {
+            return count == 0 ? 0 : (double) sumNanos / count;
+        }
+
+        // q (0~1) 분위수. 버킷 상한으로 답하므로 실제보다 조금 크게(최대 12.5%) 나온다.
+        long percentile(double q) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(q * count);
+            if (rank < 1) rank = 1;
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return Math.min(Histogram.upperBoundOf(i), maxNanos);
+            }
+            return maxNanos;
+        }
+    }
+
+    static Histogram histogram(String name, String help) {
+        Histogram h = new Histogram(name, help);
+        REGISTRY.add(h);
+        return h;
+    }
+
+    static Counter counter(String name, String help) {
+        Counter c = new Counter(name, help);
+        REGISTRY.add(c);
+        return c;
+    }
+
+    static List<Metric> all() {
+        return Collections.unmodifiableList(new ArrayList<>(REGISTRY));
+    }
+
+    // Prometheus 텍스트 형식 (GET /metrics)
+    static String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Metric m : REGISTRY) m.writePrometheus(sb);
+        return sb.toString();
+    }
+
+    // 🖱 EDT 이벤트 처리 시간: 시스템 이벤트 큐 위에 시간을 재는 큐를 얹는다 (한 번만)
+    static void instrumentEventQueue() {
+        if (!edtInstrumented.compareAndSet(false, true)) return;
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EventQueue() {
+            @Override
+            protected void dispatchEvent(AWTEvent event) {
+                long start = System.nanoTime();
+                try {
+                    super.dispatchEvent(event);
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    EDT_DISPATCH.record(nanos);
+                    if (nanos > SLOW_EVENT_NANOS) EDT_SLOW_EVENTS.increment();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,403 @@
+import java.io.File;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// ✅ DB 없이 돌릴 수 있는 계산 로직 자체 점검 (StoreShardHarness 와 같은 방식)
+// 이벤트 가격 계산처럼 화면/DB 와 떨어져 있는 부분을 작은 입력으로 확인한다.
+// 커넥션 풀은 H2(내장 DB) jar 가 classpath 에 있을 때만 점검한다.
+// 실행: java PosSelfCheck     (풀까지: java -cp .:h2.jar PosSelfCheck)     실패하면 종료 코드 1
+public class PosSelfCheck {
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long HOUR = 3_600_000L;
+    private static boolean failed = false;
+
+    public static void main(String[] args) {
+        checkPromotions();
+        checkCartAggregate();
+        checkMoney();
+        checkBarcodes();
+        checkSearch();
+        checkChangeTracker();
+        checkJournalFailure();
+        checkConnectionPool();
+        System.out.println(failed ? "실패" : "통과");
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static void check(boolean ok, String message) {
+        System.out.println((ok ? "  ok   " : "  FAIL ") + message);
+        if (!ok) failed = true;
+    }
+
+    private static void checkEquals(long actual, long expected, String message) {
+        check(actual == expected, message + " (" + actual + ", 기대 " + expected + ")");
+    }
+
+    // 이벤트 규칙 우선순위 / 기간 / 할인 합산
+    private static void checkPromotions() {
+        System.out.println("이벤트 가격 계산 (PromotionEngine)");
+        PromotionEngine engine = new PromotionEngine();
+        SaleResult out = new SaleResult(0, 0);
+
+        engine.price("우유", 1500, 3, NOW, out);
+        checkEquals(out.totalPrice, 4500, "이벤트가 없으면 정가 x 수량");
+
+        engine.put(new EventRule("우유 1+1", EventType.ONE_PLUS_ONE, "우유", 0));
+        engine.price("우유", 1500, 3, NOW, out);
+        checkEquals(out.totalPrice, 3000, "1+1: 3개 중 2개 결제");
+        checkEquals(out.freeCount, 1, "1+1: 공짜 1개");
+
+        engine.put(new EventRule("우유 2+1", EventType.TWO_PLUS_ONE, "우유", 0, 5, 0, 0));
+        engine.price("우유", 1500, 3, NOW, out);
+        checkEquals(out.totalPrice, 3000, "우선순위가 높은 2+1 하나만 적용");
+        engine.price("우유", 1500, 2, NOW, out);
+        checkEquals(out.totalPrice, 3000, "2+1 은 2개면 할인 없음 (1+1 과 겹쳐 적용하지 않음)");
+
+        engine.put(new EventRule("가 묶음", EventType.BUNDLE, "빵", 3));
+        engine.put(new EventRule("나 1+1", EventType.ONE_PLUS_ONE, "빵", 0));
+        engine.price("빵", 1000, 7, NOW, out);
+        checkEquals(out.totalPrice, 3000, "우선순위가 같으면 이벤트명 순: 묶음 3개 = 1개 가격, 7개 -> 3개 가격");
+        checkEquals(out.freeCount, 0, "묶음은 공짜 수량으로 표시하지 않음");
+
+        engine.put(new EventRule("우유 할인A", EventType.DISCOUNT, "우유", 100));
+        engine.put(new EventRule("우유 할인B", EventType.DISCOUNT, "우유", 200));
+        engine.price("우유", 1500, 3, NOW, out);
+        checkEquals(out.totalPrice, 2400, "할인은 모두 더해 결제되는 1개당 가격에서 뺌 (2 x 1200)");
+        List<String> applied = engine.appliedRules(productNamed("우유", 1500), NOW);
+        check(applied.equals(Arrays.asList("우유 2+1", "우유 할인A", "우유 할인B")), "적용 이벤트 목록이 가격 계산과 같음 " + applied);
+
+        engine.put(new EventRule("우유 할인B", EventType.DISCOUNT, "우유", 5000));
+        engine.price("우유", 1500, 3, NOW, out);
+        checkEquals(out.totalPrice, 0, "같은 이름이면 교체, 할인이 정가보다 크면 0원");
+        engine.remove("우유 할인B");
+
+        engine.put(new EventRule("우유 지난행사", EventType.ONE_PLUS_ONE, "우유", 0, 9, NOW - 2 * HOUR, NOW - HOUR));
+        engine.put(new EventRule("우유 다음행사", EventType.BUNDLE, "우유", 3, 9, NOW + HOUR, 0));
+        engine.price("우유", 1500, 3, NOW, out);
+        checkEquals(out.totalPrice, 2800, "기간 밖의 규칙은 우선순위가 높아도 건너뜀 (2+1, 할인A)");
+        engine.price("우유", 1500, 3, NOW + 2 * HOUR, out);
+        checkEquals(out.totalPrice, 1400, "시작 시각이 지나면 적용 (묶음 3개 = 1400원 1개)");
+
+        engine.remove("우유 2+1");
+        engine.remove("우유 할인A");
+        engine.remove("우유 1+1");
+        engine.remove("우유 지난행사");
+        engine.remove("우유 다음행사");
+        engine.price("우유", 1500, 3, NOW, out);
+        checkEquals(out.totalPrice, 4500, "규칙을 모두 지우면 정가");
+    }
+
+    // 줄 단위로 누적한 합계가 매번 처음부터 다시 계산한 합계와 같은지 (수량 변경, 삭제, 가격/이벤트 변경을 섞어서)
+    private static void checkCartAggregate() {
+        System.out.println("장바구니 누적 합계 (CartAggregate)");
+        ProductStore store = new ProductStore();
+        PromotionEngine engine = new PromotionEngine();
+        String[] names = new String[40];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "상품" + i;
+            store.add(names[i], 500 + 100 * i, 100, 0, 0, 10);
+            if (i % 3 == 0) engine.put(new EventRule("1+1 " + i, EventType.ONE_PLUS_ONE, names[i], 0));
+            if (i % 5 == 0) engine.put(new EventRule("할인 " + i, EventType.DISCOUNT, names[i], 150));
+        }
+        CartAggregate cart = new CartAggregate(store, engine);
+        Random random = new Random(8);
+        int mismatches = 0;
+        for (int step = 0; step < 5_000; step++) {
+            String name = names[random.nextInt(names.length)];
+            switch (random.nextInt(6)) {
+                case 0:
+                    cart.remove(name);
+                    break;
+                case 1:
+                    store.get(name).setPrice(500 + 50 * random.nextInt(40));
+                    cart.reprice(name);
+                    break;
+                case 2:
+                    engine.put(new EventRule("묶음 " + name, EventType.BUNDLE, name, 2 + random.nextInt(3), random.nextInt(3), 0, 0));
+                    cart.repriceAll();
+                    break;
+                default:
+                    cart.setQuantity(name, random.nextInt(8));
+            }
+            if (!totalsMatch(cart, store, engine)) mismatches++;
+        }
+        checkEquals(mismatches, 0, "5000번 바꾸는 동안 누적 합계와 다시 계산한 합계가 다른 횟수");
+
+        cart.setManualDiscount(Long.MAX_VALUE / 2);
+        check(cart.snapshot().finalTotal == 0, "수동 할인이 합계보다 커도 결제액은 0원");
+        cart.clear();
+        CartAggregate.Snapshot empty = cart.snapshot();
+        check(cart.isEmpty() && empty.grossTotal == 0 && empty.totalWithEvents == 0 && empty.manualDiscount == 0, "clear() 후 합계와 수동 할인이 모두 0");
+    }
+
+    // 고정 소수점 금액 계산: 원 미만 버림이 정확한 몫과 같은지, 넘침은 예외인지, 줄 버퍼 합계가 줄 합과 같은지
+    private static void checkMoney() {
+        System.out.println("금액 계산 (Money, PricedLines)");
+        checkEquals(Money.applyBps(12_345, Money.percentToBps(10)), 1_234, "12,345원의 10% 는 1,234원 (원 미만 버림)");
+        checkEquals(Money.applyBps(999, 1), 0, "0.01% 가 1원 미만이면 0원");
+        checkEquals(Money.applyBps(Long.MAX_VALUE, Money.BPS_SCALE), Long.MAX_VALUE, "아주 큰 금액의 100% 도 넘치지 않음");
+
+        Random random = new Random(15);
+        int wrong = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long amount = random.nextInt(4) == 0 ? random.nextLong() >> random.nextInt(64) : random.nextInt(10_000_000); // 음수/아주 큰 금액도 섞는다
+            int bps = random.nextInt(Money.BPS_SCALE + 1);
+            if (Money.applyBps(amount, bps) != floorDiv(amount, bps)) wrong++;
+        }
+        checkEquals(wrong, 0, "무작위 금액 10만 개에서 applyBps 가 floor(금액 x bp / 10000) 와 다른 횟수");
+
+        boolean overflow = false;
+        try {
+            Money.lineAmount(Long.MAX_VALUE / 2, 3);
+        } catch (ArithmeticException e) {
+            overflow = true;
+        }
+        check(overflow, "단가 x 수량이 long 을 넘으면 예외");
+
+        PricedLines lines = new PricedLines(2);
+        for (int round = 0; round < 2; round++) {
+            lines.reset();
+            long gross = 0, withEvents = 0, profit = 0;
+            for (int i = 0; i < 37; i++) {
+                long unit = 100 + 37 * i;
+                int qty = 1 + i % 4;
+                long linePrice = unit * qty - (i % 3 == 0 ? unit : 0);
+                lines.add("상품" + i, unit, qty, linePrice, i % 3 == 0 ? 1 : 0, Money.percentToBps(i % 30));
+                gross += unit * qty;
+                withEvents += linePrice;
+                profit += linePrice * (i % 30) / 100;
+            }
+            CheckoutSummary summary = lines.summarize(500);
+            check(lines.size() == 37 && summary.grossTotal == gross && summary.totalWithEvents == withEvents
+                  && summary.netProfit == profit - 500 && summary.finalTotal == withEvents - 500
+                  && summary.totalDiscount == gross - withEvents + 500,
+                  (round == 0 ? "줄 버퍼를 늘려 가며" : "reset() 후 다시 써도") + " 합계가 줄 합과 같음 (결제액 " + summary.finalTotal + ")");
+        }
+    }
+
+    // 바코드 색인: 삭제 때 뒤 칸을 당겨 채워도 남은 키를 모두 찾는지, GTIN 검사 숫자 확인
+    private static void checkBarcodes() {
+        System.out.println("바코드 색인 (BarcodeIndex)");
+        BarcodeIndex index = new BarcodeIndex(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(21);
+        int wrong = 0;
+        for (int step = 0; step < 200_000; step++) {
+            long barcode = 1 + random.nextInt(3_000); // 키 범위를 좁혀 같은 칸 근처에 자주 몰리게 한다
+            if (random.nextInt(3) == 0) {
+                if (index.remove(barcode) != (expected.remove(barcode) != null)) wrong++;
+            } else {
+                int id = random.nextInt(1_000_000);
+                Integer old = expected.put(barcode, id);
+                if (index.put(barcode, id) != (old == null ? -1 : old)) wrong++;
+            }
+            if (step % 1_000 == 0) {
+                for (long key = 1; key <= 3_000; key++) {
+                    Integer id = expected.get(key);
+                    if (index.get(key) != (id == null ? -1 : id)) wrong++;
+                }
+            }
+        }
+        checkEquals(wrong, 0, "넣기/지우기 20만 번 동안 HashMap 과 다른 결과 수");
+        checkEquals(index.size(), expected.size(), "크기가 HashMap 과 같음");
+        index.clear();
+        check(index.size() == 0 && index.get(1) == -1, "clear() 후 비어 있음");
+
+        checkEquals(BarcodeIndex.parseGtin("4006381333931"), 4_006_381_333_931L, "EAN-13");
+        checkEquals(BarcodeIndex.parseGtin(" 036000291452 "), 36_000_291_452L, "UPC-A (12자리, 앞뒤 공백 무시)");
+        checkEquals(BarcodeIndex.parseGtin("96385074"), 96_385_074L, "EAN-8");
+        checkEquals(BarcodeIndex.parseGtin("10012345678902"), 10_012_345_678_902L, "GTIN-14");
+        checkEquals(BarcodeIndex.parseGtin("4006381333932"), BarcodeIndex.NONE, "검사 숫자가 틀리면 NONE");
+        checkEquals(BarcodeIndex.parseGtin("400638133393"), BarcodeIndex.NONE, "자릿수가 맞지 않으면 NONE (12자리로 잘린 EAN-13)");
+        checkEquals(BarcodeIndex.parseGtin("40063813339a1"), BarcodeIndex.NONE, "숫자가 아닌 문자가 있으면 NONE");
+        checkEquals(BarcodeIndex.parseGtin("00000000"), BarcodeIndex.NONE, "검사 숫자는 맞아도 0 은 빈 칸 표시라 NONE");
+        check(BarcodeIndex.format(BarcodeIndex.parseGtin("036000291452")).equals("0036000291452"), "13자리보다 짧으면 앞을 0 으로 채워 표시");
+    }
+
+    // 상품명 검색: 초성/부분 문자열 예시, 그리고 색인 검색이 전체를 matches() 로 거른 결과와 같은지 (추가/삭제를 섞어서)
+    private static void checkSearch() {
+        System.out.println("상품명 검색 (ProductSearchIndex)");
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (String name : new String[]{"새우깡", "감자깡", "양파링", "CocaCola 500ml", "바나나우유", "딸기우유"}) index.add(name);
+        check(index.search("ㅅㅇㄲ").equals(Arrays.asList("새우깡")), "초성 검색 ㅅㅇㄲ -> 새우깡");
+        check(index.search("ㄲ").equals(Arrays.asList("감자깡", "새우깡")), "초성 한 글자는 이름순 전체");
+        check(index.search("우유").equals(Arrays.asList("딸기우유", "바나나우유")), "부분 문자열 검색");
+        check(index.search("cola").equals(Arrays.asList("CocaCola 500ml")), "영문은 대소문자 구분 없이");
+        check(index.search("ㅇㅍ링").isEmpty(), "초성과 글자가 섞인 검색어는 일반 검색");
+        index.remove("새우깡");
+        check(index.search("ㅅㅇㄲ").isEmpty() && index.size() == 5, "지운 상품은 검색되지 않음");
+
+        String[] syllables = {"가", "각", "나", "깡", "우", "유", "a", "B", "1"};
+        Random random = new Random(5);
+        List<String> names = new ArrayList<>();
+        index.clear();
+        int wrong = 0;
+        for (int step = 0; step < 3_000; step++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 1 + random.nextInt(5); i > 0; i--) sb.append(syllables[random.nextInt(syllables.length)]);
+            String name = sb.toString();
+            if (random.nextInt(4) == 0 && !names.isEmpty()) {
+                index.remove(names.remove(random.nextInt(names.size())));
+            } else if (!names.contains(name)) {
+                names.add(name);
+                index.add(name);
+            }
+            String query = random.nextBoolean() ? ProductSearchIndex.toChosung(name).substring(0, 1 + random.nextInt(name.length()))
+                                                : name.substring(random.nextInt(name.length()));
+            List<String> expected = new ArrayList<>();
+            for (String n : names) {
+                if (ProductSearchIndex.matches(n, query)) expected.add(n);
+            }
+            expected.sort(null);
+            if (!index.search(query).equals(expected)) wrong++;
+        }
+        checkEquals(wrong, 0, "3000번 바꾸는 동안 색인 검색과 전체 확인 결과가 다른 횟수");
+    }
+
+    // 변경 추적: 저장할 목록을 읽은 뒤(저장 도중) 다시 바뀐 키는 저장 성공 후에도 남아야 한다
+    private static void checkChangeTracker() {
+        System.out.println("변경 추적 (ChangeTracker)");
+        ChangeTracker<String> changes = new ChangeTracker<>();
+        changes.markDirty("a");
+        changes.markDirty("b");
+        changes.markDeleted("c");
+        long version = changes.version();
+        Set<String> dirty = changes.getDirty();
+        Set<String> deleted = changes.getDeleted();
+        changes.markDirty("b");      // 저장하는 동안 다시 바뀜
+        changes.markDirty("c");      // 삭제했다가 다시 추가
+        changes.clear(dirty, deleted, version);
+        check(!changes.isDirty("a") && changes.isDirty("b") && changes.isDirty("c") && !changes.isDeleted("c"),
+              "저장한 키만 지우고, 저장 도중 다시 바뀐 키는 남김 " + changes.getDirty());
+        changes.clear(changes.getDirty(), changes.getDeleted(), changes.version());
+        check(!changes.hasChanges(), "모두 저장하면 비어 있음");
+    }
+
+    private static void checkJournalFailure() {
+        System.out.println("판매 저널 기록 실패 (PosService)");
+        ProductStore store = new ProductStore();
+        store.add("우유", 1500, 10, 0, 0, 10);
+        PosCore core = new PosCore(store, new PromotionEngine());
+        File nowhere = new File("pos-selfcheck-unused");
+        // start() 하지 않은 저널은 append 에서 IOException 을 던진다
+        PosService service = new PosService(store, core, new SalesJournal(nowhere, null, null), new HistoryStore(nowhere),
+                                            new SalesRollup(), new ReorderEngine(), new ReceiptLog(nowhere), new ChangeTracker<>());
+        Map<String, Integer> items = new HashMap<>();
+        items.put("우유", 3);
+        PosService.Sale sale = service.checkout(items, 0);
+        check(!sale.success && sale.error != null, "저널에 남기지 못한 결제는 성공으로 돌려주지 않음");
+        Product milk = store.get("우유");
+        check(milk.getQuantity() == 10 && milk.getSoldQuantity() == 0, "확보했던 재고와 판매량을 되돌림");
+        check(service.getRevenue() == 0 && service.getCheckoutCount() == 0, "매출과 결제 수에도 남기지 않음");
+    }
+
+    private static void checkConnectionPool() {
+        System.out.println("커넥션 풀 (ConnectionPool, H2)");
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            System.out.println("  skip H2 드라이버가 classpath 에 없음");
+            return;
+        }
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:pos_selfcheck_pool;DB_CLOSE_DELAY=-1", "sa", "", 2, 200);
+        try {
+            try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+                for (String schema : new String[] { "STORE_A", "STORE_B" }) {
+                    stmt.executeUpdate("CREATE SCHEMA " + schema);
+                    stmt.executeUpdate("CREATE TABLE " + schema + ".T (V VARCHAR(10))");
+                    stmt.executeUpdate("INSERT INTO " + schema + ".T VALUES ('" + schema + "')");
+                }
+            }
+            checkEquals(pool.getActiveCount(), 0, "close() 하면 반납되어 사용 중 0");
+            checkEquals(pool.getIdleCount(), 1, "반납한 연결은 놀고 있는 연결로 남음");
+
+            Connection first = pool.borrow();
+            Connection physical = first.unwrap(Connection.class);
+            PreparedStatement a = first.prepareStatement("SELECT 1");
+            a.close();
+            check(first.prepareStatement("SELECT 1") == a, "같은 SQL 은 캐시한 PreparedStatement 를 다시 씀");
+            first.close();
+            first.close();
+            checkEquals(pool.getActiveCount(), 0, "두 번 close() 해도 한 번만 반납");
+            Connection c1 = pool.borrow();
+            Connection c2 = pool.borrow();
+            check(c1.unwrap(Connection.class) == physical, "반납한 실제 연결을 다시 빌려줌");
+            boolean timedOut = false;
+            try {
+                pool.borrow().close();
+            } catch (SQLException e) {
+                timedOut = true;
+            }
+            check(timedOut, "풀이 다 차면 대기 시간이 지나 SQLException (두 번 close() 가 자리를 늘리지 않음)");
+            c2.close();
+
+            physical.close(); // DB 쪽에서 끊긴 연결
+            c1.close();
+            try (Connection fresh = pool.borrow()) {
+                Connection freshPhysical = fresh.unwrap(Connection.class);
+                check(freshPhysical != physical && !freshPhysical.isClosed(), "끊긴 연결은 버리고 살아 있는 연결을 빌려줌");
+            }
+
+            try (Connection conn = pool.borrow("STORE_A")) {
+                check("STORE_A".equals(selectV(conn)), "borrow(STORE_A) 는 STORE_A 의 표를 읽음");
+            }
+            try (Connection conn = pool.borrow("STORE_B")) {
+                check("STORE_B".equals(selectV(conn)), "다른 스키마로 바꾸면 캐시한 문장도 새 스키마에서 준비");
+            }
+            boolean missing = false;
+            try {
+                pool.borrow("NO_SUCH_STORE").close();
+            } catch (SQLException e) {
+                missing = true;
+            }
+            check(missing && pool.getActiveCount() == 0 && pool.getIdleCount() == 1,
+                  "없는 스키마는 SQLException, 연결은 풀에 남음 " + pool.getStats());
+        } catch (SQLException e) {
+            check(false, "커넥션 풀 점검 중 예외: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String selectV(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT V FROM T"); ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    // 정답: BigInteger 로 계산한 floor(amount x bps / 10000)
+    private static long floorDiv(long amount, int bps) {
+        BigInteger[] qr = BigInteger.valueOf(amount).multiply(BigInteger.valueOf(bps)).divideAndRemainder(BigInteger.valueOf(Money.BPS_SCALE));
+        return (qr[1].signum() < 0 ? qr[0].subtract(BigInteger.ONE) : qr[0]).longValueExact();
+    }
+
+    private static boolean totalsMatch(CartAggregate cart, ProductStore store, PromotionEngine engine) {
+        SaleResult out = new SaleResult(0, 0);
+        long gross = 0, withEvents = 0;
+        for (CartAggregate.Line line : cart.getLines()) {
+            int price = store.get(line.name).getPrice();
+            engine.price(line.name, price, line.quantity, System.currentTimeMillis(), out);
+            gross += Money.lineAmount(price, line.quantity);
+            withEvents += out.totalPrice;
+            if (line.quantity <= 0) return false;
+        }
+        CartAggregate.Snapshot s = cart.snapshot();
+        return s.grossTotal == gross && s.totalWithEvents == withEvents;
+    }
+
+    private static Product productNamed(String name, int price) {
+        ProductStore store = new ProductStore();
+        return store.add(name, price, 10, 0, 0, 10);
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// 🧠 화면과 분리된 판매 서비스: 결제 한 건의 처리 순서를 한곳에 모아 둔다
+// 재고 확보 -> 판매 저널 -> 변경 이력 -> 매출 집계 -> 판매 속도 -> 영수증 로그
+// 판매 저널에 남기지 못하면 확보한 재고와 매출을 되돌리고 결제를 실패로 돌려준다.
+// POS 화면(판매 버튼)과 POS 서비스 API(스캐너, 키오스크, 부하 발생기)가 모두 이 클래스를 통해 결제한다.
+//
+// 잠금 규칙: "판매 장부 잠금"(ledger, 읽기/쓰기 잠금)
+// - 결제는 읽기 잠금을 잡고 재고 차감 ~ 저널/이력 기록까지 한다. 여러 계산대가 동시에 잡을 수 있으므로
+//   가격 계산과 재고 확보는 PosCore 의 상품별 잠금만으로 나란히 진행되고, 저널/이력은 각자의 잠금으로 한 줄씩 붙는다.
+// - DB 전체 저장은 저장할 값을 복사하고 저널을 봉인하는 동안만 쓰기 잠금(ledgerLock)을 잡는다. 진행 중인 결제가 모두 끝난 뒤에
+//   들어가므로 "재고는 줄었는데 저널에는 아직 없는" 중간 상태를 보지 않는다. DB 에 쓰는 동안에는 잡지 않는다.
+// - 화면에서 상품 상태를 이력에 남길 때(recordProductChange)도 쓰기 잠금을 잡는다. 상태에 반영된 결제는 모두 그 기록보다
+//   앞에, 반영되지 않은 결제는 뒤에 남으므로 이력을 다시 적용해도 재고가 맞는다.
+class PosService {
+    // 결제 결과 한 건
+    static class Sale {
+        final boolean success;
+        final String shortProduct;   // 실패 시 재고가 모자라거나 없는 상품
+        final int available;
+        final long txId;
+        final long time;
+        final CheckoutSummary summary;
+        final List<TransactionDetail> lines;
+        final ReceiptLog.Receipt receipt;
+        final String error;          // 재고가 아닌 이유(저널 기록 실패 등)로 실패했을 때의 사유
+
+        private Sale(boolean success, String shortProduct, int available, long txId, long time,
+                     CheckoutSummary summary, List<TransactionDetail> lines, ReceiptLog.Receipt receipt, String error) {
+            this.success = success;
+            this.shortProduct = shortProduct;
+            this.available = available;
+            this.txId = txId;
+            this.time = time;
+            this.summary = summary;
+            this.lines = lines;
+            this.receipt = receipt;
+            this.error = error;
+        }
+
+        static Sale refused(String shortProduct, int available) {
+            return new Sale(false, shortProduct, available, 0, 0, null, null, null, null);
+        }
+
+        static Sale failed(String error) {
+            return new Sale(false, null, 0, 0, 0, null, null, null, error);
+        }
+    }
+
+    private final ProductStore products;
+    private final PosCore core;
+    private final SalesJournal journal;
+    private final HistoryStore history;
+    private final SalesRollup rollup;
+    private final ReorderEngine reorder;
+    private final ReceiptLog receipts;
+    private final ChangeTracker<String> productChanges;
+    private volatile Consumer<Sale> saleListener = sale -> { };
+    private final ReentrantReadWriteLock ledger = new ReentrantReadWriteLock();
+    private final LongAdder revenue = new LongAdder(); // 누적 매출 (정확한 값은 ledgerLock 안에서 읽는다)
+
+    public PosService(ProductStore products, PosCore core, SalesJournal journal, HistoryStore history, SalesRollup rollup,
+                      ReorderEngine reorder, ReceiptLog receipts, ChangeTracker<String> productChanges) {
+        this.products = products;
+        this.core = core;
+        this.journal = journal;
+        this.history = history;
+        this.rollup = rollup;
+        this.reorder = reorder;
+        this.receipts = receipts;
+        this.productChanges = productChanges;
+    }
+
+    // 결제가 끝날 때마다 (결제한 스레드에서) 호출된다. 화면은 여기서 EDT 로 넘겨 표를 갱신한다.
+    public void setSaleListener(Consumer<Sale> listener) {
+        this.saleListener = listener;
+    }
+
+    // 💳 결제 한 건 (items: 상품명 -> 수량). 재고가 모자라면 아무것도 바꾸지 않고 거절한다.
+    public Sale checkout(Map<String, Integer> items, long manualDiscount) {
+        long start = PosMetrics.CHECKOUT.start();
+        try {
+            Sale sale = process(items, manualDiscount);
+            if (sale.error != null) PosMetrics.CHECKOUT_FAILED.increment();
+            else if (!sale.success) PosMetrics.CHECKOUT_REFUSED.increment();
+            return sale;
+        } finally {
+            PosMetrics.CHECKOUT.stop(start);
+        }
+    }
+
+    private Sale process(Map<String, Integer> items, long manualDiscount) {
+        if (items.isEmpty()) return Sale.refused(null, 0);
+        long txId = 0;
+        long time;
+        CheckoutSummary summary;
+        List<TransactionDetail> lines;
+        ledger.readLock().lock();
+        try {
+            PosCore.CheckoutResult result = core.checkout(items, manualDiscount);
+            if (!result.success) return Sale.refused(result.shortProduct, result.available);
+            summary = result.summary;
+            lines = core.lastLines().toDetails();
+            time = System.currentTimeMillis();
+            try {
+                txId = journal.append(lines, summary.finalTotal, summary.netProfit);
+            } catch (IOException e) {
+                // 저널에 없는 판매는 다음 저장/재시작 때 사라지므로 성공으로 돌려주지 않고 재고와 매출을 되돌린다
+                core.cancel(items, summary.finalTotal);
+                System.err.println("판매 저널 기록 중 오류로 결제를 취소했습니다: " + e.getMessage());
+                return Sale.failed("판매 저널 기록 실패: " + e.getMessage());
+            }
+            history.checkout(txId, summary.finalTotal, summary.netProfit, lines);
+            for (TransactionDetail line : lines) {
+                productChanges.markDirty(line.name);
+            }
+            revenue.add(summary.finalTotal);
+        } finally {
+            ledger.readLock().unlock();
+        }
+
+        // 📊 분/시간/일 집계와 판매 속도는 각자 동기화되어 있으므로 장부 잠금 밖에서
+        rollup.recordCheckout(time, lines, core.appliedRules(items.keySet(), time), summary.finalTotal, summary.netProfit);
+        for (TransactionDetail line : lines) {
+            reorder.recordSale(line.name, line.quantity, time);
+        }
+
+        ReceiptLog.Receipt receipt = new ReceiptLog.Receipt(txId, time, summary.finalTotal, summary.netProfit, summary.totalDiscount, lines);
+        try {
+            receipts.append(receipt);
+        } catch (IOException e) {
+            System.err.println("영수증 로그 기록 중 오류: " + e.getMessage());
+        }
+
+        Sale sale = new Sale(true, null, 0, txId, time, summary, lines, receipt, null);
+        saleListener.accept(sale);
+        return sale;
+    }
+
+    // 🧺 여러 장바구니를 차례로 결제 (각 장바구니는 따로 성공/거절된다)
+    public List<Sale> checkoutBatch(List<Map<String, Integer>> carts, List<Long> manualDiscounts) {
+        List<Sale> sales = new ArrayList<>(carts.size());
+        for (int i = 0; i < carts.size(); i++) {
+            sales.add(checkout(carts.get(i), manualDiscounts.get(i)));
+        }
+        return sales;
+    }
+
+    // 잡고 있는 동안에는 재고 차감 ~ 저널/이력 기록 중간에 있는 결제가 없다 (DB 전체 저장이 메모리와 저널을 한 시점으로 복사할 때).
+    // 결제가 모두 멈추므로 복사만 하고 바로 놓는다 (DB 입출력은 잠금 밖에서).
+    public Lock ledgerLock() {
+        return ledger.writeLock();
+    }
+
+    public long getRevenue() {
+        return revenue.sum();
+    }
+
+    // 시작 시 DB/이력에서 읽은 누적 매출
+    public void setRevenue(long revenue) {
+        ledger.writeLock().lock();
+        try {
+            this.revenue.reset();
+            this.revenue.add(revenue);
+        } finally {
+            ledger.writeLock().unlock();
+        }
+    }
+
+    // 화면에서 바꾼 상품 상태를 이력에 남긴다 (진행 중인 결제가 끝난 뒤에 상태를 읽는다)
+    public void recordProductChange(HistoryStore.Kind kind, Product p) {
+        ledger.writeLock().lock();
+        try {
+            history.productChanged(kind, p);
+        } finally {
+            ledger.writeLock().unlock();
+        }
+    }
+
+    public void recordProductDeleted(String name) {
+        ledger.writeLock().lock();
+        try {
+            history.productDeleted(name);
+        } finally {
+            ledger.writeLock().unlock();
+        }
+    }
+
+    // 상품 추가/삭제 (진행 중인 결제와 겹치지 않게)
+    public <T> T updateCatalog(Supplier<T> change) {
+        return core.updateCatalog(change);
+    }
+
+    // 한 상품의 재고/판매량 수정 (같은 상품의 결제 차감과 겹치지 않게)
+    public boolean updateProduct(String name, Consumer<Product> change) {
+        return core.updateProduct(name, change);
+    }
+
+    public void updatePromotions(Consumer<PromotionEngine> change) {
+        core.updatePromotions(change);
+    }
+
+    // 상품명으로 현재 값 조회 (없으면 null). 돌려준 핸들의 값은 읽을 때마다 최신이다.
+    public Product find(String name) {
+        return core.readCatalog(() -> products.get(name));
+    }
+
+    public long getCheckoutCount() {
+        return core.getCheckoutCount();
+    }
+
+    public long getRefusalCount() {
+        return core.getRefusalCount();
+    }
+}
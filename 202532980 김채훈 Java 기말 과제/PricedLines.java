@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 🧮 결제 한 번의 줄별 가격 계산 결과를 담는 재사용 버퍼
+// 줄마다 객체를 만들지 않고 미리 잡아 둔 칼럼 배열에 기록한다. reset() 후 다시 쓰면 추가 할당이 없다.
+// (줄 수가 지금까지의 최대치를 넘을 때만 배열을 늘린다)
+// 한 스레드에서만 사용한다. PosCore 는 계산대(스레드)마다 하나씩 둔다.
+class PricedLines {
+    private String[] names;
+    private long[] unitPrice;
+    private int[] quantity;
+    private long[] grossPrice;   // 정가 x 수량
+    private long[] linePrice;    // 이벤트 적용 가격
+    private int[] freeCount;
+    private long[] profit;
+    private int size = 0;
+
+    private long grossTotal = 0;
+    private long totalWithEvents = 0;
+    private long totalProfit = 0;
+
+    private final SaleResult scratch = new SaleResult(0, 0);
+
+    public PricedLines() {
+        this(16);
+    }
+
+    public PricedLines(int capacity) {
+        names = new String[capacity];
+        unitPrice = new long[capacity];
+        quantity = new int[capacity];
+        grossPrice = new long[capacity];
+        linePrice = new long[capacity];
+        freeCount = new int[capacity];
+        profit = new long[capacity];
+    }
+
+    public void reset() {
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+        grossTotal = 0;
+        totalWithEvents = 0;
+        totalProfit = 0;
+    }
+
+    // 이미 가격이 계산된 줄 추가 (예: 장바구니 화면에서 계산해 둔 값)
+    public void add(String name, long unitPrice, int quantity, long linePrice, int freeCount, int profitRateBps) {
+        if (size == names.length) grow();
+        int i = size++;
+        names[i] = name;
+        this.unitPrice[i] = unitPrice;
+        this.quantity[i] = quantity;
+        this.grossPrice[i] = Money.lineAmount(unitPrice, quantity);
+        this.linePrice[i] = linePrice;
+        this.freeCount[i] = freeCount;
+        this.profit[i] = Money.applyBps(linePrice, profitRateBps);
+        grossTotal += grossPrice[i];
+        totalWithEvents += linePrice;
+        totalProfit += profit[i];
+    }
+
+    // 저장소의 상품(id)을 qty 개 살 때의 가격을 이벤트 엔진으로 계산해서 추가
+    public void price(ProductStore products, int id, int qty, PromotionEngine promotions, long now) {
+        String name = products.nameAt(id);
+        int price = products.price(id);
+        promotions.price(name, price, qty, now, scratch);
+        add(name, price, qty, scratch.totalPrice, scratch.freeCount, Money.percentToBps(products.profitRate(id)));
+    }
+
+    public int size() { return size; }
+    public String name(int i) { return names[i]; }
+    public long unitPrice(int i) { return unitPrice[i]; }
+    public int quantity(int i) { return quantity[i]; }
+    public long linePrice(int i) { return linePrice[i]; }
+    public int freeCount(int i) { return freeCount[i]; }
+    public long profit(int i) { return profit[i]; }
+
+    // 수동 할인까지 반영한 결제 합계
+    public CheckoutSummary summarize(long manualDiscount) {
+        return new CheckoutSummary(grossTotal, totalWithEvents, totalProfit, manualDiscount, size);
+    }
+
+    // 저널/영수증/집계에 넘길 줄별 내역 (버퍼를 다시 쓰기 전에 복사해 둘 때)
+    public List<TransactionDetail> toDetails() {
+        List<TransactionDetail> details = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            details.add(new TransactionDetail(names[i], unitPrice[i], quantity[i], linePrice[i], profit[i], freeCount[i]));
+        }
+        return details;
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        unitPrice = Arrays.copyOf(unitPrice, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        grossPrice = Arrays.copyOf(grossPrice, capacity);
+        linePrice = Arrays.copyOf(linePrice, capacity);
+        freeCount = Arrays.copyOf(freeCount, capacity);
+        profit = Arrays.copyOf(profit, capacity);
+    }
+}
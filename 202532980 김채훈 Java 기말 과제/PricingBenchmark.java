@@ -0,0 +1,60 @@
+import java.lang.management.ManagementFactory;
+
+// 🏁 결제 가격 계산 경로 측정: 장바구니 한 줄당 할당량과 처리량
+// 실행: java PricingBenchmark [상품 수] [장바구니 줄 수] [반복 횟수]
+// 현재 스레드가 할당한 바이트(com.sun.management.ThreadMXBean)를 측정 구간 앞뒤로 읽어 줄 수로 나눈다.
+// 예열 후에는 줄당 0 bytes 가 나와야 한다. (결제 한 번마다 CheckoutSummary 하나만 만든다)
+public class PricingBenchmark {
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        int skus = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int cartLines = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int checkouts = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        ProductStore store = new ProductStore(skus);
+        PromotionEngine promotions = new PromotionEngine();
+        for (int i = 0; i < skus; i++) {
+            store.add("상품" + i, 500 + (i % 97) * 37, 1_000_000, 0, 0, 5 + i % 30);
+            if (i % 4 == 0) promotions.put(new EventRule("1+1 " + i, EventType.ONE_PLUS_ONE, "상품" + i, 0));
+            if (i % 7 == 0) promotions.put(new EventRule("할인 " + i, EventType.DISCOUNT, "상품" + i, 100));
+        }
+        int[] cart = new int[cartLines];
+        int[] qty = new int[cartLines];
+        for (int i = 0; i < cartLines; i++) {
+            cart[i] = (i * 7919) % skus;
+            qty[i] = 1 + i % 4;
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        PricedLines lines = new PricedLines();
+        long now = System.currentTimeMillis();
+
+        for (int round = 0; round < 3; round++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(tid);
+            long t0 = System.nanoTime();
+            long total = 0;
+            for (int c = 0; c < checkouts; c++) {
+                lines.reset();
+                for (int i = 0; i < cartLines; i++) {
+                    lines.price(store, cart[i], qty[i], promotions, now);
+                }
+                total += lines.summarize(500).finalTotal;
+            }
+            long nanos = System.nanoTime() - t0;
+            long bytes = threads.getThreadAllocatedBytes(tid) - bytesBefore;
+            sink = total;
+            long totalLines = (long) checkouts * cartLines;
+            System.out.printf("%s: %,.0f lines/sec, %.1f ns/line, 결제당 %.1f bytes (줄당 %.3f bytes)%n",
+                round < 2 ? "예열 " + (round + 1) : "측정", totalLines / (nanos / 1e9), (double) nanos / totalLines,
+                (double) bytes / checkouts, (double) bytes / totalLines);
+        }
+
+        // 고정 소수점 이익 계산 vs 이전 double 계산이 달라지는 예
+        long amount = 100;
+        int rate = 29;
+        System.out.printf("이익 계산 예: ₩%d x %d%% -> double %d원, bp %d원%n",
+            amount, rate, (long) (amount * (rate / 100.0)), Money.applyBps(amount, Money.percentToBps(rate)));
+    }
+}
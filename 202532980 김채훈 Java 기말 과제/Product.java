@@ -0,0 +1,30 @@
+// 📦 상품 저장소(ProductStore)의 한 행을 가리키는 핸들
+// 값은 저장소의 칼럼 배열에 있고, 이 객체는 상품명과 행 번호만 들고 있다. (필요할 때 만들어 쓰고 버린다)
+class Product {
+    final String name;
+    final ProductStore store;
+    final int id;
+
+    Product(ProductStore store, int id) {
+        this.store = store;
+        this.id = id;
+        this.name = store.nameAt(id);
+    }
+
+    public int getPrice() { return store.price(id); }
+    public int getQuantity() { return store.quantity(id); }
+    public int getOrderedQuantity() { return store.orderedQuantity(id); }
+    public int getSoldQuantity() { return store.soldQuantity(id); }
+    public int getProfitRate() { return store.profitRate(id); }
+    public long getBarcode() { return store.barcode(id); }
+
+    public void setPrice(int price) { store.setPrice(id, price); }
+    public void setQuantity(int quantity) { store.setQuantity(id, quantity); }
+    public void setOrderedQuantity(int orderedQuantity) { store.setOrderedQuantity(id, orderedQuantity); }
+    public void setProfitRate(int profitRate) { store.setProfitRate(id, profitRate); }
+    public boolean setBarcode(long barcode) { return store.setBarcode(id, barcode); }
+    
+    public long calculateProfit(long finalSellingPrice) {
+        return Money.applyBps(finalSellingPrice, Money.percentToBps(getProfitRate()));
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// 🔍 상품명 검색 인덱스 (1-gram / 2-gram 역색인)
+// - 일반 검색: 소문자로 바꾼 상품명에 대해 부분 문자열 검색
+// - 초성 검색: 검색어가 모두 초성(ㄱ~ㅎ)이면 상품명의 초성 문자열에 대해 검색 (예: "ㅅㅇㄲ" -> 새우깡)
+// 검색어의 n-gram 중 후보가 가장 적은 목록(이름순 정렬)만 훑고, 실제로 포함되는지 확인해서 걸러낸다.
+class ProductSearchIndex {
+    private static final char[] CHOSUNG = {
+        'ㄱ', 'ㄲ', 'ㄴ', 'ㄷ', 'ㄸ', 'ㄹ', 'ㅁ', 'ㅂ', 'ㅃ', 'ㅅ',
+        'ㅆ', 'ㅇ', 'ㅈ', 'ㅉ', 'ㅊ', 'ㅋ', 'ㅌ', 'ㅍ', 'ㅎ'
+    };
+
+    private final Map<String, TreeSet<String>> postings = new HashMap<>(); // n-gram -> 상품명 (이름순)
+    private final Map<String, String[]> keys = new HashMap<>();        // 상품명 -> {소문자 이름, 초성 문자열}
+    private final TreeSet<String> allNames = new TreeSet<>();
+
+    public void add(String name) {
+        if (keys.containsKey(name)) return;
+        String[] k = {name.toLowerCase(), toChosung(name)};
+        keys.put(name, k);
+        allNames.add(name);
+        for (String key : k) {
+            for (String gram : grams(key)) {
+                postings.computeIfAbsent(gram, g -> new TreeSet<>()).add(name);
+            }
+        }
+    }
+
+    public void remove(String name) {
+        String[] k = keys.remove(name);
+        if (k == null) return;
+        allNames.remove(name);
+        for (String key : k) {
+            for (String gram : grams(key)) {
+                TreeSet<String> names = postings.get(gram);
+                if (names == null) continue;
+                names.remove(name);
+                if (names.isEmpty()) postings.remove(gram);
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        keys.clear();
+        allNames.clear();
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    // 검색어를 포함하는 상품명을 이름순으로 돌려준다. 빈 검색어는 전체 목록.
+    public List<String> search(String query) {
+        if (query.isEmpty()) return new ArrayList<>(allNames);
+
+        boolean chosungQuery = isChosungOnly(query);
+        String q = chosungQuery ? query : query.toLowerCase();
+
+        TreeSet<String> smallest = null;
+        for (String gram : queryGrams(q)) {
+            TreeSet<String> names = postings.get(gram);
+            if (names == null) return Collections.emptyList();
+            if (smallest == null || names.size() < smallest.size()) smallest = names;
+        }
+
+        List<String> result = new ArrayList<>();
+        for (String name : smallest) {
+            String[] k = keys.get(name);
+            if ((chosungQuery ? k[1] : k[0]).contains(q)) result.add(name);
+        }
+        return result;
+    }
+
+    // 인덱스 없이 상품 하나가 검색어와 맞는지 확인 (search() 와 같은 규칙)
+    public static boolean matches(String name, String query) {
+        if (query.isEmpty()) return true;
+        if (isChosungOnly(query)) return toChosung(name).contains(query);
+        return name.toLowerCase().contains(query.toLowerCase());
+    }
+
+    // 한글 음절은 초성으로, 나머지 글자는 소문자로 바꾼 문자열
+    static String toChosung(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '가' && c <= '힣') {
+                sb.append(CHOSUNG[(c - '가') / (21 * 28)]);
+            } else {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isChosungOnly(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 'ㄱ' || c > 'ㅎ') return false;
+        }
+        return true;
+    }
+
+    // 색인할 때는 모든 1-gram 과 2-gram
+    private static Set<String> grams(String key) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < key.length(); i++) {
+            result.add(key.substring(i, i + 1));
+            if (i + 1 < key.length()) result.add(key.substring(i, i + 2));
+        }
+        return result;
+    }
+
+    // 검색할 때는 검색어가 한 글자면 1-gram, 아니면 2-gram 만 사용
+    private static List<String> queryGrams(String q) {
+        List<String> result = new ArrayList<>();
+        if (q.length() == 1) {
+            result.add(q);
+        } else {
+            for (int i = 0; i + 1 < q.length(); i++) {
+                result.add(q.substring(i, i + 2));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,275 @@
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// 🗄️ 상품 정보를 칼럼별 int 배열로 저장하는 상품 저장소 (struct-of-arrays)
+// - 상품명은 처음 등록될 때 0부터 시작하는 행 번호(id)를 받는다. 값은 id 위치의 배열 칸에 있다.
+// - 상품명 -> id 는 열린 주소(open addressing) 해시 테이블 하나로 찾는다 (Entry 객체 없음).
+//   슬롯마다 해시값과 id 를 long 하나에 함께 넣어 두어, 해시값이 같을 때만 상품명 문자열을 비교한다.
+// - 삭제된 행 번호는 다시 쓰지 않는다. 그래서 먼저 꺼내 둔 Product 핸들이 다른 상품을 가리키는 일이 없다.
+// - 바코드(GTIN)는 long 칼럼에 두고, 바코드 -> id 는 BarcodeIndex 로 찾는다 (바코드 없음 = 0).
+// - 상품 추가/삭제(구조 변경)는 한 스레드(EDT)에서만 한다. 재고 같은 값 변경은 PosCore 의 잠금으로 보호한다.
+class ProductStore {
+    private static final long EMPTY = 0L;           // 슬롯 값 = (해시값 << 32) | (id + 1)
+    private static final long DELETED = 1L << 32;   // id 부분이 0 이고 해시값 부분이 0 이 아니면 삭제 표시
+
+    private String[] names;
+    private int[] price;
+    private int[] quantity;
+    private int[] ordered;
+    private int[] sold;
+    private int[] profitRate;
+    private long[] barcode;
+    private final BarcodeIndex byBarcode;
+    private int nextId = 0;  // 다음에 줄 행 번호
+    private int live = 0;    // 삭제되지 않은 상품 수
+
+    private long[] table;    // 해시 슬롯 -> 해시값 + id (EMPTY / DELETED)
+    private int used = 0;    // EMPTY 가 아닌 슬롯 수 (삭제 표시 포함)
+
+    public ProductStore() {
+        this(16);
+    }
+
+    public ProductStore(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        names = new String[capacity];
+        price = new int[capacity];
+        quantity = new int[capacity];
+        ordered = new int[capacity];
+        sold = new int[capacity];
+        profitRate = new int[capacity];
+        barcode = new long[capacity];
+        byBarcode = new BarcodeIndex(capacity);
+        table = new long[tableSizeFor(capacity)];
+    }
+
+    // ➕ 상품 추가. 같은 이름이 이미 있으면 null
+    public Product add(String name, int price, int quantity, int orderedQuantity, int soldQuantity, int profitRate) {
+        if (idOf(name) >= 0) return null;
+        if (nextId == names.length) growColumns();
+        if ((used + 1) * 2 > table.length) rehash(live + 1 > table.length / 4 ? table.length * 2 : table.length);
+
+        int id = nextId++;
+        names[id] = name;
+        this.price[id] = price;
+        this.quantity[id] = quantity;
+        this.ordered[id] = orderedQuantity;
+        this.sold[id] = soldQuantity;
+        this.profitRate[id] = profitRate;
+        this.barcode[id] = BarcodeIndex.NONE;
+        insertSlot(name, id);
+        live++;
+        return new Product(this, id);
+    }
+
+    // 다른 저장소(예: DB 에서 읽은 묶음)의 상품을 복사해서 추가 (바코드가 이미 다른 상품에 쓰이고 있으면 바코드는 빼고)
+    public Product add(Product p) {
+        Product added = add(p.name, p.getPrice(), p.getQuantity(), p.getOrderedQuantity(), p.getSoldQuantity(), p.getProfitRate());
+        if (added != null && p.getBarcode() != BarcodeIndex.NONE) setBarcode(added.id, p.getBarcode());
+        return added;
+    }
+
+    public boolean remove(String name) {
+        int slot = findSlot(name);
+        if (slot < 0) return false;
+        int id = idAt(slot);
+        table[slot] = DELETED;
+        names[id] = null;
+        if (barcode[id] != BarcodeIndex.NONE) byBarcode.remove(barcode[id]);
+        barcode[id] = BarcodeIndex.NONE;
+        live--;
+        return true;
+    }
+
+    // 상품명 -> 행 번호 (없으면 -1)
+    public int idOf(String name) {
+        int slot = findSlot(name);
+        return slot < 0 ? -1 : idAt(slot);
+    }
+
+    // 바코드 -> 행 번호 (없으면 -1)
+    public int idOfBarcode(long code) {
+        return byBarcode.get(code);
+    }
+
+    public Product get(String name) {
+        int id = idOf(name);
+        return id < 0 ? null : new Product(this, id);
+    }
+
+    public boolean containsKey(String name) {
+        return idOf(name) >= 0;
+    }
+
+    public int size() {
+        return live;
+    }
+
+    public boolean isEmpty() {
+        return live == 0;
+    }
+
+    // 삭제되지 않은 상품 전체 (행 번호 순)
+    public Collection<Product> values() {
+        return new AbstractCollection<Product>() {
+            @Override
+            public Iterator<Product> iterator() {
+                return new Iterator<Product>() {
+                    private int id = skipDeleted(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return id < nextId;
+                    }
+
+                    @Override
+                    public Product next() {
+                        if (id >= nextId) throw new NoSuchElementException();
+                        Product p = new Product(ProductStore.this, id);
+                        id = skipDeleted(id + 1);
+                        return p;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return live;
+            }
+        };
+    }
+
+    // 상품명 전체 (행 번호 순)
+    public Collection<String> keySet() {
+        return new AbstractCollection<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<Product> it = values().iterator();
+                return new Iterator<String>() {
+                    @Override public boolean hasNext() { return it.hasNext(); }
+                    @Override public String next() { return it.next().name; }
+                };
+            }
+
+            @Override
+            public int size() {
+                return live;
+            }
+        };
+    }
+
+    // 📊 전체 상품의 예상 수익 합계 (가격 x 판매량 x 이익률) - 칼럼만 훑는다
+    public long estimatedProfitTotal() {
+        long total = 0;
+        for (int id = 0; id < nextId; id++) {
+            if (names[id] != null) total += estimatedProfit(id);
+        }
+        return total;
+    }
+
+    public long estimatedProfit(int id) {
+        return Money.applyBps((long) price[id] * sold[id], Money.percentToBps(profitRate[id]));
+    }
+
+    // 칼럼 읽기/쓰기 (id 는 idOf() 또는 Product.id)
+    public String nameAt(int id) { return names[id]; }
+    public int price(int id) { return price[id]; }
+    public int quantity(int id) { return quantity[id]; }
+    public int orderedQuantity(int id) { return ordered[id]; }
+    public int soldQuantity(int id) { return sold[id]; }
+    public int profitRate(int id) { return profitRate[id]; }
+    public long barcode(int id) { return barcode[id]; }
+
+    public void setPrice(int id, int value) { price[id] = value; }
+    public void setQuantity(int id, int value) { quantity[id] = value; }
+    public void setOrderedQuantity(int id, int value) { ordered[id] = value; }
+    public void setSoldQuantity(int id, int value) { sold[id] = value; }
+    public void setProfitRate(int id, int value) { profitRate[id] = value; }
+
+    // 바코드 지정/변경 (NONE 이면 바코드 지우기). 다른 상품이 이미 쓰는 바코드면 바꾸지 않고 false.
+    public boolean setBarcode(int id, long code) {
+        if (code == barcode[id]) return true;
+        if (code != BarcodeIndex.NONE) {
+            int owner = byBarcode.get(code);
+            if (owner >= 0 && owner != id) return false;
+        }
+        if (barcode[id] != BarcodeIndex.NONE) byBarcode.remove(barcode[id]);
+        barcode[id] = code;
+        if (code != BarcodeIndex.NONE) byBarcode.put(code, id);
+        return true;
+    }
+
+    // 💳 판매 반영: 재고 차감 + 판매량 증가 (호출하는 쪽에서 재고 확인과 잠금을 책임진다)
+    public void applySale(int id, int qty) {
+        quantity[id] -= qty;
+        sold[id] += qty;
+    }
+
+    // 판매 취소: applySale 을 되돌린다 (잠금은 applySale 과 같이 호출하는 쪽 책임)
+    public void cancelSale(int id, int qty) {
+        quantity[id] += qty;
+        sold[id] -= qty;
+    }
+
+    private int skipDeleted(int id) {
+        while (id < nextId && names[id] == null) id++;
+        return id;
+    }
+
+    private int findSlot(String name) {
+        int h = hash(name);
+        int mask = table.length - 1;
+        for (int slot = h & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            long entry = table[slot];
+            if ((int) (entry >>> 32) == h && idAt(slot) >= 0 && names[idAt(slot)].equals(name)) return slot;
+        }
+        return -1;
+    }
+
+    private int idAt(int slot) {
+        return (int) table[slot] - 1;
+    }
+
+    private void insertSlot(String name, int id) {
+        int h = hash(name);
+        int mask = table.length - 1;
+        int slot = h & mask;
+        while (idAt(slot) >= 0) slot = (slot + 1) & mask;
+        if (table[slot] == EMPTY) used++;
+        table[slot] = ((long) h << 32) | (id + 1);
+    }
+
+    private void growColumns() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        price = Arrays.copyOf(price, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        ordered = Arrays.copyOf(ordered, capacity);
+        sold = Arrays.copyOf(sold, capacity);
+        profitRate = Arrays.copyOf(profitRate, capacity);
+        barcode = Arrays.copyOf(barcode, capacity);
+    }
+
+    // 삭제 표시를 정리하면서 테이블 다시 만들기
+    private void rehash(int size) {
+        table = new long[size];
+        used = 0;
+        for (int id = 0; id < nextId; id++) {
+            if (names[id] != null) insertSlot(names[id], id);
+        }
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode() * 0x9E3779B9; // 비슷한 이름(연속된 해시값)이 한곳에 몰리지 않도록 섞는다
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expected) {
+        int size = 8;
+        while (size < expected * 2) size <<= 1;
+        return size;
+    }
+}
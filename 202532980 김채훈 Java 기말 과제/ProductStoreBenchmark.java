@@ -0,0 +1,129 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// 🏁 상품 저장소 비교: 기존 HashMap<String, 상품 객체> vs ProductStore(칼럼 배열)
+// 실행: java -Xmx2g ProductStoreBenchmark [상품 수] [조회 횟수]
+// 결과: 상품 하나당 메모리(상품명 문자열 제외), 이름으로 조회 + 재고 읽기 처리량, 판매 반영 처리량
+public class ProductStoreBenchmark {
+    // 이전 버전의 상품 객체와 같은 모양 (이름 + int 필드 5개)
+    private static class MapProduct {
+        String name;
+        int price;
+        int quantity;
+        int orderedQuantity;
+        int soldQuantity;
+        int profitRate;
+
+        MapProduct(String name, int price, int quantity) {
+            this.name = name;
+            this.price = price;
+            this.quantity = quantity;
+            this.profitRate = 10;
+        }
+    }
+
+    private static volatile Object keepAlive;
+
+    public static void main(String[] args) {
+        int skus = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+
+        String[] names = new String[skus];
+        for (int i = 0; i < skus; i++) {
+            names[i] = "상품" + i;
+        }
+        int[] probe = new int[1 << 16];
+        Random random = new Random(42);
+        for (int i = 0; i < probe.length; i++) {
+            probe[i] = random.nextInt(skus);
+        }
+
+        // 1) 메모리: 같은 상품명 문자열을 공유하므로 차이는 저장 구조에서만 난다
+        long before = usedMemory();
+        Map<String, MapProduct> map = new HashMap<>();
+        for (int i = 0; i < skus; i++) {
+            map.put(names[i], new MapProduct(names[i], 1000 + i % 5000, 100));
+        }
+        long mapBytes = usedMemory() - before;
+        keepAlive = map;
+
+        before = usedMemory();
+        ProductStore store = new ProductStore();
+        for (int i = 0; i < skus; i++) {
+            store.add(names[i], 1000 + i % 5000, 100, 0, 0, 10);
+        }
+        long storeBytes = usedMemory() - before;
+
+        System.out.printf("상품 %,d개 (상품명 문자열 제외)%n", skus);
+        System.out.printf("  HashMap<String, 상품>: %,d bytes/SKU%n", mapBytes / skus);
+        System.out.printf("  ProductStore         : %,d bytes/SKU%n", storeBytes / skus);
+
+        // 2) 이름으로 조회해서 재고 읽기 (JIT 가 충분히 돌도록 한 번씩 예열)
+        for (int round = 0; round < 2; round++) {
+            long t0 = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < lookups; i++) {
+                sum += map.get(names[probe[i & 0xffff]]).quantity;
+            }
+            long mapNanos = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                sum += store.quantity(store.idOf(names[probe[i & 0xffff]]));
+            }
+            long storeNanos = System.nanoTime() - t0;
+            keepAlive = sum;
+            if (round == 1) {
+                System.out.printf("조회 %,d회%n", lookups);
+                System.out.printf("  HashMap<String, 상품>: %,.0f lookups/sec%n", lookups / (mapNanos / 1e9));
+                System.out.printf("  ProductStore         : %,.0f lookups/sec%n", lookups / (storeNanos / 1e9));
+            }
+        }
+
+        // 3) 판매 반영 (id 를 미리 알고 있을 때의 재고 차감 + 판매량 증가)
+        int[] ids = new int[probe.length];
+        for (int i = 0; i < probe.length; i++) {
+            ids[i] = store.idOf(names[probe[i]]);
+        }
+        for (int round = 0; round < 2; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                MapProduct p = map.get(names[probe[i & 0xffff]]);
+                p.quantity -= 1;
+                p.soldQuantity += 1;
+            }
+            long mapNanos = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                store.applySale(ids[i & 0xffff], 1);
+            }
+            long storeNanos = System.nanoTime() - t0;
+            if (round == 1) {
+                System.out.printf("판매 반영 %,d회%n", lookups);
+                System.out.printf("  HashMap<String, 상품>: %,.0f sales/sec%n", lookups / (mapNanos / 1e9));
+                System.out.printf("  ProductStore (id)    : %,.0f sales/sec%n", lookups / (storeNanos / 1e9));
+            }
+        }
+
+        // 4) 전체 예상 수익 합계 (매출 현황 탭)
+        long t0 = System.nanoTime();
+        long total = store.estimatedProfitTotal();
+        System.out.printf("전체 예상 수익 합계: ₩%,d (%.2fms)%n", total, (System.nanoTime() - t0) / 1e6);
+        keepAlive = store;
+    }
+
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
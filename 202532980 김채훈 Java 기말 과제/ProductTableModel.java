@@ -0,0 +1,85 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 📋 상품 저장소를 직접 읽어 보여주는 테이블 모델
+// 행마다 값을 복사해 두지 않고 상품명 목록(이름순)만 들고 있다가, 화면에 그릴 때 저장소에서 값을 읽는다.
+// 상품 하나가 바뀌면 productChanged() 로 그 행만 다시 그린다.
+abstract class ProductTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private final ProductStore store;
+    private final String[] headers;
+    private List<String> rows = new ArrayList<>(); // 이름순으로 정렬된 상품명
+
+    public ProductTableModel(ProductStore store, String[] headers) {
+        this.store = store;
+        this.headers = headers;
+    }
+
+    // 화면에 보일 상품 목록 교체 (names 는 이름순으로 정렬되어 있어야 한다)
+    public void setRows(List<String> names) {
+        rows = names;
+        fireTableDataChanged();
+    }
+
+    // 정렬 순서를 유지하면서 한 행 추가
+    public void addProduct(String name) {
+        int pos = Collections.binarySearch(rows, name);
+        if (pos >= 0) return;
+        int row = -pos - 1;
+        rows.add(row, name);
+        fireTableRowsInserted(row, row);
+    }
+
+    public void removeProduct(String name) {
+        int row = indexOf(name);
+        if (row < 0) return;
+        rows.remove(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    // 상품 값이 바뀌었을 때 해당 행만 갱신
+    public void productChanged(String name) {
+        int row = indexOf(name);
+        if (row >= 0) fireTableRowsUpdated(row, row);
+    }
+
+    public int indexOf(String name) {
+        int row = Collections.binarySearch(rows, name);
+        return row >= 0 ? row : -1;
+    }
+
+    public String getNameAt(int row) {
+        return rows.get(row);
+    }
+
+    public Product getProductAt(int row) {
+        return store.get(rows.get(row));
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return headers.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return headers[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Product p = store.get(rows.get(row));
+        if (p == null) return null;
+        return getColumnValue(p, column);
+    }
+
+    protected abstract Object getColumnValue(Product p, int column);
+}
@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 🎁 상품별로 색인된 이벤트 규칙으로 장바구니 한 줄의 가격을 계산하는 엔진
+// - 규칙은 대상 상품별로 우선순위가 높은 순(같으면 이벤트명 순)으로 정렬해 둔다.
+// - 수량 규칙(1+1, 2+1, 묶음)은 기간 안에 있는 것 중 우선순위가 가장 높은 하나만 적용한다.
+// - 할인 규칙은 기간 안에 있는 것을 모두 더해 결제되는 1개당 가격에서 뺀다 (0원 미만은 0원).
+class PromotionEngine {
+    private final Map<String, CompiledRule[]> rulesByProduct = new HashMap<>();
+    private final Map<String, CompiledRule> rulesByName = new HashMap<>();
+
+    // 이벤트 규칙 추가/교체 (이름이 같으면 교체)
+    public void put(EventRule rule) {
+        PromotionKind kind = PromotionKind.fromLabel(rule.type);
+        if (kind == null) return;
+        remove(rule.ruleName);
+        CompiledRule compiled = new CompiledRule(rule, kind);
+        rulesByName.put(rule.ruleName, compiled);
+
+        CompiledRule[] old = rulesByProduct.getOrDefault(rule.targetProduct, new CompiledRule[0]);
+        CompiledRule[] rules = new CompiledRule[old.length + 1];
+        int i = 0;
+        while (i < old.length && old[i].comesBefore(compiled)) {
+            rules[i] = old[i];
+            i++;
+        }
+        rules[i] = compiled;
+        System.arraycopy(old, i, rules, i + 1, old.length - i);
+        rulesByProduct.put(rule.targetProduct, rules);
+    }
+
+    public void remove(String ruleName) {
+        CompiledRule compiled = rulesByName.remove(ruleName);
+        if (compiled == null) return;
+        CompiledRule[] old = rulesByProduct.get(compiled.targetProduct);
+        List<CompiledRule> rest = new ArrayList<>();
+        for (CompiledRule r : old) {
+            if (r != compiled) rest.add(r);
+        }
+        if (rest.isEmpty()) {
+            rulesByProduct.remove(compiled.targetProduct);
+        } else {
+            rulesByProduct.put(compiled.targetProduct, rest.toArray(new CompiledRule[0]));
+        }
+    }
+
+    public void clear() {
+        rulesByProduct.clear();
+        rulesByName.clear();
+    }
+
+    // 상품(name, 정가 basePrice)을 qty 개 살 때의 이벤트 적용 가격 (now 는 이벤트 기간 확인용 시각)
+    // 결제 경로에서 줄마다 객체를 만들지 않도록 결과는 호출하는 쪽이 재사용하는 out 에 써 넣는다.
+    public void price(String name, long basePrice, int qty, long now, SaleResult out) {
+        CompiledRule[] rules = rulesByProduct.get(name);
+        if (rules == null) {
+            out.totalPrice = Money.lineAmount(basePrice, qty);
+            out.freeCount = 0;
+            return;
+        }
+
+        CompiledRule quantityRule = null;
+        long unitDiscount = 0;
+        for (CompiledRule r : rules) {
+            if (!r.isActive(now)) continue;
+            if (r.kind.quantityRule) {
+                if (quantityRule == null) quantityRule = r;
+            } else {
+                unitDiscount += r.value;
+            }
+        }
+
+        int paidCount = quantityRule == null ? qty : quantityRule.kind.paidCount(qty, quantityRule.value);
+        // 묶음상품은 기존처럼 공짜 수량으로 표시하지 않는다
+        int freeCount = quantityRule != null && quantityRule.kind != PromotionKind.BUNDLE ? qty - paidCount : 0;
+        long unitPrice = Math.max(0, basePrice - unitDiscount);
+        out.totalPrice = Money.lineAmount(unitPrice, paidCount);
+        out.freeCount = freeCount;
+    }
+
+    // 상품 p 에 지금 적용되는 이벤트명 (price() 와 같은 규칙: 수량 규칙 하나 + 할인 규칙 전부)
+    public List<String> appliedRules(Product p, long now) {
+        List<String> names = new ArrayList<>();
+        CompiledRule[] rules = rulesByProduct.get(p.name);
+        if (rules == null) return names;
+        boolean quantityRuleFound = false;
+        for (CompiledRule r : rules) {
+            if (!r.isActive(now)) continue;
+            if (r.kind.quantityRule) {
+                if (quantityRuleFound) continue;
+                quantityRuleFound = true;
+            }
+            names.add(r.ruleName);
+        }
+        return names;
+    }
+
+    private static class CompiledRule {
+        final String ruleName;
+        final String targetProduct;
+        final PromotionKind kind;
+        final int value;
+        final int priority;
+        final long startTime;
+        final long endTime;
+
+        CompiledRule(EventRule rule, PromotionKind kind) {
+            this.ruleName = rule.ruleName;
+            this.targetProduct = rule.targetProduct;
+            this.kind = kind;
+            this.value = rule.value;
+            this.priority = rule.priority;
+            this.startTime = rule.startTime;
+            this.endTime = rule.endTime;
+        }
+
+        boolean isActive(long now) {
+            return (startTime == 0 || now >= startTime) && (endTime == 0 || now < endTime);
+        }
+
+        boolean comesBefore(CompiledRule other) {
+            if (priority != other.priority) return priority > other.priority;
+            return ruleName.compareTo(other.ruleName) < 0;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+// 🎁 이벤트 유형 문자열(EventType)을 미리 해석해 둔 가격 계산 전략
+enum PromotionKind {
+    ONE_PLUS_ONE(EventType.ONE_PLUS_ONE, true) {
+        @Override
+        int paidCount(int qty, int value) { return qty - qty / 2; }
+    },
+    TWO_PLUS_ONE(EventType.TWO_PLUS_ONE, true) {
+        @Override
+        int paidCount(int qty, int value) { return qty - qty / 3; }
+    },
+    // 묶음상품: value 개를 묶어 1개 가격에 판매 (남는 수량은 정가)
+    BUNDLE(EventType.BUNDLE, true) {
+        @Override
+        int paidCount(int qty, int value) { return value <= 0 ? qty : qty / value + qty % value; }
+    },
+    // 할인: 1개당 value 원 할인
+    DISCOUNT(EventType.DISCOUNT, false) {
+        @Override
+        int paidCount(int qty, int value) { return qty; }
+    };
+
+    final String label;
+    final boolean quantityRule; // 결제 수량을 바꾸는 규칙(1+1, 2+1, 묶음)인지
+
+    PromotionKind(String label, boolean quantityRule) {
+        this.label = label;
+        this.quantityRule = quantityRule;
+    }
+
+    abstract int paidCount(int qty, int value);
+
+    static PromotionKind fromLabel(String label) {
+        for (PromotionKind kind : values()) {
+            if (kind.label.equals(label)) return kind;
+        }
+        return null;
+    }
+}
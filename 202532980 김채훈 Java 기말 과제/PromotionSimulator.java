@@ -0,0 +1,383 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// 🔮 이벤트 규칙 what-if 시뮬레이터
+// 기록된 장바구니들을 지금 규칙(기준)과 후보 규칙으로 각각 다시 계산해 매출/이익/공짜 수량의 차이를 본다.
+// - 장바구니는 칼럼 배열(CartHistory)에 담고, ForkJoinPool 로 장바구니 구간을 나눠 병렬로 계산한다.
+// - 가격은 기록 당시의 정가(단가)를, 이익률은 지금 상품 저장소의 profitRate 를 쓴다.
+// - 규칙 기간은 각 장바구니의 결제 시각으로 판단한다. 수동 할인은 규칙과 무관하므로 합계에서 뺀다.
+// - 기준과 후보가 다른 규칙의 대상 상품만 두 번 계산하고, 나머지 줄은 기준 결과를 그대로 쓴다.
+// 실행: java PromotionSimulator [장바구니 수] [상품 수]   (임의로 만든 장바구니로 처리 속도 측정)
+class PromotionSimulator {
+    private static final int SPLIT_THRESHOLD = 4096; // 장바구니 이 개수 이하면 한 작업에서 계산
+
+    // 🛒 기록된 장바구니들 (장바구니 c 의 줄은 firstLine[c] ~ firstLine[c+1]-1)
+    static class CartHistory {
+        private long[] time = new long[1024];
+        private int[] firstLine = new int[1025];
+        private int[] product = new int[4096];   // 상품 사전(names) 번호
+        private int[] quantity = new int[4096];
+        private long[] unitPrice = new long[4096];
+        private int carts = 0;
+        private int lines = 0;
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        static CartHistory fromReceipts(ReceiptLog log) throws IOException {
+            CartHistory history = new CartHistory();
+            log.forEach(receipt -> {
+                history.startCart(receipt.time);
+                for (TransactionDetail d : receipt.lines) history.addLine(d.name, d.unitPrice, d.quantity);
+            });
+            return history;
+        }
+
+        void startCart(long cartTime) {
+            if (carts == time.length) {
+                time = Arrays.copyOf(time, carts * 2);
+                firstLine = Arrays.copyOf(firstLine, carts * 2 + 1);
+            }
+            time[carts] = cartTime;
+            firstLine[carts] = lines;
+            carts++;
+            firstLine[carts] = lines;
+        }
+
+        void addLine(String name, long price, int qty) {
+            if (carts == 0) throw new IllegalStateException("startCart() 를 먼저 불러야 합니다");
+            if (lines == product.length) {
+                product = Arrays.copyOf(product, lines * 2);
+                quantity = Arrays.copyOf(quantity, lines * 2);
+                unitPrice = Arrays.copyOf(unitPrice, lines * 2);
+            }
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                names.add(name);
+                ids.put(name, id);
+            }
+            product[lines] = id;
+            quantity[lines] = qty;
+            unitPrice[lines] = price;
+            lines++;
+            firstLine[carts] = lines;
+        }
+
+        int cartCount() { return carts; }
+        int lineCount() { return lines; }
+        int productCount() { return names.size(); }
+
+        // 상품 사전 순서대로 지금 이익률(bp). 저장소에 없는 상품(삭제됨)은 0.
+        int[] profitBps(ProductStore store) {
+            int[] bps = new int[names.size()];
+            for (int i = 0; i < bps.length; i++) {
+                int id = store.idOf(names.get(i));
+                bps[i] = id < 0 ? 0 : Money.percentToBps(store.profitRate(id));
+            }
+            return bps;
+        }
+    }
+
+    // 규칙 한 벌로 계산한 합계
+    static class Totals {
+        long gross;      // 정가 합계
+        long revenue;    // 이벤트 적용 후 매출
+        long profit;     // 이익률 기준 이익
+        long freeItems;  // N+1 로 공짜가 된 수량
+
+        long discount() { return gross - revenue; }
+
+        void add(Totals o) {
+            gross += o.gross;
+            revenue += o.revenue;
+            profit += o.profit;
+            freeItems += o.freeItems;
+        }
+    }
+
+    // 규칙이 바뀌는 상품 하나의 변화량
+    static class ProductDelta {
+        final String name;
+        long lines;
+        long revenueDelta;
+        long profitDelta;
+        long freeDelta;
+
+        ProductDelta(String name) {
+            this.name = name;
+        }
+    }
+
+    static class Report {
+        final int carts;
+        final int lines;
+        final Totals baseline;
+        final Totals candidate;
+        final long changedCarts;              // 합계가 달라진 장바구니 수
+        final List<ProductDelta> products;    // 매출 변화가 큰 순
+        final long elapsedNanos;
+        final int parallelism;
+
+        Report(int carts, int lines, Totals baseline, Totals candidate, long changedCarts, List<ProductDelta> products,
+               long elapsedNanos, int parallelism) {
+            this.carts = carts;
+            this.lines = lines;
+            this.baseline = baseline;
+            this.candidate = candidate;
+            this.changedCarts = changedCarts;
+            this.products = products;
+            this.elapsedNanos = elapsedNanos;
+            this.parallelism = parallelism;
+        }
+
+        long revenueDelta() { return candidate.revenue - baseline.revenue; }
+        long profitDelta() { return candidate.profit - baseline.profit; }
+        long freeItemsDelta() { return candidate.freeItems - baseline.freeItems; }
+
+        double cartsPerSecond() {
+            return elapsedNanos == 0 ? 0 : carts * 1e9 / elapsedNanos;
+        }
+    }
+
+    // ▶ 기준 규칙과 후보 규칙으로 모든 장바구니를 다시 계산
+    static Report simulate(CartHistory history, Collection<EventRule> baselineRules, Collection<EventRule> candidateRules,
+                           int[] profitBps, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        PromotionEngine baseline = engineOf(baselineRules);
+        PromotionEngine candidate = engineOf(candidateRules);
+
+        // 후보에서 추가/삭제/변경된 규칙의 대상 상품만 "영향 받음"
+        Set<String> changedTargets = changedTargets(baselineRules, candidateRules);
+        int[] affected = new int[history.productCount()];
+        List<ProductDelta> deltas = new ArrayList<>();
+        for (int i = 0; i < affected.length; i++) {
+            String name = history.names.get(i);
+            if (changedTargets.contains(name)) {
+                affected[i] = deltas.size();
+                deltas.add(new ProductDelta(name));
+            } else {
+                affected[i] = -1;
+            }
+        }
+
+        Replay replay = new Replay(history, baseline, candidate, profitBps, affected, deltas.size());
+        Partial result = pool.invoke(new ReplayTask(replay, 0, history.carts));
+
+        for (int i = 0; i < deltas.size(); i++) {
+            ProductDelta d = deltas.get(i);
+            d.lines = result.productDeltas[i * 4];
+            d.revenueDelta = result.productDeltas[i * 4 + 1];
+            d.profitDelta = result.productDeltas[i * 4 + 2];
+            d.freeDelta = result.productDeltas[i * 4 + 3];
+        }
+        deltas.removeIf(d -> d.lines == 0);
+        deltas.sort((a, b) -> Long.compare(Math.abs(b.revenueDelta), Math.abs(a.revenueDelta)));
+        return new Report(history.carts, history.lines, result.baseline, result.candidate, result.changedCarts, deltas,
+                          System.nanoTime() - start, pool.getParallelism());
+    }
+
+    private static PromotionEngine engineOf(Collection<EventRule> rules) {
+        PromotionEngine engine = new PromotionEngine();
+        for (EventRule rule : rules) engine.put(rule);
+        return engine;
+    }
+
+    private static Set<String> changedTargets(Collection<EventRule> baselineRules, Collection<EventRule> candidateRules) {
+        Map<String, EventRule> before = new HashMap<>();
+        for (EventRule r : baselineRules) before.put(r.ruleName, r);
+        Set<String> targets = new HashSet<>();
+        Set<String> seen = new HashSet<>();
+        for (EventRule r : candidateRules) {
+            seen.add(r.ruleName);
+            EventRule old = before.get(r.ruleName);
+            if (old != null && sameRule(old, r)) continue;
+            targets.add(r.targetProduct);
+            if (old != null) targets.add(old.targetProduct);
+        }
+        for (EventRule r : baselineRules) {
+            if (!seen.contains(r.ruleName)) targets.add(r.targetProduct);
+        }
+        return targets;
+    }
+
+    private static boolean sameRule(EventRule a, EventRule b) {
+        return Objects.equals(a.type, b.type) && Objects.equals(a.targetProduct, b.targetProduct) && a.value == b.value
+               && a.priority == b.priority && a.startTime == b.startTime && a.endTime == b.endTime;
+    }
+
+    // 모든 작업이 함께 읽는 입력 (읽기 전용)
+    private static final class Replay {
+        final CartHistory history;
+        final PromotionEngine baseline;
+        final PromotionEngine candidate;
+        final int[] profitBps;
+        final int[] affected;
+        final int affectedCount;
+
+        Replay(CartHistory history, PromotionEngine baseline, PromotionEngine candidate, int[] profitBps, int[] affected,
+               int affectedCount) {
+            this.history = history;
+            this.baseline = baseline;
+            this.candidate = candidate;
+            this.profitBps = profitBps;
+            this.affected = affected;
+            this.affectedCount = affectedCount;
+        }
+    }
+
+    // 장바구니 구간 하나의 부분 합계
+    private static final class Partial {
+        final Totals baseline = new Totals();
+        final Totals candidate = new Totals();
+        final long[] productDeltas; // 영향 받는 상품마다 {줄 수, 매출 변화, 이익 변화, 공짜 수량 변화}
+        long changedCarts;
+
+        Partial(int affectedCount) {
+            productDeltas = new long[affectedCount * 4];
+        }
+
+        void add(Partial o) {
+            baseline.add(o.baseline);
+            candidate.add(o.candidate);
+            changedCarts += o.changedCarts;
+            for (int i = 0; i < productDeltas.length; i++) productDeltas[i] += o.productDeltas[i];
+        }
+    }
+
+    private static final class ReplayTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final Replay replay;
+        private final int from;
+        private final int to;
+
+        ReplayTask(Replay replay, int from, int to) {
+            this.replay = replay;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                ReplayTask left = new ReplayTask(replay, from, mid);
+                left.fork();
+                Partial right = new ReplayTask(replay, mid, to).compute();
+                Partial result = left.join();
+                result.add(right);
+                return result;
+            }
+            return replayRange();
+        }
+
+        private Partial replayRange() {
+            CartHistory h = replay.history;
+            Partial p = new Partial(replay.affectedCount);
+            SaleResult before = new SaleResult(0, 0);
+            SaleResult after = new SaleResult(0, 0);
+            for (int c = from; c < to; c++) {
+                long now = h.time[c];
+                long cartBefore = 0;
+                long cartAfter = 0;
+                for (int l = h.firstLine[c]; l < h.firstLine[c + 1]; l++) {
+                    int id = h.product[l];
+                    String name = h.names.get(id);
+                    int qty = h.quantity[l];
+                    long unit = h.unitPrice[l];
+                    int bps = replay.profitBps[id];
+
+                    replay.baseline.price(name, unit, qty, now, before);
+                    long gross = Money.lineAmount(unit, qty);
+                    long profitBefore = Money.applyBps(before.totalPrice, bps);
+                    p.baseline.gross += gross;
+                    p.baseline.revenue += before.totalPrice;
+                    p.baseline.profit += profitBefore;
+                    p.baseline.freeItems += before.freeCount;
+                    cartBefore += before.totalPrice;
+
+                    int slot = replay.affected[id];
+                    if (slot < 0) {
+                        // 규칙이 같은 상품은 기준 결과 그대로
+                        p.candidate.gross += gross;
+                        p.candidate.revenue += before.totalPrice;
+                        p.candidate.profit += profitBefore;
+                        p.candidate.freeItems += before.freeCount;
+                        cartAfter += before.totalPrice;
+                        continue;
+                    }
+                    replay.candidate.price(name, unit, qty, now, after);
+                    long profitAfter = Money.applyBps(after.totalPrice, bps);
+                    p.candidate.gross += gross;
+                    p.candidate.revenue += after.totalPrice;
+                    p.candidate.profit += profitAfter;
+                    p.candidate.freeItems += after.freeCount;
+                    cartAfter += after.totalPrice;
+
+                    int b = slot * 4;
+                    p.productDeltas[b]++;
+                    p.productDeltas[b + 1] += after.totalPrice - before.totalPrice;
+                    p.productDeltas[b + 2] += profitAfter - profitBefore;
+                    p.productDeltas[b + 3] += after.freeCount - before.freeCount;
+                }
+                if (cartBefore != cartAfter) p.changedCarts++;
+            }
+            return p;
+        }
+    }
+
+    // 🏁 임의로 만든 장바구니로 처리 속도 측정 (병렬 vs 1 스레드)
+    public static void main(String[] args) {
+        int cartCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int productCount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+
+        ProductStore store = new ProductStore(productCount);
+        List<EventRule> baseline = new ArrayList<>();
+        for (int i = 0; i < productCount; i++) {
+            store.add("상품" + i, 500 + (i % 97) * 37, 1000, 0, 0, 5 + i % 30);
+            if (i % 10 == 0) baseline.add(new EventRule("1+1 " + i, EventType.ONE_PLUS_ONE, "상품" + i, 0));
+            if (i % 13 == 0) baseline.add(new EventRule("할인 " + i, EventType.DISCOUNT, "상품" + i, 100));
+        }
+        // 후보: 인기 상품 몇 개에 2+1 을 새로 걸고, 기존 1+1 하나를 내린다
+        List<EventRule> candidate = new ArrayList<>(baseline);
+        for (int i = 1; i <= 5; i++) candidate.add(new EventRule("신규 2+1 " + i, EventType.TWO_PLUS_ONE, "상품" + i, 0, 1, 0, 0));
+        candidate.removeIf(r -> r.ruleName.equals("1+1 0"));
+
+        CartHistory history = new CartHistory();
+        long seed = 42;
+        long t0 = System.currentTimeMillis() - 30L * 24 * 60 * 60 * 1000;
+        for (int c = 0; c < cartCount; c++) {
+            history.startCart(t0 + c * 2_000L);
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int lines = 1 + (int) ((seed >>> 33) % 8);
+            for (int l = 0; l < lines; l++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                long r = seed >>> 33;
+                int id = (int) (r % 64 < 40 ? r % 50 : r % productCount); // 인기 상품 50개에 판매가 몰리도록
+                history.addLine("상품" + id, store.price(id), 1 + (int) (r >>> 20) % 4);
+            }
+        }
+        int[] bps = history.profitBps(store);
+        System.out.printf("장바구니 %,d개, 줄 %,d개, 상품 %,d개%n", history.cartCount(), history.lineCount(), history.productCount());
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        for (ForkJoinPool pool : new ForkJoinPool[]{ForkJoinPool.commonPool(), single, ForkJoinPool.commonPool()}) {
+            Report report = simulate(history, baseline, candidate, bps, pool);
+            System.out.printf("스레드 %d개: %,d ms (%,.0f 장바구니/초) 매출 %+,d원, 이익 %+,d원, 공짜 %+,d개, 바뀐 장바구니 %,d개%n",
+                report.parallelism, report.elapsedNanos / 1_000_000, report.cartsPerSecond(), report.revenueDelta(),
+                report.profitDelta(), report.freeItemsDelta(), report.changedCarts);
+        }
+        single.shutdown();
+    }
+}
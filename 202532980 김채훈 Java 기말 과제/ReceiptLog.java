@@ -0,0 +1,313 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// 🧾 영수증을 한 줄씩 파일에 남기는 순환(rotating) 영수증 로그
+// - 영수증 하나 = 한 줄 (탭 구분). 파일이 MAX_FILE_BYTES 를 넘으면 새 파일로 넘어가고, 파일은 최근 MAX_FILES 개만 남긴다.
+// - 영수증 INDEX_EVERY 개마다 (거래ID, 시각, 파일 내 위치)를 옆의 .idx 파일에 기록해 두고,
+//   조회할 때는 이 색인으로 가까운 위치를 찾은 뒤 그 뒤의 몇 줄만 읽는다.
+// - 거래ID 와 시각은 기록 순서대로 커진다고 본다 (거래ID 는 SalesJournal 이 발급).
+//
+// 파일 형식: 거래ID  시각  최종금액  순수익  총할인  줄수  [상품명  단가  수량  최종금액  무료수량] x 줄수
+class ReceiptLog {
+    static final long MAX_FILE_BYTES = 1024 * 1024;
+    static final int MAX_FILES = 50;
+    private static final int INDEX_EVERY = 64;
+    private static final String PREFIX = "receipts-";
+
+    // 영수증 한 장
+    static class Receipt {
+        final long txId;
+        final long time;
+        final long finalTotal;
+        final long netProfit;
+        final long totalDiscount;
+        final List<TransactionDetail> lines;
+
+        Receipt(long txId, long time, long finalTotal, long netProfit, long totalDiscount, List<TransactionDetail> lines) {
+            this.txId = txId;
+            this.time = time;
+            this.finalTotal = finalTotal;
+            this.netProfit = netProfit;
+            this.totalDiscount = totalDiscount;
+            this.lines = lines;
+        }
+
+        // 판매 로그 창에 보여줄 여러 줄 텍스트
+        String format() {
+            StringBuilder log = new StringBuilder(String.format("--- [거래 완료 #%d] 최종액: ₩%,d (순 수익: ₩%,d) ---\n", txId, finalTotal, netProfit));
+            for (TransactionDetail detail : lines) {
+                String detailLine = String.format("  - %s | ₩%,d x %d개", detail.name, detail.unitPrice, detail.quantity);
+                if (detail.freeCount > 0) {
+                    detailLine += String.format(" (N+1 적용, %d개 공짜)", detail.freeCount);
+                } else if (detail.itemFinalPrice < detail.unitPrice * detail.quantity) {
+                    long itemDiscount = detail.unitPrice * detail.quantity - detail.itemFinalPrice;
+                    detailLine += String.format(" (할인 적용, ₩%,d 할인)", itemDiscount);
+                }
+                log.append(detailLine).append("\n");
+            }
+            log.append(String.format("---------------------------\n[최종 상세]\n매출 (할인 후): ₩%,d\n총 할인: ₩%,d\n", finalTotal, totalDiscount));
+            log.append("---------------------------\n");
+            return log.toString();
+        }
+    }
+
+    // 파일 하나의 요약과 드문드문한 색인
+    private static class Segment {
+        final long seq;
+        long firstTxId = Long.MAX_VALUE, lastTxId = Long.MIN_VALUE;
+        long firstTime = Long.MAX_VALUE, lastTime = Long.MIN_VALUE;
+        final List<long[]> index = new ArrayList<>(); // {거래ID, 시각, 위치}
+
+        Segment(long seq) {
+            this.seq = seq;
+        }
+
+        void note(long txId, long time) {
+            firstTxId = Math.min(firstTxId, txId);
+            lastTxId = Math.max(lastTxId, txId);
+            firstTime = Math.min(firstTime, time);
+            lastTime = Math.max(lastTime, time);
+        }
+    }
+
+    private final File dir;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment current;
+    private OutputStream out;
+    private OutputStream indexOut;
+    private long currentSize;
+    private int sinceIndex;
+
+    public ReceiptLog(File dir) {
+        this.dir = dir;
+    }
+
+    // 기존 파일의 색인을 읽고 마지막 파일 뒤에 이어서 쓴다.
+    public synchronized void open() throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("영수증 디렉터리를 만들 수 없습니다: " + dir);
+        for (long seq : listSegments()) {
+            segments.add(loadSegment(seq));
+        }
+        if (segments.isEmpty()) {
+            startSegment(1);
+        } else {
+            current = segments.get(segments.size() - 1);
+            openStreams();
+        }
+    }
+
+    // 💾 영수증 한 장 기록
+    public synchronized void append(Receipt receipt) throws IOException {
+        if (out == null) throw new IOException("영수증 로그가 열려 있지 않습니다.");
+        StringBuilder sb = new StringBuilder();
+        sb.append(receipt.txId).append('\t').append(receipt.time).append('\t').append(receipt.finalTotal).append('\t')
+          .append(receipt.netProfit).append('\t').append(receipt.totalDiscount).append('\t').append(receipt.lines.size());
+        for (TransactionDetail d : receipt.lines) {
+            sb.append('\t').append(clean(d.name)).append('\t').append(d.unitPrice).append('\t').append(d.quantity)
+              .append('\t').append(d.itemFinalPrice).append('\t').append(d.freeCount);
+        }
+        sb.append('\n');
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        if (currentSize > 0 && currentSize + bytes.length > MAX_FILE_BYTES) rotate();
+        if (sinceIndex == 0) {
+            long[] entry = {receipt.txId, receipt.time, currentSize};
+            current.index.add(entry);
+            indexOut.write((entry[0] + "\t" + entry[1] + "\t" + entry[2] + "\n").getBytes(StandardCharsets.UTF_8));
+            indexOut.flush();
+        }
+        sinceIndex = (sinceIndex + 1) % INDEX_EVERY;
+        out.write(bytes);
+        out.flush();
+        currentSize += bytes.length;
+        current.note(receipt.txId, receipt.time);
+    }
+
+    // 🔎 거래ID 로 영수증 찾기 (없으면 null)
+    public synchronized Receipt findByTxId(long txId) throws IOException {
+        for (Segment s : segments) {
+            if (txId < s.firstTxId || txId > s.lastTxId) continue;
+            long offset = startOffset(s, 0, txId);
+            for (Receipt r : scan(s, offset, Long.MIN_VALUE, Long.MAX_VALUE, txId)) {
+                if (r.txId == txId) return r;
+            }
+        }
+        return null;
+    }
+
+    // 🔎 시각 [from, to] 사이의 영수증 (오래된 것부터, 최대 limit 장)
+    public synchronized List<Receipt> findByTime(long from, long to, int limit) throws IOException {
+        List<Receipt> result = new ArrayList<>();
+        for (Segment s : segments) {
+            if (s.lastTime < from || s.firstTime > to) continue;
+            long offset = startOffset(s, 1, from);
+            for (Receipt r : scan(s, offset, from, to, Long.MAX_VALUE)) {
+                result.add(r);
+                if (result.size() >= limit) return result;
+            }
+        }
+        return result;
+    }
+
+    // 📜 남아 있는 모든 영수증을 오래된 것부터 차례로 넘긴다 (what-if 시뮬레이터가 장바구니 기록으로 쓴다)
+    // 읽는 동안 결제가 막히지 않도록 파일 목록만 잠금 안에서 복사한다. 그 사이 순환으로 지워진 파일은 건너뛴다.
+    public void forEach(Consumer<Receipt> action) throws IOException {
+        List<Segment> snapshot;
+        synchronized (this) {
+            if (out != null) out.flush();
+            snapshot = new ArrayList<>(segments);
+        }
+        for (Segment s : snapshot) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(segmentFile(s.seq, ".log")), StandardCharsets.UTF_8), 1 << 16)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Receipt r = parse(line);
+                    if (r != null) action.accept(r);
+                }
+            } catch (FileNotFoundException e) {
+                // 순환으로 지워진 파일
+            }
+        }
+    }
+
+    public synchronized void close() {
+        try {
+            if (out != null) out.close();
+            if (indexOut != null) indexOut.close();
+        } catch (IOException e) {
+            System.err.println("영수증 로그 종료 중 오류: " + e.getMessage());
+        }
+        out = null;
+        indexOut = null;
+    }
+
+    // 색인에서 key(0: 거래ID, 1: 시각) 가 target 이하인 마지막 항목의 위치
+    private static long startOffset(Segment s, int key, long target) {
+        int lo = 0, hi = s.index.size() - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (s.index.get(mid)[key] <= target) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found < 0 ? 0 : s.index.get(found)[2];
+    }
+
+    // offset 부터 읽으면서 시각 범위 안의 영수증을 모은다. 거래ID 가 stopAfterTxId 를 넘거나 시각이 to 를 넘으면 멈춘다.
+    private List<Receipt> scan(Segment s, long offset, long from, long to, long stopAfterTxId) throws IOException {
+        if (s == current && out != null) out.flush();
+        List<Receipt> result = new ArrayList<>();
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(s.seq, ".log"), "r")) {
+            file.seek(offset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file.getFD()), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Receipt r = parse(line);
+                if (r == null) continue;
+                if (r.txId > stopAfterTxId || r.time > to) break;
+                if (r.time >= from) result.add(r);
+            }
+        }
+        return result;
+    }
+
+    private static Receipt parse(String line) {
+        String[] f = line.split("\t", -1);
+        try {
+            int n = Integer.parseInt(f[5]);
+            if (f.length != 6 + n * 5) return null; // 쓰다 끊긴 줄
+            List<TransactionDetail> lines = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int b = 6 + i * 5;
+                lines.add(new TransactionDetail(f[b], Long.parseLong(f[b + 1]), Integer.parseInt(f[b + 2]),
+                                                Long.parseLong(f[b + 3]), 0, Integer.parseInt(f[b + 4])));
+            }
+            return new Receipt(Long.parseLong(f[0]), Long.parseLong(f[1]), Long.parseLong(f[2]),
+                               Long.parseLong(f[3]), Long.parseLong(f[4]), lines);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        close();
+        startSegment(current.seq + 1);
+        while (segments.size() > MAX_FILES) {
+            Segment oldest = segments.remove(0);
+            segmentFile(oldest.seq, ".log").delete();
+            segmentFile(oldest.seq, ".idx").delete();
+        }
+    }
+
+    private void startSegment(long seq) throws IOException {
+        current = new Segment(seq);
+        segments.add(current);
+        openStreams();
+    }
+
+    private void openStreams() throws IOException {
+        File logFile = segmentFile(current.seq, ".log");
+        boolean brokenTail = false;
+        if (logFile.length() > 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(logFile, "r")) {
+                raf.seek(raf.length() - 1);
+                brokenTail = raf.read() != '\n';
+            }
+        }
+        out = new BufferedOutputStream(new FileOutputStream(logFile, true));
+        if (brokenTail) out.write('\n'); // 쓰다 끊긴 마지막 줄이 다음 영수증과 붙지 않도록
+        indexOut = new BufferedOutputStream(new FileOutputStream(segmentFile(current.seq, ".idx"), true));
+        currentSize = logFile.length() + (brokenTail ? 1 : 0);
+        sinceIndex = 0; // 이어 쓰는 파일도 첫 영수증 위치는 색인에 남긴다
+    }
+
+    // .idx 를 읽어 색인을 만들고, 첫/마지막 거래는 색인과 파일 끝부분으로 계산한다.
+    private Segment loadSegment(long seq) throws IOException {
+        Segment s = new Segment(seq);
+        File idx = segmentFile(seq, ".idx");
+        if (idx.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(idx), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] f = line.split("\t");
+                    if (f.length != 3) continue;
+                    long[] entry = {Long.parseLong(f[0]), Long.parseLong(f[1]), Long.parseLong(f[2])};
+                    s.index.add(entry);
+                    s.note(entry[0], entry[1]);
+                }
+            }
+        }
+        long tailOffset = s.index.isEmpty() ? 0 : s.index.get(s.index.size() - 1)[2];
+        for (Receipt r : scan(s, tailOffset, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE)) {
+            s.note(r.txId, r.time);
+        }
+        return s;
+    }
+
+    private long[] listSegments() {
+        String[] names = dir.list((d, name) -> name.startsWith(PREFIX) && name.endsWith(".log"));
+        if (names == null) return new long[0];
+        long[] seqs = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            seqs[i] = Long.parseLong(names[i].substring(PREFIX.length(), names[i].length() - 4));
+        }
+        Arrays.sort(seqs);
+        return seqs;
+    }
+
+    private File segmentFile(long seq, String suffix) {
+        return new File(dir, String.format("%s%05d%s", PREFIX, seq, suffix));
+    }
+
+    private static String clean(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 🚚 판매 속도 기반 자동 발주 엔진
+// - 상품마다 판매 속도(하루 판매량)를 지수 가중 이동 평균(EWMA)으로 유지한다.
+//   판매가 들어올 때마다 지난 시간만큼 이전 속도를 감쇠시키고 새 판매량을 더한다 (반감기 HALF_LIFE_DAYS).
+// - 남은 재고 / 판매 속도 로 품절까지 남은 일수를 예상한다.
+// - 입고까지 걸리는 기간 + 발주 한 번으로 버틸 기간 동안 팔릴 수량을 목표 재고로 보고, 부족분을 발주 수량으로 제안한다.
+class ReorderEngine {
+    static final double HALF_LIFE_DAYS = 7.0;
+    static final double LEAD_TIME_DAYS = 2.0;   // 발주부터 입고까지
+    static final double COVER_DAYS = 7.0;       // 발주 한 번으로 버틸 기간
+    private static final double DAY_MILLIS = 86_400_000.0;
+    private static final double TAU_DAYS = HALF_LIFE_DAYS / Math.log(2); // 감쇠 시간 상수
+
+    // 발주 제안 한 건
+    static class Suggestion {
+        final String name;
+        final double unitsPerDay;
+        final double daysUntilStockout;
+        final int orderQuantity;
+
+        Suggestion(String name, double unitsPerDay, double daysUntilStockout, int orderQuantity) {
+            this.name = name;
+            this.unitsPerDay = unitsPerDay;
+            this.daysUntilStockout = daysUntilStockout;
+            this.orderQuantity = orderQuantity;
+        }
+    }
+
+    // 상품별 속도 상태: {마지막 갱신 시각의 속도(개/일), 마지막 갱신 시각(ms)}
+    private final Map<String, double[]> velocity = new HashMap<>();
+
+    // 🧾 판매 반영 (결제 시, 또는 시작 시 과거 집계로 초기값을 채울 때)
+    public synchronized void recordSale(String name, long quantity, long time) {
+        double[] v = velocity.computeIfAbsent(name, k -> new double[]{0, time});
+        if (time >= v[1]) {
+            v[0] = v[0] * decay(time - v[1]) + quantity / TAU_DAYS;
+            v[1] = time;
+        } else {
+            // 마지막 갱신보다 이전 시각의 판매는 현재 시점 기준으로 감쇠시켜 더한다
+            v[0] += quantity / TAU_DAYS * decay(v[1] - time);
+        }
+    }
+
+    public synchronized void remove(String name) {
+        velocity.remove(name);
+    }
+
+    // 품절까지 남은 일수 (판매 기록이 없으면 무한대)
+    public synchronized double daysUntilStockout(Product p, long now) {
+        double[] v = velocity.get(p.name);
+        double rate = v == null ? 0 : rateAt(v, now);
+        if (p.getQuantity() <= 0) return 0;
+        return rate <= 0 ? Double.POSITIVE_INFINITY : p.getQuantity() / rate;
+    }
+
+    // 📋 전체 상품에 대해 한 번에 발주 제안 계산
+    // 이미 그보다 많이 발주해 둔 상품은 제안하지 않는다.
+    public synchronized List<Suggestion> suggest(Iterable<Product> products, long now) {
+        List<Suggestion> result = new ArrayList<>();
+        for (Product p : products) {
+            double[] v = velocity.get(p.name);
+            if (v == null) continue;
+            double rate = rateAt(v, now);
+            if (rate <= 0) continue;
+            int target = (int) Math.ceil(rate * (LEAD_TIME_DAYS + COVER_DAYS));
+            int need = target - Math.max(0, p.getQuantity());
+            if (need <= p.getOrderedQuantity()) continue;
+            double days = p.getQuantity() <= 0 ? 0 : p.getQuantity() / rate;
+            result.add(new Suggestion(p.name, rate, days, need));
+        }
+        return result;
+    }
+
+    private static double rateAt(double[] v, long now) {
+        return now > v[1] ? v[0] * decay(now - v[1]) : v[0];
+    }
+
+    private static double decay(double elapsedMillis) {
+        return Math.exp(-(elapsedMillis / DAY_MILLIS) / TAU_DAYS);
+    }
+}
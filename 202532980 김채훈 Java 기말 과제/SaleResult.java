@@ -0,0 +1,9 @@
+// 💰 장바구니 한 줄의 이벤트 적용 결과 (결제 금액, 공짜 수량)
+class SaleResult {
+    long totalPrice;
+    int freeCount;
+    SaleResult(long totalPrice, int freeCount) {
+        this.totalPrice = totalPrice;
+        this.freeCount = freeCount;
+    }
+}
@@ -0,0 +1,412 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// 🧾 결제 내역을 먼저 로컬 파일에 기록하는 선기록(Write-Ahead) 판매 저널
+// - 결제 시 append() 는 현재 세그먼트 파일에 한 줄씩 쓰기만 하고 바로 돌아온다.
+// - fsync 는 SYNC_INTERVAL_MILLIS 마다 모아서 한 번에 한다 (그룹 커밋).
+// - 백그라운드 플러셔가 봉인된 세그먼트를 모아 재고/판매량/매출 증감분을 한 트랜잭션으로 DB에 반영한다.
+// - 반영한 마지막 세그먼트 번호는 같은 트랜잭션에서 sales_journal_checkpoint 에 기록하므로,
+//   시작 시 recover() 는 체크포인트 이후의 세그먼트만 다시 반영한다.
+// - 저널 잠금(synchronized)은 파일에 쓰고 세그먼트를 봉인하는 동안만 잡는다. DB 반영은 그 밖에서 applyLock 만 잡고 하므로,
+//   DB 가 느리거나 꺼져 있어도 결제(append)는 기다리지 않는다.
+// - CatalogSync 는 applyLock 을 잡고 본사 DB 를 읽으므로, 읽는 도중에 판매 증감분이 끼어들지 않는다
+//   (주기 플러셔는 잠금이 잡혀 있으면 그 주기를 건너뛴다).
+//
+// 세그먼트 파일 형식 (탭 구분, 한 줄 = 한 레코드)
+//   S  거래ID  시각  상품명  단가  수량  최종금액  순수익  무료수량
+//   C  거래ID  시각  최종결제액  순수익        <- 이 줄이 있는 거래만 반영 (쓰다 끊긴 거래는 무시)
+class SalesJournal {
+    private static final long SYNC_INTERVAL_MILLIS = 20;
+    private static final long FLUSH_INTERVAL_MILLIS = 2_000;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SEQ_FILE = "segment.seq"; // 마지막으로 연 세그먼트 번호 (파일이 모두 지워져도 번호가 되돌아가지 않도록)
+
+    private final File dir;
+    private final ConnectionPool pool;
+    private final String schema;
+    private final AtomicLong nextTxId = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private FileChannel current;
+    private long currentSeq;
+    private boolean currentHasData = false;
+    private volatile boolean needsSync = false;
+    private volatile boolean running = false;
+    private volatile boolean schemaReady = false;
+    private volatile long firstSeqOfRun = Long.MAX_VALUE;  // 이번 실행에서 처음 연 세그먼트 (그 전 세그먼트는 지난 실행의 판매)
+    private final ReentrantLock applyLock = new ReentrantLock();
+    private volatile Consumer<Map<String, Long>> appliedListener = sold -> { };
+    private Thread syncThread;
+    private Thread flushThread;
+
+    public SalesJournal(File dir, ConnectionPool pool, String schema) {
+        this.dir = dir;
+        this.pool = pool;
+        this.schema = schema;
+    }
+
+    // 🔁 시작 시 호출: 새 세그먼트를 연다. applyNow 면 아직 DB에 반영되지 않은 세그먼트를 먼저 모두 반영한다.
+    // 로컬 캐시로 먼저 여는 경우(applyNow = false)에는 DB 를 기다리지 않고, 남은 세그먼트는 다음 flush 때 반영된다.
+    public void recover(boolean applyNow) throws IOException {
+        long sealedBelow;
+        synchronized (this) {
+            if (!dir.exists() && !dir.mkdirs()) throw new IOException("저널 디렉터리를 만들 수 없습니다: " + dir);
+            long[] existing = listSegments();
+            currentSeq = Math.max(existing.length == 0 ? 0 : existing[existing.length - 1], readLastSeq()) + 1;
+            firstSeqOfRun = currentSeq;
+            openSegment();
+            sealedBelow = currentSeq;
+        }
+        if (applyNow) {
+            try {
+                applySealedSegments(sealedBelow, true);
+            } catch (SQLException e) {
+                System.err.println("판매 저널 복구 중 DB 오류 (다음 플러시 때 다시 시도): " + e.getMessage());
+            }
+        }
+    }
+
+    // 이번 실행의 판매를 DB 에 반영(커밋)할 때마다 상품별 판매 수량을 알린다 (반영한 스레드에서, applyLock 안에서)
+    public void setAppliedListener(Consumer<Map<String, Long>> listener) {
+        this.appliedListener = listener;
+    }
+
+    // 잡고 있는 동안에는 판매 증감분이 DB 에 반영되지 않는다 (결제와 저널 기록은 계속된다)
+    public ReentrantLock applyLock() {
+        return applyLock;
+    }
+
+    // pool 이 null 이면 파일 기록과 fsync 만 한다 (PosLoadTest 처럼 DB 없이 돌릴 때)
+    public void start() {
+        running = true;
+        syncThread = new Thread(() -> {
+            while (running) {
+                sleep(SYNC_INTERVAL_MILLIS);
+                sync();
+            }
+        }, "sales-journal-sync");
+        flushThread = new Thread(() -> {
+            while (running) {
+                sleep(FLUSH_INTERVAL_MILLIS);
+                try {
+                    flush(false);
+                } catch (Exception e) {
+                    System.err.println("판매 저널 DB 반영 실패 (다음 주기에 재시도): " + e.getMessage());
+                }
+            }
+        }, "sales-journal-flusher");
+        syncThread.setDaemon(true);
+        flushThread.setDaemon(true);
+        syncThread.start();
+        if (pool != null) flushThread.start();
+    }
+
+    // 💳 결제 한 건을 기록하고 거래 ID를 돌려준다. (fsync 는 동기화 스레드가 묶어서 수행)
+    public synchronized long append(Collection<TransactionDetail> details, long finalTotal, long netProfit) throws IOException {
+        if (current == null) throw new IOException("판매 저널이 열려 있지 않습니다.");
+        long txId = nextTxId.incrementAndGet();
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder();
+        for (TransactionDetail d : details) {
+            if (d.name == null) continue;
+            sb.append("S\t").append(txId).append('\t').append(now).append('\t').append(clean(d.name)).append('\t')
+              .append(d.unitPrice).append('\t').append(d.quantity).append('\t').append(d.itemFinalPrice).append('\t')
+              .append(d.itemNetProfit).append('\t').append(d.freeCount).append('\n');
+        }
+        sb.append("C\t").append(txId).append('\t').append(now).append('\t').append(finalTotal).append('\t').append(netProfit).append('\n');
+
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        long start = current.size();
+        try {
+            while (buf.hasRemaining()) {
+                current.write(buf);
+            }
+        } catch (IOException e) {
+            // 반쯤 쓴 줄이 남으면 다음 거래가 그 뒤에 이어 붙으므로 쓰기 전 길이로 되돌린다 (호출한 쪽은 결제를 취소한다)
+            try {
+                current.truncate(start);
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+        currentHasData = true;
+        needsSync = true;
+        return txId;
+    }
+
+    private void sync() {
+        if (!needsSync) return;
+        synchronized (this) {
+            if (current == null) return; // 닫힌 뒤 (close) 에는 할 일이 없다
+            try {
+                needsSync = false;
+                current.force(false);
+            } catch (IOException e) {
+                needsSync = true;
+                System.err.println("판매 저널 fsync 실패: " + e.getMessage());
+            }
+        }
+    }
+
+    // 현재 세그먼트를 봉인하고, 봉인된 세그먼트를 DB에 반영한다.
+    public void flush() throws IOException, SQLException {
+        flush(true);
+    }
+
+    // wait = false 면 다른 쪽이 applyLock 을 잡고 있을 때 기다리지 않고 다음 주기로 미룬다 (봉인만 한다)
+    private void flush(boolean wait) throws IOException, SQLException {
+        long sealedBelow = seal();
+        if (sealedBelow > 0) applySealedSegments(sealedBelow, wait);
+    }
+
+    // 쓰던 세그먼트에 기록이 있으면 봉인하고 새 세그먼트를 연다. 이 번호보다 작은 세그먼트는 더 이상 바뀌지 않는다 (0 = 닫힌 저널)
+    private synchronized long seal() throws IOException {
+        if (current == null) return 0;
+        if (currentHasData) {
+            sealCurrent();
+            openSegment();
+        }
+        return currentSeq;
+    }
+
+    // 💾 전체 저장(SevenElevenManagement.saveChangesToDB)이 메모리의 재고/매출을 복사하는 시점에 호출한다.
+    // 쓰던 세그먼트를 봉인하고, 복사한 값이 이미 포함하는 마지막 세그먼트 번호를 돌려준다.
+    // 호출하는 쪽은 applyLock 과 PosService.ledgerLock() 을 잡은 채로 부르고, applyLock 은 checkpoint 를 커밋할 때까지 놓지 않는다.
+    public synchronized long sealForCheckpoint() throws IOException {
+        if (current != null && currentHasData) {
+            sealCurrent();
+            openSegment();
+        }
+        return currentSeq - 1;
+    }
+
+    // sealForCheckpoint 가 돌려준 번호까지는 반영할 필요가 없다고 저장 트랜잭션 안에서 기록한다 (저널 잠금 없이, applyLock 안에서).
+    // 커밋한 뒤 같은 번호를 discardThrough() 에 넘긴다. 트랜잭션 시작 전에 ensureSchema() 를 먼저 호출해야 한다.
+    public void checkpoint(Connection conn, long sealedSeq) throws SQLException {
+        writeCheckpoint(conn, sealedSeq);
+    }
+
+    public synchronized void discardThrough(long seq) {
+        for (long s : listSegments()) {
+            if (s <= seq) segmentFile(s).delete();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        if (syncThread != null) syncThread.interrupt();
+        if (flushThread != null) flushThread.interrupt();
+        synchronized (this) {
+            try {
+                if (current != null) {
+                    current.force(false);
+                    current.close();
+                    current = null;
+                }
+            } catch (IOException e) {
+                System.err.println("판매 저널 종료 중 오류: " + e.getMessage());
+            }
+        }
+    }
+
+    private void sealCurrent() throws IOException {
+        current.force(false);
+        current.close();
+        current = null;
+        currentSeq++;
+    }
+
+    private void openSegment() throws IOException {
+        current = FileChannel.open(segmentFile(currentSeq).toPath(),
+                                   StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentHasData = current.size() > 0;
+        Files.write(new File(dir, SEQ_FILE).toPath(), String.valueOf(currentSeq).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long readLastSeq() {
+        File seqFile = new File(dir, SEQ_FILE);
+        if (!seqFile.exists()) return 0;
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(seqFile.toPath()), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // sealedBelow 보다 번호가 작은(봉인된) 세그먼트 중 체크포인트 이후의 것을 한 번에 반영.
+    // 저널 잠금 없이 applyLock 만 잡는다. 전체 저장(checkpoint)도 applyLock 안에서 체크포인트를 올리므로,
+    // 여기서 잠금을 잡은 뒤 읽은 체크포인트보다 앞선 세그먼트는 이미 반영된 것이다.
+    private void applySealedSegments(long sealedBelow, boolean wait) throws SQLException {
+        List<Long> pending = new ArrayList<>();
+        for (long s : listSegments()) {
+            if (s < sealedBelow) pending.add(s);
+        }
+        if (pending.isEmpty()) return;
+
+        if (wait) {
+            applyLock.lock();
+        } else if (!applyLock.tryLock()) {
+            return;
+        }
+        try (Connection conn = pool.borrow(schema)) {
+            long checkpoint = readCheckpoint(conn);
+            Map<String, long[]> perProduct = new LinkedHashMap<>(); // 상품명 -> {판매수량}
+            Map<String, Long> soldThisRun = new LinkedHashMap<>();
+            long revenueDelta = 0;
+            long lastSeq = checkpoint;
+            for (long s : pending) {
+                if (s <= checkpoint) continue;
+                if (s >= firstSeqOfRun) {
+                    Map<String, long[]> segment = new LinkedHashMap<>();
+                    revenueDelta += readSegment(segmentFile(s), segment);
+                    for (Map.Entry<String, long[]> e : segment.entrySet()) {
+                        perProduct.computeIfAbsent(e.getKey(), k -> new long[1])[0] += e.getValue()[0];
+                        soldThisRun.merge(e.getKey(), e.getValue()[0], Long::sum);
+                    }
+                } else {
+                    revenueDelta += readSegment(segmentFile(s), perProduct);
+                }
+                lastSeq = s;
+            }
+
+            if (lastSeq > checkpoint) {
+                conn.setAutoCommit(false);
+                try {
+                    applyDeltas(conn, perProduct, revenueDelta);
+                    writeCheckpoint(conn, lastSeq);
+                    conn.commit();
+                    if (!soldThisRun.isEmpty()) appliedListener.accept(soldThisRun);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+
+            for (long s : pending) {
+                if (s <= Math.max(lastSeq, checkpoint)) segmentFile(s).delete();
+            }
+        } catch (IOException e) {
+            throw new SQLException("판매 저널 읽기 실패: " + e.getMessage(), e);
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    private void applyDeltas(Connection conn, Map<String, long[]> perProduct, long revenueDelta) throws SQLException {
+        if (!perProduct.isEmpty()) {
+            String sql = "UPDATE products SET quantity = quantity - ?, sold_quantity = sold_quantity + ? WHERE name = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Map.Entry<String, long[]> entry : perProduct.entrySet()) {
+                    long qty = entry.getValue()[0];
+                    stmt.setLong(1, qty);
+                    stmt.setLong(2, qty);
+                    stmt.setString(3, entry.getKey());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+        if (revenueDelta != 0) {
+            String sql = "INSERT INTO revenue_data (id, total_revenue) VALUES (1, ?) ON DUPLICATE KEY UPDATE total_revenue = total_revenue + ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setLong(1, revenueDelta);
+                stmt.setLong(2, revenueDelta);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    // 세그먼트 하나를 읽어 완료(C)된 거래의 상품별 판매수량을 합산하고, 매출 합계를 돌려준다.
+    private long readSegment(File file, Map<String, long[]> perProduct) throws IOException {
+        Map<String, List<String[]>> open = new LinkedHashMap<>();
+        long revenue = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] f = line.split("\t");
+                if (f[0].equals("S") && f.length == 9) {
+                    open.computeIfAbsent(f[1], k -> new ArrayList<>()).add(f);
+                } else if (f[0].equals("C") && f.length == 5) {
+                    List<String[]> lines = open.remove(f[1]);
+                    if (lines != null) {
+                        for (String[] s : lines) {
+                            perProduct.computeIfAbsent(s[3], k -> new long[1])[0] += Long.parseLong(s[5]);
+                        }
+                    }
+                    revenue += Long.parseLong(f[3]);
+                }
+            }
+        }
+        return revenue;
+    }
+
+    // 체크포인트 테이블 생성. DDL 은 MySQL 에서 암묵적으로 커밋되므로 트랜잭션 시작 전에 호출해야 한다.
+    public void ensureSchema(Connection conn) throws SQLException {
+        if (schemaReady) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS sales_journal_checkpoint (id INT PRIMARY KEY, last_segment BIGINT NOT NULL)");
+        }
+        schemaReady = true;
+    }
+
+    private long readCheckpoint(Connection conn) throws SQLException {
+        ensureSchema(conn);
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT last_segment FROM sales_journal_checkpoint WHERE id = 1");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void writeCheckpoint(Connection conn, long seq) throws SQLException {
+        String sql = "INSERT INTO sales_journal_checkpoint (id, last_segment) VALUES (1, ?) " +
+                     "ON DUPLICATE KEY UPDATE last_segment = GREATEST(last_segment, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, seq);
+            stmt.setLong(2, seq);
+            stmt.executeUpdate();
+        }
+    }
+
+    private long[] listSegments() {
+        String[] names = dir.list((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (names == null) return new long[0];
+        long[] seqs = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            seqs[i] = Long.parseLong(names[i].substring(SEGMENT_PREFIX.length(), names[i].length() - SEGMENT_SUFFIX.length()));
+        }
+        Arrays.sort(seqs);
+        return seqs;
+    }
+
+    private File segmentFile(long seq) {
+        return new File(dir, String.format("%s%010d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private static String clean(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
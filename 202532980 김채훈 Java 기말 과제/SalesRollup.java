@@ -0,0 +1,289 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+
+// 📊 결제 내역을 분/시간/일 단위로 미리 합산해 두는 매출 집계 저장소
+// - 전체 합계, 상품별, 이벤트(행사)별로 시간 구간(버킷)마다 매출/판매수량/수익을 누적한다.
+// - 구간별 값은 칼럼(매출, 수량, 수익)마다 배열 하나씩, 고리(ring) 형태로 저장해서 오래된 구간은 덮어쓴다.
+// - 시간별/일별/상위 N 조회는 원본 거래를 다시 훑지 않고 이 배열만 더해서 답한다.
+// - DB(sales_rollup)에는 시간 단위 증감분만 저장하고, 시작 시 시간 단위 행으로 시간별/일별 값을 다시 채운다.
+//   (분 단위 값은 실행 중에만 유지)
+class SalesRollup {
+    enum Granularity {
+        MINUTE(60_000L, 24 * 60, 60),
+        HOUR(3_600_000L, 24 * 35, 48),
+        DAY(86_400_000L, 400, 90);
+
+        final long millis;
+        final int totalSlots;  // 전체 합계에 보관할 구간 수
+        final int itemSlots;   // 상품/이벤트마다 보관할 구간 수
+
+        Granularity(long millis, int totalSlots, int itemSlots) {
+            this.millis = millis;
+            this.totalSlots = totalSlots;
+            this.itemSlots = itemSlots;
+        }
+    }
+
+    // 조회 결과 한 줄 (구간 하나 또는 상품/이벤트 하나)
+    static class Row {
+        final String name;
+        final long start;
+        long revenue;
+        long quantity;
+        long profit;
+
+        Row(String name, long start) {
+            this.name = name;
+            this.start = start;
+        }
+    }
+
+    private static final char TOTAL = 'T';
+    private static final char PRODUCT = 'P';
+    private static final char PROMOTION = 'E';
+    private static final long LOAD_DAYS = 400;
+
+    private final long zoneOffset = TimeZone.getDefault().getOffset(System.currentTimeMillis()); // 일 단위 구간을 현지 자정에 맞춤
+    private final Series[] total = newSeries(true);
+    private final Map<String, Series[]> products = new HashMap<>();
+    private final Map<String, Series[]> promotions = new HashMap<>();
+    // 아직 DB에 저장하지 않은 시간 단위 증감분: "구분\t이름\t시간구간" -> {매출, 수량, 수익}
+    private final Map<String, long[]> pending = new LinkedHashMap<>();
+    private volatile boolean schemaReady = false;
+
+    // 🧾 결제 한 건 반영. appliedRules 는 상품명 -> 그 줄에 적용된 이벤트명 목록
+    public synchronized void recordCheckout(long time, Collection<TransactionDetail> details, Map<String, List<String>> appliedRules,
+                                            long finalTotal, long netProfit) {
+        long units = 0;
+        for (TransactionDetail d : details) {
+            if (d.name == null) continue;
+            units += d.quantity;
+            add(PRODUCT, d.name, time, d.itemFinalPrice, d.quantity, d.itemNetProfit);
+            List<String> rules = appliedRules.get(d.name);
+            if (rules == null) continue;
+            for (String rule : rules) {
+                add(PROMOTION, rule, time, d.itemFinalPrice, d.quantity, d.itemNetProfit);
+            }
+        }
+        add(TOTAL, "", time, finalTotal, units, netProfit);
+    }
+
+    // 최근 count 개 구간의 전체 합계 (오래된 구간부터)
+    public synchronized List<Row> recent(Granularity g, long now, int count) {
+        return recent(total[g.ordinal()], g, now, count);
+    }
+
+    // 최근 count 개 구간의 상품별 합계 (판매 기록이 없으면 빈 목록)
+    public synchronized List<Row> recentForProduct(String product, Granularity g, long now, int count) {
+        Series[] series = products.get(product);
+        return series == null ? new ArrayList<>() : recent(series[g.ordinal()], g, now, count);
+    }
+
+    // 최근 buckets 개 구간 동안 매출이 가장 큰 상품 n 개 (매출 내림차순)
+    public synchronized List<Row> topProducts(Granularity g, long now, int buckets, int n) {
+        return top(products, g, now, buckets, n);
+    }
+
+    // 최근 buckets 개 구간 동안 매출이 가장 큰 이벤트 n 개 (매출 내림차순)
+    public synchronized List<Row> topPromotions(Granularity g, long now, int buckets, int n) {
+        return top(promotions, g, now, buckets, n);
+    }
+
+    private List<Row> recent(Series s, Granularity g, long now, int count) {
+        long last = index(g, now);
+        int available = Math.min(count, s.slots());
+        List<Row> rows = new ArrayList<>(available);
+        for (long idx = last - available + 1; idx <= last; idx++) {
+            Row row = new Row(null, idx * g.millis - zoneOffset);
+            s.addTo(idx, row);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private List<Row> top(Map<String, Series[]> items, Granularity g, long now, int buckets, int n) {
+        long last = index(g, now);
+        long first = last - Math.min(buckets, g.itemSlots) + 1;
+        PriorityQueue<Row> best = new PriorityQueue<>((a, b) -> Long.compare(a.revenue, b.revenue));
+        for (Map.Entry<String, Series[]> entry : items.entrySet()) {
+            Series s = entry.getValue()[g.ordinal()];
+            Row row = new Row(entry.getKey(), first * g.millis - zoneOffset);
+            for (long idx = first; idx <= last; idx++) {
+                s.addTo(idx, row);
+            }
+            if (row.quantity == 0 && row.revenue == 0) continue;
+            if (best.size() < n) {
+                best.add(row);
+            } else if (row.revenue > best.peek().revenue) {
+                best.poll();
+                best.add(row);
+            }
+        }
+        List<Row> result = new ArrayList<>(best);
+        result.sort((a, b) -> Long.compare(b.revenue, a.revenue));
+        return result;
+    }
+
+    private void add(char dim, String name, long time, long revenue, long quantity, long profit) {
+        Series[] series;
+        if (dim == TOTAL) {
+            series = total;
+        } else {
+            series = (dim == PRODUCT ? products : promotions).computeIfAbsent(name, k -> newSeries(false));
+        }
+        for (Granularity g : Granularity.values()) {
+            series[g.ordinal()].add(index(g, time), revenue, quantity, profit);
+        }
+        long[] delta = pending.computeIfAbsent(dim + "\t" + name + "\t" + index(Granularity.HOUR, time), k -> new long[3]);
+        delta[0] += revenue;
+        delta[1] += quantity;
+        delta[2] += profit;
+    }
+
+    private long index(Granularity g, long time) {
+        return Math.floorDiv(time + zoneOffset, g.millis);
+    }
+
+    private static Series[] newSeries(boolean forTotal) {
+        Granularity[] gs = Granularity.values();
+        Series[] series = new Series[gs.length];
+        for (Granularity g : gs) {
+            series[g.ordinal()] = new Series(forTotal ? g.totalSlots : g.itemSlots);
+        }
+        return series;
+    }
+
+    // 💾 DB 저장/로드 -------------------------------------------------------
+
+    // 집계 테이블 생성. DDL 은 MySQL 에서 암묵적으로 커밋되므로 트랜잭션 시작 전에 호출해야 한다.
+    public void ensureSchema(Connection conn) throws SQLException {
+        if (schemaReady) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS sales_rollup (" +
+                               "dim CHAR(1) NOT NULL, item VARCHAR(100) NOT NULL, hour_start BIGINT NOT NULL, " +
+                               "revenue BIGINT NOT NULL, quantity BIGINT NOT NULL, profit BIGINT NOT NULL, " +
+                               "PRIMARY KEY (dim, item, hour_start))");
+        }
+        schemaReady = true;
+    }
+
+    // 저장할 증감분의 복사본. 커밋 후 markSaved() 에 넘긴다.
+    public synchronized Map<String, long[]> pendingSnapshot() {
+        Map<String, long[]> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : pending.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().clone());
+        }
+        return copy;
+    }
+
+    // 호출하는 쪽의 트랜잭션 안에서 시간 단위 증감분을 더한다.
+    public void save(Connection conn, Map<String, long[]> snapshot) throws SQLException {
+        if (snapshot.isEmpty()) return;
+        String sql = "INSERT INTO sales_rollup (dim, item, hour_start, revenue, quantity, profit) VALUES (?, ?, ?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), quantity = quantity + VALUES(quantity), profit = profit + VALUES(profit)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<String, long[]> entry : snapshot.entrySet()) {
+                String[] key = entry.getKey().split("\t", -1);
+                long[] delta = entry.getValue();
+                stmt.setString(1, key[0]);
+                stmt.setString(2, key[1]);
+                stmt.setLong(3, Long.parseLong(key[2]) * Granularity.HOUR.millis - zoneOffset);
+                stmt.setLong(4, delta[0]);
+                stmt.setLong(5, delta[1]);
+                stmt.setLong(6, delta[2]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // 커밋에 성공한 증감분만 뺀다. 저장 도중 새로 들어온 판매는 남아있게 된다.
+    public synchronized void markSaved(Map<String, long[]> snapshot) {
+        for (Map.Entry<String, long[]> entry : snapshot.entrySet()) {
+            long[] delta = pending.get(entry.getKey());
+            if (delta == null) continue;
+            long[] saved = entry.getValue();
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] -= saved[i];
+            }
+            if (delta[0] == 0 && delta[1] == 0 && delta[2] == 0) pending.remove(entry.getKey());
+        }
+    }
+
+    // 최근 LOAD_DAYS 일의 시간 단위 행을 읽어 시간별/일별 구간을 채운다.
+    public void load(Connection conn, long now) throws SQLException {
+        ensureSchema(conn);
+        String sql = "SELECT dim, item, hour_start, revenue, quantity, profit FROM sales_rollup WHERE hour_start >= ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, now - LOAD_DAYS * Granularity.DAY.millis);
+            try (ResultSet rs = stmt.executeQuery()) {
+                synchronized (this) {
+                    while (rs.next()) {
+                        String dim = rs.getString(1);
+                        if (dim == null || dim.isEmpty()) continue;
+                        long hourStart = rs.getLong(3);
+                        Series[] series;
+                        if (dim.charAt(0) == TOTAL) {
+                            series = total;
+                        } else {
+                            series = (dim.charAt(0) == PRODUCT ? products : promotions).computeIfAbsent(rs.getString(2), k -> newSeries(false));
+                        }
+                        long revenue = rs.getLong(4), quantity = rs.getLong(5), profit = rs.getLong(6);
+                        series[Granularity.HOUR.ordinal()].add(index(Granularity.HOUR, hourStart), revenue, quantity, profit);
+                        series[Granularity.DAY.ordinal()].add(index(Granularity.DAY, hourStart), revenue, quantity, profit);
+                    }
+                }
+            }
+        }
+    }
+
+    // 한 구분(전체/상품/이벤트)의 한 단위(분/시간/일) 구간들. 칼럼마다 배열 하나씩 고리 형태로 저장한다.
+    private static class Series {
+        private final long[] index;     // 슬롯에 들어있는 구간 번호 (-1 = 비어있음)
+        private final long[] revenue;
+        private final long[] quantity;
+        private final long[] profit;
+
+        Series(int slots) {
+            index = new long[slots];
+            revenue = new long[slots];
+            quantity = new long[slots];
+            profit = new long[slots];
+            Arrays.fill(index, -1);
+        }
+
+        int slots() {
+            return index.length;
+        }
+
+        void add(long idx, long r, long q, long p) {
+            int slot = (int) Math.floorMod(idx, (long) index.length);
+            if (index[slot] != idx) {
+                if (index[slot] > idx) return; // 보관 범위보다 오래된 구간
+                index[slot] = idx;
+                revenue[slot] = 0;
+                quantity[slot] = 0;
+                profit[slot] = 0;
+            }
+            revenue[slot] += r;
+            quantity[slot] += q;
+            profit[slot] += p;
+        }
+
+        void addTo(long idx, Row row) {
+            int slot = (int) Math.floorMod(idx, (long) index.length);
+            if (index[slot] != idx) return;
+            row.revenue += revenue[slot];
+            row.quantity += quantity[slot];
+            row.profit += profit[slot];
+        }
+    }
+}
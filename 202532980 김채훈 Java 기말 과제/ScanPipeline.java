@@ -0,0 +1,81 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// 📷 바코드 스캔 묶음 처리
+// 스캐너는 한 번에 여러 개를 연달아 읽는다 (같은 상품 여러 개, 묶음 상품 등). 스캔마다 장바구니 표와 합계를 다시 그리면
+// 가격 계산과 화면 갱신이 스캔 수만큼 반복되므로, 스캔을 모아 두었다가 QUIET_MILLIS 동안 새 스캔이 없으면 한 번에 넘긴다.
+// 계속 읽히더라도 첫 스캔부터 MAX_BURST_MILLIS 가 지나면 끊어서 넘겨, 계산대 화면이 멈춘 것처럼 보이지 않게 한다.
+// - submit 은 어느 스레드에서 불러도 된다 (키보드 방식 스캐너는 EDT, 직렬/USB 스캐너는 읽는 스레드).
+// - 묶음(burstSink)은 항상 EDT 에서, 스캔한 순서대로 받는다.
+class ScanPipeline {
+    static final int QUIET_MILLIS = 40;       // 스캐너 한 번 읽기 간격(보통 10~30ms)보다 조금 길게
+    static final int MAX_BURST_MILLIS = 150;
+
+    private final Consumer<long[]> burstSink;
+    private final Consumer<String> invalidSink;
+    private final Timer timer;
+
+    private long[] buffer = new long[64];
+    private int size = 0;
+    private long burstStart = 0;  // 지금 묶음의 첫 스캔 시각 (EDT 에서만 읽고 쓴다, 0 = 묶음 없음)
+
+    public ScanPipeline(Consumer<long[]> burstSink, Consumer<String> invalidSink) {
+        this.burstSink = burstSink;
+        this.invalidSink = invalidSink;
+        timer = new Timer(QUIET_MILLIS, e -> flush());
+        timer.setRepeats(false);
+    }
+
+    // 스캐너가 읽은 문자열 한 줄. 올바른 GTIN 이 아니면 묶음에 넣지 않고 invalidSink 에 그 문자열을 알린 뒤 false
+    public boolean submit(String scanned) {
+        long code = BarcodeIndex.parseGtin(scanned);
+        if (code == BarcodeIndex.NONE) {
+            onEdt(() -> invalidSink.accept(scanned));
+            return false;
+        }
+        submit(code);
+        return true;
+    }
+
+    public void submit(long code) {
+        synchronized (this) {
+            if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+            buffer[size++] = code;
+        }
+        PosMetrics.SCANS.increment();
+        onEdt(this::arm);
+    }
+
+    // 조용한 구간을 다시 기다리되, 묶음이 MAX_BURST_MILLIS 를 넘기지 않도록 남은 시간만큼만
+    private void arm() {
+        long now = System.currentTimeMillis();
+        if (burstStart == 0) burstStart = now;
+        long remaining = burstStart + MAX_BURST_MILLIS - now;
+        if (remaining <= 0) {
+            flush();
+            return;
+        }
+        timer.setInitialDelay((int) Math.min(QUIET_MILLIS, remaining));
+        timer.restart();
+    }
+
+    // 모아 둔 스캔을 지금 바로 넘긴다 (결제 직전 등). EDT 에서 호출
+    public void flush() {
+        timer.stop();
+        burstStart = 0;
+        long[] codes;
+        synchronized (this) {
+            if (size == 0) return;
+            codes = Arrays.copyOf(buffer, size);
+            size = 0;
+        }
+        burstSink.accept(codes);
+    }
+
+    private static void onEdt(Runnable r) {
+        if (SwingUtilities.isEventDispatchThread()) r.run();
+        else SwingUtilities.invokeLater(r);
+    }
+}
@@ -2,8 +2,6 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
-import javax.swing.event.TableModelEvent;
-import javax.swing.event.TableModelListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.*;
@@ -12,175 +10,176 @@ import java.awt.event.MouseEvent;
 import java.io.*; // 파일 입출력은 이제 사용하지 않지만, 기본 임포트는 유지
 import java.sql.*; // MySQL JDBC 연동을 위한 핵심 임포트
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
 import java.util.Map;
 import java.text.NumberFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.Locale;
 import java.util.List;
 import java.util.ArrayList;
-
-class EventType {
-    public static final String ONE_PLUS_ONE = "1+1";
-    public static final String TWO_PLUS_ONE = "2+1";
-    public static final String DISCOUNT = "할인";
-    public static final String BUNDLE = "묶음상품";
-
-    public static String[] getValues() {
-        return new String[]{ONE_PLUS_ONE, TWO_PLUS_ONE, DISCOUNT, BUNDLE};
-    }
-}
-
-class EventRule implements Serializable {
-    String ruleName;
-    String type;
-    String targetProduct;
-    int value; 
-
-    public EventRule(String ruleName, String type, String targetProduct, int value) {
-        this.ruleName = ruleName;
-        this.type = type;
-        this.targetProduct = targetProduct;
-        this.value = value;
-    }
-}
-
-class Product implements Serializable {
-    String name;
-    int price;
-    int quantity;
-    int orderedQuantity; 
-    int soldQuantity; 
-    int profitRate; 
-
-    public Product(String name, int price, int quantity) {
-        this.name = name;
-        this.price = price;
-        this.quantity = quantity;
-        this.orderedQuantity = 0;
-        this.soldQuantity = 0;
-        this.profitRate = 10; 
-    }
-    
-    public Product(String name, int price, int quantity, int orderedQuantity, int soldQuantity, int profitRate) {
-        this.name = name;
-        this.price = price;
-        this.quantity = quantity;
-        this.orderedQuantity = orderedQuantity;
-        this.soldQuantity = soldQuantity;
-        this.profitRate = profitRate;
-    }
-    
-    public long calculateProfit(long finalSellingPrice) {
-        double rate = this.profitRate / 100.0;
-        return (long)(finalSellingPrice * rate); 
-    }
-}
-
-class TransactionDetail {
-    String name;
-    long unitPrice;
-    int quantity;
-    long itemFinalPrice;
-    long itemNetProfit;
-    int freeCount; 
-    
-    public TransactionDetail(long itemNetProfit) {
-        this.itemNetProfit = itemNetProfit;
-    }
-
-    public TransactionDetail(String name, long unitPrice, int quantity, long itemFinalPrice, long itemNetProfit, int freeCount) {
-        this.name = name;
-        this.unitPrice = unitPrice;
-        this.quantity = quantity;
-        this.itemFinalPrice = itemFinalPrice;
-        this.itemNetProfit = itemNetProfit;
-        this.freeCount = freeCount;
-    }
-}
-
-class SaleResult {
-    long totalPrice;
-    int freeCount;
-    SaleResult(long totalPrice, int freeCount) {
-        this.totalPrice = totalPrice;
-        this.freeCount = freeCount;
-    }
-}
-
+import java.util.Collections;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.concurrent.ForkJoinPool;
 
 public class SevenElevenManagement extends JFrame {
+    private static final long serialVersionUID = 1L;
 
     // 🔑 MySQL JDBC 설정 정보
     private static final String JDBC_DRIVER = "com.mysql.cj.jdbc.Driver";
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/seven_eleven_db?serverTimezone=UTC";
+    private static final int LOAD_FETCH_SIZE = 500; // 시작 시 상품을 한 번에 가져오는 행 수 (표에도 이 단위로 추가)
     private static final String USER = "seven"; // 사용자 이름
     private static final String PASS = "0000"; // 비밀번호
 
-    private HashMap<String, Product> productDB = new HashMap<>();
+    // 🏬 이 계산대가 속한 점포 (-Dpos.store, 없으면 기본 점포 = 예전 seven_eleven_db) 와 점포 -> DB 서버 라우팅 (-Dpos.shards)
+    static final String STORE_ID = StoreShards.checkStoreId(System.getProperty("pos.store", StoreShards.DEFAULT_STORE));
+    private static final StoreShards storeShards = loadStoreShards();
+    // 점포별 로컬 파일(저널/영수증/이력) 위치. 한 컴퓨터에서 여러 점포를 띄워도 섞이지 않도록
+    private static final File STORE_DIR = STORE_ID.equals(StoreShards.DEFAULT_STORE) ? new File(".") : new File("stores", STORE_ID);
+
+    // 🐘 로드/저장 때마다 새로 접속하지 않도록 연결을 재사용하는 커넥션 풀 (이 점포가 있는 DB 서버의 풀, 빌릴 때 점포 스키마를 고른다)
+    private static final ConnectionPool dbPool = storeShards.poolFor(STORE_ID);
+    private static final String DB_SCHEMA = StoreShards.schemaOf(STORE_ID);
+
+    // 🧾 결제 내역을 바로 로컬 파일에 남기고, 백그라운드에서 DB에 반영하는 판매 저널
+    private final SalesJournal salesJournal = new SalesJournal(new File(STORE_DIR, "sales-journal"), dbPool, DB_SCHEMA);
+
+    // 🧾 영수증은 순환 파일 로그에 남기고, 화면에는 최근 RECEIPT_VIEW_LIMIT 장만 보여준다
+    private final ReceiptLog receiptLog = new ReceiptLog(new File(STORE_DIR, "receipts"));
+    private final HistoryStore history = new HistoryStore(new File(STORE_DIR, "history"));
+    private static final int RECEIPT_VIEW_LIMIT = 200;
+    private final ArrayDeque<Integer> receiptViewLengths = new ArrayDeque<>(); // 화면에 있는 영수증별 글자 수 (오래된 것부터)
+
+    // 상품명을 행 번호로 바꿔 가격/재고 등을 칼럼별 int 배열에 저장하는 상품 저장소
+    private final ProductStore productDB = new ProductStore();
     private HashMap<String, EventRule> eventDB = new HashMap<>(); 
+    // 🎁 eventDB 를 대상 상품별로 색인해 둔 가격 계산 엔진 (eventDB 를 바꿀 때 함께 갱신)
+    private final PromotionEngine promotionEngine = new PromotionEngine();
+    // 🏪 재고 차감을 원자적으로 처리하는 POS 핵심 로직 (재고가 모자라면 결제 거절)
+    private final PosCore posCore = new PosCore(productDB, promotionEngine);
+
+    // 📝 마지막 저장 이후 바뀐 상품/이벤트 (저장 시 이 행들만 DB에 반영)
+    private final ChangeTracker<String> productChanges = new ChangeTracker<>();
+    private final ChangeTracker<String> eventChanges = new ChangeTracker<>();
+
+    // 🔍 상품명 검색 인덱스 (productDB 에 상품을 넣고 뺄 때 함께 갱신)
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private static final int SEARCH_DEBOUNCE_MILLIS = 150; // 마지막 키 입력 후 이 시간이 지나면 검색
     
-    private long totalRevenue = 0; 
+    // 📊 결제 내역을 분/시간/일, 상품/이벤트별로 미리 합산해 둔 매출 집계
+    private final SalesRollup salesRollup = new SalesRollup();
+    private static final int TOP_N = 10;
+
+    // 🚚 판매 속도(EWMA)로 품절 시점을 예상하고 발주 수량을 제안하는 엔진
+    private final ReorderEngine reorderEngine = new ReorderEngine();
+    private static final int REORDER_INTERVAL_MILLIS = 10 * 60 * 1000; // 주기적으로 전체 상품 발주 제안
+    private static final int REORDER_AFTER_SALES_MILLIS = 30 * 1000;   // 마지막 결제 후 이 시간이 지나면 발주 제안
+    private Timer reorderAfterSalesTimer;
+
+    private long savedRevenue = 0; // DB에 마지막으로 저장된 총 매출 (누적 매출 자체는 posService 가 들고 있다)
 
     private JTabbedPane tabbedPane;
 
-    private JTextField mNameField, mPriceField, mQtyField, mProfitRateField; 
+    private JTextField mNameField, mPriceField, mQtyField, mProfitRateField, mBarcodeField; 
     private JTable inventoryTable;
-    private DefaultTableModel tableModel;
+    private ProductTableModel tableModel;
     private JTextField mSearchField; 
 
     private JTable salesInventoryTable; 
-    private DefaultTableModel salesInventoryTableModel; 
+    private ProductTableModel salesInventoryTableModel; 
     private JTextField sSearchField; 
     private JTable cartTable; 
     private CartTableModel cartTableModel; 
     private JTextArea receiptArea;
+    private JTextField scanField;
+    private JLabel scanStatusLabel;
+    private ScanPipeline scanPipeline;
     private JLabel totalLabel; 
     private JTextField manualDiscountField;
     private JLabel revenueProfitLabel; 
     
     private JLabel revenueSummaryLabel;
     private JTable revenueTable;
-    private DefaultTableModel revenueTableModel;
-
-    private HashMap<String, Integer> currentCart = new HashMap<>();
+    private ProductTableModel revenueTableModel;
+    private JComboBox<String> rollupPeriodBox;
+    private DefaultTableModel rollupTableModel, topProductTableModel, topPromotionTableModel;
+    private JLabel rollupStatusLabel;
+
+    // 🩺 진단 탭 (PosMetrics 계측값). "최근" 값은 직전 새로고침 이후 구간이다.
+    private static final int DIAGNOSTICS_REFRESH_MILLIS = 2000;
+    private JPanel diagnosticsPanel;
+    private DefaultTableModel diagnosticsTableModel;
+    private JLabel diagnosticsStatusLabel;
+    private JLabel poolStatsLabel;
+    private final Map<String, PosMetrics.Snapshot> previousHistograms = new HashMap<>();
+    private final Map<String, Long> previousCounters = new HashMap<>();
+    private long previousDiagnosticsNanos = System.nanoTime();
+
+    // 🛒 장바구니 (줄별 가격과 합계를 함께 유지)
+    private final CartAggregate currentCart = new CartAggregate(productDB, promotionEngine);
+
+    // 🧠 결제 처리 순서(재고 -> 저널 -> 이력 -> 집계 -> 영수증)를 모아 둔 판매 서비스. 화면과 POS API 가 함께 쓴다.
+    private final PosService posService = new PosService(productDB, posCore, salesJournal, history, salesRollup,
+                                                         reorderEngine, receiptLog, productChanges);
+    // 🌐 스캐너/키오스크/부하 발생기용 로컬 HTTP API (포트는 -Dpos.api.port, 0 이면 끔)
+    private final PosHttpServer posApi = new PosHttpServer(posService, Integer.getInteger("pos.api.port", PosHttpServer.DEFAULT_PORT));
+    // 🔄 이력 스냅샷(로컬 캐시)으로 먼저 열고, 본사 DB 와는 뒤에서 맞추는 동기화 작업자 (DB 가 꺼져 있어도 계산대는 계속 판다)
+    private final CatalogSync catalogSync = new CatalogSync(dbPool, DB_SCHEMA, salesJournal, salesRollup, this::applyCentralChanges, this::showSyncOffline);
+    private Runnable refreshEventTable = () -> { };
     
+    private JProgressBar loadProgressBar;
+
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.KOREA);
 
     public SevenElevenManagement() {
-        setTitle("세븐일레븐 통합 관리 시스템 v5.2 (MySQL)");
+        setTitle("세븐일레븐 통합 관리 시스템 v5.2 (MySQL" + (STORE_ID.equals(StoreShards.DEFAULT_STORE) ? "" : ", 점포 " + STORE_ID + " @ " + storeShards.shardOf(STORE_ID)) + ")");
         setSize(1200, 750); 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        // 🔄 데이터 로드: CSV -> DB
-        loadProductsFromDB();
-        loadEventsFromDB();
-        loadRevenueFromDB(); 
-
         addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
             public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                // 🔄 데이터 저장: CSV -> DB
-                saveProductsToDB();
-                saveEventsToDB();
-                saveRevenueToDB();
+                // 🔄 데이터 저장: 메모리 -> DB
+                posApi.stop();
+                catalogSync.shutdown();
+                saveChangesToDB();
+                salesJournal.shutdown();
+                receiptLog.close();
+                history.close();
+                storeShards.shutdown();
                 System.exit(0);
             }
         });
 
+        PosMetrics.instrumentEventQueue();
         tabbedPane = new JTabbedPane();
 
         JPanel managerPanel = createManagerPanel();
         JPanel eventPanel = createEventPanel();
         JPanel salesPanel = createSalesPanel();
         JPanel revenuePanel = createRevenuePanel();
+        diagnosticsPanel = createDiagnosticsPanel();
         
         tabbedPane.addTab("상품 및 재고 관리 (Back Office)", managerPanel);
         tabbedPane.addTab("이벤트 관리", eventPanel);
         tabbedPane.addTab("판매 포스 (POS)", salesPanel);
         tabbedPane.addTab("매출 및 수익 현황", revenuePanel);
+        tabbedPane.addTab("진단", diagnosticsPanel);
 
         add(tabbedPane);
 
+        // ⏳ 데이터 로드 진행 상태 표시줄
+        loadProgressBar = new JProgressBar();
+        loadProgressBar.setIndeterminate(true);
+        loadProgressBar.setStringPainted(true);
+        loadProgressBar.setString("데이터 불러오는 중...");
+        add(loadProgressBar, BorderLayout.SOUTH);
+
         tabbedPane.addChangeListener(new ChangeListener() {
             @Override
             public void stateChanged(ChangeEvent e) {
@@ -192,17 +191,40 @@ public class SevenElevenManagement extends JFrame {
                     updateRevenueProfitLabelInSalesTab(); 
                 } else if (index == 3) {
                     updateRevenuePanel();
+                } else if (index == 4) {
+                    updateDiagnostics();
                 }
             }
         });
 
         refreshTable("");
+
+        // 🔄 데이터 로드: 화면을 먼저 띄우고 백그라운드에서 DB를 읽어 표를 조금씩 채운다.
+        // 재고 목록이 다 채워지기 전에는 결제가 되지 않도록 POS 탭을 잠가둔다.
+        tabbedPane.setEnabledAt(2, false);
+        new StartupLoader().execute();
+
+        // 🚚 발주 제안: 일정 주기마다, 그리고 결제가 몰린 뒤 잠잠해지면 한 번 더
+        new Timer(REORDER_INTERVAL_MILLIS, e -> applyReorderSuggestions()).start();
+        reorderAfterSalesTimer = new Timer(REORDER_AFTER_SALES_MILLIS, e -> applyReorderSuggestions());
+        reorderAfterSalesTimer.setRepeats(false);
+        posService.setSaleListener(this::onSale);
     }
     
+    // 샤드 설정 파일을 읽지 못하면 예전처럼 localhost 하나로 시작한다
+    private static StoreShards loadStoreShards() {
+        try {
+            return StoreShards.load(USER, PASS);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("샤드 설정을 읽지 못해 localhost 로 시작합니다: " + e.getMessage());
+            return StoreShards.localDefault(USER, PASS);
+        }
+    }
+
     // 🐘 MySQL JDBC 유틸리티 함수
     private Connection getConnection() throws Exception {
         Class.forName(JDBC_DRIVER);
-        return DriverManager.getConnection(DB_URL, USER, PASS);
+        return dbPool.borrow(DB_SCHEMA); // close() 하면 풀로 반납됨
     }
 
     private void closeConnection(Connection conn, PreparedStatement stmt, ResultSet rs) {
@@ -221,16 +243,20 @@ public class SevenElevenManagement extends JFrame {
 
     // 🔄 데이터 로드/저장 함수 (DB 대체)
     
-    private void loadProductsFromDB() {
-        productDB.clear();
+    // 상품 테이블을 LOAD_FETCH_SIZE 행씩 스트리밍으로 읽어 chunkSink 에 넘긴다. (백그라운드 스레드에서 호출)
+    private void loadProductsFromDB(Consumer<ProductStore> chunkSink) throws Exception {
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
+        long start = PosMetrics.DB_LOAD_PRODUCTS.start();
         try {
             conn = getConnection();
-            stmt = conn.prepareStatement("SELECT name, price, quantity, ordered_quantity, sold_quantity, profit_rate FROM products");
+            ensureProductColumns(conn);
+            stmt = conn.prepareStatement("SELECT name, price, quantity, ordered_quantity, sold_quantity, profit_rate, barcode FROM products");
+            stmt.setFetchSize(LOAD_FETCH_SIZE);
             rs = stmt.executeQuery();
             
+            ProductStore chunk = new ProductStore(LOAD_FETCH_SIZE);
             while (rs.next()) {
                 String name = rs.getString("name");
                 int price = rs.getInt("price");
@@ -238,69 +264,166 @@ public class SevenElevenManagement extends JFrame {
                 int orderedQuantity = rs.getInt("ordered_quantity");
                 int soldQuantity = rs.getInt("sold_quantity");
                 int profitRate = rs.getInt("profit_rate");
-                productDB.put(name, new Product(name, price, quantity, orderedQuantity, soldQuantity, profitRate));
+                long barcode = rs.getLong("barcode"); // NULL 이면 0 = 바코드 없음
+                Product p = chunk.add(name, price, quantity, orderedQuantity, soldQuantity, profitRate);
+                if (p != null && barcode != BarcodeIndex.NONE) p.setBarcode(barcode);
+                if (chunk.size() == LOAD_FETCH_SIZE) {
+                    chunkSink.accept(chunk);
+                    chunk = new ProductStore(LOAD_FETCH_SIZE);
+                }
             }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "상품 데이터 로드 중 DB 오류: " + e.getMessage() + "\n초기 샘플 데이터로 시작합니다.", "DB 오류", JOptionPane.ERROR_MESSAGE);
-            // DB 연결 실패 시 초기 샘플 데이터 로드
-            if (productDB.isEmpty()) { 
-                 productDB.put("새우깡", new Product("새우깡", 1700, 50, 0, 0, 10));
-                 productDB.put("콜라", new Product("콜라", 2000, 30, 0, 0, 9));
-                 productDB.put("삼각김밥", new Product("삼각김밥", 1200, 15, 0, 0, 20)); 
-            }
-            e.printStackTrace();
+            if (!chunk.isEmpty()) chunkSink.accept(chunk);
         } finally {
+            if (stmt != null) stmt.setFetchSize(0); // 캐시된 statement 를 다른 곳에서 재사용할 때를 위해 원래대로
             closeConnection(conn, stmt, rs);
+            PosMetrics.DB_LOAD_PRODUCTS.stop(start);
         }
     }
 
-    private boolean saveProductsToDB() {
-        Connection conn = null;
-        PreparedStatement stmt = null;
+    // DB 연결 실패 시 초기 샘플 데이터 로드
+    private void loadSampleProducts() {
+        if (productDB.isEmpty()) { 
+             productDB.add("새우깡", 1700, 50, 0, 0, 10);
+             productDB.add("콜라", 2000, 30, 0, 0, 9);
+             productDB.add("삼각김밥", 1200, 15, 0, 0, 20); 
+             productChanges.markAllDirty(productDB.keySet());
+             for (String name : productDB.keySet()) searchIndex.add(name);
+        }
+    }
+
+    // 💾 변경된 상품만 저장 (추가/수정/판매된 상품은 UPSERT, 삭제된 상품은 DELETE)
+    // 화면 상태를 쓰지 않으므로 static (PosBenchmarks 가 배치 크기별 저장 시간을 잴 때도 이 메서드를 쓴다)
+    static void saveProductsToDB(Connection conn, ProductStore productDB, Set<String> dirtyNames, Set<String> deletedNames) throws SQLException {
+        saveProductsToDB(conn, productDB, dirtyNames, deletedNames, null);
+    }
+
+    // sync 가 있으면 재고는 DB 값에 (로컬 재고 - base) 를 더해 저장한다 (그 사이 본사에서 바꾼 재고를 덮어쓰지 않도록).
+    // 쓴 값을 돌려주며, 커밋한 뒤 sync.saved 에 넘긴다.
+    static List<CatalogSync.RemoteProduct> saveProductsToDB(Connection conn, ProductStore productDB, Set<String> dirtyNames,
+                                                            Set<String> deletedNames, CatalogSync sync) throws SQLException {
+        return saveProductRows(conn, productRows(productDB, dirtyNames), deletedNames, sync);
+    }
+
+    // 저장할 상품 값을 지금 시점으로 복사 (없어진 상품은 건너뛴다)
+    static List<CatalogSync.RemoteProduct> productRows(ProductStore productDB, Set<String> names) {
+        List<CatalogSync.RemoteProduct> rows = new ArrayList<>(names.size());
+        for (String name : names) {
+            Product p = productDB.get(name);
+            if (p != null) rows.add(CatalogSync.RemoteProduct.of(p));
+        }
+        return rows;
+    }
+
+    // 미리 복사해 둔 상품 값을 저장한다 (전체 저장은 판매 장부 잠금 안에서 복사하고, 잠금을 놓은 뒤 여기서 쓴다)
+    static List<CatalogSync.RemoteProduct> saveProductRows(Connection conn, List<CatalogSync.RemoteProduct> rows, Set<String> deletedNames,
+                                                           CatalogSync sync) throws SQLException {
+        long start = PosMetrics.DB_SAVE_PRODUCTS.start();
         try {
-            conn = getConnection();
-            String sql = "INSERT INTO products (name, price, quantity, ordered_quantity, sold_quantity, profit_rate) " +
-                         "VALUES (?, ?, ?, ?, ?, ?) " +
-                         "ON DUPLICATE KEY UPDATE price=?, quantity=?, ordered_quantity=?, sold_quantity=?, profit_rate=?";
-            stmt = conn.prepareStatement(sql);
-            
-            for (Product p : productDB.values()) {
-                // INSERT 파라미터 (1~6)
-                stmt.setString(1, p.name);
-                stmt.setInt(2, p.price);
-                stmt.setInt(3, p.quantity);
-                stmt.setInt(4, p.orderedQuantity);
-                stmt.setInt(5, p.soldQuantity);
-                stmt.setInt(6, p.profitRate);
-                
-                // UPDATE 파라미터 (7~11)
-                stmt.setInt(7, p.price);
-                stmt.setInt(8, p.quantity);
-                stmt.setInt(9, p.orderedQuantity);
-                stmt.setInt(10, p.soldQuantity);
-                stmt.setInt(11, p.profitRate);
-                
-                stmt.addBatch();
-            }
-            stmt.executeBatch();
-            return true;
-        } catch (Exception e) {
-            System.err.println("상품 데이터 DB 저장 중 오류 발생: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            writeProducts(conn, rows, deletedNames, sync);
         } finally {
-            closeConnection(conn, stmt, null);
+            PosMetrics.DB_SAVE_PRODUCTS.stop(start);
+        }
+        PosMetrics.DB_SAVED_PRODUCTS.add(rows.size() + deletedNames.size());
+        return rows;
+    }
+
+    private static void writeProducts(Connection conn, List<CatalogSync.RemoteProduct> rows, Set<String> deletedNames,
+                                      CatalogSync sync) throws SQLException {
+        if (!rows.isEmpty()) {
+            String sql = "INSERT INTO products (name, price, quantity, ordered_quantity, sold_quantity, profit_rate, barcode) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                         "ON DUPLICATE KEY UPDATE price=?, quantity=CASE WHEN ? THEN GREATEST(0, quantity + ?) ELSE ? END, ordered_quantity=?, " +
+                         "sold_quantity=?, profit_rate=?, barcode=?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (CatalogSync.RemoteProduct row : rows) {
+                    Long barcode = row.barcode == BarcodeIndex.NONE ? null : row.barcode;
+                    Integer stockDelta = sync == null ? null : sync.stockDelta(row.name, row.quantity);
+                    // INSERT 파라미터 (1~7)
+                    stmt.setString(1, row.name);
+                    stmt.setInt(2, row.price);
+                    stmt.setInt(3, row.quantity);
+                    stmt.setInt(4, row.orderedQuantity);
+                    stmt.setInt(5, row.soldQuantity);
+                    stmt.setInt(6, row.profitRate);
+                    stmt.setObject(7, barcode, Types.BIGINT);
+
+                    // UPDATE 파라미터 (8~15), 재고는 base 를 알면 차이로, 모르면 로컬 값 그대로
+                    stmt.setInt(8, row.price);
+                    stmt.setBoolean(9, stockDelta != null);
+                    stmt.setInt(10, stockDelta == null ? 0 : stockDelta);
+                    stmt.setInt(11, row.quantity);
+                    stmt.setInt(12, row.orderedQuantity);
+                    stmt.setInt(13, row.soldQuantity);
+                    stmt.setInt(14, row.profitRate);
+                    stmt.setObject(15, barcode, Types.BIGINT);
+
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+        if (!deletedNames.isEmpty()) {
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM products WHERE name = ?")) {
+                for (String name : deletedNames) {
+                    stmt.setString(1, name);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
         }
     }
     
-    private void loadEventsFromDB() {
-        eventDB.clear();
+    // 🏬 새 점포 스키마에 기본 테이블 만들기 (이미 있으면 그대로 둔다). 점포마다 스키마가 따로라 표 모양은 예전과 같다.
+    static void ensureStoreTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS products (name VARCHAR(100) PRIMARY KEY, price INT NOT NULL, " +
+                               "quantity INT NOT NULL, ordered_quantity INT NOT NULL, sold_quantity INT NOT NULL, profit_rate INT NOT NULL, " +
+                               "barcode BIGINT NULL, INDEX idx_products_barcode (barcode))");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS event_rules (rule_name VARCHAR(100) PRIMARY KEY, rule_type VARCHAR(50) NOT NULL, " +
+                               "target_product VARCHAR(100) NOT NULL, rule_value INT NOT NULL, priority INT NOT NULL DEFAULT 0, " +
+                               "start_at DATETIME NULL, end_at DATETIME NULL)");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS revenue_data (id INT PRIMARY KEY, total_revenue BIGINT NOT NULL)");
+        }
+    }
+
+    // 메타데이터의 식별자 대소문자는 DB 마다 다르다 (MySQL 은 만든 그대로, H2 같은 내장 DB 는 대문자)
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        if (meta.storesUpperCaseIdentifiers()) {
+            table = table.toUpperCase(Locale.ROOT);
+            column = column.toUpperCase(Locale.ROOT);
+        }
+        try (ResultSet cols = meta.getColumns(conn.getCatalog(), null, table, column)) {
+            return cols.next();
+        }
+    }
+
+    // products 에 바코드 컬럼이 없으면 추가 (이전 버전 DB 호환). 바코드 중복은 ProductStore 가 막는다.
+    static void ensureProductColumns(Connection conn) throws SQLException {
+        if (hasColumn(conn, "products", "barcode")) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE products ADD COLUMN barcode BIGINT NULL, ADD INDEX idx_products_barcode (barcode)");
+        }
+    }
+
+    // event_rules 에 우선순위/기간 컬럼이 없으면 추가 (이전 버전 DB 호환)
+    static void ensureEventRuleColumns(Connection conn) throws SQLException {
+        if (hasColumn(conn, "event_rules", "priority")) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE event_rules ADD COLUMN priority INT NOT NULL DEFAULT 0, " +
+                               "ADD COLUMN start_at DATETIME NULL, ADD COLUMN end_at DATETIME NULL");
+        }
+    }
+
+    private HashMap<String, EventRule> loadEventsFromDB() {
+        HashMap<String, EventRule> events = new HashMap<>();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
         try {
             conn = getConnection();
-            stmt = conn.prepareStatement("SELECT rule_name, rule_type, target_product, rule_value FROM event_rules");
+            ensureEventRuleColumns(conn);
+            stmt = conn.prepareStatement("SELECT rule_name, rule_type, target_product, rule_value, priority, start_at, end_at FROM event_rules");
             rs = stmt.executeQuery();
             
             while (rs.next()) {
@@ -308,49 +431,69 @@ public class SevenElevenManagement extends JFrame {
                 String type = rs.getString("rule_type");
                 String target = rs.getString("target_product");
                 int value = rs.getInt("rule_value");
-                eventDB.put(name, new EventRule(name, type, target, value));
+                int priority = rs.getInt("priority");
+                Timestamp startAt = rs.getTimestamp("start_at");
+                Timestamp endAt = rs.getTimestamp("end_at");
+                events.put(name, new EventRule(name, type, target, value, priority,
+                                               startAt == null ? 0 : startAt.getTime(), endAt == null ? 0 : endAt.getTime()));
             }
         } catch (Exception e) {
             System.err.println("이벤트 데이터 로드 중 DB 오류: " + e.getMessage());
         } finally {
             closeConnection(conn, stmt, rs);
         }
+        return events;
     }
 
-    private boolean saveEventsToDB() {
-        Connection conn = null;
-        PreparedStatement deleteStmt = null;
-        PreparedStatement insertStmt = null;
-        try {
-            conn = getConnection();
-            // 1. 기존 이벤트 데이터를 모두 삭제 (전체 갱신)
-            deleteStmt = conn.prepareStatement("DELETE FROM event_rules");
-            deleteStmt.executeUpdate();
-            
-            // 2. 새로운 이벤트 데이터 삽입
-            String sql = "INSERT INTO event_rules (rule_name, rule_type, target_product, rule_value) VALUES (?, ?, ?, ?)";
-            insertStmt = conn.prepareStatement(sql);
-            
-            for (EventRule rule : eventDB.values()) {
+    // 💾 변경된 이벤트만 저장 (변경/삭제된 이벤트명의 행을 지우고, 변경된 이벤트만 다시 삽입)
+    private void saveEventsToDB(Connection conn, Set<String> dirtyNames, Set<String> deletedNames) throws SQLException {
+        if (dirtyNames.isEmpty() && deletedNames.isEmpty()) return;
+
+        try (PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM event_rules WHERE rule_name = ?")) {
+            for (String name : dirtyNames) {
+                deleteStmt.setString(1, name);
+                deleteStmt.addBatch();
+            }
+            for (String name : deletedNames) {
+                deleteStmt.setString(1, name);
+                deleteStmt.addBatch();
+            }
+            deleteStmt.executeBatch();
+        }
+
+        String sql = "INSERT INTO event_rules (rule_name, rule_type, target_product, rule_value, priority, start_at, end_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement insertStmt = conn.prepareStatement(sql)) {
+            for (String name : dirtyNames) {
+                EventRule rule = eventDB.get(name);
+                if (rule == null) continue;
                 insertStmt.setString(1, rule.ruleName);
                 insertStmt.setString(2, rule.type);
                 insertStmt.setString(3, rule.targetProduct);
                 insertStmt.setInt(4, rule.value);
+                insertStmt.setInt(5, rule.priority);
+                insertStmt.setTimestamp(6, rule.startTime == 0 ? null : new Timestamp(rule.startTime));
+                insertStmt.setTimestamp(7, rule.endTime == 0 ? null : new Timestamp(rule.endTime));
                 insertStmt.addBatch();
             }
             insertStmt.executeBatch();
-            return true;
+        }
+    }
+    
+    // 📊 최근 시간 단위 매출 집계를 읽어 시간별/일별 집계를 채운다 (오류 시 빈 집계로 시작)
+    private void loadRollupFromDB() {
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            salesRollup.load(conn, System.currentTimeMillis());
         } catch (Exception e) {
-            System.err.println("이벤트 데이터 DB 저장 중 오류 발생: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            System.err.println("매출 집계 로드 중 DB 오류: " + e.getMessage());
         } finally {
-            closeConnection(null, insertStmt, null);
-            closeConnection(conn, deleteStmt, null); 
+            closeConnection(conn, null, null);
         }
     }
-    
-    private void loadRevenueFromDB() {
+
+    // 총 매출을 읽는다. DB 오류 시 null
+    private Long loadRevenueFromDB() {
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -358,37 +501,98 @@ public class SevenElevenManagement extends JFrame {
             conn = getConnection();
             stmt = conn.prepareStatement("SELECT total_revenue FROM revenue_data WHERE id = 1");
             rs = stmt.executeQuery();
-            if (rs.next()) {
-                totalRevenue = rs.getLong("total_revenue");
-            } else {
-                totalRevenue = 0;
-            }
+            return rs.next() ? rs.getLong("total_revenue") : 0L;
         } catch (Exception e) {
             System.err.println("총 매출 로드 중 DB 오류: " + e.getMessage());
-            totalRevenue = 0;
+            return null;
         } finally {
             closeConnection(conn, stmt, rs);
         }
     }
 
-    private boolean saveRevenueToDB() {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        try {
-            conn = getConnection();
-            // INSERT OR UPDATE를 사용하여 id=1인 레코드의 total_revenue를 갱신
-            String sql = "INSERT INTO revenue_data (id, total_revenue) VALUES (1, ?) ON DUPLICATE KEY UPDATE total_revenue = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setLong(1, totalRevenue);
-            stmt.setLong(2, totalRevenue);
+    private void saveRevenueToDB(Connection conn, long revenue) throws SQLException {
+        // INSERT OR UPDATE를 사용하여 id=1인 레코드의 total_revenue를 갱신
+        String sql = "INSERT INTO revenue_data (id, total_revenue) VALUES (1, ?) ON DUPLICATE KEY UPDATE total_revenue = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, revenue);
+            stmt.setLong(2, revenue);
             stmt.executeUpdate();
-            return true;
-        } catch (Exception e) {
-            System.err.println("총 매출 DB 저장 중 오류 발생: " + e.getMessage());
-            e.printStackTrace();
+        }
+    }
+
+    // 💾 마지막 저장 이후 바뀐 행만 하나의 트랜잭션으로 저장
+    private boolean saveChangesToDB() {
+        // 동기화 작업자가 본사 DB 를 읽거나 저널 플러셔가 판매를 반영하는 도중에 끼어들지 않도록 applyLock 을 먼저 잡고,
+        // 커밋할 때까지 놓지 않는다 (결제는 applyLock 을 잡지 않으므로 기다리지 않는다).
+        // 판매 장부 잠금(쓰기)은 저장할 값을 복사하는 동안만 잡는다. 진행 중인 결제가 끝난 뒤 재고/매출을 복사하고 저널을 봉인하므로
+        // 복사한 값과 체크포인트가 같은 시점이 되고, 그 뒤의 결제는 다음 세그먼트에 남아 저널 플러셔가 반영한다.
+        // DB 연결/쓰기는 잠금을 놓은 뒤에 하므로 DB 가 느리거나 꺼져 있어도 결제는 멈추지 않는다.
+        salesJournal.applyLock().lock();
+        try {
+            long productVersion, eventVersion, revenue, journalSeq;
+            Set<String> dirtyProducts, deletedProducts, dirtyEvents, deletedEvents;
+            List<CatalogSync.RemoteProduct> productRows;
+            Map<String, long[]> rollupDeltas;
+            posService.ledgerLock().lock();
+            try {
+                productVersion = productChanges.version();
+                eventVersion = eventChanges.version();
+                dirtyProducts = productChanges.getDirty();
+                deletedProducts = productChanges.getDeleted();
+                dirtyEvents = eventChanges.getDirty();
+                deletedEvents = eventChanges.getDeleted();
+                revenue = posService.getRevenue();
+                rollupDeltas = salesRollup.pendingSnapshot();
+                if (dirtyProducts.isEmpty() && deletedProducts.isEmpty() && dirtyEvents.isEmpty() && deletedEvents.isEmpty()
+                        && revenue == savedRevenue && rollupDeltas.isEmpty()) {
+                    return true;
+                }
+                productRows = productRows(productDB, dirtyProducts);
+                journalSeq = salesJournal.sealForCheckpoint();
+            } finally {
+                posService.ledgerLock().unlock();
+            }
+
+            Connection conn = null;
+            try {
+                conn = getConnection();
+                salesJournal.ensureSchema(conn);
+                salesRollup.ensureSchema(conn);
+                conn.setAutoCommit(false);
+
+                List<CatalogSync.RemoteProduct> written = saveProductRows(conn, productRows, deletedProducts, catalogSync);
+                saveEventsToDB(conn, dirtyEvents, deletedEvents);
+                if (revenue != savedRevenue) saveRevenueToDB(conn, revenue);
+                salesRollup.save(conn, rollupDeltas);
+                salesJournal.checkpoint(conn, journalSeq);
+
+                conn.commit();
+                salesJournal.discardThrough(journalSeq);
+                catalogSync.saved(written, deletedProducts);
+                catalogSync.rulesSaved(dirtyEvents, deletedEvents);
+                productChanges.clear(dirtyProducts, deletedProducts, productVersion);
+                eventChanges.clear(dirtyEvents, deletedEvents, eventVersion);
+                savedRevenue = revenue;
+                salesRollup.markSaved(rollupDeltas);
+                return true;
+            } catch (Exception e) {
+                System.err.println("데이터 DB 저장 중 오류 발생: " + e.getMessage());
+                e.printStackTrace();
+                if (conn != null) {
+                    try { conn.rollback(); } catch (SQLException se) { /* 무시 */ }
+                }
+                return false;
+            } finally {
+                if (conn != null) {
+                    try { conn.setAutoCommit(true); } catch (SQLException se) { /* 무시 */ }
+                }
+                closeConnection(conn, null, null);
+            }
+        } catch (IOException e) {
+            System.err.println("판매 저널 봉인 중 오류 발생: " + e.getMessage());
             return false;
         } finally {
-            closeConnection(conn, stmt, null);
+            salesJournal.applyLock().unlock();
         }
     }
     
@@ -413,13 +617,20 @@ public class SevenElevenManagement extends JFrame {
         fieldPanel.add(new JLabel("이익률(%):")); 
         mProfitRateField = new JTextField("10", 3); 
         fieldPanel.add(mProfitRateField);
+        fieldPanel.add(new JLabel("바코드:"));
+        mBarcodeField = new JTextField(11);
+        mBarcodeField.setToolTipText("GTIN-8/12/13/14 (선택). 비우면 바코드 없음");
+        fieldPanel.add(mBarcodeField);
 
         JButton addBtn = new JButton("신규등록");
         JButton editBtn = new JButton("정보수정"); 
         JButton delBtn = new JButton("삭제");
         JButton autoOrderListBtn = new JButton("자동 발주 목록 생성");
         JButton receiveBtn = new JButton("발주 승인 (입고)");
+        JButton historyBtn = new JButton("변경 이력");
         JButton saveBtn = new JButton("데이터 저장 (DB)"); 
+        JButton importBtn = new JButton("CSV/TSV 가져오기");
+        JButton exportBtn = new JButton("CSV/TSV 내보내기");
 
         addBtn.setBackground(new Color(70, 130, 180)); addBtn.setForeground(Color.WHITE);
         editBtn.setBackground(new Color(100, 100, 100)); editBtn.setForeground(Color.WHITE);
@@ -430,7 +641,7 @@ public class SevenElevenManagement extends JFrame {
 
         btnPanel.add(addBtn); btnPanel.add(editBtn); btnPanel.add(delBtn);
         btnPanel.add(new JSeparator(SwingConstants.VERTICAL));
-        btnPanel.add(autoOrderListBtn); btnPanel.add(receiveBtn); 
+        btnPanel.add(autoOrderListBtn); btnPanel.add(receiveBtn); btnPanel.add(historyBtn);
 
         inputPanel.add(fieldPanel);
         inputPanel.add(btnPanel);
@@ -439,13 +650,26 @@ public class SevenElevenManagement extends JFrame {
         mSearchField = new JTextField(20);
         searchPanel.add(mSearchField);
         searchPanel.add(saveBtn); 
+        searchPanel.add(importBtn);
+        searchPanel.add(exportBtn);
 
         topPanel.add(inputPanel, BorderLayout.CENTER);
         topPanel.add(searchPanel, BorderLayout.SOUTH);
         panel.add(topPanel, BorderLayout.NORTH);
 
-        String[] headers = {"상품명", "가격(₩)", "재고 수량", "발주 수량", "이익률(%)"}; 
-        tableModel = new DefaultTableModel(headers, 0) {
+        String[] headers = {"상품명", "가격(₩)", "재고 수량", "발주 수량", "이익률(%)", "품절 예상"}; 
+        tableModel = new ProductTableModel(productDB, headers) {
+            @Override
+            protected Object getColumnValue(Product p, int column) {
+                switch (column) {
+                    case 0: return p.name;
+                    case 1: return p.getPrice();
+                    case 2: return p.getQuantity();
+                    case 3: return p.getOrderedQuantity();
+                    case 4: return p.getProfitRate();
+                    default: return formatStockout(reorderEngine.daysUntilStockout(p, System.currentTimeMillis()));
+                }
+            }
             @Override
             public boolean isCellEditable(int row, int column) { 
                 return column == 3 || column == 4; 
@@ -455,34 +679,41 @@ public class SevenElevenManagement extends JFrame {
                 if (columnIndex == 1 || columnIndex == 2 || columnIndex == 3 || columnIndex == 4) { return Integer.class; }
                 return String.class;
             }
+            @Override
+            public void setValueAt(Object value, int row, int column) {
+                applyInventoryEdit(getProductAt(row), column, value);
+                fireTableCellUpdated(row, column);
+            }
         };
         inventoryTable = new JTable(tableModel);
         panel.add(new JScrollPane(inventoryTable), BorderLayout.CENTER);
         
+        // 키를 누를 때마다 검색하지 않고, 입력이 멈추면 한 번만 검색
+        Timer mSearchTimer = new Timer(SEARCH_DEBOUNCE_MILLIS, e -> refreshTable(mSearchField.getText().trim()));
+        mSearchTimer.setRepeats(false);
         mSearchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override public void changedUpdate(DocumentEvent e) { filter(); }
             @Override public void removeUpdate(DocumentEvent e) { filter(); }
             @Override public void insertUpdate(DocumentEvent e) { filter(); }
-            public void filter() { refreshTable(mSearchField.getText().trim()); }
+            public void filter() { mSearchTimer.restart(); }
         });
         
         autoOrderListBtn.addActionListener(e -> {
-            boolean hasSold = false;
-            int totalOrders = 0;
-            for (Product p : productDB.values()) {
-                if (p.soldQuantity > 0) {
-                    p.orderedQuantity = p.soldQuantity; 
-                    p.soldQuantity = 0; 
-                    totalOrders += p.orderedQuantity;
-                    hasSold = true;
-                }
-            }
-            refreshTable(mSearchField.getText().trim());
+            List<ReorderEngine.Suggestion> suggestions = applyReorderSuggestions();
             clearManagerFields();
-            if (hasSold) {
-                JOptionPane.showMessageDialog(this, "총 " + totalOrders + "개 상품에 대한 자동 발주 목록이 생성되었습니다.", "자동 발주 목록 생성 완료", JOptionPane.INFORMATION_MESSAGE);
+            if (!suggestions.isEmpty()) {
+                int totalOrders = 0;
+                ReorderEngine.Suggestion soonest = suggestions.get(0);
+                for (ReorderEngine.Suggestion s : suggestions) {
+                    totalOrders += s.orderQuantity;
+                    if (s.daysUntilStockout < soonest.daysUntilStockout) soonest = s;
+                }
+                JOptionPane.showMessageDialog(this, String.format(
+                    "%d개 상품, 총 %d개의 발주 수량이 제안되었습니다.\n가장 먼저 품절될 상품: %s (%s, 하루 %.1f개 판매)",
+                    suggestions.size(), totalOrders, soonest.name, formatStockout(soonest.daysUntilStockout), soonest.unitsPerDay),
+                    "자동 발주 목록 생성 완료", JOptionPane.INFORMATION_MESSAGE);
             } else {
-                JOptionPane.showMessageDialog(this, "판매된 상품이 없어 생성할 자동 발주 목록이 없습니다.");
+                JOptionPane.showMessageDialog(this, "판매 속도로 볼 때 지금 발주가 필요한 상품이 없습니다.");
             }
         });
         
@@ -496,70 +727,46 @@ public class SevenElevenManagement extends JFrame {
             if (p == null || orderedQtyOnTable <= 0) { JOptionPane.showMessageDialog(this, name + "은(는) 발주 수량이 0입니다."); return; }
             int choice = JOptionPane.showConfirmDialog(this, "[발주 승인]\n상품명: " + name + "\n입고수량: " + orderedQtyOnTable + "개\n\n입고를 진행하시겠습니까?", "발주 승인 (입고)", JOptionPane.YES_NO_OPTION);
             if (choice == JOptionPane.YES_OPTION) {
-                p.quantity += orderedQtyOnTable; 
-                p.orderedQuantity = 0; 
-                refreshTable(mSearchField.getText().trim());
+                boolean received = posService.updateProduct(name, cur -> {
+                    cur.setQuantity(cur.getQuantity() + orderedQtyOnTable);
+                    cur.setOrderedQuantity(0);
+                });
+                if (!received) { JOptionPane.showMessageDialog(this, name + "은(는) 이미 삭제된 상품입니다."); return; }
+                productChanges.markDirty(name);
+                posService.recordProductChange(HistoryStore.Kind.RECEIVE, p);
+                productUpdated(name);
                 clearManagerFields();
                 JOptionPane.showMessageDialog(this, "발주 승인 완료! 재고에 " + orderedQtyOnTable + "개가 반영되었습니다.");
             }
         });
 
-        tableModel.addTableModelListener(new TableModelListener() {
-            @Override
-            public void tableChanged(TableModelEvent e) {
-                if (e.getType() == TableModelEvent.UPDATE) {
-                    int col = e.getColumn();
-                    if (col != 3 && col != 4) return; 
-
-                    int row = e.getFirstRow();
-                    if (row < 0) return;
-                    String name = (String) tableModel.getValueAt(row, 0);
-                    Product p = productDB.get(name);
-                    if (p == null) return;
-                    
-                    try {
-                        int newValue = Integer.parseInt(tableModel.getValueAt(row, col).toString());
-                        
-                        if (col == 3) { 
-                            if (newValue < 0) {
-                                JOptionPane.showMessageDialog(SevenElevenManagement.this, "발주 수량은 0 이상이어야 합니다.");
-                                tableModel.setValueAt(p.orderedQuantity, row, col);
-                            } else {
-                                p.orderedQuantity = newValue;
-                            }
-                        } else if (col == 4) { 
-                            if (newValue < 0 || newValue > 100) {
-                                JOptionPane.showMessageDialog(SevenElevenManagement.this, "이익률은 0에서 100 사이여야 합니다.");
-                                tableModel.setValueAt(p.profitRate, row, col);
-                            } else {
-                                p.profitRate = newValue;
-                            }
-                        }
-                    } catch (NumberFormatException ex) {
-                        JOptionPane.showMessageDialog(SevenElevenManagement.this, "해당 값은 숫자여야 합니다.");
-                        if (col == 3) tableModel.setValueAt(p.orderedQuantity, row, col);
-                        else if (col == 4) tableModel.setValueAt(p.profitRate, row, col);
-                    }
-                }
-            }
-        });
-        
         addBtn.addActionListener(e -> {
             String name = mNameField.getText().trim();
             String priceStr = mPriceField.getText().trim();
             String qtyStr = mQtyField.getText().trim();
             String rateStr = mProfitRateField.getText().trim();
+            String barcodeStr = mBarcodeField.getText().trim();
             
-            if (name.isEmpty() || priceStr.isEmpty() || qtyStr.isEmpty() || rateStr.isEmpty()) { JOptionPane.showMessageDialog(this, "모든 필드를 채워주세요."); return; }
+            if (name.isEmpty() || priceStr.isEmpty() || qtyStr.isEmpty() || rateStr.isEmpty()) { JOptionPane.showMessageDialog(this, "바코드를 뺀 모든 필드를 채워주세요."); return; }
             if (productDB.containsKey(name)) { JOptionPane.showMessageDialog(this, "이미 존재하는 상품입니다."); return; }
+            long barcode = barcodeStr.isEmpty() ? BarcodeIndex.NONE : BarcodeIndex.parseGtin(barcodeStr);
+            if (!barcodeStr.isEmpty() && !checkBarcode(barcode, null)) return;
             try {
                 int price = Integer.parseInt(priceStr);
                 int qty = Integer.parseInt(qtyStr); 
                 int rate = Integer.parseInt(rateStr);
                 if (price <= 0 || qty < 0 || rate < 0 || rate > 100) { JOptionPane.showMessageDialog(this, "가격은 0보다 커야하며, 수량은 0이상, 이익률은 0~100 사이여야 합니다."); return; }
                 
-                productDB.put(name, new Product(name, price, qty, 0, 0, rate));
-                refreshTable(mSearchField.getText().trim()); 
+                Product added = posService.updateCatalog(() -> {
+                    Product p = productDB.add(name, price, qty, 0, 0, rate);
+                    p.setBarcode(barcode);
+                    return p;
+                });
+                searchIndex.add(name);
+                productChanges.markDirty(name);
+                posService.recordProductChange(HistoryStore.Kind.ADD, added);
+                if (ProductSearchIndex.matches(name, mSearchField.getText().trim())) tableModel.addProduct(name);
+                if (ProductSearchIndex.matches(name, sSearchField.getText().trim())) salesInventoryTableModel.addProduct(name);
                 clearManagerFields();
                 JOptionPane.showMessageDialog(this, "상품 등록 완료!");
             } catch (NumberFormatException ex) { JOptionPane.showMessageDialog(this, "필드 값은 숫자여야 합니다."); }
@@ -571,28 +778,42 @@ public class SevenElevenManagement extends JFrame {
             String name = (String) tableModel.getValueAt(row, 0); 
             String newPriceStr = mPriceField.getText().trim();
             String newRateStr = mProfitRateField.getText().trim();
-
-            if (newPriceStr.isEmpty() && newRateStr.isEmpty()) { JOptionPane.showMessageDialog(this, "변경할 가격이나 이익률을 입력해주세요."); return; }
+            String newBarcodeStr = mBarcodeField.getText().trim();
 
             Product p = productDB.get(name);
+            boolean barcodeChanged = !newBarcodeStr.equals(BarcodeIndex.format(p.getBarcode()));
+            if (newPriceStr.isEmpty() && newRateStr.isEmpty() && !barcodeChanged) { JOptionPane.showMessageDialog(this, "변경할 가격, 이익률 또는 바코드를 입력해주세요."); return; }
+            long newBarcode = newBarcodeStr.isEmpty() ? BarcodeIndex.NONE : BarcodeIndex.parseGtin(newBarcodeStr);
+            if (barcodeChanged && !newBarcodeStr.isEmpty() && !checkBarcode(newBarcode, name)) return;
+
             boolean modified = false;
 
             try {
                 if (!newPriceStr.isEmpty()) {
                     int newPrice = Integer.parseInt(newPriceStr);
                     if (newPrice <= 0) { JOptionPane.showMessageDialog(this, "가격은 0보다 커야 합니다."); return; }
-                    p.price = newPrice; 
+                    p.setPrice(newPrice); 
+                    productChanges.markDirty(name);
                     modified = true;
                 }
                 if (!newRateStr.isEmpty()) {
                     int newRate = Integer.parseInt(newRateStr);
                     if (newRate < 0 || newRate > 100) { JOptionPane.showMessageDialog(this, "이익률은 0~100 사이여야 합니다."); return; }
-                    p.profitRate = newRate; 
+                    p.setProfitRate(newRate); 
+                    productChanges.markDirty(name);
+                    modified = true;
+                }
+                if (barcodeChanged) {
+                    posService.updateCatalog(() -> p.setBarcode(newBarcode));
+                    productChanges.markDirty(name);
                     modified = true;
                 }
                 
                 if (modified) {
-                    refreshTable(mSearchField.getText().trim()); 
+                    posService.recordProductChange(HistoryStore.Kind.EDIT, p);
+                    productUpdated(name);
+                    currentCart.reprice(name);
+                    updateTotal();
                     JOptionPane.showMessageDialog(this, "정보가 수정되었습니다.");
                     clearManagerFields();
                 }
@@ -603,18 +824,37 @@ public class SevenElevenManagement extends JFrame {
             int row = inventoryTable.getSelectedRow();
             if (row == -1) { JOptionPane.showMessageDialog(this, "삭제할 상품을 테이블에서 선택해주세요."); return; }
             String name = (String) tableModel.getValueAt(row, 0);
-            productDB.remove(name);
-            refreshTable(mSearchField.getText().trim()); 
+            posService.updateCatalog(() -> productDB.remove(name));
+            searchIndex.remove(name);
+            reorderEngine.remove(name);
+            productChanges.markDeleted(name);
+            posService.recordProductDeleted(name);
+            tableModel.removeProduct(name);
+            salesInventoryTableModel.removeProduct(name);
+            revenueTableModel.removeProduct(name);
+            currentCart.remove(name);
+            cartTableModel.removeProduct(name);
+            updateTotal();
             JOptionPane.showMessageDialog(this, "삭제되었습니다.");
         });
         
         saveBtn.addActionListener(e -> {
-            if (saveProductsToDB() && saveEventsToDB() && saveRevenueToDB()) { 
+            if (saveChangesToDB()) { 
+                catalogSync.requestSync(); // 저장한 김에 본사 쪽 변경도 바로 받아 온다
                 JOptionPane.showMessageDialog(this, "모든 데이터가 성공적으로 DB에 저장되었습니다.");
             } else {
                 JOptionPane.showMessageDialog(this, "데이터 저장에 실패했습니다.", "오류", JOptionPane.ERROR_MESSAGE);
             }
         });
+
+        historyBtn.addActionListener(e -> {
+            int row = inventoryTable.getSelectedRow();
+            if (row == -1) { JOptionPane.showMessageDialog(this, "이력을 볼 상품을 선택해주세요."); return; }
+            showProductHistory((String) tableModel.getValueAt(row, 0));
+        });
+
+        importBtn.addActionListener(e -> importCatalog());
+        exportBtn.addActionListener(e -> exportCatalog());
         
         inventoryTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -624,8 +864,9 @@ public class SevenElevenManagement extends JFrame {
                     Product p = productDB.get(name);
                     if (p != null) { 
                         mNameField.setText(p.name);
-                        mPriceField.setText(String.valueOf(p.price));
-                        mProfitRateField.setText(String.valueOf(p.profitRate)); 
+                        mPriceField.setText(String.valueOf(p.getPrice()));
+                        mProfitRateField.setText(String.valueOf(p.getProfitRate())); 
+                        mBarcodeField.setText(BarcodeIndex.format(p.getBarcode()));
                         mQtyField.setText("");
                     }
                 }
@@ -635,19 +876,76 @@ public class SevenElevenManagement extends JFrame {
         return panel;
     }
     
+    // 재고 표에서 발주 수량(3열)이나 이익률(4열)을 직접 고쳤을 때 검증 후 반영
+    private void applyInventoryEdit(Product p, int col, Object value) {
+        if (p == null) return;
+        try {
+            int newValue = Integer.parseInt(value.toString());
+            
+            if (col == 3) { 
+                if (newValue < 0) {
+                    JOptionPane.showMessageDialog(SevenElevenManagement.this, "발주 수량은 0 이상이어야 합니다.");
+                } else {
+                    p.setOrderedQuantity(newValue);
+                    productChanges.markDirty(p.name);
+                    posService.recordProductChange(HistoryStore.Kind.ORDER, p);
+                }
+            } else if (col == 4) { 
+                if (newValue < 0 || newValue > 100) {
+                    JOptionPane.showMessageDialog(SevenElevenManagement.this, "이익률은 0에서 100 사이여야 합니다.");
+                } else {
+                    p.setProfitRate(newValue);
+                    productChanges.markDirty(p.name);
+                    posService.recordProductChange(HistoryStore.Kind.EDIT, p);
+                }
+            }
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(SevenElevenManagement.this, "해당 값은 숫자여야 합니다.");
+        }
+    }
+    
+    // 🚚 전체 상품의 발주 제안을 계산해 발주 수량에 반영 (승인/입고는 관리자가 직접)
+    private List<ReorderEngine.Suggestion> applyReorderSuggestions() {
+        long start = PosMetrics.REORDER_SUGGEST.start();
+        List<ReorderEngine.Suggestion> suggestions = reorderEngine.suggest(productDB.values(), System.currentTimeMillis());
+        for (ReorderEngine.Suggestion s : suggestions) {
+            Product p = productDB.get(s.name);
+            if (p == null) continue;
+            p.setOrderedQuantity(s.orderQuantity);
+            productChanges.markDirty(s.name);
+            posService.recordProductChange(HistoryStore.Kind.ORDER, p);
+        }
+        tableModel.fireTableDataChanged(); // 품절 예상 열은 모든 행이 시간에 따라 바뀐다
+        PosMetrics.REORDER_SUGGEST.stop(start);
+        return suggestions;
+    }
+
+    private static String formatStockout(double days) {
+        if (Double.isInfinite(days)) return "-";
+        if (days <= 0) return "품절";
+        return String.format("%.1f일 후", days);
+    }
+
     private JPanel createEventPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        JPanel inputPanel = new JPanel(new GridLayout(6, 2, 5, 5));
+        JPanel inputPanel = new JPanel(new GridLayout(9, 2, 5, 5));
         
         JTextField eventNameField = new JTextField(15);
         JComboBox<String> eventTypeCombo = new JComboBox<>(EventType.getValues());
         JTextField targetProductField = new JTextField(15);
         JTextField valueField = new JTextField(15); 
+        JTextField priorityField = new JTextField("0", 15);
+        JTextField startField = new JTextField(15);
+        JTextField endField = new JTextField(15);
+        SimpleDateFormat periodFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        periodFormat.setLenient(false);
         
         JButton addEventBtn = new JButton("이벤트 등록");
         JButton delEventBtn = new JButton("이벤트 삭제 (이름으로)");
+        JButton simulateAddBtn = new JButton("등록하면? (지난 영수증으로 미리 보기)");
+        JButton simulateDelBtn = new JButton("삭제하면? (지난 영수증으로 미리 보기)");
         
         inputPanel.add(new JLabel("이벤트명:"));
         inputPanel.add(eventNameField);
@@ -657,52 +955,113 @@ public class SevenElevenManagement extends JFrame {
         inputPanel.add(targetProductField);
         inputPanel.add(new JLabel("값 (할인금액/N+1 수량/묶음가격):"));
         inputPanel.add(valueField);
-        inputPanel.add(new JLabel("")); 
-        inputPanel.add(new JLabel("")); 
+        inputPanel.add(new JLabel("우선순위 (높을수록 먼저 적용):"));
+        inputPanel.add(priorityField);
+        inputPanel.add(new JLabel("시작 (yyyy-MM-dd HH:mm, 비우면 제한 없음):"));
+        inputPanel.add(startField);
+        inputPanel.add(new JLabel("종료 (yyyy-MM-dd HH:mm, 비우면 제한 없음):"));
+        inputPanel.add(endField);
         inputPanel.add(addEventBtn);
         inputPanel.add(delEventBtn);
+        inputPanel.add(simulateAddBtn);
+        inputPanel.add(simulateDelBtn);
         
         panel.add(inputPanel, BorderLayout.NORTH);
 
-        String[] headers = {"이벤트명", "유형", "대상 상품", "값"};
+        String[] headers = {"이벤트명", "유형", "대상 상품", "값", "우선순위", "시작", "종료"};
         DefaultTableModel eventTableModel = new DefaultTableModel(headers, 0);
         JTable eventTable = new JTable(eventTableModel);
         panel.add(new JScrollPane(eventTable), BorderLayout.CENTER);
 
-        Runnable refreshEventTable = () -> {
+        refreshEventTable = () -> {
             eventTableModel.setRowCount(0);
             for (EventRule rule : eventDB.values()) {
-                eventTableModel.addRow(new Object[]{rule.ruleName, rule.type, rule.targetProduct, rule.value});
+                eventTableModel.addRow(new Object[]{rule.ruleName, rule.type, rule.targetProduct, rule.value, rule.priority,
+                                                    rule.startTime == 0 ? "" : periodFormat.format(new java.util.Date(rule.startTime)),
+                                                    rule.endTime == 0 ? "" : periodFormat.format(new java.util.Date(rule.endTime))});
             }
         };
         
-        addEventBtn.addActionListener(e -> {
+        // 입력 칸의 값으로 이벤트 규칙을 만든다 (잘못된 값이면 안내 후 null)
+        Supplier<EventRule> readRuleForm = () -> {
             String name = eventNameField.getText().trim();
             String type = (String) eventTypeCombo.getSelectedItem(); 
             String target = targetProductField.getText().trim();
             String valueStr = valueField.getText().trim();
+            String priorityStr = priorityField.getText().trim();
+            String startStr = startField.getText().trim();
+            String endStr = endField.getText().trim();
 
-            if (name.isEmpty() || target.isEmpty() || valueStr.isEmpty()) { JOptionPane.showMessageDialog(this, "모든 필드를 채워주세요."); return; }
-            if (!productDB.containsKey(target)) { JOptionPane.showMessageDialog(this, "대상 상품이 재고 목록에 없습니다."); return; }
+            if (name.isEmpty() || target.isEmpty() || valueStr.isEmpty()) { JOptionPane.showMessageDialog(this, "모든 필드를 채워주세요."); return null; }
+            if (!productDB.containsKey(target)) { JOptionPane.showMessageDialog(this, "대상 상품이 재고 목록에 없습니다."); return null; }
 
             try {
                 int value = Integer.parseInt(valueStr);
                 
                 if (value <= 0 && (type.equals(EventType.ONE_PLUS_ONE) || type.equals(EventType.TWO_PLUS_ONE) || type.equals(EventType.BUNDLE))) {
-                    JOptionPane.showMessageDialog(this, "1+1, 2+1 및 묶음 상품의 값은 0보다 커야 합니다."); return;
+                    JOptionPane.showMessageDialog(this, "1+1, 2+1 및 묶음 상품의 값은 0보다 커야 합니다."); return null;
                 }
                 
-                EventRule newRule = new EventRule(name, type, target, value);
-                eventDB.put(name, newRule);
-                refreshEventTable.run();
-                JOptionPane.showMessageDialog(this, name + " 이벤트 등록 완료.");
-            } catch (NumberFormatException ex) { JOptionPane.showMessageDialog(this, "값은 숫자여야 합니다."); }
+                int priority = priorityStr.isEmpty() ? 0 : Integer.parseInt(priorityStr);
+                long startTime, endTime;
+                try {
+                    startTime = startStr.isEmpty() ? 0 : periodFormat.parse(startStr).getTime();
+                    endTime = endStr.isEmpty() ? 0 : periodFormat.parse(endStr).getTime();
+                } catch (ParseException ex) {
+                    JOptionPane.showMessageDialog(this, "기간은 yyyy-MM-dd HH:mm 형식이어야 합니다."); return null;
+                }
+                if (startTime != 0 && endTime != 0 && endTime <= startTime) {
+                    JOptionPane.showMessageDialog(this, "종료 시각은 시작 시각 이후여야 합니다."); return null;
+                }
+                return new EventRule(name, type, target, value, priority, startTime, endTime);
+            } catch (NumberFormatException ex) { JOptionPane.showMessageDialog(this, "값과 우선순위는 숫자여야 합니다."); return null; }
+        };
+
+        addEventBtn.addActionListener(e -> {
+            EventRule newRule = readRuleForm.get();
+            if (newRule == null) return;
+            String name = newRule.ruleName;
+            eventDB.put(name, newRule);
+            posService.updatePromotions(engine -> engine.put(newRule));
+            eventChanges.markDirty(name);
+            history.rulePut(newRule);
+            currentCart.repriceAll();
+            updateTotal();
+            refreshEventTable.run();
+            JOptionPane.showMessageDialog(this, name + " 이벤트 등록 완료.");
+        });
+
+        // 🔮 등록/삭제하기 전에, 지난 영수증의 장바구니를 지금 규칙과 바꾼 규칙으로 다시 계산해 본다
+        simulateAddBtn.addActionListener(e -> {
+            EventRule candidateRule = readRuleForm.get();
+            if (candidateRule == null) return;
+            List<EventRule> candidate = new ArrayList<>();
+            for (EventRule rule : eventDB.values()) {
+                if (!rule.ruleName.equals(candidateRule.ruleName)) candidate.add(rule);
+            }
+            candidate.add(candidateRule);
+            simulatePromotions(candidate, "'" + candidateRule.ruleName + "' 등록 시");
+        });
+
+        simulateDelBtn.addActionListener(e -> {
+            String name = eventNameField.getText().trim();
+            if (!eventDB.containsKey(name)) { JOptionPane.showMessageDialog(this, "해당 이름의 이벤트가 없습니다."); return; }
+            List<EventRule> candidate = new ArrayList<>();
+            for (EventRule rule : eventDB.values()) {
+                if (!rule.ruleName.equals(name)) candidate.add(rule);
+            }
+            simulatePromotions(candidate, "'" + name + "' 삭제 시");
         });
         
         delEventBtn.addActionListener(e -> {
             String name = eventNameField.getText().trim();
             if (eventDB.containsKey(name)) {
                 eventDB.remove(name);
+                posService.updatePromotions(engine -> engine.remove(name));
+                eventChanges.markDeleted(name);
+                history.ruleRemoved(name);
+                currentCart.repriceAll();
+                updateTotal();
                 refreshEventTable.run();
                 JOptionPane.showMessageDialog(this, name + " 이벤트가 삭제되었습니다.");
             } else { JOptionPane.showMessageDialog(this, "해당 이름의 이벤트가 없습니다."); }
@@ -721,6 +1080,66 @@ public class SevenElevenManagement extends JFrame {
         return panel;
     }
 
+    // 🔮 what-if 시뮬레이션: 영수증 로그의 장바구니를 읽어 지금 규칙(기준)과 후보 규칙으로 병렬 재계산
+    private void simulatePromotions(List<EventRule> candidate, String title) {
+        List<EventRule> baseline = new ArrayList<>(eventDB.values());
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<PromotionSimulator.Report, Void>() {
+            @Override
+            protected PromotionSimulator.Report doInBackground() throws Exception {
+                PromotionSimulator.CartHistory carts = PromotionSimulator.CartHistory.fromReceipts(receiptLog);
+                int[] profitBps = posCore.readCatalog(() -> carts.profitBps(productDB));
+                return PromotionSimulator.simulate(carts, baseline, candidate, profitBps, ForkJoinPool.commonPool());
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                PromotionSimulator.Report report;
+                try {
+                    report = get();
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(SevenElevenManagement.this, "시뮬레이션 중 오류: " + ex.getMessage(), "오류", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (report.carts == 0) {
+                    JOptionPane.showMessageDialog(SevenElevenManagement.this, "시뮬레이션할 영수증 기록이 없습니다.");
+                    return;
+                }
+                showSimulationReport(report, title);
+            }
+        }.execute();
+    }
+
+    private void showSimulationReport(PromotionSimulator.Report report, String title) {
+        String summary = String.format(
+            "<html>지난 장바구니 %,d개 (%,d줄)를 다시 계산했습니다. (%,d ms, 스레드 %d개)<br><br>" +
+            "매출: ₩%,d → ₩%,d (<b>%+,d원</b>)<br>" +
+            "이익 (이익률 기준): ₩%,d → ₩%,d (<b>%+,d원</b>)<br>" +
+            "N+1 공짜 수량: %,d개 → %,d개 (%+,d개)<br>" +
+            "금액이 달라지는 장바구니: %,d개<br><br>" +
+            "가격은 결제 당시 단가, 이익률은 지금 값, 이벤트 기간은 각 결제 시각 기준입니다. 수동 할인은 빼고 계산합니다.</html>",
+            report.carts, report.lines, report.elapsedNanos / 1_000_000, report.parallelism,
+            report.baseline.revenue, report.candidate.revenue, report.revenueDelta(),
+            report.baseline.profit, report.candidate.profit, report.profitDelta(),
+            report.baseline.freeItems, report.candidate.freeItems, report.freeItemsDelta(),
+            report.changedCarts);
+
+        DefaultTableModel model = new DefaultTableModel(new String[]{"상품", "판매 줄 수", "매출 변화(₩)", "이익 변화(₩)", "공짜 수량 변화"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+        for (PromotionSimulator.ProductDelta d : report.products) {
+            model.addRow(new Object[]{d.name, d.lines, d.revenueDelta, d.profitDelta, d.freeDelta});
+        }
+        JPanel content = new JPanel(new BorderLayout(5, 10));
+        content.add(new JLabel(summary), BorderLayout.NORTH);
+        JScrollPane scroll = new JScrollPane(new JTable(model));
+        scroll.setPreferredSize(new Dimension(560, 180));
+        content.add(scroll, BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(this, content, "이벤트 시뮬레이션 - " + title, JOptionPane.INFORMATION_MESSAGE);
+    }
+
     private JPanel createSalesPanel() {
         JPanel panel = new JPanel(new BorderLayout(10, 10)); 
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -735,18 +1154,26 @@ public class SevenElevenManagement extends JFrame {
         leftPanel.add(searchPanel, BorderLayout.NORTH);
         
         String[] headers = {"상품명", "가격(₩)", "남은 재고"};
-        salesInventoryTableModel = new DefaultTableModel(headers, 0) {
+        salesInventoryTableModel = new ProductTableModel(productDB, headers) {
             @Override
-            public boolean isCellEditable(int row, int column) { return false; }
+            protected Object getColumnValue(Product p, int column) {
+                switch (column) {
+                    case 0: return p.name;
+                    case 1: return p.getPrice();
+                    default: return p.getQuantity();
+                }
+            }
         };
         salesInventoryTable = new JTable(salesInventoryTableModel);
         leftPanel.add(new JScrollPane(salesInventoryTable), BorderLayout.CENTER);
 
+        Timer sSearchTimer = new Timer(SEARCH_DEBOUNCE_MILLIS, e -> refreshSalesInventoryTable(sSearchField.getText().trim()));
+        sSearchTimer.setRepeats(false);
         sSearchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override public void changedUpdate(DocumentEvent e) { filter(); }
             @Override public void removeUpdate(DocumentEvent e) { filter(); }
             @Override public void insertUpdate(DocumentEvent e) { filter(); }
-            public void filter() { refreshSalesInventoryTable(sSearchField.getText().trim()); }
+            public void filter() { sSearchTimer.restart(); }
         });
 
         salesInventoryTable.addMouseListener(new MouseAdapter() {
@@ -758,19 +1185,20 @@ public class SevenElevenManagement extends JFrame {
                         String name = (String) salesInventoryTableModel.getValueAt(row, 0);
                         Product p = productDB.get(name);
                         
-                        if (p == null || p.quantity <= 0) {
+                        if (p == null || p.getQuantity() <= 0) {
                             JOptionPane.showMessageDialog(SevenElevenManagement.this, (p == null ? "상품이 존재하지 않거나" : p.name) + "은(는) 재고가 부족합니다.");
                             return;
                         }
 
-                        int currentQty = currentCart.getOrDefault(name, 0);
+                        int currentQty = currentCart.getQuantity(name);
                         
-                        if (currentQty < p.quantity) {
-                             currentCart.put(name, currentQty + 1);
-                             updateCartTable();
+                        if (currentQty < p.getQuantity()) {
+                             currentCart.setQuantity(name, currentQty + 1);
+                             if (currentQty == 0) cartTableModel.addProduct(name);
+                             else cartTableModel.productChanged(name);
                              updateTotal();
                         } else {
-                            JOptionPane.showMessageDialog(SevenElevenManagement.this, p.name + "의 판매 가능 재고(" + p.quantity + "개)를 초과하여 담을 수 없습니다.");
+                            JOptionPane.showMessageDialog(SevenElevenManagement.this, p.name + "의 판매 가능 재고(" + p.getQuantity() + "개)를 초과하여 담을 수 없습니다.");
                         }
                     }
                 }
@@ -785,42 +1213,6 @@ public class SevenElevenManagement extends JFrame {
         cartTable = new JTable(cartTableModel);
         rightPanel.add(new JScrollPane(cartTable), BorderLayout.CENTER);
 
-        cartTableModel.addTableModelListener(new TableModelListener() {
-            @Override
-            public void tableChanged(TableModelEvent e) {
-                if (e.getType() == TableModelEvent.UPDATE && e.getColumn() == 2) {
-                    int row = e.getFirstRow();
-                    if (row == -1) return;
-                    String name = (String) cartTableModel.getValueAt(row, 0);
-                    Product p = productDB.get(name);
-                    
-                    if (p == null) { updateCartTable(); updateTotal(); return; }
-
-                    try {
-                        int newQty = Integer.parseInt(cartTableModel.getValueAt(row, 2).toString());
-                        if (newQty <= 0) {
-                            currentCart.remove(name);
-                            updateCartTable();
-                            JOptionPane.showMessageDialog(SevenElevenManagement.this, name + "이(가) 장바구니에서 삭제되었습니다.");
-                        } else if (newQty > p.quantity) {
-                            JOptionPane.showMessageDialog(SevenElevenManagement.this, p.name + "의 재고가 부족합니다! (현재 재고: " + p.quantity + "개)");
-                            Integer oldQty = currentCart.get(name);
-                            currentCart.put(name, oldQty != null ? oldQty : 1); 
-                            updateCartTable(); 
-                        } else {
-                            currentCart.put(name, newQty);
-                        }
-                        updateTotal();
-                    } catch (NumberFormatException ex) {
-                        JOptionPane.showMessageDialog(SevenElevenManagement.this, "수량은 정확한 숫자여야 합니다.");
-                        Integer oldQty = currentCart.get(name);
-                        currentCart.put(name, oldQty != null ? oldQty : 1); 
-                        updateCartTable(); 
-                    }
-                }
-            }
-        });
-
         JPanel cancelBtnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton removeSelectedBtn = new JButton("선택 상품 취소");
         removeSelectedBtn.setBackground(new Color(255, 180, 0));
@@ -832,12 +1224,29 @@ public class SevenElevenManagement extends JFrame {
             if (row == -1) { JOptionPane.showMessageDialog(this, "장바구니에서 취소할 상품을 선택해주세요."); return; }
             String name = (String) cartTableModel.getValueAt(row, 0);
             currentCart.remove(name);
-            updateCartTable();
+            cartTableModel.removeProduct(name);
             updateTotal();
             JOptionPane.showMessageDialog(this, name + "이(가) 장바구니에서 취소되었습니다.");
         });
 
-        rightPanel.add(cancelBtnPanel, BorderLayout.NORTH);
+        // 📷 바코드 스캔 (키보드 방식 스캐너는 숫자를 입력하고 Enter 를 보낸다)
+        JPanel scanPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        scanPanel.add(new JLabel("바코드:"));
+        scanField = new JTextField(14);
+        scanPanel.add(scanField);
+        scanStatusLabel = new JLabel(" ");
+        scanPanel.add(scanStatusLabel);
+        scanPipeline = new ScanPipeline(this::applyScanBurst, text -> scanProblem("바코드를 읽지 못했습니다: " + text.trim()));
+        scanField.addActionListener(e -> {
+            String text = scanField.getText();
+            scanField.setText("");
+            if (!text.isBlank()) scanPipeline.submit(text);
+        });
+
+        JPanel cartTopPanel = new JPanel(new BorderLayout());
+        cartTopPanel.add(scanPanel, BorderLayout.CENTER);
+        cartTopPanel.add(cancelBtnPanel, BorderLayout.EAST);
+        rightPanel.add(cartTopPanel, BorderLayout.NORTH);
 
         JPanel bottomPanel = new JPanel(new BorderLayout());
         totalLabel = new JLabel("총 결제 금액 (이벤트 적용 후): ₩0 (할인: ₩0)", SwingConstants.RIGHT);
@@ -880,15 +1289,21 @@ public class SevenElevenManagement extends JFrame {
 
         receiptArea = new JTextArea(8, 0);
         receiptArea.setEditable(false);
-        receiptArea.setText("--- 판매 기록 로그 ---\n");
+        receiptArea.setText(RECEIPT_HEADER);
         
         revenueProfitLabel = new JLabel(); 
         revenueProfitLabel.setFont(new Font("맑은 고딕", Font.PLAIN, 14));
         revenueProfitLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
         
+        JButton receiptLookupBtn = new JButton("영수증 조회");
+        receiptLookupBtn.addActionListener(e -> showReceiptLookup());
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(revenueProfitLabel, BorderLayout.CENTER);
+        statusPanel.add(receiptLookupBtn, BorderLayout.EAST);
+
         JPanel logAndStatusPanel = new JPanel(new BorderLayout());
         logAndStatusPanel.add(new JScrollPane(receiptArea), BorderLayout.CENTER);
-        logAndStatusPanel.add(revenueProfitLabel, BorderLayout.NORTH); 
+        logAndStatusPanel.add(statusPanel, BorderLayout.NORTH); 
 
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, leftPanel, rightPanel);
         splitPane.setResizeWeight(0.5);
@@ -899,50 +1314,41 @@ public class SevenElevenManagement extends JFrame {
         updateRevenueProfitLabelInSalesTab();
 
         sellBtn.addActionListener(e -> {
+            scanPipeline.flush(); // 아직 모아 두기만 한 스캔도 이번 결제에 넣는다
             if (currentCart.isEmpty()) { JOptionPane.showMessageDialog(this, "장바구니가 비어있습니다. 상품을 추가해주세요."); return; }
             
-            long finalTotal = calculateFinalTotal();
-            long manualDiscount = getManualDiscount();
+            // 결제 직전에 이벤트 기간을 다시 확인하고, 이후 계산은 모두 이 합계 스냅샷을 사용
+            currentCart.setManualDiscount(getManualDiscount());
+            currentCart.repriceAll();
+            CartAggregate.Snapshot totals = currentCart.snapshot();
+            long finalTotal = totals.finalTotal;
             
             int confirm = JOptionPane.showConfirmDialog(this, "최종 금액 ₩" + currencyFormat.format(finalTotal).substring(1) + "원 결제를 진행하시겠습니까?", "결제 확인", JOptionPane.YES_NO_OPTION);
             
             if (confirm == JOptionPane.YES_OPTION) {
                 
-                Map<String, TransactionDetail> transactionDetails = calculateNetProfitAndApplySale(finalTotal, manualDiscount);
-                
-                long netProfit = transactionDetails.get("::TOTAL_PROFIT::").itemNetProfit;
-                long totalGrossRevenue = calculateGrossRevenue();
-                long totalWithEvents = calculateTotalWithEvents();
-                long totalDiscount = (totalGrossRevenue - totalWithEvents) + manualDiscount;
-                
-                totalRevenue += finalTotal; 
-
-                StringBuilder log = new StringBuilder(String.format("--- [거래 완료] 최종액: ₩%,d (순 수익: ₩%,d) ---\n", finalTotal, netProfit));
-                for(TransactionDetail detail : transactionDetails.values()) {
-                    if (detail.name != null) {
-                         String detailLine = String.format("  - %s | ₩%,d x %d개", detail.name, detail.unitPrice, detail.quantity);
-                         if (detail.freeCount > 0) {
-                             detailLine += String.format(" (N+1 적용, %d개 공짜)", detail.freeCount);
-                         } else if (detail.itemFinalPrice < (long)detail.unitPrice * detail.quantity) {
-                             if (detail.freeCount == 0 && detail.itemFinalPrice < (long)detail.unitPrice * detail.quantity) {
-                                  long itemDiscount = ((long)detail.unitPrice * detail.quantity) - detail.itemFinalPrice;
-                                  detailLine += String.format(" (할인 적용, ₩%,d 할인)", itemDiscount);
-                             }
-                         }
-                         log.append(detailLine).append("\n");
-                    }
+                // 재고 확보부터 저널/이력/집계/영수증 기록까지는 판매 서비스가 처리하고,
+                // 표/영수증 창 갱신은 결제 알림(onSale)에서 한다 (POS API 결제와 같은 경로)
+                Map<String, Integer> items = new HashMap<>();
+                for (CartAggregate.Line line : currentCart.getLines()) {
+                    items.put(line.name, line.quantity);
+                }
+                PosService.Sale sale = posService.checkout(items, totals.manualDiscount);
+                if (!sale.success && sale.error != null) {
+                    JOptionPane.showMessageDialog(this, "결제하지 못했습니다. 재고와 매출은 바뀌지 않았습니다.\n" + sale.error, "결제 실패", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (!sale.success) {
+                    JOptionPane.showMessageDialog(this, "재고가 부족합니다: " + sale.shortProduct + " (남은 재고: " + sale.available + "개)", "결제 거절", JOptionPane.WARNING_MESSAGE);
+                    return;
                 }
-                log.append(String.format("---------------------------\n[최종 상세]\n매출 (할인 후): ₩%,d\n총 할인: ₩%,d\n", 
-                                         finalTotal, totalDiscount));
-                receiptArea.append(log.toString());
-                receiptArea.append("---------------------------\n");
+                long netProfit = sale.summary.netProfit;
+                finalTotal = sale.summary.finalTotal;
 
                 currentCart.clear();
                 manualDiscountField.setText("0"); 
                 updateCartTable();
                 updateTotal();
-                refreshSalesInventoryTable(sSearchField.getText().trim());
-                updateRevenueProfitLabelInSalesTab(); 
                 
                 JOptionPane.showMessageDialog(this, 
                     "결제 완료! (최종 매출: " + currencyFormat.format(finalTotal).substring(1) + "원, 순 수익: " + currencyFormat.format(netProfit).substring(1) + "원)", 
@@ -968,6 +1374,30 @@ public class SevenElevenManagement extends JFrame {
         return panel;
     }
     
+    // 장바구니 표에서 수량(2열)을 직접 고쳤을 때 재고를 확인하고 반영
+    private void applyCartQuantityEdit(String name, Object value) {
+        Product p = productDB.get(name);
+        
+        if (p == null) { updateCartTable(); updateTotal(); return; }
+
+        try {
+            int newQty = Integer.parseInt(value.toString());
+            if (newQty <= 0) {
+                currentCart.remove(name);
+                cartTableModel.removeProduct(name);
+                JOptionPane.showMessageDialog(SevenElevenManagement.this, name + "이(가) 장바구니에서 삭제되었습니다.");
+            } else if (newQty > p.getQuantity()) {
+                JOptionPane.showMessageDialog(SevenElevenManagement.this, p.name + "의 재고가 부족합니다! (현재 재고: " + p.getQuantity() + "개)");
+            } else {
+                currentCart.setQuantity(name, newQty);
+                cartTableModel.productChanged(name);
+            }
+            updateTotal();
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(SevenElevenManagement.this, "수량은 정확한 숫자여야 합니다.");
+        }
+    }
+    
     private JPanel createRevenuePanel() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createTitledBorder("매출 및 상품 판매 현황"));
@@ -987,9 +1417,17 @@ public class SevenElevenManagement extends JFrame {
         panel.add(summaryPanel, BorderLayout.NORTH);
 
         String[] headers = {"상품명", "가격(₩)", "총 판매량", "총 발주량", "총 예상 수익(이익률 기반)"};
-        revenueTableModel = new DefaultTableModel(headers, 0) {
+        revenueTableModel = new ProductTableModel(productDB, headers) {
             @Override
-            public boolean isCellEditable(int row, int column) { return false; }
+            protected Object getColumnValue(Product p, int column) {
+                switch (column) {
+                    case 0: return p.name;
+                    case 1: return (long) p.getPrice();
+                    case 2: return (long) p.getSoldQuantity();
+                    case 3: return (long) p.getOrderedQuantity();
+                    default: return estimatedGrossProfit(p);
+                }
+            }
             @Override
             public Class<?> getColumnClass(int columnIndex) {
                  if (columnIndex == 1 || columnIndex == 2 || columnIndex == 3 || columnIndex == 4) { return Long.class; }
@@ -999,194 +1437,483 @@ public class SevenElevenManagement extends JFrame {
         revenueTable = new JTable(revenueTableModel);
         
         panel.add(new JScrollPane(revenueTable), BorderLayout.CENTER);
+        panel.add(createRollupPanel(), BorderLayout.SOUTH);
         
         return panel;
     }
 
-    private void updateRevenueProfitLabelInSalesTab() {
-        long totalExpectedProfit = 0;
-        for (Product p : productDB.values()) {
-            totalExpectedProfit += (long)(p.price * p.soldQuantity * (p.profitRate / 100.0));
+    // 🩺 결제/가격 계산/표 새로고침/DB 저장·로드/화면 이벤트 처리 시간과 건수
+    private JPanel createDiagnosticsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createTitledBorder("실행 중 지연 시간 / 처리량"));
+
+        diagnosticsTableModel = new DefaultTableModel(new String[]{
+            "항목", "설명", "전체 건수", "최근 초당", "평균(ms)", "p50(ms)", "p99(ms)", "최대(ms)", "최근 p99(ms)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+        JTable table = new JTable(diagnosticsTableModel);
+        table.getColumnModel().getColumn(1).setPreferredWidth(260);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        diagnosticsStatusLabel = new JLabel();
+        poolStatsLabel = new JLabel();
+        JPanel statusPanel = new JPanel(new GridLayout(2, 1));
+        statusPanel.add(diagnosticsStatusLabel);
+        statusPanel.add(poolStatsLabel);
+        panel.add(statusPanel, BorderLayout.SOUTH);
+
+        // 탭이 보일 때만 다시 그린다 (그 사이의 값은 다음 새로고침의 "최근" 구간에 합쳐진다)
+        new Timer(DIAGNOSTICS_REFRESH_MILLIS, e -> {
+            if (tabbedPane.getSelectedComponent() == diagnosticsPanel) updateDiagnostics();
+        }).start();
+        return panel;
+    }
+
+    private void updateDiagnostics() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - previousDiagnosticsNanos) / 1e9);
+        previousDiagnosticsNanos = now;
+
+        diagnosticsTableModel.setRowCount(0);
+        for (PosMetrics.Metric metric : PosMetrics.all()) {
+            if (metric instanceof PosMetrics.Histogram) {
+                PosMetrics.Snapshot total = ((PosMetrics.Histogram) metric).snapshot();
+                PosMetrics.Snapshot previous = previousHistograms.put(metric.name, total);
+                PosMetrics.Snapshot recent = previous == null ? total : total.minus(previous);
+                diagnosticsTableModel.addRow(new Object[]{
+                    metric.name, metric.help, total.count, String.format("%.1f", recent.count / seconds),
+                    millis(total.meanNanos()), millis(total.percentile(0.5)), millis(total.percentile(0.99)),
+                    millis(total.maxNanos), recent.count == 0 ? "-" : millis(recent.percentile(0.99))
+                });
+            } else {
+                long count = ((PosMetrics.Counter) metric).get();
+                Long previous = previousCounters.put(metric.name, count);
+                long recent = previous == null ? count : count - previous;
+                diagnosticsTableModel.addRow(new Object[]{
+                    metric.name, metric.help, count, String.format("%.1f", recent / seconds), "", "", "", "", ""
+                });
+            }
         }
 
+        diagnosticsStatusLabel.setText("100ms 넘게 걸린 화면 이벤트: " + PosMetrics.EDT_SLOW_EVENTS.get() + "건  |  수집 주소: "
+            + (posApi.isRunning() ? "http://127.0.0.1:" + posApi.getPort() + "/metrics" : "POS 서비스 API 꺼짐"));
+        poolStatsLabel.setText("DB 커넥션 풀: " + dbPool.getStats());
+    }
+
+    private static String millis(double nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    // 📊 기간별 매출 / 상위 상품 / 행사별 매출 (모두 미리 합산된 집계에서 조회)
+    private JPanel createRollupPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createTitledBorder("기간별 매출 집계"));
+
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        rollupPeriodBox = new JComboBox<>(new String[]{"최근 60분 (분별)", "최근 24시간 (시간별)", "최근 30일 (일별)"});
+        rollupPeriodBox.setSelectedIndex(1);
+        rollupPeriodBox.addActionListener(e -> updateRollupTables());
+        rollupStatusLabel = new JLabel();
+        controlPanel.add(new JLabel("기간:"));
+        controlPanel.add(rollupPeriodBox);
+        controlPanel.add(rollupStatusLabel);
+
+        rollupTableModel = new DefaultTableModel(new String[]{"구간", "매출(₩)", "판매량", "수익(₩)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+        topProductTableModel = new DefaultTableModel(new String[]{"상위 상품", "매출(₩)", "판매량"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+        topPromotionTableModel = new DefaultTableModel(new String[]{"이벤트", "적용 매출(₩)", "판매량"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+
+        JPanel tablesPanel = new JPanel(new GridLayout(1, 3, 5, 5));
+        tablesPanel.add(new JScrollPane(new JTable(rollupTableModel)));
+        tablesPanel.add(new JScrollPane(new JTable(topProductTableModel)));
+        tablesPanel.add(new JScrollPane(new JTable(topPromotionTableModel)));
+        tablesPanel.setPreferredSize(new Dimension(0, 200));
+
+        panel.add(controlPanel, BorderLayout.NORTH);
+        panel.add(tablesPanel, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private void updateRollupTables() {
+        SalesRollup.Granularity g;
+        int buckets;
+        String pattern;
+        switch (rollupPeriodBox.getSelectedIndex()) {
+            case 0: g = SalesRollup.Granularity.MINUTE; buckets = 60; pattern = "HH:mm"; break;
+            case 2: g = SalesRollup.Granularity.DAY; buckets = 30; pattern = "MM-dd"; break;
+            default: g = SalesRollup.Granularity.HOUR; buckets = 24; pattern = "MM-dd HH시"; break;
+        }
+        long now = System.currentTimeMillis();
+        long start = System.nanoTime();
+        List<SalesRollup.Row> rows = salesRollup.recent(g, now, buckets);
+        List<SalesRollup.Row> topProducts = salesRollup.topProducts(g, now, buckets, TOP_N);
+        List<SalesRollup.Row> topPromotions = salesRollup.topPromotions(g, now, buckets, TOP_N);
+        double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        rollupTableModel.setRowCount(0);
+        for (int i = rows.size() - 1; i >= 0; i--) { // 최근 구간부터
+            SalesRollup.Row row = rows.get(i);
+            rollupTableModel.addRow(new Object[]{format.format(new java.util.Date(row.start)), row.revenue, row.quantity, row.profit});
+        }
+        topProductTableModel.setRowCount(0);
+        for (SalesRollup.Row row : topProducts) {
+            topProductTableModel.addRow(new Object[]{row.name, row.revenue, row.quantity});
+        }
+        topPromotionTableModel.setRowCount(0);
+        for (SalesRollup.Row row : topPromotions) {
+            topPromotionTableModel.addRow(new Object[]{row.name, row.revenue, row.quantity});
+        }
+        rollupStatusLabel.setText(String.format("조회 %.2fms", elapsedMillis));
+    }
+
+    private void updateRevenueProfitLabelInSalesTab() {
+        long totalExpectedProfit = productDB.estimatedProfitTotal();
+
         revenueProfitLabel.setText(String.format(
             "💰 누적 총 매출: ₩%s, 누적 총 수익(예상): ₩%s",
-            currencyFormat.format(totalRevenue).substring(1),
+            currencyFormat.format(posService.getRevenue()).substring(1),
             currencyFormat.format(totalExpectedProfit).substring(1)
         ));
     }
     
+    private long estimatedGrossProfit(Product p) {
+        return productDB.estimatedProfit(p.id);
+    }
+    
     private void updateRevenuePanel() {
-        long totalCalculatedExpectedProfit = 0;
-        
-        revenueTableModel.setRowCount(0);
-        for (Product p : productDB.values()) {
-            long estimatedGrossProfit = (long)(p.price * p.soldQuantity * (p.profitRate / 100.0));
-            totalCalculatedExpectedProfit += estimatedGrossProfit;
-            
-            revenueTableModel.addRow(new Object[]{
-                p.name, 
-                (long)p.price, 
-                (long)p.soldQuantity, 
-                (long)p.orderedQuantity, 
-                estimatedGrossProfit 
-            });
-        }
+        long totalCalculatedExpectedProfit = productDB.estimatedProfitTotal();
+        revenueTableModel.setRows(searchIndex.search(""));
+        updateRollupTables();
         
         revenueSummaryLabel.setText(String.format(
             "총 매출: ₩%s, 총 수익(예상): ₩%s",
-            currencyFormat.format(totalRevenue).substring(1),
+            currencyFormat.format(posService.getRevenue()).substring(1),
             currencyFormat.format(totalCalculatedExpectedProfit).substring(1)
         ));
     }
     
-    private SaleResult calculateItemPrice(String name, int qty) {
-        Product p = productDB.get(name);
-        if (p == null) return new SaleResult(0, 0);
+    private long getManualDiscount() {
+        try {
+            String discStr = manualDiscountField.getText().trim();
+            return discStr.isEmpty() ? 0 : Long.parseLong(discStr);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
 
-        long itemTotalPrice = (long)p.price * qty;
-        int freeCount = 0;
-        
-        for (EventRule rule : eventDB.values()) {
-            if (rule.targetProduct.equals(name)) {
-                if (rule.type.equals(EventType.ONE_PLUS_ONE)) {
-                    freeCount = qty / 2;
-                    int paidCount = qty - freeCount;
-                    itemTotalPrice = (long) paidCount * p.price;
-                    return new SaleResult(itemTotalPrice, freeCount);
-                } else if (rule.type.equals(EventType.TWO_PLUS_ONE)) {
-                    freeCount = qty / 3;
-                    int paidCount = qty - freeCount;
-                    itemTotalPrice = (long) paidCount * p.price;
-                    return new SaleResult(itemTotalPrice, freeCount);
-                } else if (rule.type.equals(EventType.DISCOUNT)) {
-                    int discountAmount = rule.value;
-                    itemTotalPrice = (long) qty * (p.price - discountAmount);
-                    itemTotalPrice = Math.max(0, itemTotalPrice); 
-                    return new SaleResult(itemTotalPrice, 0);
-                } else if (rule.type.equals(EventType.BUNDLE)) {
-                    int bundleQty = rule.value;
-                    int bundles = qty / bundleQty; 
-                    int remaining = qty % bundleQty;
-                    itemTotalPrice = (long)(bundles * p.price) + (remaining * p.price); 
-                    return new SaleResult(itemTotalPrice, 0); 
-                }
-                break;
+    // 판매 로그 창에 영수증 추가. RECEIPT_VIEW_LIMIT 장을 넘으면 가장 오래된 영수증을 앞에서 지운다.
+    private void showReceipt(String text) {
+        receiptArea.append(text);
+        receiptViewLengths.addLast(text.length());
+        if (receiptViewLengths.size() > RECEIPT_VIEW_LIMIT) {
+            int oldest = receiptViewLengths.removeFirst();
+            try {
+                receiptArea.getDocument().remove(RECEIPT_HEADER.length(), oldest);
+            } catch (javax.swing.text.BadLocationException e) {
+                receiptArea.setText(RECEIPT_HEADER); // 일어나지 않아야 하지만, 어긋나면 창을 비우고 다시 시작
+                receiptViewLengths.clear();
             }
         }
-        
-        return new SaleResult(itemTotalPrice, 0); 
     }
-    
-    private long calculateTotalWithEvents() {
-        long total = 0;
-        for (String name : currentCart.keySet()) {
-            int qty = currentCart.get(name);
-            SaleResult result = calculateItemPrice(name, qty);
-            total += result.totalPrice;
+
+    private static final String RECEIPT_HEADER = "--- 판매 기록 로그 ---\n";
+
+    // 🔎 거래번호 또는 기간으로 지난 영수증 조회
+    private void showReceiptLookup() {
+        String input = JOptionPane.showInputDialog(this,
+            "거래번호 또는 기간을 입력하세요.\n예) 1732700000000001\n예) 2025-11-27 09:00 ~ 2025-11-27 18:00",
+            "영수증 조회", JOptionPane.QUESTION_MESSAGE);
+        if (input == null || input.trim().isEmpty()) return;
+        input = input.trim();
+
+        List<ReceiptLog.Receipt> found = new ArrayList<>();
+        try {
+            if (input.contains("~")) {
+                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+                String[] range = input.split("~");
+                long from = format.parse(range[0].trim()).getTime();
+                long to = format.parse(range[1].trim()).getTime() + 59_999; // 끝 시각의 1분 전체 포함
+                found = receiptLog.findByTime(from, to, RECEIPT_VIEW_LIMIT);
+            } else {
+                ReceiptLog.Receipt receipt = receiptLog.findByTxId(Long.parseLong(input));
+                if (receipt != null) found.add(receipt);
+            }
+        } catch (ParseException | NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+            JOptionPane.showMessageDialog(this, "입력 형식이 올바르지 않습니다.");
+            return;
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "영수증 로그 읽기 중 오류: " + ex.getMessage(), "오류", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (found.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "해당하는 영수증이 없습니다.");
+            return;
+        }
+
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        StringBuilder sb = new StringBuilder();
+        for (ReceiptLog.Receipt receipt : found) {
+            sb.append('[').append(timeFormat.format(new java.util.Date(receipt.time))).append("]\n").append(receipt.format());
         }
-        return total;
+        JTextArea area = new JTextArea(sb.toString(), 20, 50);
+        area.setEditable(false);
+        area.setCaretPosition(0);
+        String title = found.size() >= RECEIPT_VIEW_LIMIT ? "영수증 조회 (앞쪽 " + found.size() + "장만 표시)" : "영수증 조회 (" + found.size() + "장)";
+        JOptionPane.showMessageDialog(this, new JScrollPane(area), title, JOptionPane.PLAIN_MESSAGE);
     }
-    
-    private long calculateGrossRevenue() {
-        long gross = 0;
-        for (String name : currentCart.keySet()) {
-            Product p = productDB.get(name);
-            if (p != null) {
-                gross += (long) p.price * currentCart.get(name);
+
+    // 📷 스캔 묶음 하나를 장바구니에 반영: 같은 상품은 개수를 합쳐 한 번만 바꾸고, 합계는 묶음당 한 번만 다시 계산한다.
+    // 없는 바코드나 재고 초과는 계산을 멈추는 대화상자 대신 스캔 상태 표시와 경고음으로 알린다.
+    private void applyScanBurst(long[] codes) {
+        long start = PosMetrics.SCAN_BURST.start();
+        Map<String, Integer> counts = new LinkedHashMap<>(); // 스캔한 순서대로 장바구니에 들어가도록
+        int unknown = 0;
+        long lastUnknown = BarcodeIndex.NONE;
+        for (long code : codes) {
+            int id = productDB.idOfBarcode(code);
+            if (id < 0) {
+                unknown++;
+                lastUnknown = code;
+                continue;
             }
+            counts.merge(productDB.nameAt(id), 1, Integer::sum);
         }
-        return gross;
-    }
-    
-    private long getManualDiscount() {
-        try {
-            String discStr = manualDiscountField.getText().trim();
-            return discStr.isEmpty() ? 0 : Long.parseLong(discStr);
-        } catch (NumberFormatException ex) {
-            return 0;
+
+        String shortName = null;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            String name = entry.getKey();
+            Product p = productDB.get(name);
+            int currentQty = currentCart.getQuantity(name);
+            int newQty = Math.min(currentQty + entry.getValue(), p.getQuantity());
+            if (newQty < currentQty + entry.getValue()) shortName = name;
+            if (newQty <= currentQty) continue;
+            currentCart.setQuantity(name, newQty);
+            if (currentQty == 0) cartTableModel.addProduct(name);
+            else cartTableModel.productChanged(name);
         }
+        if (!counts.isEmpty()) updateTotal();
+
+        if (unknown > 0) {
+            scanProblem("등록되지 않은 바코드 " + BarcodeIndex.format(lastUnknown) + (unknown > 1 ? " 외 " + (unknown - 1) + "건" : ""));
+        } else if (shortName != null) {
+            scanProblem(shortName + "의 판매 가능 재고(" + productDB.get(shortName).getQuantity() + "개)를 초과한 스캔은 담지 않았습니다");
+        } else {
+            scanStatusLabel.setForeground(UIManager.getColor("Label.foreground"));
+            scanStatusLabel.setText(codes.length + "건 스캔");
+        }
+        PosMetrics.SCAN_BURST.stop(start);
     }
 
-    private long calculateFinalTotal() {
-        long totalWithEvents = calculateTotalWithEvents();
-        long manualDiscount = getManualDiscount();
-        return Math.max(0, totalWithEvents - manualDiscount);
+    private void scanProblem(String message) {
+        scanStatusLabel.setForeground(new Color(200, 0, 0));
+        scanStatusLabel.setText(message);
+        Toolkit.getDefaultToolkit().beep();
     }
-    
+
     private void updateTotal() {
-        long totalWithEvents = calculateTotalWithEvents();
-        long manualDiscount = getManualDiscount();
-        long finalTotal = calculateFinalTotal();
-        
-        long totalDiscount = (calculateGrossRevenue() - totalWithEvents) + manualDiscount; 
+        currentCart.setManualDiscount(getManualDiscount());
+        CartAggregate.Snapshot totals = currentCart.snapshot();
         
-        totalLabel.setText(String.format("총 결제 금액 (이벤트 적용 후): ₩%,d (총 할인: ₩%,d)", finalTotal, totalDiscount));
+        totalLabel.setText(String.format("총 결제 금액 (이벤트 적용 후): ₩%,d (총 할인: ₩%,d)", totals.finalTotal, totals.totalDiscount));
     }
     
-    private Map<String, TransactionDetail> calculateNetProfitAndApplySale(long totalFinalPrice, long manualDiscount) {
-        Map<String, TransactionDetail> details = new HashMap<>();
-        long totalCalculatedProfit = 0;
-        
-        for (String name : currentCart.keySet()) {
-            int qty = currentCart.get(name);
-            Product p = productDB.get(name);
-            if (p == null) continue;
+    // 💳 결제 알림 (판매 서비스가 결제한 스레드에서 호출) - 화면 갱신은 EDT 에서
+    private void onSale(PosService.Sale sale) {
+        SwingUtilities.invokeLater(() -> {
+            showReceipt(sale.receipt.format());
+            for (TransactionDetail line : sale.lines) {
+                productUpdated(line.name);
+                currentCart.reprice(line.name);
+            }
+            updateRevenueProfitLabelInSalesTab();
+            reorderAfterSalesTimer.restart();
+        });
+    }
 
-            SaleResult result = calculateItemPrice(name, qty);
-            long itemTotalPrice = result.totalPrice;
+    private void refreshTable(String filter) {
+        long start = PosMetrics.TABLE_REFRESH.start();
+        tableModel.setRows(searchIndex.search(filter));
+        PosMetrics.TABLE_REFRESH.stop(start);
+    }
 
-            p.quantity -= qty;
-            p.soldQuantity += qty; 
-            
-            long itemNetProfit = p.calculateProfit(itemTotalPrice);
-            totalCalculatedProfit += itemNetProfit;
-            
-            details.put(name, new TransactionDetail(name, p.price, qty, itemTotalPrice, itemNetProfit, result.freeCount));
+    private void refreshSalesInventoryTable(String filter) {
+        long start = PosMetrics.TABLE_REFRESH.start();
+        salesInventoryTableModel.setRows(searchIndex.search(filter));
+        PosMetrics.TABLE_REFRESH.stop(start);
+    }
+
+    // 🔄 동기화 작업자가 읽어 온 본사 상태를 로컬에 반영 (EDT). 규칙은 CatalogSync 머리말 참고.
+    private void applyCentralChanges(CatalogSync.Pull pull) {
+        String managerFilter = mSearchField.getText().trim();
+        String salesFilter = sSearchField.getText().trim();
+        Set<String> central = new HashSet<>();
+        int changed = 0;
+        for (CatalogSync.RemoteProduct remote : pull.products) {
+            central.add(remote.name);
+            if (productChanges.isDeleted(remote.name)) continue; // 로컬에서 지운 상품은 다음 저장 때 DB 에서도 지운다
+            Product p = productDB.get(remote.name);
+            if (p == null) {
+                // 본사에서 새로 등록한 상품
+                Product added = posService.updateCatalog(() -> productDB.add(remote.name, remote.price, remote.quantity,
+                                                                             remote.orderedQuantity, remote.soldQuantity, remote.profitRate));
+                if (remote.barcode != BarcodeIndex.NONE && !added.setBarcode(remote.barcode)) productChanges.markDirty(added.name);
+                posService.recordProductChange(HistoryStore.Kind.IMPORT, added);
+                searchIndex.add(added.name);
+                if (ProductSearchIndex.matches(added.name, managerFilter)) tableModel.addProduct(added.name);
+                if (ProductSearchIndex.matches(added.name, salesFilter)) salesInventoryTableModel.addProduct(added.name);
+                changed++;
+                continue;
+            }
+
+            boolean updated = false;
+            Integer stockDelta = pull.centralStockDelta(remote);
+            if (stockDelta != null && stockDelta != 0) {
+                // 로컬에도 아직 DB 에 없는 재고 변경이 있으면 양쪽 변경을 더해서 합친다
+                Integer localDelta = catalogSync.stockDelta(p.name, p.getQuantity());
+                if (localDelta != null && localDelta != 0) catalogSync.countConflict();
+                posService.updateCatalog(() -> {
+                    p.setQuantity(Math.max(0, p.getQuantity() + stockDelta));
+                    return null;
+                });
+                catalogSync.acceptCentral(p.name, stockDelta);
+                updated = true;
+            }
+            CatalogSync.RemoteProduct seen = pull.seenBefore(remote);
+            if (seen == null) {
+                // 처음 보는 상품: 로컬에 저장하지 않은 변경이 없을 때만 본사 값을 받는다
+                if (!productChanges.isDirty(p.name)) updated |= adoptCentralFields(p, remote, null);
+            } else {
+                updated |= adoptCentralFields(p, remote, seen);
+            }
+            if (updated) {
+                productUpdated(p.name);
+                currentCart.reprice(p.name);
+                posService.recordProductChange(HistoryStore.Kind.IMPORT, p);
+                changed++;
+            }
         }
 
-        long finalNetProfit = Math.max(0, totalCalculatedProfit - manualDiscount);
-        
-        details.put("::TOTAL_PROFIT::", new TransactionDetail(finalNetProfit));
-        return details;
-    }
+        // 본사에서 지운 상품 (이전 동기화 때는 있었고, 로컬에서 그 뒤로 바꾸지 않은 것만)
+        List<String> removed = new ArrayList<>();
+        for (String name : productDB.keySet()) {
+            if (!central.contains(name) && pull.knownBefore.contains(name) && !productChanges.isDirty(name)) removed.add(name);
+        }
+        for (String name : removed) {
+            posService.updateCatalog(() -> productDB.remove(name));
+            searchIndex.remove(name);
+            reorderEngine.remove(name);
+            posService.recordProductDeleted(name);
+            tableModel.removeProduct(name);
+            salesInventoryTableModel.removeProduct(name);
+            revenueTableModel.removeProduct(name);
+            currentCart.remove(name);
+            cartTableModel.removeProduct(name);
+            catalogSync.forget(name);
+            changed++;
+        }
 
-    private void refreshTable(String filter) {
-        tableModel.setRowCount(0);
-        String lowerCaseFilter = filter.toLowerCase();
-        
-        for (String key : productDB.keySet()) {
-            Product p = productDB.get(key);
-            
-            if (p.name.toLowerCase().contains(lowerCaseFilter)) {
-                tableModel.addRow(new Object[]{p.name, p.price, p.quantity, p.orderedQuantity, p.profitRate});
+        // 이벤트 규칙: 로컬에서 저장하지 않은 변경이 없으면 본사 값
+        for (EventRule rule : pull.rules.values()) {
+            if (eventChanges.isDirty(rule.ruleName) || eventChanges.isDeleted(rule.ruleName)) continue;
+            EventRule local = eventDB.get(rule.ruleName);
+            if (local != null && sameRule(local, rule)) continue;
+            eventDB.put(rule.ruleName, rule);
+            posService.updatePromotions(engine -> engine.put(rule));
+            history.rulePut(rule);
+            changed++;
+        }
+        // 본사에서 지운 규칙 (상품과 같이, 이전 동기화/저장 때 DB 에 있었던 것만. 아직 저장하지 않은 로컬 규칙은 지우지 않는다)
+        List<String> removedRules = new ArrayList<>();
+        for (String ruleName : eventDB.keySet()) {
+            if (!pull.rules.containsKey(ruleName) && pull.rulesKnownBefore.contains(ruleName) && !eventChanges.isDirty(ruleName)) {
+                removedRules.add(ruleName);
             }
         }
+        for (String ruleName : removedRules) {
+            eventDB.remove(ruleName);
+            posService.updatePromotions(engine -> engine.remove(ruleName));
+            history.ruleRemoved(ruleName);
+            changed++;
+        }
+
+        if (changed > 0) {
+            currentCart.repriceAll();
+            updateTotal();
+            updateCartTable();
+            refreshEventTable.run();
+            updateRevenueProfitLabelInSalesTab();
+        }
+        showSyncStatus(changed);
     }
 
-    private void refreshSalesInventoryTable(String filter) {
-        salesInventoryTableModel.setRowCount(0);
-        String lowerCaseFilter = filter.toLowerCase();
-        
-        for (String key : productDB.keySet()) {
-            Product p = productDB.get(key);
-            
-            if (p.name.toLowerCase().contains(lowerCaseFilter)) {
-                salesInventoryTableModel.addRow(new Object[]{p.name, p.price, p.quantity});
+    // 지난번에 본 본사 값(seen)과 다른 칸만 받는다. seen 이 null 이면 모든 칸을 받는다. 판매량은 로컬 값을 둔다.
+    private boolean adoptCentralFields(Product p, CatalogSync.RemoteProduct remote, CatalogSync.RemoteProduct seen) {
+        boolean updated = false;
+        if ((seen == null || remote.price != seen.price) && p.getPrice() != remote.price) {
+            p.setPrice(remote.price);
+            updated = true;
+        }
+        if ((seen == null || remote.orderedQuantity != seen.orderedQuantity) && p.getOrderedQuantity() != remote.orderedQuantity) {
+            p.setOrderedQuantity(remote.orderedQuantity);
+            updated = true;
+        }
+        if ((seen == null || remote.profitRate != seen.profitRate) && p.getProfitRate() != remote.profitRate) {
+            p.setProfitRate(remote.profitRate);
+            updated = true;
+        }
+        if ((seen == null || remote.barcode != seen.barcode) && p.getBarcode() != remote.barcode) {
+            // 다른 상품이 쓰고 있는 바코드면 로컬 값을 두고, 다음 저장 때 DB 도 그 값으로 되돌린다
+            if (p.setBarcode(remote.barcode)) {
+                updated = true;
+            } else {
+                productChanges.markDirty(p.name);
             }
         }
+        return updated;
+    }
+
+    private static boolean sameRule(EventRule a, EventRule b) {
+        return a.type.equals(b.type) && a.targetProduct.equals(b.targetProduct) && a.value == b.value && a.priority == b.priority
+            && a.startTime == b.startTime && a.endTime == b.endTime;
+    }
+
+    private void showSyncStatus(int changed) {
+        String time = new SimpleDateFormat("HH:mm:ss").format(new java.util.Date(catalogSync.getLastSyncMillis()));
+        StringBuilder status = new StringBuilder("본사 DB 동기화 " + time);
+        if (changed > 0) status.append(", 반영 ").append(changed).append("건");
+        if (catalogSync.getConflicts() > 0) status.append(", 재고 충돌(합침) 누적 ").append(catalogSync.getConflicts()).append("건");
+        loadProgressBar.setString(status.toString());
+    }
+
+    private void showSyncOffline(String error) {
+        long retryIn = Math.max(0, catalogSync.getNextAttemptMillis() - System.currentTimeMillis()) / 1000;
+        loadProgressBar.setString("오프라인: 로컬 캐시로 영업 중 (본사 DB 연결 실패, " + retryIn + "초 뒤 재시도) - " + error);
+    }
+
+    // 상품 하나의 값이 바뀌었을 때, 그 상품을 보여주는 행만 다시 그린다.
+    private void productUpdated(String name) {
+        tableModel.productChanged(name);
+        salesInventoryTableModel.productChanged(name);
+        revenueTableModel.productChanged(name);
     }
 
     private void updateCartTable() {
-        cartTableModel.setRowCount(0);
-        for (String name : currentCart.keySet()) {
-            int qty = currentCart.get(name);
-            Product p = productDB.get(name);
-            if (p != null) {
-                // 수량 변경 시 합계는 Gross Price로 보여줍니다. (실제 이벤트 적용은 totalLabel에서 반영)
-                cartTableModel.addRow(new Object[]{name, p.price, qty, (long)p.price * qty}); 
-            }
+        List<String> names = new ArrayList<>();
+        for (String name : currentCart.names()) {
+            if (productDB.containsKey(name)) names.add(name);
         }
+        Collections.sort(names);
+        cartTableModel.setRows(names);
     }
 
     private void clearManagerFields() {
@@ -1194,10 +1921,412 @@ public class SevenElevenManagement extends JFrame {
         mPriceField.setText("");
         mQtyField.setText("");
         mProfitRateField.setText("");
+        mBarcodeField.setText("");
+    }
+
+    // 입력한 바코드가 올바르고 다른 상품(owner 가 아닌)이 쓰고 있지 않은지 확인. 문제가 있으면 알리고 false
+    private boolean checkBarcode(long barcode, String owner) {
+        if (barcode == BarcodeIndex.NONE) {
+            JOptionPane.showMessageDialog(this, "바코드는 검사 숫자가 맞는 8/12/13/14자리 숫자(GTIN)여야 합니다.");
+            return false;
+        }
+        int id = productDB.idOfBarcode(barcode);
+        if (id >= 0 && !productDB.nameAt(id).equals(owner)) {
+            JOptionPane.showMessageDialog(this, "이 바코드는 이미 '" + productDB.nameAt(id) + "' 상품에 등록되어 있습니다.");
+            return false;
+        }
+        return true;
     }
     
-    private class CartTableModel extends DefaultTableModel {
-        public CartTableModel(String[] headers) { super(headers, 0); }
+    // 📜 상품 하나가 지금 재고에 이르기까지의 변경 이력 (이력 파일 전체를 훑으므로 EDT 밖에서)
+    private void showProductHistory(String name) {
+        new SwingWorker<List<HistoryStore.Entry>, Void>() {
+            @Override
+            protected List<HistoryStore.Entry> doInBackground() throws Exception {
+                return history.productHistory(name, 500);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<HistoryStore.Entry> entries = get();
+                    StringBuilder sb = new StringBuilder();
+                    for (HistoryStore.Entry entry : entries) {
+                        sb.append(entry).append('\n');
+                    }
+                    if (entries.isEmpty()) sb.append("기록된 이력이 없습니다. (이력 기능을 켜기 전의 변경은 기준 스냅샷에만 포함됩니다)");
+                    JTextArea area = new JTextArea(sb.toString(), 20, 70);
+                    area.setEditable(false);
+                    area.setFont(new Font("Monospaced", Font.PLAIN, 12));
+                    JOptionPane.showMessageDialog(SevenElevenManagement.this, new JScrollPane(area), name + " 변경 이력 (최근 500건)", JOptionPane.PLAIN_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(SevenElevenManagement.this, "이력 조회 중 오류: " + cause.getMessage(), "오류", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    // 📥 CSV/TSV 파일로 상품 또는 이벤트 일괄 등록 (같은 이름은 파일 내용으로 교체)
+    private void importCatalog() {
+        String[] kinds = {"상품", "이벤트"};
+        int kind = JOptionPane.showOptionDialog(this, "가져올 목록을 선택하세요.", "CSV/TSV 가져오기",
+            JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, kinds, kinds[0]);
+        if (kind < 0) return;
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        // 아직 저장하지 않은 변경이 가져온 값을 다시 덮어쓰지 않도록 먼저 저장
+        if (!saveChangesToDB()) {
+            JOptionPane.showMessageDialog(this, "기존 변경 사항을 저장하지 못해 가져오기를 취소합니다.", "오류", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        new CatalogImportWorker(chooser.getSelectedFile(), kind == 0).execute();
+    }
+
+    // 📤 상품 또는 이벤트 목록을 CSV/TSV 파일로 내보내기 (.tsv 는 탭, 그 외는 쉼표)
+    private void exportCatalog() {
+        String[] kinds = {"상품", "이벤트"};
+        int kind = JOptionPane.showOptionDialog(this, "내보낼 목록을 선택하세요.", "CSV/TSV 내보내기",
+            JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, kinds, kinds[0]);
+        if (kind < 0) return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File(kind == 0 ? "products.csv" : "events.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        if (!saveChangesToDB()) {
+            JOptionPane.showMessageDialog(this, "변경 사항을 DB에 저장하지 못해 내보내기를 취소합니다.", "오류", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        new SwingWorker<CatalogTransfer.Result, Void>() {
+            @Override
+            protected CatalogTransfer.Result doInBackground() throws Exception {
+                try (Connection conn = getConnection()) {
+                    if (kind == 0) ensureProductColumns(conn);
+                    return kind == 0 ? CatalogTransfer.exportProducts(conn, file) : CatalogTransfer.exportEvents(conn, file);
+                }
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    CatalogTransfer.Result result = get();
+                    JOptionPane.showMessageDialog(SevenElevenManagement.this,
+                        String.format("%s %,d건을 내보냈습니다. (%,.0f건/초)%n%s", kinds[kind], result.rows, result.rowsPerSecond(), file.getPath()));
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(SevenElevenManagement.this, "내보내기 중 오류: " + cause.getMessage(), "오류", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    // ⏳ 가져오기를 EDT 밖에서 수행하고, DB에 커밋된 묶음만 화면(메모리)에 반영한다.
+    // 가져온 값은 이미 DB에 있으므로 변경 추적(markDirty)은 하지 않는다.
+    private class CatalogImportWorker extends SwingWorker<CatalogTransfer.Result, Object> {
+        private final File file;
+        private final boolean products;
+        private long applied = 0;
+
+        CatalogImportWorker(File file, boolean products) {
+            this.file = file;
+            this.products = products;
+        }
+
+        @Override
+        protected CatalogTransfer.Result doInBackground() throws Exception {
+            try (Connection conn = getConnection()) {
+                if (products) {
+                    ensureProductColumns(conn);
+                    return CatalogTransfer.importProducts(file, conn, this::publish);
+                }
+                ensureEventRuleColumns(conn);
+                return CatalogTransfer.importEvents(file, conn, this::publish);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void process(List<Object> chunks) {
+            String managerFilter = mSearchField.getText().trim();
+            String salesFilter = sSearchField.getText().trim();
+            for (Object chunk : chunks) {
+                if (chunk instanceof ProductStore) {
+                    for (Product imported : ((ProductStore) chunk).values()) {
+                        Product p = productDB.get(imported.name);
+                        if (p != null) {
+                            // 재고/판매량은 동시에 들어오는 HTTP 결제와 같은 줄 잠금 안에서 덮어쓴다
+                            posService.updateProduct(p.name, cur -> {
+                                cur.setPrice(imported.getPrice());
+                                cur.setQuantity(imported.getQuantity());
+                                cur.setOrderedQuantity(imported.getOrderedQuantity());
+                                productDB.setSoldQuantity(cur.id, imported.getSoldQuantity());
+                                cur.setProfitRate(imported.getProfitRate());
+                            });
+                            // 파일의 바코드가 다른 상품의 것이면 화면 쪽 바코드를 유지하고, 다음 저장 때 DB 도 그 값으로 되돌린다
+                            if (imported.getBarcode() != BarcodeIndex.NONE
+                                    && !posService.updateCatalog(() -> p.setBarcode(imported.getBarcode()))) productChanges.markDirty(p.name);
+                            posService.recordProductChange(HistoryStore.Kind.IMPORT, p);
+                            catalogSync.reset(CatalogSync.RemoteProduct.of(imported));
+                            continue;
+                        }
+                        Product added = posService.updateCatalog(() -> productDB.add(imported));
+                        if (added.getBarcode() != imported.getBarcode()) productChanges.markDirty(added.name);
+                        posService.recordProductChange(HistoryStore.Kind.IMPORT, added);
+                        catalogSync.reset(CatalogSync.RemoteProduct.of(imported));
+                        searchIndex.add(imported.name);
+                        if (ProductSearchIndex.matches(imported.name, managerFilter)) tableModel.addProduct(imported.name);
+                        if (ProductSearchIndex.matches(imported.name, salesFilter)) salesInventoryTableModel.addProduct(imported.name);
+                    }
+                    applied += ((ProductStore) chunk).size();
+                } else {
+                    for (EventRule rule : (List<EventRule>) chunk) {
+                        eventDB.put(rule.ruleName, rule);
+                        posService.updatePromotions(engine -> engine.put(rule));
+                        history.rulePut(rule);
+                        catalogSync.rulesSaved(Collections.singletonList(rule.ruleName), Collections.emptyList());
+                    }
+                    applied += ((List<EventRule>) chunk).size();
+                }
+            }
+            loadProgressBar.setString("가져오는 중... " + applied + "건");
+        }
+
+        @Override
+        protected void done() {
+            refreshTable(mSearchField.getText().trim());
+            refreshSalesInventoryTable(sSearchField.getText().trim());
+            currentCart.repriceAll();
+            updateTotal();
+            loadProgressBar.setString("가져오기 완료: " + applied + "건");
+            try {
+                CatalogTransfer.Result result = get();
+                StringBuilder message = new StringBuilder(String.format("%,d건을 가져왔습니다. (%,.0f건/초, %.1f초)",
+                    result.rows, result.rowsPerSecond(), result.nanos / 1e9));
+                if (result.skipped > 0) {
+                    message.append(String.format("%n건너뛴 행 %,d건:", result.skipped));
+                    for (String error : result.errors) message.append("\n  ").append(error);
+                    if (result.errors.size() < result.skipped) message.append("\n  ...");
+                }
+                JOptionPane.showMessageDialog(SevenElevenManagement.this, message.toString());
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                JOptionPane.showMessageDialog(SevenElevenManagement.this,
+                    "가져오기 중 오류: " + cause.getMessage() + "\n이미 커밋된 " + applied + "건은 반영되었습니다.", "오류", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    // ⏳ 시작 시 DB 로드를 EDT 밖에서 수행하고, 읽은 상품은 묶음 단위로 표에 바로 추가한다.
+    // 이 점포의 이력(로컬 캐시)이 있으면 DB 를 기다리지 않고 캐시로 바로 열며, DB 와는 CatalogSync 가 뒤에서 맞춘다.
+    private class StartupLoader extends SwingWorker<Void, ProductStore> {
+        private boolean fromCache = false;
+        private int loadedCount = 0;
+        private Exception productLoadError;
+        private HashMap<String, EventRule> loadedEvents;
+        private Long loadedRevenue;
+        private final StringBuilder phaseTimes = new StringBuilder();
+        private long phaseStart;
+        private long replayedEvents;
+
+        @Override
+        protected Void doInBackground() {
+            // 📜 최근 스냅샷 + 그 이후 이벤트로 이력 상태 복원 (이 점포의 로컬 캐시)
+            beginPhase();
+            try {
+                replayedEvents = history.open(); // 몇 개를 다시 적용했는지는 로드 완료 문구에 함께 보인다
+                history.start();
+            } catch (IOException e) {
+                System.err.println("이력 저장소 초기화 중 오류: " + e.getMessage());
+            }
+            fromCache = !history.isEmpty();
+            endPhase("이력");
+
+            // 🧾 지난 실행에서 DB에 반영되지 못한 판매 내역을 먼저 반영 (처음 여는 점포면 스키마와 테이블부터 만든다)
+            // 캐시로 여는 경우에는 DB 를 기다리지 않는다. 남은 판매는 동기화 작업자가 처음 DB 에 닿을 때 반영한다.
+            beginPhase();
+            if (!fromCache) {
+                try {
+                    StoreShards.createSchema(dbPool, DB_SCHEMA);
+                } catch (SQLException e) {
+                    System.err.println("점포 " + STORE_ID + " 스키마 확인 중 DB 오류: " + e.getMessage());
+                }
+                try (Connection conn = getConnection()) {
+                    ensureStoreTables(conn);
+                } catch (Exception e) {
+                    System.err.println("점포 " + STORE_ID + " 테이블 확인 중 DB 오류: " + e.getMessage());
+                }
+            }
+            try {
+                salesJournal.recover(!fromCache);
+                salesJournal.start();
+            } catch (IOException e) {
+                System.err.println("판매 저널 초기화 중 오류: " + e.getMessage());
+            }
+            try {
+                receiptLog.open();
+            } catch (IOException e) {
+                System.err.println("영수증 로그 초기화 중 오류: " + e.getMessage());
+            }
+            endPhase("저널 복구");
+
+            if (fromCache) {
+                beginPhase();
+                publish(history.copyProducts());
+                endPhase("로컬 캐시");
+                return null;
+            }
+
+            beginPhase();
+            try {
+                loadProductsFromDB(this::publish);
+            } catch (Exception e) {
+                productLoadError = e;
+            }
+            endPhase("상품");
+
+            beginPhase();
+            loadedEvents = loadEventsFromDB();
+            endPhase("이벤트");
+
+            beginPhase();
+            loadedRevenue = loadRevenueFromDB();
+            endPhase("매출");
+
+            beginPhase();
+            loadRollupFromDB();
+            endPhase("매출 집계");
+            return null;
+        }
+
+        @Override
+        protected void process(List<ProductStore> chunks) {
+            String managerFilter = mSearchField.getText().trim();
+            String salesFilter = sSearchField.getText().trim();
+            for (ProductStore chunk : chunks) {
+                for (Product p : chunk.values()) {
+                    if (productDB.add(p) == null) continue; // 로드 도중 직접 등록한 상품은 유지
+                    searchIndex.add(p.name);
+                    if (ProductSearchIndex.matches(p.name, managerFilter)) {
+                        tableModel.addProduct(p.name);
+                    }
+                    if (ProductSearchIndex.matches(p.name, salesFilter)) {
+                        salesInventoryTableModel.addProduct(p.name);
+                    }
+                }
+                loadedCount += chunk.size();
+            }
+            loadProgressBar.setString("상품 불러오는 중... " + loadedCount + "개");
+        }
+
+        @Override
+        protected void done() {
+            if (fromCache) {
+                startFromCache();
+            } else {
+                startFromDB();
+            }
+
+            seedReorderEngine();
+
+            refreshTable(mSearchField.getText().trim());
+            refreshSalesInventoryTable(sSearchField.getText().trim());
+            updateRevenueProfitLabelInSalesTab();
+            tabbedPane.setEnabledAt(2, true);
+
+            String summary = (fromCache ? "로컬 캐시로 시작" : "로드 완료") + ": 상품 " + productDB.size() + "개, 이벤트 " + eventDB.size() + "개"
+                             + (fromCache ? ", 이력 " + replayedEvents + "건 재적용" : "") + " (" + phaseTimes + ")";
+            loadProgressBar.setIndeterminate(false);
+            loadProgressBar.setValue(loadProgressBar.getMaximum());
+            loadProgressBar.setString(summary);
+
+            // 재고가 모두 올라온 뒤에야 외부 결제를 받는다
+            if (posApi.getPort() > 0) {
+                try {
+                    posApi.start();
+                    // 상태 막대 문구는 동기화 상태로 바뀌므로 API 주소는 툴팁에 둔다
+                    loadProgressBar.setToolTipText("POS 서비스 API: http://127.0.0.1:" + posApi.getPort() + "/api/");
+                } catch (IOException e) {
+                    System.err.println("POS 서비스 API 시작 실패: " + e.getMessage());
+                }
+            }
+            catalogSync.start();
+        }
+
+        // 캐시의 재고를 DB 에 있다고 알고 있는 재고(base)로 두고 시작한다. 매출은 다음 저장 때 DB 에 다시 쓴다.
+        private void startFromCache() {
+            for (EventRule rule : history.copyRules()) {
+                if (eventDB.putIfAbsent(rule.ruleName, rule) == null) promotionEngine.put(rule);
+            }
+            currentCart.repriceAll();
+            posService.setRevenue(history.getRevenue());
+            savedRevenue = -1;
+            catalogSync.initBase(productDB.values(), eventDB.keySet());
+        }
+
+        // 로컬 캐시가 없는 처음 여는 점포: DB 에서 읽은 상태를 이력의 기준 스냅샷으로 남긴다 (다음부터는 이 캐시로 연다)
+        private void startFromDB() {
+            if (productLoadError != null) {
+                JOptionPane.showMessageDialog(SevenElevenManagement.this, "상품 데이터 로드 중 DB 오류: " + productLoadError.getMessage()
+                    + "\n초기 샘플 데이터로 시작합니다.", "DB 오류", JOptionPane.ERROR_MESSAGE);
+                loadSampleProducts();
+                productLoadError.printStackTrace();
+            }
+            if (loadedEvents != null) {
+                for (EventRule rule : loadedEvents.values()) {
+                    if (eventDB.putIfAbsent(rule.ruleName, rule) == null) promotionEngine.put(rule);
+                }
+                currentCart.repriceAll();
+            }
+            if (loadedRevenue != null) {
+                posService.setRevenue(loadedRevenue);
+                savedRevenue = loadedRevenue;
+            } else {
+                savedRevenue = -1; // 다음 저장 때 revenue_data 행을 반드시 기록
+            }
+
+            try {
+                history.baseline(productDB.values(), eventDB.values(), posService.getRevenue());
+            } catch (IOException e) {
+                System.err.println("이력 기준 스냅샷 저장 중 오류: " + e.getMessage());
+            }
+        }
+
+        // 지난 30일의 일별 판매량으로 판매 속도 초기값을 채운다 (각 날의 판매는 그날 정오에 있었던 것으로 본다)
+        private void seedReorderEngine() {
+            long now = System.currentTimeMillis();
+            long halfDay = SalesRollup.Granularity.DAY.millis / 2;
+            for (String name : productDB.keySet()) {
+                for (SalesRollup.Row row : salesRollup.recentForProduct(name, SalesRollup.Granularity.DAY, now, 30)) {
+                    if (row.quantity > 0) reorderEngine.recordSale(name, row.quantity, Math.min(now, row.start + halfDay));
+                }
+            }
+        }
+
+        private void beginPhase() {
+            phaseStart = System.nanoTime();
+        }
+
+        private void endPhase(String phase) {
+            if (phaseTimes.length() > 0) phaseTimes.append(", ");
+            phaseTimes.append(phase).append(' ').append((System.nanoTime() - phaseStart) / 1_000_000).append("ms");
+        }
+    }
+
+    private class CartTableModel extends ProductTableModel {
+        private static final long serialVersionUID = 1L;
+
+        public CartTableModel(String[] headers) { super(productDB, headers); }
+        @Override
+        protected Object getColumnValue(Product p, int column) {
+            int qty = currentCart.getQuantity(p.name);
+            switch (column) {
+                case 0: return p.name;
+                case 1: return (long) p.getPrice();
+                case 2: return (long) qty;
+                // 수량 변경 시 합계는 Gross Price로 보여줍니다. (실제 이벤트 적용은 totalLabel에서 반영)
+                default: return (long) p.getPrice() * qty;
+            }
+        }
         @Override
         public boolean isCellEditable(int row, int column) { return column == 2; }
         @Override
@@ -1205,6 +2334,10 @@ public class SevenElevenManagement extends JFrame {
             if (columnIndex == 1 || columnIndex == 2 || columnIndex == 3) { return Long.class; }
             return String.class;
         }
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            if (column == 2) applyCartQuantityEdit(getNameAt(row), value);
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,213 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 🧪 여러 점포/여러 샤드 구성을 한 프로세스 안에서 확인하는 하네스
+// 1) 라우팅: 점포가 샤드에 고르게 나뉘는지, 샤드를 더하거나 빼면 얼마나 옮겨 가는지, 샤드 순서와 관계없이 같은 배치인지 (DB 없이)
+// 2) 점포 인스턴스: -Dharness.url 을 주면 점포마다 PosCore 인스턴스를 하나씩 띄워 동시에 결제하고, 자기 샤드 스키마에 저장한 뒤
+//    HeadOffice 집계가 인스턴스들이 계산한 합과 맞는지 본다.
+//    url 은 샤드 서버의 JDBC 주소이고, {shard} 자리에는 샤드 이름이 들어간다. 로컬 MySQL 을 쓰거나, 드라이버를 classpath 에 두면 내장 DB 도 쓸 수 있다.
+//      예) -Dharness.url='jdbc:mysql://localhost:3306/?serverTimezone=UTC&rewriteBatchedStatements=true'   (샤드가 모두 같은 서버)
+//      예) -Dharness.url='jdbc:h2:mem:{shard};MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1'
+//    본사 집계가 없는 점포를 실패로 돌려주고 그 스키마를 만들지 않는지도 본다.
+// 실행: java StoreShardHarness [샤드 수] [점포 수]     실패하면 종료 코드 1
+public class StoreShardHarness {
+    private static final int PRODUCTS_PER_STORE = 50;
+    private static final int CHECKOUTS_PER_STORE = 2_000;
+    private static boolean failed = false;
+
+    public static void main(String[] args) throws Exception {
+        int shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int storeCount = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        checkRouting(shardCount, storeCount);
+
+        String url = System.getProperty("harness.url");
+        if (url == null) {
+            System.out.println("점포 인스턴스 확인은 건너뜀 (-Dharness.url 로 JDBC 주소를 주면 실행)");
+        } else {
+            checkInstances(url, shardCount, Math.min(storeCount, Integer.getInteger("harness.stores", 8)));
+        }
+        System.out.println(failed ? "실패" : "통과");
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static void check(boolean ok, String message) {
+        System.out.println((ok ? "  ok   " : "  FAIL ") + message);
+        if (!ok) failed = true;
+    }
+
+    private static List<StoreShards.Shard> shards(int count, String urlTemplate) {
+        List<StoreShards.Shard> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) list.add(new StoreShards.Shard("shard" + i, urlTemplate.replace("{shard}", "shard" + i), "seven", "0000", 1));
+        return list;
+    }
+
+    private static List<String> storeIds(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) ids.add(String.format("store%05d", i));
+        return ids;
+    }
+
+    // 1) 라우팅
+    private static void checkRouting(int shardCount, int storeCount) {
+        System.out.println("라우팅 (샤드 " + shardCount + "개, 점포 " + storeCount + "곳)");
+        String template = "jdbc:none:{shard}";
+        List<String> stores = storeIds(storeCount);
+        StoreShards ring = new StoreShards(shards(shardCount, template));
+
+        Map<String, Integer> perShard = new HashMap<>();
+        for (String store : stores) perShard.merge(ring.shardOf(store).name, 1, Integer::sum);
+        int min = Collections.min(perShard.values()), max = Collections.max(perShard.values());
+        double ideal = (double) storeCount / shardCount;
+        System.out.println("  샤드별 점포 수 " + perShard);
+        check(perShard.size() == shardCount && max <= ideal * 1.35 && min >= ideal * 0.65,
+              String.format("고르게 나뉨 (최소 %d, 최대 %d, 평균 %.0f)", min, max, ideal));
+
+        List<StoreShards.Shard> reversed = shards(shardCount, template);
+        Collections.reverse(reversed);
+        StoreShards sameRing = new StoreShards(reversed);
+        int differs = 0;
+        for (String store : stores) if (!ring.shardOf(store).name.equals(sameRing.shardOf(store).name)) differs++;
+        check(differs == 0, "샤드를 적은 순서와 관계없이 같은 배치 (다른 점포 " + differs + "곳)");
+
+        StoreShards grown = new StoreShards(shards(shardCount + 1, template));
+        int moved = 0, movedElsewhere = 0;
+        String added = "shard" + shardCount;
+        for (String store : stores) {
+            String before = ring.shardOf(store).name, after = grown.shardOf(store).name;
+            if (!before.equals(after)) {
+                moved++;
+                if (!after.equals(added)) movedElsewhere++;
+            }
+        }
+        double expected = 1.0 / (shardCount + 1);
+        check(movedElsewhere == 0 && Math.abs((double) moved / storeCount - expected) < expected * 0.5,
+              String.format("샤드 추가 시 %.1f%% 이동 (기대 %.1f%%), 새 샤드가 아닌 곳으로 옮긴 점포 %d곳",
+                            100.0 * moved / storeCount, 100 * expected, movedElsewhere));
+
+        if (shardCount > 1) {
+            StoreShards shrunk = new StoreShards(shards(shardCount - 1, template));
+            String removed = "shard" + (shardCount - 1);
+            int wrongMoves = 0;
+            for (String store : stores) {
+                String before = ring.shardOf(store).name;
+                if (!before.equals(removed) && !before.equals(shrunk.shardOf(store).name)) wrongMoves++;
+            }
+            check(wrongMoves == 0, "샤드를 빼면 그 샤드의 점포만 옮겨 감 (다른 점포 이동 " + wrongMoves + "곳)");
+        }
+
+        String pinnedStore = stores.get(0);
+        String target = ring.shardOf(pinnedStore).name.equals("shard0") && shardCount > 1 ? "shard1" : "shard0";
+        ring.pin(pinnedStore, target);
+        check(ring.shardOf(pinnedStore).name.equals(target), "고정 배치가 해시 링보다 우선");
+    }
+
+    // 2) 점포 인스턴스마다 동시에 결제 -> 각자 샤드에 저장 -> 본사 집계와 비교
+    private static void checkInstances(String urlTemplate, int shardCount, int storeCount) throws Exception {
+        System.out.println("점포 인스턴스 (샤드 " + shardCount + "개, 점포 " + storeCount + "곳)");
+        StoreShards shards = new StoreShards(shards(shardCount, urlTemplate));
+        List<String> stores = new ArrayList<>();
+        for (int i = 0; i < storeCount; i++) stores.add("harness" + i);
+
+        Map<String, Long> expectedRevenue = new HashMap<>();
+        Map<String, Long> expectedStock = new HashMap<>();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(stores.size());
+        for (String store : stores) {
+            new Thread(() -> {
+                try {
+                    long[] result = runStore(shards, store);
+                    synchronized (expectedRevenue) {
+                        expectedRevenue.put(store, result[0]);
+                        expectedStock.put(store, result[1]);
+                    }
+                } catch (Exception e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "store-" + store).start();
+        }
+        done.await();
+        if (error.get() != null) {
+            check(false, "점포 인스턴스 실행 오류: " + error.get());
+            shards.shutdown();
+            return;
+        }
+
+        HeadOffice.ChainReport report = new HeadOffice(shards).aggregate(stores);
+        long revenue = 0, stock = 0;
+        for (String store : stores) {
+            revenue += expectedRevenue.get(store);
+            stock += expectedStock.get(store);
+        }
+        Set<String> usedShards = new LinkedHashSet<>();
+        for (HeadOffice.StoreTotals s : report.stores) usedShards.add(s.shard);
+        check(report.failures.isEmpty(), "모든 점포 응답 " + report.failures);
+        check(report.revenue == revenue, "체인 매출 " + report.revenue + " == 점포 합 " + revenue);
+        check(report.stockUnits == stock, "체인 재고 " + report.stockUnits + " == 점포 합 " + stock);
+        System.out.printf("  본사 집계 %.1fms, 사용한 샤드 %s%n", report.nanos / 1e6, usedShards);
+
+        String typo = "harness_typo";
+        HeadOffice.ChainReport missing = new HeadOffice(shards).aggregate(Collections.singletonList(typo));
+        check(missing.stores.isEmpty() && missing.failures.containsKey(typo), "없는 점포는 집계 실패로 남음 " + missing.failures);
+        boolean created;
+        try (Connection conn = shards.connect(typo)) {
+            created = !conn.isClosed();
+        } catch (SQLException e) {
+            created = false;
+        }
+        check(!created, "본사 집계가 없는 점포의 스키마를 만들지 않음");
+        shards.shutdown();
+    }
+
+    // 점포 하나: 자기 스키마를 비우고 상품을 넣은 뒤 결제하고, 결과를 저장한다. {매출, 남은 재고 합} 을 돌려준다.
+    private static long[] runStore(StoreShards shards, String store) throws SQLException {
+        ProductStore products = new ProductStore(PRODUCTS_PER_STORE);
+        Set<String> names = new LinkedHashSet<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < PRODUCTS_PER_STORE; i++) {
+            String name = String.format("상품%03d", i);
+            products.add(name, 1000 + 100 * random.nextInt(20), 200 + random.nextInt(200), 0, 0, 10);
+            names.add(name);
+        }
+        PosCore core = new PosCore(products, new PromotionEngine());
+        String[] nameArray = names.toArray(new String[0]);
+        for (int i = 0; i < CHECKOUTS_PER_STORE; i++) {
+            Map<String, Integer> cart = new HashMap<>();
+            cart.put(nameArray[random.nextInt(nameArray.length)], 1 + random.nextInt(3));
+            core.checkout(cart, 0);
+        }
+        long stock = 0;
+        for (Product p : products.values()) stock += p.getQuantity();
+
+        StoreShards.createSchema(shards.poolFor(store), StoreShards.schemaOf(store));
+        try (Connection conn = shards.connect(store)) {
+            SevenElevenManagement.ensureStoreTables(conn);
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM products")) {
+                stmt.executeUpdate();
+            }
+            SevenElevenManagement.saveProductsToDB(conn, products, names, Collections.emptySet());
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO revenue_data (id, total_revenue) VALUES (1, ?) ON DUPLICATE KEY UPDATE total_revenue = ?")) {
+                stmt.setLong(1, core.getRevenue());
+                stmt.setLong(2, core.getRevenue());
+                stmt.executeUpdate();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        return new long[]{core.getRevenue(), stock};
+    }
+}
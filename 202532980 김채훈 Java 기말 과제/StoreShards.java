@@ -0,0 +1,205 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+// 🏬 여러 점포의 데이터를 DB 서버(샤드) 여러 대에 나눠 두는 라우팅 (일관 해싱)
+// - 점포마다 자기 스키마(seven_eleven_<점포ID>)를 가지며, 그 스키마가 어느 서버에 있는지는 해시 링이 정한다.
+//   그래서 products / event_rules / revenue_data 는 점포 안에서는 이전과 같은 모양 그대로 쓴다 (revenue_data 의 id = 1 도 점포마다 하나).
+// - 커넥션 풀은 서버마다 하나다. 점포 수와 관계없이 서버당 연결은 POOL_SIZE_PER_SHARD 개까지이고,
+//   connect(점포) 가 빌릴 때마다 그 점포 스키마를 고른다.
+// - 스키마는 점포 POS 가 createSchema 로 만든다. 본사 집계처럼 읽기만 하는 쪽은 만들지 않으므로 잘못된 점포 ID 는 오류가 된다.
+// - 서버마다 가상 노드를 VIRTUAL_NODES x 가중치 개 링에 올려, 서버를 하나 더해도 점포의 약 1/N 만 옮겨 가게 한다.
+// - 이미 데이터가 있는 점포를 옮기지 않으려면 store.<점포ID>.shard 로 서버를 고정할 수 있다 (옮길 점포를 하나씩 이전할 때).
+// - 설정이 없으면 샤드 하나(localhost)와 기본 점포 하나(기존 seven_eleven_db 스키마)로 예전과 똑같이 동작한다.
+//
+// 설정 파일 (-Dpos.shards=shards.properties):
+//   shard.<이름>.url      = jdbc:mysql://db1:3306/?serverTimezone=UTC&useCursorFetch=true&connectTimeout=5000&socketTimeout=30000
+//                          (서버 주소만, 스키마는 넣지 않는다. 서버가 응답하지 않을 때 저장/동기화가 끝없이 기다리지 않도록 시간 제한을 둔다)
+//   shard.<이름>.user     = seven
+//   shard.<이름>.password = 0000
+//   shard.<이름>.weight   = 1          (선택, 서버 용량 비율)
+//   store.<점포ID>.shard  = <이름>      (선택, 고정 배치)
+//   stores               = gangnam,jamsil,...   (본사 집계 대상 점포)
+class StoreShards {
+    static final String DEFAULT_STORE = "default";
+    static final String DEFAULT_SCHEMA = "seven_eleven_db";
+    static final int VIRTUAL_NODES = 128;
+    private static final int POOL_SIZE_PER_SHARD = 8;
+    private static final long BORROW_TIMEOUT_MILLIS = 10_000;
+
+    // DB 서버 하나
+    static final class Shard {
+        final String name;
+        final String url;
+        final String user;
+        final String password;
+        final int weight;
+
+        Shard(String name, String url, String user, String password, int weight) {
+            if (url.contains("{schema}")) throw new IllegalArgumentException("샤드 " + name + " 의 url 에는 스키마 없이 서버 주소만 적습니다: " + url);
+            if (weight <= 0) throw new IllegalArgumentException("샤드 " + name + " 의 weight 는 1 이상이어야 합니다");
+            this.name = name;
+            this.url = url;
+            this.user = user;
+            this.password = password;
+            this.weight = weight;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+    private final TreeMap<Long, Shard> ring = new TreeMap<>();
+    private final Map<String, String> pinned = new HashMap<>();
+    private final List<String> stores = new ArrayList<>();
+    private final Map<String, ConnectionPool> pools = new HashMap<>(); // 샤드 이름 -> 풀
+
+    public StoreShards(List<Shard> shardList) {
+        if (shardList.isEmpty()) throw new IllegalArgumentException("샤드가 하나 이상 있어야 합니다");
+        for (Shard shard : shardList) {
+            if (shards.putIfAbsent(shard.name, shard) != null) throw new IllegalArgumentException("샤드 이름이 겹칩니다: " + shard.name);
+            for (int v = 0; v < VIRTUAL_NODES * shard.weight; v++) {
+                // 드물게 해시가 겹치면 이름 순으로 앞선 샤드가 가진다 (어느 프로세스에서 만들어도 같은 링이 되도록)
+                ring.merge(hash(shard.name + "#" + v), shard, (a, b) -> a.name.compareTo(b.name) <= 0 ? a : b);
+            }
+        }
+    }
+
+    // 설정이 없을 때: 예전처럼 localhost 의 seven_eleven_db 하나
+    static StoreShards localDefault(String user, String password) {
+        return new StoreShards(Collections.singletonList(new Shard("local",
+                "jdbc:mysql://localhost:3306/?serverTimezone=UTC&useCursorFetch=true&connectTimeout=5000&socketTimeout=30000",
+                user, password, 1)));
+    }
+
+    // -Dpos.shards 로 지정한 설정 파일을 읽는다. 지정하지 않았으면 localDefault
+    static StoreShards load(String defaultUser, String defaultPassword) throws IOException {
+        String path = System.getProperty("pos.shards");
+        if (path == null || path.isEmpty()) return localDefault(defaultUser, defaultPassword);
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(new File(path))) {
+            props.load(new java.io.InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        return fromProperties(props, defaultUser, defaultPassword);
+    }
+
+    static StoreShards fromProperties(Properties props, String defaultUser, String defaultPassword) {
+        List<String> names = new ArrayList<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("shard.") && key.endsWith(".url")) names.add(key.substring("shard.".length(), key.length() - ".url".length()));
+        }
+        Collections.sort(names);
+        List<Shard> list = new ArrayList<>();
+        for (String name : names) {
+            String prefix = "shard." + name + ".";
+            list.add(new Shard(name, props.getProperty(prefix + "url"), props.getProperty(prefix + "user", defaultUser),
+                               props.getProperty(prefix + "password", defaultPassword),
+                               Integer.parseInt(props.getProperty(prefix + "weight", "1").trim())));
+        }
+        StoreShards result = new StoreShards(list);
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("store.") && key.endsWith(".shard")) {
+                result.pin(key.substring("store.".length(), key.length() - ".shard".length()), props.getProperty(key).trim());
+            }
+        }
+        String storeList = props.getProperty("stores", "");
+        for (String store : storeList.split(",")) {
+            if (!store.trim().isEmpty()) result.stores.add(checkStoreId(store.trim()));
+        }
+        return result;
+    }
+
+    // 점포를 특정 샤드에 고정 (해시 링보다 우선)
+    public synchronized void pin(String storeId, String shardName) {
+        if (!shards.containsKey(shardName)) throw new IllegalArgumentException("없는 샤드입니다: " + shardName);
+        pinned.put(checkStoreId(storeId), shardName);
+    }
+
+    public Shard shardOf(String storeId) {
+        String pinnedShard;
+        synchronized (this) {
+            pinnedShard = pinned.get(storeId);
+        }
+        if (pinnedShard != null) return shards.get(pinnedShard);
+        Map.Entry<Long, Shard> e = ring.ceilingEntry(hash(storeId));
+        return (e != null ? e : ring.firstEntry()).getValue();
+    }
+
+    // 점포 스키마 이름 (기본 점포는 예전 스키마를 그대로 쓴다)
+    static String schemaOf(String storeId) {
+        return storeId.equals(DEFAULT_STORE) ? DEFAULT_SCHEMA : "seven_eleven_" + checkStoreId(storeId);
+    }
+
+    // 스키마 이름과 파일 경로에 그대로 쓰므로 영문 소문자/숫자/밑줄만 (최대 32자)
+    static String checkStoreId(String storeId) {
+        if (!storeId.matches("[a-z0-9_]{1,32}")) throw new IllegalArgumentException("점포 ID 는 영문 소문자/숫자/_ 1~32자여야 합니다: " + storeId);
+        return storeId;
+    }
+
+    // 이 점포가 있는 서버의 커넥션 풀 (서버마다 하나, 처음 쓸 때 만든다). 빌릴 때 borrow(schemaOf(점포)) 로 스키마를 고른다.
+    public synchronized ConnectionPool poolFor(String storeId) {
+        Shard shard = shardOf(storeId);
+        ConnectionPool pool = pools.get(shard.name);
+        if (pool == null) {
+            pool = new ConnectionPool(shard.url, shard.user, shard.password, POOL_SIZE_PER_SHARD, BORROW_TIMEOUT_MILLIS);
+            pools.put(shard.name, pool);
+        }
+        return pool;
+    }
+
+    // 이 점포 스키마를 고른 연결. 스키마가 없으면 만들지 않고 SQLException
+    public Connection connect(String storeId) throws SQLException {
+        return poolFor(storeId).borrow(schemaOf(storeId));
+    }
+
+    // 점포 스키마가 없으면 만든다 (schema 는 schemaOf 가 만든 이름이라 그대로 SQL 에 넣어도 된다)
+    static void createSchema(ConnectionPool pool, String schema) throws SQLException {
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE SCHEMA IF NOT EXISTS " + schema);
+        }
+    }
+
+    public List<String> getStores() {
+        return Collections.unmodifiableList(stores);
+    }
+
+    public Map<String, Shard> getShards() {
+        return Collections.unmodifiableMap(shards);
+    }
+
+    public synchronized void shutdown() {
+        for (ConnectionPool pool : pools.values()) pool.shutdown();
+        pools.clear();
+    }
+
+    // MD5 앞 8바이트. 점포 ID 처럼 앞부분이 비슷한 문자열도 링 위에 고르게 흩어진다.
+    static long hash(String key) {
+        try {
+            byte[] d = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) h = (h << 8) | (d[i] & 0xFF);
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+// 🧾 결제 한 건의 상품별 내역 (영수증/판매 저널/이력에 기록)
+class TransactionDetail {
+    String name;
+    long unitPrice;
+    int quantity;
+    long itemFinalPrice;
+    long itemNetProfit;
+    int freeCount; 
+    
+    public TransactionDetail(String name, long unitPrice, int quantity, long itemFinalPrice, long itemNetProfit, int freeCount) {
+        this.name = name;
+        this.unitPrice = unitPrice;
+        this.quantity = quantity;
+        this.itemFinalPrice = itemFinalPrice;
+        this.itemNetProfit = itemNetProfit;
+        this.freeCount = freeCount;
+    }
+}
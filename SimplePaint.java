@@ -2,8 +2,15 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.RasterFormatException;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -21,6 +28,11 @@ public class SimplePaint extends JFrame {
     private DrawPanel drawPanel;
     private JLabel statusLabel;
 
+    // 🧩 부분 다시 그리기 단위 (캔버스를 이 크기의 타일로 나눈다)
+    static final int TILE_SIZE = 64;
+    // ↩️ 실행 취소 기록의 메모리 한도 (-Dpaint.undo.mb, 기본 64MB). 넘으면 가장 오래된 작업부터 버린다
+    static final long UNDO_BUDGET_BYTES = Long.getLong("paint.undo.mb", 64L) * 1024 * 1024;
+
     public SimplePaint() {
         setTitle("자바 그림판 (Java Paint) ver-1.1");
         setSize(1000, 700);
@@ -73,6 +85,15 @@ public class SimplePaint extends JFrame {
         pasteItem.addActionListener(e -> drawPanel.pasteSelection());
         pasteItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_V, InputEvent.CTRL_DOWN_MASK));
 
+        JMenuItem undoItem = new JMenuItem("실행 취소");
+        undoItem.addActionListener(e -> drawPanel.undo());
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+
+        JMenuItem redoItem = new JMenuItem("다시 실행");
+        redoItem.addActionListener(e -> drawPanel.redo());
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+
+        editMenu.add(undoItem); editMenu.add(redoItem); editMenu.addSeparator();
         editMenu.add(cutItem); editMenu.add(copyItem); editMenu.add(pasteItem);
 
         JMenu helpMenu = new JMenu("정보");
@@ -186,9 +207,347 @@ public class SimplePaint extends JFrame {
         }
     }
 
+    // 🧩 캔버스를 TILE_SIZE 타일로 나눈다.
+    // 획 한 구간이 지나간 타일들만 repaint(x, y, w, h) 로 요청하고, paintComponent 는 그 영역에 걸친 타일만 옮겨 그린다.
+    // 그래서 4K 캔버스에서도 한 번에 옮기는 픽셀이 캔버스 전체가 아니라 획 주변 몇 타일로 줄어든다.
+    // 타일 번호 비트(set/isSet)는 실행 취소 기록(Recorder)이 이미 저장한 타일을 표시하는 데 쓴다.
+    static class TileGrid {
+        final int width, height, cols, rows;
+        private final long[] bits;
+
+        TileGrid(int width, int height) {
+            this.width = width;
+            this.height = height;
+            cols = (width + TILE_SIZE - 1) / TILE_SIZE;
+            rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+            bits = new long[(cols * rows + 63) / 64];
+        }
+
+        // (x, y, w, h) 가 걸친 타일의 {첫 열, 첫 줄, 끝 열, 끝 줄}. 캔버스 밖이면 null
+        int[] range(int x, int y, int w, int h) {
+            if (w <= 0 || h <= 0) return null;
+            int c0 = Math.max(0, Math.floorDiv(x, TILE_SIZE));
+            int r0 = Math.max(0, Math.floorDiv(y, TILE_SIZE));
+            int c1 = Math.min(cols - 1, Math.floorDiv(x + w - 1, TILE_SIZE));
+            int r1 = Math.min(rows - 1, Math.floorDiv(y + h - 1, TILE_SIZE));
+            return c0 > c1 || r0 > r1 ? null : new int[]{c0, r0, c1, r1};
+        }
+
+        // (x, y, w, h) 가 걸친 타일들을 감싸는 사각형(캔버스 안으로 자른 것). 캔버스 밖이면 null
+        Rectangle snap(int x, int y, int w, int h) {
+            int[] t = range(x, y, w, h);
+            return t == null ? null : tileBounds(t[0], t[1], t[2], t[3]);
+        }
+
+        // 타일 번호 하나의 영역
+        Rectangle tileBounds(int tile) {
+            return tileBounds(tile % cols, tile / cols, tile % cols, tile / cols);
+        }
+
+        Rectangle tileBounds(int c0, int r0, int c1, int r1) {
+            int x = c0 * TILE_SIZE, y = r0 * TILE_SIZE;
+            return new Rectangle(x, y, Math.min(width, (c1 + 1) * TILE_SIZE) - x, Math.min(height, (r1 + 1) * TILE_SIZE) - y);
+        }
+
+        boolean isSet(int tile) { return (bits[tile >>> 6] & (1L << tile)) != 0; }
+
+        void set(int tile) { bits[tile >>> 6] |= 1L << tile; }
+
+        // clip 에 걸친 타일을 canvas 에서 옮겨 그린다. 같은 줄에서 이어진 타일은 한 번에 옮긴다.
+        // 다시 그려진 타일 수를 돌려준다 (clip 이 타일 경계에 맞지 않으면 걸친 타일 전체를 옮기고, 밖은 Graphics 가 잘라낸다).
+        int composite(Graphics g, BufferedImage canvas, Rectangle clip) {
+            int c0 = Math.max(0, clip.x / TILE_SIZE);
+            int r0 = Math.max(0, clip.y / TILE_SIZE);
+            int c1 = Math.min(cols - 1, (clip.x + clip.width - 1) / TILE_SIZE);
+            int r1 = Math.min(rows - 1, (clip.y + clip.height - 1) / TILE_SIZE);
+            if (clip.width <= 0 || clip.height <= 0 || c0 > c1 || r0 > r1) return 0;
+            int painted = 0;
+            for (int r = r0; r <= r1; r++) {
+                Rectangle run = tileBounds(c0, r, c1, r);
+                g.drawImage(canvas, run.x, run.y, run.x + run.width, run.y + run.height,
+                            run.x, run.y, run.x + run.width, run.y + run.height, null);
+                painted += c1 - c0 + 1;
+            }
+            return painted;
+        }
+    }
+
+    // 브러시/지우개 한 구간. 그릴 때와 다시 실행할 때 같은 메서드를 써서 같은 픽셀이 나오게 한다
+    static void drawSegment(Graphics2D g, int x1, int y1, int x2, int y2, Color color, int width) {
+        g.setColor(color);
+        g.setStroke(new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g.drawLine(x1, y1, x2, y2);
+    }
+
+    // 두 점 사이의 선분(두께 width)과 안티에일리어싱 번짐까지 덮는 사각형. 같은 두 점의 네모/원도 이 안에 들어간다.
+    // 직선은 네모난 끝(CAP_SQUARE)이 대각선 방향으로 width/√2 까지 나오므로 width/2 가 아니라 width*3/4 만큼 넓힌다.
+    static Rectangle segmentBounds(int x1, int y1, int x2, int y2, int width) {
+        int pad = width * 3 / 4 + 2;
+        return new Rectangle(Math.min(x1, x2) - pad, Math.min(y1, y2) - pad,
+                             Math.abs(x2 - x1) + 2 * pad + 1, Math.abs(y2 - y1) + 2 * pad + 1);
+    }
+
+    static void drawShape(Graphics2D g, String tool, int x1, int y1, int x2, int y2, Color color, int width, boolean fill) {
+        g.setColor(color);
+        g.setStroke(new BasicStroke(width));
+
+        int w = Math.abs(x2 - x1);
+        int h = Math.abs(y2 - y1);
+        int x = Math.min(x1, x2);
+        int y = Math.min(y1, y2);
+
+        if (tool.equals("Line")) {
+            g.drawLine(x1, y1, x2, y2);
+        } else if (tool.equals("Rect")) {
+            if (fill) g.fillRect(x, y, w, h);
+            else g.drawRect(x, y, w, h);
+        } else if (tool.equals("Oval")) {
+            if (fill) g.fillOval(x, y, w, h);
+            else g.drawOval(x, y, w, h);
+        }
+    }
+
+    // ↩️ 실행 취소 / 다시 실행
+    // - 작업마다 그 작업이 바꾼 타일의 "이전" 픽셀만 압축해 둔다 (되돌리기용). 캔버스 전체를 복사하지 않는다.
+    // - 다시 실행은 명령(도구, 점, 색, 굵기)을 다시 그려서 한다. 되돌린 뒤의 픽셀은 그 작업 전과 같으므로 결과도 같다.
+    //   다시 그릴 수 없는 작업(붙여넣기 확정)은 "이후" 픽셀도 압축해 둔다.
+    // - 기록 전체가 UNDO_BUDGET_BYTES 를 넘으면 가장 오래된 작업부터 버린다.
+
+    // 다시 그릴 수 있는 작업 하나 (브러시/지우개는 지나간 점들, 도형은 두 점, Fill 은 {x, y, w, h})
+    static class PaintCommand {
+        final String tool;  // Brush, Eraser, Line, Rect, Oval, Fill
+        final Color color;
+        final int width;    // 실제로 그린 굵기 (지우개는 크기 x 2)
+        final boolean fill;
+        final int[] points;
+
+        PaintCommand(String tool, Color color, int width, boolean fill, int[] points) {
+            this.tool = tool;
+            this.color = color;
+            this.width = width;
+            this.fill = fill;
+            this.points = points;
+        }
+
+        void replay(Graphics2D g) {
+            if (tool.equals("Brush") || tool.equals("Eraser")) {
+                for (int i = 2; i + 1 < points.length; i += 2) {
+                    drawSegment(g, points[i - 2], points[i - 1], points[i], points[i + 1], color, width);
+                }
+            } else if (tool.equals("Fill")) {
+                g.setColor(color);
+                g.fillRect(points[0], points[1], points[2], points[3]);
+            } else {
+                drawShape(g, tool, points[0], points[1], points[2], points[3], color, width, fill);
+            }
+        }
+    }
+
+    // 캔버스 타일 몇 개의 픽셀을 한 덩어리로 압축해 둔 것 (픽셀당 RGB 3바이트를 Deflate)
+    static class TileSnapshot {
+        final int[] tiles;
+        final byte[] data;
+
+        private TileSnapshot(int[] tiles, byte[] data) {
+            this.tiles = tiles;
+            this.data = data;
+        }
+
+        static int[] read(BufferedImage canvas, Rectangle r) {
+            return (int[]) canvas.getRaster().getDataElements(r.x, r.y, r.width, r.height, null);
+        }
+
+        static TileSnapshot compress(int[] tiles, int[][] pixels) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] rgb = new byte[TILE_SIZE * TILE_SIZE * 3];
+            byte[] buffer = new byte[8192];
+            for (int i = 0; i < tiles.length; i++) {
+                int n = 0;
+                for (int p : pixels[i]) {
+                    rgb[n++] = (byte) (p >> 16);
+                    rgb[n++] = (byte) (p >> 8);
+                    rgb[n++] = (byte) p;
+                }
+                deflater.setInput(rgb, 0, n);
+                while (!deflater.needsInput()) out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            deflater.finish();
+            while (!deflater.finished()) out.write(buffer, 0, deflater.deflate(buffer));
+            deflater.end();
+            return new TileSnapshot(tiles, out.toByteArray());
+        }
+
+        // 캔버스에 되돌려 쓰고, 바뀐 영역을 돌려준다
+        Rectangle restore(BufferedImage canvas, TileGrid layout) {
+            WritableRaster raster = canvas.getRaster();
+            Inflater inflater = new Inflater();
+            inflater.setInput(data);
+            byte[] rgb = new byte[TILE_SIZE * TILE_SIZE * 3];
+            Rectangle bounds = null;
+            try {
+                for (int tile : tiles) {
+                    Rectangle r = layout.tileBounds(tile);
+                    int n = r.width * r.height * 3;
+                    for (int off = 0; off < n; ) {
+                        int read = inflater.inflate(rgb, off, n - off);
+                        if (read == 0 && (inflater.finished() || inflater.needsInput())) throw new IllegalStateException("실행 취소 기록이 손상되었습니다");
+                        off += read;
+                    }
+                    int[] pixels = new int[r.width * r.height];
+                    for (int i = 0, j = 0; i < pixels.length; i++, j += 3) {
+                        pixels[i] = (rgb[j] & 0xFF) << 16 | (rgb[j + 1] & 0xFF) << 8 | (rgb[j + 2] & 0xFF);
+                    }
+                    raster.setDataElements(r.x, r.y, r.width, r.height, pixels);
+                    bounds = bounds == null ? r : bounds.union(r);
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("실행 취소 기록이 손상되었습니다", e);
+            } finally {
+                inflater.end();
+            }
+            return bounds;
+        }
+
+        long bytes() {
+            return 32 + data.length + tiles.length * 4L;
+        }
+    }
+
+    // 실행 취소 기록 한 단계
+    static class Edit {
+        final String name;
+        final TileSnapshot before;
+        final PaintCommand command;  // null 이면 after 로 다시 실행
+        final TileSnapshot after;
+        final Rectangle bounds;
+
+        Edit(String name, TileSnapshot before, PaintCommand command, TileSnapshot after, Rectangle bounds) {
+            this.name = name;
+            this.before = before;
+            this.command = command;
+            this.after = after;
+            this.bounds = bounds;
+        }
+
+        long bytes() {
+            return 64 + before.bytes() + (after != null ? after.bytes() : 0) + (command != null ? 32 + command.points.length * 4L : 0);
+        }
+    }
+
+    // 진행 중인 작업 하나. 그리기 전에 capture 로 바뀔 영역을 알려 주면, 처음 건드리는 타일의 픽셀만 복사해 둔다.
+    // (브러시 획은 끝날 때까지 여러 구간에 걸쳐 capture 한다)
+    static class Recorder {
+        private final BufferedImage canvas;
+        private final TileGrid captured;
+        private int[] tiles = new int[16];
+        private int[][] pixels = new int[16][];
+        private int count = 0;
+        private int[] points = new int[32];
+        private int pointCount = 0;
+        private Rectangle bounds;
+
+        Recorder(BufferedImage canvas) {
+            this.canvas = canvas;
+            captured = new TileGrid(canvas.getWidth(), canvas.getHeight());
+        }
+
+        void capture(Rectangle area) {
+            int[] t = captured.range(area.x, area.y, area.width, area.height);
+            if (t == null) return;
+            for (int r = t[1]; r <= t[3]; r++) {
+                for (int c = t[0]; c <= t[2]; c++) {
+                    int tile = r * captured.cols + c;
+                    if (captured.isSet(tile)) continue;
+                    captured.set(tile);
+                    if (count == tiles.length) {
+                        tiles = Arrays.copyOf(tiles, count * 2);
+                        pixels = Arrays.copyOf(pixels, count * 2);
+                    }
+                    tiles[count] = tile;
+                    pixels[count++] = TileSnapshot.read(canvas, captured.tileBounds(tile));
+                }
+            }
+            Rectangle covered = captured.tileBounds(t[0], t[1], t[2], t[3]);
+            bounds = bounds == null ? covered : bounds.union(covered);
+        }
+
+        void addPoint(int x, int y) {
+            if (pointCount + 2 > points.length) points = Arrays.copyOf(points, points.length * 2);
+            points[pointCount++] = x;
+            points[pointCount++] = y;
+        }
+
+        int[] points() {
+            return Arrays.copyOf(points, pointCount);
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        Edit finish(String name, PaintCommand command) {
+            int[] ids = Arrays.copyOf(tiles, count);
+            TileSnapshot before = TileSnapshot.compress(ids, pixels);
+            TileSnapshot after = null;
+            if (command == null) {
+                int[][] now = new int[count][];
+                for (int i = 0; i < count; i++) now[i] = TileSnapshot.read(canvas, captured.tileBounds(ids[i]));
+                after = TileSnapshot.compress(ids, now);
+            }
+            return new Edit(name, before, command, after, bounds);
+        }
+    }
+
+    // 되돌리기/다시 실행 스택. 새 작업을 기록하면 다시 실행 스택은 비운다.
+    static class UndoHistory {
+        private final ArrayDeque<Edit> undo = new ArrayDeque<>();  // 앞쪽이 가장 최근
+        private final ArrayDeque<Edit> redo = new ArrayDeque<>();
+        private final long budgetBytes;
+        private long bytes = 0;
+
+        UndoHistory(long budgetBytes) {
+            this.budgetBytes = budgetBytes;
+        }
+
+        void push(Edit edit) {
+            for (Edit e : redo) bytes -= e.bytes();
+            redo.clear();
+            undo.push(edit);
+            bytes += edit.bytes();
+            // 한도를 넘으면 가장 오래된 작업부터 버린다 (방금 한 작업 하나는 한도를 넘어도 남긴다)
+            while (bytes > budgetBytes && undo.size() > 1) bytes -= undo.pollLast().bytes();
+        }
+
+        Edit undo() {
+            Edit e = undo.poll();
+            if (e != null) redo.push(e);
+            return e;
+        }
+
+        Edit redo() {
+            Edit e = redo.poll();
+            if (e != null) undo.push(e);
+            return e;
+        }
+
+        void clear() {
+            undo.clear();
+            redo.clear();
+            bytes = 0;
+        }
+
+        int undoCount() { return undo.size(); }
+        int redoCount() { return redo.size(); }
+        long bytes() { return bytes; }
+    }
+
     class DrawPanel extends JPanel {
         private BufferedImage canvasImage;
         private Graphics2D g2d;
+        private TileGrid tiles;
+        private final UndoHistory history = new UndoHistory(UNDO_BUDGET_BYTES);
+        private Recorder stroke;  // 그리는 중인 브러시/지우개 획
         private int endX, endY;
         
         private SimplePaint parentFrame;
@@ -224,6 +583,9 @@ public class SimplePaint extends JFrame {
                     
                     if (currentTool.equals("Select")) {
                         isSelecting = true;
+                    } else if ((currentTool.equals("Brush") || currentTool.equals("Eraser")) && canvasImage != null) {
+                        stroke = new Recorder(canvasImage);
+                        stroke.addPoint(startX, startY);
                     }
                 }
 
@@ -232,34 +594,47 @@ public class SimplePaint extends JFrame {
                     if (isSelectionActive && selectionBounds != null) {
                         int dx = e.getX() - lastX;
                         int dy = e.getY() - lastY;
+                        Rectangle before = new Rectangle(selectionBounds);
                         selectionBounds.x += dx;
                         selectionBounds.y += dy;
                         lastX = e.getX();
                         lastY = e.getY();
-                        repaint();
+                        // 옮기기 전 자리와 옮긴 자리만 (점선 테두리 두께만큼 넓혀서)
+                        before.add(selectionBounds);
+                        before.grow(2, 2);
+                        repaintRegion(before);
                         return;
                     }
                     
+                    int prevX = endX, prevY = endY;
                     endX = e.getX();
                     endY = e.getY();
 
                     if (currentTool.equals("Brush")) {
+                        Rectangle segment = segmentBounds(startX, startY, endX, endY, strokeSize);
+                        recordSegment(segment);
                         drawBrush(startX, startY, endX, endY);
+                        repaintRegion(segment);
                         startX = endX;
                         startY = endY;
-                        repaint();
                     } else if (currentTool.equals("Eraser")) {
+                        Rectangle segment = segmentBounds(startX, startY, endX, endY, strokeSize * 2);
+                        recordSegment(segment);
                         drawEraser(startX, startY, endX, endY);
+                        repaintRegion(segment);
                         startX = endX;
                         startY = endY;
-                        repaint();
                     } else if (currentTool.equals("Line") || currentTool.equals("Rect") || currentTool.equals("Oval") || currentTool.equals("Select")) {
-                        repaint();
+                        // 미리보기: 이전 미리보기 자리와 새 자리만
+                        Rectangle preview = segmentBounds(startX, startY, prevX, prevY, strokeSize);
+                        preview.add(segmentBounds(startX, startY, endX, endY, strokeSize));
+                        repaintRegion(preview);
                     }
                 }
 
                 @Override
                 public void mouseReleased(MouseEvent e) {
+                    finishStroke();
                     if (isSelectionActive) {
                          return; 
                     }
@@ -268,8 +643,10 @@ public class SimplePaint extends JFrame {
                     endY = e.getY();
                     
                     if (currentTool.equals("Line") || currentTool.equals("Rect") || currentTool.equals("Oval")) {
-                        drawShape(g2d, currentTool, startX, startY, endX, endY, currentColor, isFilled);
-                        repaint();
+                        Rectangle area = segmentBounds(startX, startY, endX, endY, strokeSize);
+                        recordCommand(toolName(currentTool), area,
+                                      new PaintCommand(currentTool, currentColor, strokeSize, isFilled, new int[]{startX, startY, endX, endY}));
+                        repaintRegion(area);
                     } else if (currentTool.equals("Select")) {
                         int x = Math.min(startX, endX);
                         int y = Math.min(startY, endY);
@@ -362,8 +739,7 @@ public class SimplePaint extends JFrame {
                 copySelection(); // 복사 로직 재활용
                 
                 // 원본 캔버스 영역 지우기
-                g2d.setColor(Color.WHITE);
-                g2d.fillRect(selectionBounds.x, selectionBounds.y, selectionBounds.width, selectionBounds.height);
+                recordCommand("잘라내기", selectionBounds, fillCommand(selectionBounds));
                 
                 // 선택 상태는 유지 (점선은 남김)
                 selectedImage = null; 
@@ -415,8 +791,7 @@ public class SimplePaint extends JFrame {
             
             if (selectionBounds != null && selectionBounds.width > 0 && selectionBounds.height > 0) {
                 // 원본 캔버스 영역 지우기
-                g2d.setColor(Color.WHITE);
-                g2d.fillRect(selectionBounds.x, selectionBounds.y, selectionBounds.width, selectionBounds.height);
+                recordCommand("지우기", selectionBounds, fillCommand(selectionBounds));
                 
                 // 선택 영역 정보 초기화
                 selectionBounds = null;
@@ -431,7 +806,11 @@ public class SimplePaint extends JFrame {
         
         public void applySelectedImageToCanvas() {
             if (isSelectionActive && selectedImage != null && selectionBounds != null) {
+                // 붙여넣은 그림은 다시 그릴 명령이 없으므로 바뀐 뒤의 타일도 기록한다
+                Recorder recorder = new Recorder(canvasImage);
+                recorder.capture(selectionBounds);
                 g2d.drawImage(selectedImage, selectionBounds.x, selectionBounds.y, null);
+                if (!recorder.isEmpty()) history.push(recorder.finish("붙여넣기", null));
             }
             isSelectionActive = false;
             selectedImage = null;
@@ -441,17 +820,36 @@ public class SimplePaint extends JFrame {
             repaint();
         }
         
+        // 캔버스의 r 영역만 다시 그리도록 요청. 걸친 타일 전체로 넓혀 요청한다 (캔버스 밖 부분은 그대로)
+        private void repaintRegion(Rectangle r) {
+            if (tiles == null) {
+                repaint();
+                return;
+            }
+            Rectangle area = tiles.snap(r.x, r.y, r.width, r.height);
+            area = area == null ? r : area.union(r);
+            repaint(area.x, area.y, area.width, area.height);
+        }
+
+        private void createCanvas() {
+            canvasImage = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+            tiles = new TileGrid(canvasImage.getWidth(), canvasImage.getHeight());
+            history.clear(); // 기록은 타일 위치로 되돌리므로 캔버스를 새로 만들면 이어 쓸 수 없다
+            g2d = canvasImage.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
             if (canvasImage == null) {
-                canvasImage = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
-                g2d = canvasImage.createGraphics();
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                createCanvas();
                 g2d.setPaint(Color.WHITE);
                 g2d.fillRect(0, 0, getWidth(), getHeight());
             }
-            g.drawImage(canvasImage, 0, 0, null);
+            // 다시 그릴 영역(clip) 안의 타일만 옮긴다. 획을 그릴 때는 repaintRegion 이 요청한 타일들이다.
+            Rectangle clip = g.getClipBounds();
+            tiles.composite(g, canvasImage, clip != null ? clip : new Rectangle(0, 0, getWidth(), getHeight()));
 
             if (isSelectionActive && selectedImage != null && selectionBounds != null) {
                 g.drawImage(selectedImage, selectionBounds.x, selectionBounds.y, null);
@@ -482,22 +880,93 @@ public class SimplePaint extends JFrame {
                     gTemp.setColor(currentColor);
                     gTemp.setStroke(new BasicStroke(strokeSize));
                     
-                    drawShape(gTemp, currentTool, startX, startY, endX, endY, currentColor, isFilled);
+                    drawShape(gTemp, currentTool, startX, startY, endX, endY, currentColor, strokeSize, isFilled);
                     gTemp.dispose();
                 }
             }
         }
 
         public void clear() {
-            g2d.setPaint(Color.WHITE);
-            g2d.fillRect(0, 0, getWidth(), getHeight());
+            Rectangle all = new Rectangle(0, 0, canvasImage.getWidth(), canvasImage.getHeight());
+            recordCommand("새로 만들기", all, fillCommand(all));
             repaint();
         }
 
+        // --- 실행 취소 / 다시 실행 ---
+        public void undo() {
+            applySelectedImageToCanvas(); // 떠 있는 붙여넣기는 먼저 확정 (그것이 되돌릴 첫 단계가 된다)
+            Edit edit = history.undo();
+            if (edit == null) {
+                showHistoryStatus("되돌릴 작업이 없습니다");
+                return;
+            }
+            repaintRegion(edit.before.restore(canvasImage, tiles));
+            showHistoryStatus("실행 취소: " + edit.name);
+        }
+
+        public void redo() {
+            applySelectedImageToCanvas();
+            Edit edit = history.redo();
+            if (edit == null) {
+                showHistoryStatus("다시 실행할 작업이 없습니다");
+                return;
+            }
+            if (edit.command != null) {
+                edit.command.replay(g2d);
+            } else {
+                edit.after.restore(canvasImage, tiles);
+            }
+            repaintRegion(edit.bounds);
+            showHistoryStatus("다시 실행: " + edit.name);
+        }
+
+        private void showHistoryStatus(String message) {
+            parentFrame.statusLabel.setText(String.format(" %s | 실행 취소 %d단계, 다시 실행 %d단계 (기록 %.1fMB)",
+                message, history.undoCount(), history.redoCount(), history.bytes() / (1024.0 * 1024.0)));
+        }
+
+        // 명령 하나를 기록하면서 캔버스에 그린다 (그릴 때도 다시 실행과 같은 replay 를 쓴다)
+        private void recordCommand(String name, Rectangle area, PaintCommand command) {
+            Recorder recorder = new Recorder(canvasImage);
+            recorder.capture(area);
+            command.replay(g2d);
+            if (!recorder.isEmpty()) history.push(recorder.finish(name, command));
+        }
+
+        private PaintCommand fillCommand(Rectangle r) {
+            return new PaintCommand("Fill", Color.WHITE, 0, true, new int[]{r.x, r.y, r.width, r.height});
+        }
+
+        // 브러시/지우개 구간을 그리기 전에 그 자리의 타일을 기록해 둔다
+        private void recordSegment(Rectangle segment) {
+            if (stroke == null) return;
+            stroke.capture(segment);
+            stroke.addPoint(endX, endY);
+        }
+
+        private void finishStroke() {
+            if (stroke == null) return;
+            Recorder recorder = stroke;
+            stroke = null;
+            if (recorder.isEmpty()) return; // 누르기만 하고 움직이지 않았다
+            boolean eraser = currentTool.equals("Eraser");
+            history.push(recorder.finish(toolName(currentTool), new PaintCommand(currentTool, eraser ? Color.WHITE : currentColor,
+                                                                                 eraser ? strokeSize * 2 : strokeSize, false, recorder.points())));
+        }
+
+        private String toolName(String tool) {
+            switch (tool) {
+                case "Brush": return "브러시";
+                case "Eraser": return "지우개";
+                case "Line": return "선";
+                case "Rect": return "네모";
+                case "Oval": return "원";
+                default: return tool;
+            }
+        }
+
         public void loadImage(BufferedImage img) {
-            canvasImage = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
-            g2d = canvasImage.createGraphics();
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            createCanvas();
             g2d.drawImage(img, 0, 0, getWidth(), getHeight(), null);
             repaint();
         }
@@ -507,39 +976,193 @@ public class SimplePaint extends JFrame {
         }
 
         private void drawBrush(int x1, int y1, int x2, int y2) {
-            g2d.setColor(currentColor);
-            g2d.setStroke(new BasicStroke(strokeSize, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            g2d.drawLine(x1, y1, x2, y2);
+            drawSegment(g2d, x1, y1, x2, y2, currentColor, strokeSize);
         }
 
         private void drawEraser(int x1, int y1, int x2, int y2) {
-            g2d.setColor(Color.WHITE);
-            g2d.setStroke(new BasicStroke(strokeSize * 2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            g2d.drawLine(x1, y1, x2, y2);
-        }
-
-        private void drawShape(Graphics2D g, String tool, int x1, int y1, int x2, int y2, Color color, boolean fill) {
-            g.setColor(color);
-            g.setStroke(new BasicStroke(strokeSize));
-
-            int w = Math.abs(x2 - x1);
-            int h = Math.abs(y2 - y1);
-            int x = Math.min(x1, x2);
-            int y = Math.min(y1, y2);
-
-            if (tool.equals("Line")) {
-                g.drawLine(x1, y1, x2, y2);
-            } else if (tool.equals("Rect")) {
-                if (fill) g.fillRect(x, y, w, h);
-                else g.drawRect(x, y, w, h);
-            } else if (tool.equals("Oval")) {
-                if (fill) g.fillOval(x, y, w, h);
-                else g.drawOval(x, y, w, h);
+            drawSegment(g2d, x1, y1, x2, y2, Color.WHITE, strokeSize * 2);
+        }
+    }
+
+    // 📏 큰 캔버스에서 획 한 구간을 그리고 화면에 옮기는 속도 비교 (창 없이, 화면 대신 같은 크기의 이미지에 옮긴다)
+    // 실행: java SimplePaint --bench [가로 세로 구간수]   기본 3840 x 2160, 2000 구간
+    static void strokeBenchmark(int width, int height, int segments) {
+        int[] xs = new int[segments + 1], ys = new int[segments + 1];
+        java.util.Random random = new java.util.Random(42);
+        xs[0] = width / 2;
+        ys[0] = height / 2;
+        for (int i = 1; i <= segments; i++) { // 마우스 드래그처럼 몇 픽셀씩 움직이는 획
+            xs[i] = Math.max(0, Math.min(width - 1, xs[i - 1] + random.nextInt(25) - 12));
+            ys[i] = Math.max(0, Math.min(height - 1, ys[i - 1] + random.nextInt(25) - 12));
+        }
+        BufferedImage screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (String mode : new String[]{"전체 다시 그리기", "타일 다시 그리기"}) {
+            boolean tiled = mode.startsWith("타일");
+            BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = canvas.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setPaint(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.BLACK);
+            g.setStroke(new BasicStroke(8, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            TileGrid grid = new TileGrid(width, height);
+            Graphics2D out = screen.createGraphics();
+            long pixels = 0;
+            long start = 0;
+            for (int round = 0; round < 2; round++) { // 첫 바퀴는 워밍업
+                if (round == 1) {
+                    start = System.nanoTime();
+                    pixels = 0;
+                }
+                for (int i = 1; i <= segments; i++) {
+                    g.drawLine(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+                    if (tiled) {
+                        Rectangle segment = segmentBounds(xs[i - 1], ys[i - 1], xs[i], ys[i], 8);
+                        Rectangle r = grid.snap(segment.x, segment.y, segment.width, segment.height);
+                        if (r == null) continue;
+                        Graphics clipped = out.create();
+                        clipped.clipRect(r.x, r.y, r.width, r.height);
+                        grid.composite(clipped, canvas, r);
+                        clipped.dispose();
+                        pixels += (long) r.width * r.height;
+                    } else {
+                        out.drawImage(canvas, 0, 0, null);
+                        pixels += (long) width * height;
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            out.dispose();
+            g.dispose();
+            System.out.printf("%s: %,.0f 구간/초, 구간당 옮긴 픽셀 %,d%n", mode, segments / seconds, pixels / segments);
+        }
+    }
+
+    // ✅ 실행 취소 기록 자체 점검 (창 없이): 타일 압축/복원이 픽셀을 그대로 돌려주는지, 작업을 모두 되돌리면 처음 그림이 되고
+    // 다시 실행하면 마지막 그림이 되는지 본다. 캔버스 크기를 타일 크기의 배수가 아니게 잡아 가장자리 타일도 확인한다.
+    // 실행: java SimplePaint --check     실패하면 종료 코드 1
+    static boolean undoSelfCheck() {
+        int width = 1000, height = 700;
+        java.util.Random random = new java.util.Random(25);
+        BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) canvas.setRGB(x, y, random.nextInt(1 << 24)); // 압축이 잘 안 되는 픽셀
+        }
+        TileGrid layout = new TileGrid(width, height);
+        boolean ok = true;
+
+        // 1) 타일 압축 -> 덮어쓰기 -> 복원
+        int[] original = pixels(canvas);
+        int[] tiles = {0, layout.cols - 1, layout.cols * layout.rows - 1, layout.cols * 3 + 5}; // 오른쪽/아래 가장자리 포함
+        int[][] saved = new int[tiles.length][];
+        for (int i = 0; i < tiles.length; i++) saved[i] = TileSnapshot.read(canvas, layout.tileBounds(tiles[i]));
+        TileSnapshot snapshot = TileSnapshot.compress(tiles, saved);
+        Graphics2D g = canvas.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width, height);
+        snapshot.restore(canvas, layout);
+        Rectangle[] restored = new Rectangle[tiles.length];
+        for (int i = 0; i < tiles.length; i++) restored[i] = layout.tileBounds(tiles[i]);
+        int wrong = 0;
+        for (int i = 0; i < original.length; i++) {
+            int x = i % width, y = i / width;
+            boolean inSnapshot = false;
+            for (Rectangle r : restored) inSnapshot |= r.contains(x, y);
+            if (canvas.getRGB(x, y) != (inSnapshot ? original[i] : Color.BLACK.getRGB())) wrong++;
+        }
+        ok &= report(wrong == 0, "타일 압축 후 복원하면 그 타일만 원래 픽셀 (다른 픽셀 " + wrong + "개)");
+
+        boolean corrupt = false;
+        try {
+            new TileSnapshot(tiles, Arrays.copyOf(snapshot.data, snapshot.data.length / 2)).restore(canvas, layout);
+        } catch (IllegalStateException e) {
+            corrupt = true;
+        }
+        ok &= report(corrupt, "잘린 기록은 손상으로 알림");
+
+        // 2) 작업 여러 개 기록 -> 모두 되돌리기 -> 모두 다시 실행
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        int[] first = pixels(canvas);
+        UndoHistory history = new UndoHistory(Long.MAX_VALUE);
+        String[] tools = {"Brush", "Eraser", "Line", "Rect", "Oval", "Fill", "Paste"};
+        for (int op = 0; op < 200; op++) {
+            String tool = tools[random.nextInt(tools.length)];
+            Color color = new Color(random.nextInt(1 << 24));
+            int size = 1 + random.nextInt(30);
+            int x1 = random.nextInt(width + 100) - 50, y1 = random.nextInt(height + 100) - 50; // 캔버스 밖으로 나가는 획도 섞는다
+            int x2 = x1 + random.nextInt(400) - 200, y2 = y1 + random.nextInt(400) - 200;
+            Recorder recorder = new Recorder(canvas);
+            PaintCommand command;
+            if (tool.equals("Brush") || tool.equals("Eraser")) {
+                recorder.addPoint(x1, y1);
+                for (int s = 0; s < 20; s++) {
+                    int nx = x1 + random.nextInt(41) - 20, ny = y1 + random.nextInt(41) - 20;
+                    recorder.capture(segmentBounds(x1, y1, nx, ny, size));
+                    recorder.addPoint(nx, ny);
+                    drawSegment(g, x1, y1, nx, ny, color, size);
+                    x1 = nx;
+                    y1 = ny;
+                }
+                command = new PaintCommand(tool, color, size, false, recorder.points());
+            } else if (tool.equals("Paste")) { // 다시 그릴 수 없는 작업: 이후 픽셀로 다시 실행
+                Rectangle area = new Rectangle(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1) + 1, Math.abs(y2 - y1) + 1);
+                recorder.capture(area);
+                g.setColor(color);
+                g.fill(area);
+                command = null;
+            } else {
+                int[] points = tool.equals("Fill") ? new int[]{Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1), Math.abs(y2 - y1)}
+                                                   : new int[]{x1, y1, x2, y2};
+                command = new PaintCommand(tool, color, size, random.nextBoolean(), points);
+                recorder.capture(tool.equals("Fill") ? new Rectangle(points[0], points[1], points[2], points[3]) : segmentBounds(x1, y1, x2, y2, size));
+                command.replay(g);
             }
+            if (!recorder.isEmpty()) history.push(recorder.finish(tool, command));
         }
+        int[] last = pixels(canvas);
+        int levels = history.undoCount();
+        for (Edit edit = history.undo(); edit != null; edit = history.undo()) edit.before.restore(canvas, layout);
+        ok &= report(Arrays.equals(pixels(canvas), first), levels + "단계를 모두 되돌리면 처음 그림");
+        for (Edit edit = history.redo(); edit != null; edit = history.redo()) {
+            if (edit.command != null) {
+                edit.command.replay(g);
+            } else {
+                edit.after.restore(canvas, layout);
+            }
+        }
+        ok &= report(Arrays.equals(pixels(canvas), last), "모두 다시 실행하면 마지막 그림");
+        g.dispose();
+
+        // 3) 한도를 넘으면 오래된 작업부터 버리되 방금 한 작업은 남긴다
+        UndoHistory small = new UndoHistory(1);
+        Edit newest = null;
+        for (int i = 0; i < 3; i++) small.push(newest = history.undo());
+        ok &= report(small.undoCount() == 1 && small.bytes() == newest.bytes() && small.undo() == newest, "한도보다 큰 작업도 마지막 하나는 남김");
+        return ok;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static boolean report(boolean ok, String message) {
+        System.out.println((ok ? "  ok   " : "  FAIL ") + message);
+        return ok;
     }
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--check")) {
+            boolean ok = undoSelfCheck();
+            System.out.println(ok ? "통과" : "실패");
+            System.exit(ok ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--bench")) {
+            strokeBenchmark(args.length > 1 ? Integer.parseInt(args[1]) : 3840, args.length > 2 ? Integer.parseInt(args[2]) : 2160,
+                            args.length > 3 ? Integer.parseInt(args[3]) : 2000);
+            return;
+        }
         SwingUtilities.invokeLater(() -> new SimplePaint());
     }
 }
\ No newline at end of file